@@ -41,6 +41,7 @@ import java.util.Optional;
 import org.opendatakit.briefcase.model.BriefcasePreferences;
 import org.opendatakit.briefcase.operations.PullFormFromCentral;
 import org.opendatakit.briefcase.operations.PushFormToCentral;
+import org.opendatakit.briefcase.operations.RelayFormFromAggregateToCentral;
 import org.opendatakit.briefcase.reused.BriefcaseException;
 import org.opendatakit.common.cli.Cli;
 import org.slf4j.Logger;
@@ -70,6 +71,7 @@ public class Launcher {
         .register(PullFormFromCentral.OPERATION)
         .register(PUSH_FORM_TO_AGGREGATE)
         .register(PushFormToCentral.OPERATION)
+        .register(RelayFormFromAggregateToCentral.OPERATION)
         .register(IMPORT_FROM_ODK)
         .register(EXPORT_FORM)
         .register(CLEAR_PREFS)
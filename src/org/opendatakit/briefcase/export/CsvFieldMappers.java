@@ -250,8 +250,12 @@ final class CsvFieldMappers {
 
     Path sourceFile = workingDir.resolve(sourceFilename);
 
-    // When the source file doesn't exist, we return the input value
-    if (!exists(sourceFile))
+    // When the source file doesn't exist, we return the input value,
+    // unless it's pending from a pull and we can fetch it now
+    boolean sourceFileExists = exists(sourceFile) || configuration.getMediaFetcher()
+        .map(fetcher -> fetcher.fetch(sourceFile))
+        .orElse(false);
+    if (!sourceFileExists)
       return Stream.of(Pair.of(element.fqn(), Paths.get("media").resolve(sourceFilename).toString()));
 
     // When the destination file doesn't exist, we copy the source file
@@ -265,7 +269,9 @@ final class CsvFieldMappers {
     // When the destination file has the same hash as the source file,
     // we don't do any side-effect and return its path relative to the
     // instance folder
-    Boolean sameHash = OptionalProduct.all(getMd5Hash(sourceFile), getMd5Hash(destinationFile)).map(Objects::equals).orElse(false);
+    Boolean sameHash = configuration.getMediaHashes()
+        .map(hashes -> hashes.sameContents(sourceFile, destinationFile))
+        .orElseGet(() -> OptionalProduct.all(getMd5Hash(sourceFile), getMd5Hash(destinationFile)).map(Objects::equals).orElse(false));
     if (sameHash)
       return Stream.of(Pair.of(element.fqn(), Paths.get("media").resolve(destinationFile.getFileName()).toString()));
 
@@ -79,8 +79,11 @@ public class ExportConfiguration {
   private final OverridableBoolean includeGeoJsonExport;
   private final OverridableBoolean removeGroupNames;
   private final OverridableBoolean smartAppend;
+  // Not settings, so they're never saved, nor compared
+  private final Optional<MediaFetcher> mediaFetcher;
+  private final Optional<ExportMediaHashes> mediaHashes;
 
-  private ExportConfiguration(Optional<String> exportFileName, Optional<Path> exportDir, Optional<Path> pemFile, DateRange dateRange, OverridableBoolean pullBefore, OverridableBoolean overwriteFiles, OverridableBoolean exportMedia, OverridableBoolean splitSelectMultiples, OverridableBoolean includeGeoJsonExport, OverridableBoolean removeGroupNames, OverridableBoolean smartAppend) {
+  private ExportConfiguration(Optional<String> exportFileName, Optional<Path> exportDir, Optional<Path> pemFile, DateRange dateRange, OverridableBoolean pullBefore, OverridableBoolean overwriteFiles, OverridableBoolean exportMedia, OverridableBoolean splitSelectMultiples, OverridableBoolean includeGeoJsonExport, OverridableBoolean removeGroupNames, OverridableBoolean smartAppend, Optional<MediaFetcher> mediaFetcher, Optional<ExportMediaHashes> mediaHashes) {
     this.exportFileName = exportFileName;
     this.exportDir = exportDir;
     this.pemFile = pemFile;
@@ -92,6 +95,8 @@ public class ExportConfiguration {
     this.includeGeoJsonExport = includeGeoJsonExport;
     this.removeGroupNames = removeGroupNames;
     this.smartAppend = smartAppend;
+    this.mediaFetcher = mediaFetcher;
+    this.mediaHashes = mediaHashes;
   }
 
   public static List<String> keys() {
@@ -267,9 +272,31 @@ public class ExportConfiguration {
         .setIncludeGeoJsonExport(includeGeoJsonExport.fallingBackTo(defaultConfiguration.includeGeoJsonExport))
         .setRemoveGroupNames(removeGroupNames.fallingBackTo(defaultConfiguration.removeGroupNames))
         .setSmartAppend(smartAppend.fallingBackTo(defaultConfiguration.smartAppend))
+        .setMediaFetcher(mediaFetcher.isPresent() ? mediaFetcher : defaultConfiguration.mediaFetcher)
         .build();
   }
 
+  /**
+   * Returns a copy of this configuration that fetches the submission
+   * attachments left pending by a pull with the given {@link MediaFetcher}
+   * when exporting media files.
+   */
+  public ExportConfiguration withMediaFetcher(MediaFetcher mediaFetcher) {
+    return new ExportConfiguration(exportFileName, exportDir, pemFile, dateRange, pullBefore, overwriteFiles, exportMedia, splitSelectMultiples, includeGeoJsonExport, removeGroupNames, smartAppend, Optional.of(mediaFetcher), mediaHashes);
+  }
+
+  Optional<MediaFetcher> getMediaFetcher() {
+    return mediaFetcher;
+  }
+
+  ExportConfiguration withMediaHashes(ExportMediaHashes mediaHashes) {
+    return new ExportConfiguration(exportFileName, exportDir, pemFile, dateRange, pullBefore, overwriteFiles, exportMedia, splitSelectMultiples, includeGeoJsonExport, removeGroupNames, smartAppend, mediaFetcher, Optional.of(mediaHashes));
+  }
+
+  Optional<ExportMediaHashes> getMediaHashes() {
+    return mediaHashes;
+  }
+
   Optional<PrivateKey> getPrivateKey() {
     return pemFile.flatMap(ExportConfiguration::readPemFile);
   }
@@ -350,6 +377,7 @@ public class ExportConfiguration {
     private OverridableBoolean includeGeoJsonExport = OverridableBoolean.empty();
     private OverridableBoolean removeGroupNames = OverridableBoolean.empty();
     private OverridableBoolean smartAppend = OverridableBoolean.empty();
+    private Optional<MediaFetcher> mediaFetcher = Optional.empty();
 
     public static Builder empty() {
       return new Builder();
@@ -398,7 +426,9 @@ public class ExportConfiguration {
           splitSelectMultiples,
           includeGeoJsonExport,
           removeGroupNames,
-          smartAppend
+          smartAppend,
+          mediaFetcher,
+          Optional.empty()
       );
     }
 
@@ -559,6 +589,11 @@ public class ExportConfiguration {
       return this;
     }
 
+    Builder setMediaFetcher(Optional<MediaFetcher> mediaFetcher) {
+      this.mediaFetcher = mediaFetcher;
+      return this;
+    }
+
     public Builder overridePullBefore(TriStateBoolean overrideValue) {
       pullBefore = pullBefore.overrideWith(overrideValue);
       return this;
@@ -53,6 +53,14 @@ public class ExportEvent {
     );
   }
 
+  public static ExportEvent failedFetches(FormDefinition form, int failedFetches) {
+    return new ExportEvent(
+        form.getFormId(),
+        String.format("Can't fetch %d pending submission attachment%s. Pull them again before exporting to include them", failedFetches, sUnlessOne(failedFetches)),
+        false
+    );
+  }
+
   public static ExportEvent successForm(FormDefinition formDef, int total) {
     return new ExportEvent.Success(formDef.getFormId(), String.format("Exported %d submission%s", total, sUnlessOne(total)), true);
   }
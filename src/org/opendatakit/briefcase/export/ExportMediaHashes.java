@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.export;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import org.opendatakit.briefcase.reused.FileHashCache;
+
+/**
+ * Hashes the media files involved in an export with the {@link FileHashCache}
+ * of the form's directory, which is shared with pulls. This saves reading
+ * unchanged files on every export.
+ * <p>
+ * The hashes of the files in the export media directory are kept in the
+ * same cache, to avoid leaving a sidecar file in the export output. Files
+ * anywhere else, like the ones decrypted to a temporary directory, are
+ * always read.
+ */
+class ExportMediaHashes {
+  private final Path formDir;
+  private final Path exportMediaDir;
+  private final FileHashCache hashes;
+
+  private ExportMediaHashes(Path formDir, Path exportMediaDir, FileHashCache hashes) {
+    this.formDir = formDir;
+    this.exportMediaDir = exportMediaDir;
+    this.hashes = hashes;
+  }
+
+  static ExportMediaHashes of(Path formDir, Path exportMediaDir) {
+    Path absoluteFormDir = formDir.toAbsolutePath().normalize();
+    return new ExportMediaHashes(absoluteFormDir, exportMediaDir.toAbsolutePath().normalize(), FileHashCache.at(absoluteFormDir));
+  }
+
+  /**
+   * Returns true if both files have the same contents.
+   */
+  boolean sameContents(Path file, Path otherFile) {
+    return md5(file).equals(md5(otherFile));
+  }
+
+  String md5(Path file) {
+    Path absoluteFile = file.toAbsolutePath().normalize();
+    // Cache keys are relative to the form dir, which requires both paths to share the same root (e.g. drive)
+    boolean cacheable = absoluteFile.startsWith(formDir)
+        || (absoluteFile.startsWith(exportMediaDir) && Objects.equals(exportMediaDir.getRoot(), formDir.getRoot()));
+    return cacheable
+        ? hashes.md5(absoluteFile)
+        : FileHashCache.computeMd5(absoluteFile);
+  }
+
+  void save() {
+    hashes.save();
+  }
+}
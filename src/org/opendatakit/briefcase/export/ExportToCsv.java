@@ -67,12 +67,17 @@ public class ExportToCsv {
    * <p>
    * If the form has repeat groups, each repeat group will be exported into a separate CSV file.
    *
-   * @param formDef       the {@link FormDefinition} form definition of the form to be exported
-   * @param configuration the {@link ExportConfiguration} export configuration
+   * @param formDef             the {@link FormDefinition} form definition of the form to be exported
+   * @param exportConfiguration the {@link ExportConfiguration} export configuration
    * @return an {@link ExportOutcome} with the export operation's outcome
    * @see ExportConfiguration
    */
-  private static ExportOutcome export(FormMetadataPort formMetadataPort, FormMetadata formMetadata, FormStatus formStatus, FormDefinition formDef, Path briefcaseDir, ExportConfiguration configuration, Optional<Analytics> analytics) {
+  private static ExportOutcome export(FormMetadataPort formMetadataPort, FormMetadata formMetadata, FormStatus formStatus, FormDefinition formDef, Path briefcaseDir, ExportConfiguration exportConfiguration, Optional<Analytics> analytics) {
+    // Use cached hashes to compare the media files we export with the ones already exported
+    ExportConfiguration configuration = exportConfiguration.resolveExportMedia()
+        ? exportConfiguration.withMediaHashes(ExportMediaHashes.of(formStatus.getFormDir(briefcaseDir), exportConfiguration.getExportMediaPath()))
+        : exportConfiguration;
+
     // Create an export tracker object with the total number of submissions we have to export
     ExportProcessTracker exportTracker = new ExportProcessTracker(formDef);
     exportTracker.start();
@@ -86,6 +91,15 @@ public class ExportToCsv {
     List<Path> submissionFiles = getListOfSubmissionFiles(formMetadata, formDef, configuration.getDateRange(), configuration.resolveSmartAppend(), onParsingError);
     exportTracker.trackTotal(submissionFiles.size());
 
+    // Start fetching any submission attachment left pending by a pull,
+    // and wait for them if they have to be decrypted with their submission
+    Optional<MediaFetcher> mediaFetcher = configuration.getMediaFetcher().filter(__ -> configuration.resolveExportMedia());
+    mediaFetcher.ifPresent(fetcher -> {
+      fetcher.prefetch(submissionFiles);
+      if (formDef.isFileEncryptedForm())
+        fetcher.awaitAll();
+    });
+
     createDirectories(configuration.getExportDir());
 
     List<Csv> csvs = Csv.getCsvs(formDef, configuration);
@@ -119,6 +133,13 @@ public class ExportToCsv {
         Optional.ofNullable(csvLinesPerModel.get(csv.getModelFqn())).orElse(CsvLines.empty())
     ));
 
+    mediaFetcher.ifPresent(fetcher -> {
+      fetcher.save();
+      if (fetcher.getFailedFetches() > 0)
+        EventBus.publish(ExportEvent.failedFetches(formDef, fetcher.getFailedFetches()));
+    });
+    configuration.getMediaHashes().ifPresent(ExportMediaHashes::save);
+
     exportTracker.end();
 
     Optional.ofNullable(csvLinesPerModel.get(formDef.getModel().fqn()))
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.export;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createDirectories;
+import static org.opendatakit.briefcase.reused.http.RequestBuilder.get;
+import static org.opendatakit.briefcase.reused.http.RequestBuilder.url;
+
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.opendatakit.briefcase.model.FormStatus;
+import org.opendatakit.briefcase.pull.PendingAttachments;
+import org.opendatakit.briefcase.pull.PendingAttachments.PendingAttachment;
+import org.opendatakit.briefcase.reused.http.Http;
+import org.opendatakit.briefcase.reused.http.Request;
+import org.opendatakit.briefcase.reused.http.TransferCounter;
+import org.opendatakit.briefcase.reused.transfer.AggregateServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fetches the submission attachments that a pull left pending, when
+ * an export needs them.
+ * <p>
+ * Fetched files are saved where the pull would have saved them, and
+ * their pending entries are removed, which makes the form's submission
+ * directories the cache of fetched files for later exports.
+ * <p>
+ * Only attachments with a known download URL can be fetched (e.g. Aggregate).
+ * Fetches send the credentials of the form's pull source, as long as the
+ * download URL belongs to that server.
+ */
+public class MediaFetcher {
+  private static final Logger log = LoggerFactory.getLogger(MediaFetcher.class);
+  private final Http http;
+  private final FormStatus form;
+  private final Path briefcaseDir;
+  private final Optional<AggregateServer> source;
+  private final Map<Path, CompletableFuture<Boolean>> fetches = new ConcurrentHashMap<>();
+  private final TransferCounter transferCounter = new TransferCounter();
+  private final AtomicInteger failedFetches = new AtomicInteger(0);
+  private PendingAttachments pendingAttachments;
+
+  private MediaFetcher(Http http, FormStatus form, Path briefcaseDir, Optional<AggregateServer> source) {
+    this.http = http;
+    this.form = form;
+    this.briefcaseDir = briefcaseDir;
+    this.source = source;
+  }
+
+  public static MediaFetcher of(Http http, FormStatus form, Path briefcaseDir, Optional<AggregateServer> source) {
+    return new MediaFetcher(http, form, briefcaseDir, source);
+  }
+
+  /**
+   * Starts fetching the pending attachments of the given submission files.
+   * <p>
+   * Pending attachments are read at this point, so that the ones
+   * downloaded by a pull that runs before the export are not fetched again.
+   */
+  synchronized void prefetch(List<Path> submissionFiles) {
+    pendingAttachments = PendingAttachments.at(form.getFormDir(briefcaseDir));
+    if (pendingAttachments.isEmpty())
+      return;
+
+    Set<Path> submissionDirs = submissionFiles.stream()
+        .map(file -> normalize(file.getParent()))
+        .collect(Collectors.toSet());
+    pendingAttachments.getAll().stream()
+        .filter(attachment -> attachment.getDownloadUrl().isPresent())
+        .forEach(attachment -> {
+          Path target = normalize(form.getSubmissionMediaFile(briefcaseDir, attachment.getInstanceId(), attachment.getFilename()));
+          if (submissionDirs.contains(target.getParent()))
+            fetches.computeIfAbsent(target, __ -> download(attachment, target));
+        });
+  }
+
+  /**
+   * Waits until all the fetches started by {@link #prefetch(List)} are done.
+   */
+  void awaitAll() {
+    fetches.values().forEach(CompletableFuture::join);
+  }
+
+  /**
+   * Waits for the given file to be fetched, if it's pending.
+   *
+   * @return true if the file exists once fetched
+   */
+  boolean fetch(Path file) {
+    return Optional.ofNullable(fetches.get(normalize(file)))
+        .map(CompletableFuture::join)
+        .orElseGet(() -> Files.exists(file));
+  }
+
+  /**
+   * Returns the number of pending attachments that couldn't be fetched.
+   */
+  int getFailedFetches() {
+    return failedFetches.get();
+  }
+
+  /**
+   * Writes the remaining pending attachments to disk.
+   */
+  synchronized void save() {
+    if (pendingAttachments != null)
+      pendingAttachments.save();
+    if (!fetches.isEmpty())
+      log.info("Fetched pending attachments of form {}: {}", form.getFormName(), transferCounter.describe());
+  }
+
+  private CompletableFuture<Boolean> download(PendingAttachment attachment, Path target) {
+    if (Files.exists(target)) {
+      pendingAttachments.remove(attachment);
+      return completedFuture(true);
+    }
+    createDirectories(target.getParent());
+    return http.executeAsync(getDownloadRequest(url(attachment.getDownloadUrl().get()), target))
+        .thenApply(response -> {
+          if (!response.isSuccess()) {
+            log.warn("Can't fetch pending attachment {} of submission {}: HTTP {}", attachment.getFilename(), attachment.getInstanceId(), response.getStatusCode());
+            failedFetches.incrementAndGet();
+            return false;
+          }
+          pendingAttachments.remove(attachment);
+          return true;
+        })
+        .exceptionally(e -> {
+          log.warn("Can't fetch pending attachment {} of submission {}", attachment.getFilename(), attachment.getInstanceId(), e);
+          failedFetches.incrementAndGet();
+          return false;
+        });
+  }
+
+  private Request<Void> getDownloadRequest(URL downloadUrl, Path target) {
+    // The source server's credentials are never sent to other servers
+    Request<Void> request = source
+        .filter(server -> isSameOrigin(server.getBaseUrl(), downloadUrl))
+        .map(server -> server.getDownloadAttachmentRequest(downloadUrl, target))
+        .orElseGet(() -> get(downloadUrl).downloadTo(target).build());
+    return request.builder()
+        .withTransferCounter(transferCounter)
+        .withSchedulingGroup(form.getFormId())
+        .build();
+  }
+
+  private static boolean isSameOrigin(URL url, URL otherUrl) {
+    return url.getProtocol().equalsIgnoreCase(otherUrl.getProtocol())
+        && url.getHost().equalsIgnoreCase(otherUrl.getHost())
+        && url.getPort() == otherUrl.getPort();
+  }
+
+  private static Path normalize(Path path) {
+    return path.toAbsolutePath().normalize();
+  }
+}
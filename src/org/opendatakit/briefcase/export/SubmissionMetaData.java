@@ -15,14 +15,27 @@
  */
 package org.opendatakit.briefcase.export;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toList;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
+import org.kxml2.io.KXmlParser;
+import org.kxml2.kdom.Document;
+import org.kxml2.kdom.Element;
+import org.kxml2.kdom.Node;
 import org.opendatakit.briefcase.model.ParsingException;
+import org.opendatakit.briefcase.reused.BriefcaseException;
 import org.opendatakit.briefcase.reused.Iso8601Helpers;
 import org.opendatakit.briefcase.reused.Optionals;
+import org.opendatakit.briefcase.reused.UncheckedFiles;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
 
 /**
  * This class holds a form's metadata. Instances of this class are
@@ -53,6 +66,77 @@ public class SubmissionMetaData {
     this.root = root;
   }
 
+  /**
+   * Reads the metadata of the given submission file with a streaming parser,
+   * keeping only the root element's attributes and the &lt;meta&gt; block.
+   * Parsing stops as soon as the &lt;meta&gt; block ends.
+   * <p>
+   * This is enough to get the instance ID, form ID, version, and submission
+   * date of a submission without building the whole document in memory. Any
+   * other value (e.g. media names or encryption values) won't be present.
+   *
+   * @throws BriefcaseException if the file can't be parsed
+   */
+  public static SubmissionMetaData readFrom(Path submissionFile) {
+    try (InputStream is = UncheckedFiles.newInputStream(submissionFile);
+         InputStreamReader isr = new InputStreamReader(is, UTF_8)) {
+      KXmlParser parser = new KXmlParser();
+      parser.setInput(isr);
+      parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+      Document document = new Document();
+      Element root = null;
+      int eventType = parser.next();
+      while (eventType != XmlPullParser.END_DOCUMENT) {
+        if (eventType == XmlPullParser.START_TAG && parser.getDepth() == 1) {
+          root = document.createElement(parser.getNamespace(), parser.getName());
+          for (int i = 0, max = parser.getAttributeCount(); i < max; i++)
+            root.setAttribute(parser.getAttributeNamespace(i), parser.getAttributeName(i), parser.getAttributeValue(i));
+          document.addChild(Node.ELEMENT, root);
+        } else if (eventType == XmlPullParser.START_TAG && parser.getDepth() == 2 && parser.getName().equals("meta")) {
+          Element meta = root.createElement(parser.getNamespace(), parser.getName());
+          meta.parse(parser);
+          root.addChild(Node.ELEMENT, meta);
+          break;
+        } else if (eventType == XmlPullParser.END_TAG && parser.getDepth() == 1) {
+          break;
+        }
+        eventType = parser.next();
+      }
+      if (root == null)
+        throw new BriefcaseException("No root element in submission " + submissionFile);
+      return new SubmissionMetaData(XmlElement.of(document));
+    } catch (IOException | XmlPullParserException e) {
+      throw new BriefcaseException(e);
+    }
+  }
+
+  /**
+   * Reads the submission date of the given submission file with a streaming
+   * parser, which stops at the root element when it has a "submissionDate"
+   * attribute. Otherwise, the rest of elements are scanned for it.
+   *
+   * @throws BriefcaseException if the file can't be parsed
+   */
+  public static Optional<OffsetDateTime> readSubmissionDate(Path submissionFile) {
+    try (InputStream is = UncheckedFiles.newInputStream(submissionFile);
+         InputStreamReader isr = new InputStreamReader(is, UTF_8)) {
+      KXmlParser parser = new KXmlParser();
+      parser.setInput(isr);
+      parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, true);
+      int eventType = parser.next();
+      while (eventType != XmlPullParser.END_DOCUMENT) {
+        if (eventType == XmlPullParser.START_TAG)
+          for (int i = 0, max = parser.getAttributeCount(); i < max; i++)
+            if (parser.getAttributeName(i).equals("submissionDate"))
+              return Optional.of(Iso8601Helpers.parseDateTime(parser.getAttributeValue(i)));
+        eventType = parser.next();
+      }
+      return Optional.empty();
+    } catch (IOException | XmlPullParserException e) {
+      throw new BriefcaseException(e);
+    }
+  }
+
   /**
    * Returns the submission date, located at the root node's "submissionDate" attribute.
    * <p>
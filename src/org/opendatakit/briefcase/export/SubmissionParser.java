@@ -17,7 +17,6 @@ package org.opendatakit.briefcase.export;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toList;
-import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
 import static org.apache.commons.codec.binary.Base64.decodeBase64;
 import static org.opendatakit.briefcase.export.CipherFactory.signatureDecrypter;
 import static org.opendatakit.briefcase.reused.UncheckedFiles.createTempDirectory;
@@ -28,7 +27,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.MessageDigest;
@@ -44,15 +42,11 @@ import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.CipherInputStream;
 import javax.crypto.IllegalBlockSizeException;
-import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.XMLStreamReader;
 import org.bushe.swing.event.EventBus;
 import org.kxml2.io.KXmlParser;
 import org.kxml2.kdom.Document;
 import org.opendatakit.briefcase.model.CryptoException;
 import org.opendatakit.briefcase.model.form.FormMetadata;
-import org.opendatakit.briefcase.reused.Iso8601Helpers;
 import org.opendatakit.briefcase.reused.OptionalProduct;
 import org.opendatakit.briefcase.reused.Pair;
 import org.opendatakit.briefcase.reused.UncheckedFiles;
@@ -66,7 +60,6 @@ import org.xmlpull.v1.XmlPullParserException;
  */
 public class SubmissionParser {
   private static final Logger log = LoggerFactory.getLogger(SubmissionParser.class);
-  private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
 
   /**
    * Returns an sorted {@link List} of {@link Path} instances pointing to all the
@@ -86,7 +79,7 @@ public class SubmissionParser {
         .forEach(instanceDir -> {
           Path submissionFile = instanceDir.resolve("submission.xml");
           try {
-            Optional<OffsetDateTime> submissionDate = readSubmissionDate(submissionFile);
+            Optional<OffsetDateTime> submissionDate = SubmissionMetaData.readSubmissionDate(submissionFile);
             paths.add(Pair.of(submissionFile, submissionDate.orElse(OffsetDateTime.of(1970, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC))));
           } catch (Throwable t) {
             log.error("Parse error attempting to read instance date", t);
@@ -153,26 +146,6 @@ public class SubmissionParser {
     });
   }
 
-  private static Optional<OffsetDateTime> readSubmissionDate(Path path) throws XMLStreamException {
-    try (InputStream is = Files.newInputStream(path);
-         InputStreamReader isr = new InputStreamReader(is, UTF_8)) {
-      return parseAttribute(isr, "submissionDate")
-          .map(Iso8601Helpers::parseDateTime);
-    } catch (IOException e) {
-      throw new CryptoException("Can't decrypt file", e);
-    }
-  }
-
-  private static Optional<String> parseAttribute(Reader ioReader, String attributeName) throws XMLStreamException {
-    XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(ioReader);
-    while (reader.hasNext())
-      if (reader.next() == START_ELEMENT)
-        for (int i = 0, c = reader.getAttributeCount(); i < c; ++i)
-          if (reader.getAttributeLocalName(i).equals(attributeName))
-            return Optional.of(reader.getAttributeValue(i));
-    return Optional.empty();
-  }
-
   private static Optional<Submission> decrypt(Submission submission, SubmissionExportErrorCallback onError) {
     List<Path> mediaPaths = submission.getMediaPaths();
 
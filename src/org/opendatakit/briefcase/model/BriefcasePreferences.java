@@ -47,10 +47,15 @@ public class BriefcasePreferences {
   private static final String BRIEFCASE_PROXY_HOST_PROPERTY = "briefcaseProxyHost";
   private static final String BRIEFCASE_PROXY_PORT_PROPERTY = "briefcaseProxyPort";
   private static final String BRIEFCASE_START_FROM_LAST_PROPERTY = "briefcaseResumeLastPull";
+  private static final String BRIEFCASE_RESEND_SUBMISSIONS_PROPERTY = "briefcaseResendSubmissions";
   public static final String BRIEFCASE_TRACKING_CONSENT_PROPERTY = "briefcaseTrackingConsent";
   private static final String BRIEFCASE_STORE_PASSWORDS_CONSENT_PROPERTY = "briefcaseStorePasswordsConsent";
   private static final String BRIEFCASE_UNIQUE_USER_ID_PROPERTY = "uniqueUserID";
   private static final String BRIEFCASE_MAX_HTTP_CONNECTIONS_PROPERTY = "maxHttpConnections";
+  private static final String BRIEFCASE_HTTP_TIMEOUT_PROPERTY = "httpTimeout";
+  private static final String BRIEFCASE_HTTP_RETRIES_PROPERTY = "httpRetries";
+  private static final String BRIEFCASE_MAX_UPLOAD_RATE_PROPERTY = "maxUploadRate";
+  private static final String BRIEFCASE_MAX_DOWNLOAD_RATE_PROPERTY = "maxDownloadRate";
   public static final String BRIEFCASE_DIR = "ODK Briefcase Storage";
   private static final String TRACKING_WARNING_SHOWED_PREF_KEY = "tracking warning showed";
 
@@ -209,10 +214,68 @@ public class BriefcasePreferences {
     put(BRIEFCASE_MAX_HTTP_CONNECTIONS_PROPERTY, String.valueOf(value));
   }
 
+  public Optional<Integer> getHttpTimeout() {
+    return nullSafeGet(BRIEFCASE_HTTP_TIMEOUT_PROPERTY).map(Integer::parseInt);
+  }
+
+  public void setHttpTimeout(int seconds) {
+    put(BRIEFCASE_HTTP_TIMEOUT_PROPERTY, String.valueOf(seconds));
+  }
+
+  public Optional<Integer> getHttpRetries() {
+    return nullSafeGet(BRIEFCASE_HTTP_RETRIES_PROPERTY).map(Integer::parseInt);
+  }
+
+  public void setHttpRetries(int value) {
+    put(BRIEFCASE_HTTP_RETRIES_PROPERTY, String.valueOf(value));
+  }
+
+  /**
+   * Returns the maximum kilobytes per second to upload, adding up all the connections.
+   */
+  public Optional<Integer> getMaxUploadRate() {
+    return nullSafeGet(BRIEFCASE_MAX_UPLOAD_RATE_PROPERTY).map(Integer::parseInt);
+  }
+
+  public void setMaxUploadRate(int kbps) {
+    put(BRIEFCASE_MAX_UPLOAD_RATE_PROPERTY, String.valueOf(kbps));
+  }
+
+  public void unsetMaxUploadRate() {
+    remove(BRIEFCASE_MAX_UPLOAD_RATE_PROPERTY);
+  }
+
+  /**
+   * Returns the maximum kilobytes per second to download, adding up all the connections.
+   */
+  public Optional<Integer> getMaxDownloadRate() {
+    return nullSafeGet(BRIEFCASE_MAX_DOWNLOAD_RATE_PROPERTY).map(Integer::parseInt);
+  }
+
+  public void setMaxDownloadRate(int kbps) {
+    put(BRIEFCASE_MAX_DOWNLOAD_RATE_PROPERTY, String.valueOf(kbps));
+  }
+
+  public void unsetMaxDownloadRate() {
+    remove(BRIEFCASE_MAX_DOWNLOAD_RATE_PROPERTY);
+  }
+
   public void setStartFromLast(Boolean enabled) {
     put(BRIEFCASE_START_FROM_LAST_PROPERTY, enabled.toString());
   }
 
+  /**
+   * Returns whether pushes should send again the submissions
+   * that the target server has already accepted.
+   */
+  public Optional<Boolean> getResendSubmissions() {
+    return nullSafeGet(BRIEFCASE_RESEND_SUBMISSIONS_PROPERTY).map(Boolean::parseBoolean);
+  }
+
+  public void setResendSubmissions(Boolean enabled) {
+    put(BRIEFCASE_RESEND_SUBMISSIONS_PROPERTY, enabled.toString());
+  }
+
   public void setRememberPasswords(Boolean enabled) {
     put(BRIEFCASE_STORE_PASSWORDS_CONSENT_PROPERTY, enabled.toString());
     EventBus.publish(enabled ? new SavePasswordsConsentGiven() : new SavePasswordsConsentRevoked());
@@ -242,6 +305,10 @@ public class BriefcasePreferences {
     return getStartFromLast().orElse(false);
   }
 
+  public boolean resolveResendSubmissions() {
+    return getResendSubmissions().orElse(false);
+  }
+
   /**
    * Enum that implements the strategies, to create differently scoped preferences.
    */
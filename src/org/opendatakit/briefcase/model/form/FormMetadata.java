@@ -1,5 +1,6 @@
 package org.opendatakit.briefcase.model.form;
 
+import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
 import static org.opendatakit.briefcase.model.form.AsJson.getJson;
 import static org.opendatakit.briefcase.util.Host.isWindows;
 
@@ -30,8 +31,17 @@ public class FormMetadata implements AsJson {
    * there could be form submissions that point to previous form versions.
    */
   private final Set<String> submissionVersions;
+  /**
+   * The submission date of the latest submission pulled from Central. Like the
+   * {@link Cursor} for Aggregate, it lets us pull only newer submissions next time.
+   */
+  private final Optional<OffsetDateTime> lastPulledSubmissionDate;
 
   public FormMetadata(FormKey key, Path storageRoot, Path formDir, boolean hasBeenPulled, Cursor cursor, Optional<SubmissionExportMetadata> lastExportedSubmission, Set<String> submissionVersions) {
+    this(key, storageRoot, formDir, hasBeenPulled, cursor, lastExportedSubmission, submissionVersions, Optional.empty());
+  }
+
+  public FormMetadata(FormKey key, Path storageRoot, Path formDir, boolean hasBeenPulled, Cursor cursor, Optional<SubmissionExportMetadata> lastExportedSubmission, Set<String> submissionVersions, Optional<OffsetDateTime> lastPulledSubmissionDate) {
     this.key = key;
     this.storageRoot = storageRoot;
     this.formDir = formDir.isAbsolute() ? storageRoot.relativize(formDir) : formDir;
@@ -39,6 +49,7 @@ public class FormMetadata implements AsJson {
     this.cursor = cursor;
     this.lastExportedSubmission = lastExportedSubmission;
     this.submissionVersions = submissionVersions;
+    this.lastPulledSubmissionDate = lastPulledSubmissionDate;
   }
 
   public static FormMetadata of(FormKey key, Path storageRoot, Path formDir) {
@@ -77,7 +88,8 @@ public class FormMetadata implements AsJson {
         getJson(root, "hasBeenPulled").map(JsonNode::asBoolean).orElseThrow(BriefcaseException::new),
         Cursor.from(root.get("cursor")),
         getJson(root, "lastExportedSubmission").map(SubmissionExportMetadata::from),
-        submissionVersions
+        submissionVersions,
+        getJson(root, "lastPulledSubmissionDate").map(JsonNode::asText).map(OffsetDateTime::parse)
     );
   }
 
@@ -111,30 +123,42 @@ public class FormMetadata implements AsJson {
     return submissionVersions;
   }
 
+  public Optional<OffsetDateTime> getLastPulledSubmissionDate() {
+    return lastPulledSubmissionDate;
+  }
+
   FormMetadata withCursor(Cursor cursor) {
-    return new FormMetadata(key, storageRoot, formDir, hasBeenPulled, cursor, lastExportedSubmission, submissionVersions);
+    return new FormMetadata(key, storageRoot, formDir, hasBeenPulled, cursor, lastExportedSubmission, submissionVersions, lastPulledSubmissionDate);
   }
 
   public FormMetadata withoutCursor() {
-    return new FormMetadata(key, storageRoot, formDir, hasBeenPulled, Cursor.empty(), lastExportedSubmission, submissionVersions);
+    return new FormMetadata(key, storageRoot, formDir, hasBeenPulled, Cursor.empty(), lastExportedSubmission, submissionVersions, lastPulledSubmissionDate);
   }
 
   FormMetadata withSubmissionVersions(Set<String> submissionVersions) {
     Set<String> updatedSubmissionVersions = new HashSet<>(submissionVersions);
     updatedSubmissionVersions.addAll(this.submissionVersions);
 
-    return new FormMetadata(key, storageRoot, formDir, hasBeenPulled, cursor, lastExportedSubmission, updatedSubmissionVersions);
+    return new FormMetadata(key, storageRoot, formDir, hasBeenPulled, cursor, lastExportedSubmission, updatedSubmissionVersions, lastPulledSubmissionDate);
   }
 
   FormMetadata withHasBeenPulled(boolean hasBeenPulled, Set<String> submissionVersions) {
     Set<String> updatedSubmissionVersions = new HashSet<>(submissionVersions);
     updatedSubmissionVersions.addAll(this.submissionVersions);
 
-    return new FormMetadata(key, storageRoot, formDir, hasBeenPulled, cursor, lastExportedSubmission, updatedSubmissionVersions);
+    return new FormMetadata(key, storageRoot, formDir, hasBeenPulled, cursor, lastExportedSubmission, updatedSubmissionVersions, lastPulledSubmissionDate);
   }
 
   FormMetadata withLastExportedSubmission(String instanceId, OffsetDateTime submissionDate, OffsetDateTime exportDateTime) {
-    return new FormMetadata(key, storageRoot, formDir, hasBeenPulled, cursor, Optional.of(new SubmissionExportMetadata(instanceId, submissionDate, exportDateTime)), submissionVersions);
+    return new FormMetadata(key, storageRoot, formDir, hasBeenPulled, cursor, Optional.of(new SubmissionExportMetadata(instanceId, submissionDate, exportDateTime)), submissionVersions, lastPulledSubmissionDate);
+  }
+
+  FormMetadata withLastPulledSubmissionDate(OffsetDateTime lastPulledSubmissionDate) {
+    return new FormMetadata(key, storageRoot, formDir, hasBeenPulled, cursor, lastExportedSubmission, submissionVersions, Optional.of(lastPulledSubmissionDate));
+  }
+
+  FormMetadata withoutLastPulledSubmissionDate() {
+    return new FormMetadata(key, storageRoot, formDir, hasBeenPulled, cursor, lastExportedSubmission, submissionVersions, Optional.empty());
   }
 
   @Override
@@ -149,6 +173,7 @@ public class FormMetadata implements AsJson {
     root.putObject("cursor").setAll(cursor.asJson(mapper));
     lastExportedSubmission.ifPresent(o -> root.putObject("lastExportedSubmission").setAll(o.asJson(mapper)));
     root.putArray("submissionVersions").addAll((ArrayNode) mapper.valueToTree(submissionVersions));
+    lastPulledSubmissionDate.ifPresent(date -> root.put("lastPulledSubmissionDate", date.format(ISO_OFFSET_DATE_TIME)));
 
     return root;
   }
@@ -163,12 +188,13 @@ public class FormMetadata implements AsJson {
         Objects.equals(storageRoot, that.storageRoot) &&
         Objects.equals(formDir, that.formDir) &&
         Objects.equals(cursor, that.cursor) &&
-        Objects.equals(lastExportedSubmission, that.lastExportedSubmission);
+        Objects.equals(lastExportedSubmission, that.lastExportedSubmission) &&
+        Objects.equals(lastPulledSubmissionDate, that.lastPulledSubmissionDate);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(key, storageRoot, formDir, hasBeenPulled, cursor, lastExportedSubmission);
+    return Objects.hash(key, storageRoot, formDir, hasBeenPulled, cursor, lastExportedSubmission, lastPulledSubmissionDate);
   }
 
   @Override
@@ -180,6 +206,7 @@ public class FormMetadata implements AsJson {
         ", hasBeenPulled=" + hasBeenPulled +
         ", cursor=" + cursor +
         ", lastExportedSubmission=" + lastExportedSubmission +
+        ", lastPulledSubmissionDate=" + lastPulledSubmissionDate +
         '}';
   }
 }
@@ -21,6 +21,14 @@ public class FormMetadataCommands {
     };
   }
 
+  public static Consumer<FormMetadataPort> updateAsPulled(FormKey key, OffsetDateTime lastPulledSubmissionDate, Path storageRoot, Path formDir, Set<String> submissionVersions) {
+    return port -> port.persist(port
+        .fetch(key)
+        .orElseGet(() -> FormMetadata.of(key, storageRoot, formDir))
+        .withHasBeenPulled(true, submissionVersions)
+        .withLastPulledSubmissionDate(lastPulledSubmissionDate));
+  }
+
   public static Consumer<FormMetadataPort> updateAsPulled(FormKey key, Path storageRoot, Path formDir, Set<String> submissionVersions) {
     return port -> port.persist(port
         .fetch(key)
@@ -43,6 +51,8 @@ public class FormMetadataCommands {
   }
 
   public static Consumer<FormMetadataPort> cleanAllCursors() {
-    return port -> port.persist(port.fetchAll().map(FormMetadata::withoutCursor));
+    return port -> port.persist(port.fetchAll()
+        .map(FormMetadata::withoutCursor)
+        .map(FormMetadata::withoutLastPulledSubmissionDate));
   }
 }
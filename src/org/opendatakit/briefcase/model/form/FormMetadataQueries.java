@@ -1,5 +1,6 @@
 package org.opendatakit.briefcase.model.form;
 
+import java.time.OffsetDateTime;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
@@ -11,6 +12,10 @@ public class FormMetadataQueries {
     return port -> port.fetch(key).map(FormMetadata::getCursor);
   }
 
+  public static Function<FormMetadataPort, Optional<OffsetDateTime>> lastPulledSubmissionDateOf(FormKey key) {
+    return port -> port.fetch(key).flatMap(FormMetadata::getLastPulledSubmissionDate);
+  }
+
   public static Function<FormMetadataPort, Set<String>> submissionVersionsOf(FormKey key) {
     return port -> port.fetch(key).map(FormMetadata::getSubmissionVersions).orElse(new HashSet<>());
   }
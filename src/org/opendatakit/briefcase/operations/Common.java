@@ -15,12 +15,20 @@
  */
 package org.opendatakit.briefcase.operations;
 
+import static org.opendatakit.briefcase.reused.http.Http.DEFAULT_HTTP_RETRIES;
+import static org.opendatakit.briefcase.reused.http.Http.DEFAULT_HTTP_TIMEOUT;
+
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Optional;
 import org.opendatakit.briefcase.model.BriefcasePreferences;
+import org.opendatakit.briefcase.reused.Optionals;
 import org.opendatakit.briefcase.reused.UncheckedFiles;
+import org.opendatakit.briefcase.reused.http.BandwidthLimits;
+import org.opendatakit.briefcase.reused.http.CommonsHttp;
+import org.opendatakit.briefcase.reused.http.Http;
 import org.opendatakit.briefcase.reused.http.RequestBuilder;
 import org.opendatakit.common.cli.Param;
 
@@ -28,12 +36,16 @@ public class Common {
   public static final Param<String> DEPRECATED_AGGREGATE_SERVER = Param.arg("url", "aggregate_url", "Aggregate server URL");
   public static final Param<URL> SERVER_URL = Param.arg("U", "odk_url", "ODK Server URL", RequestBuilder::url);
   public static final Param<Integer> MAX_HTTP_CONNECTIONS = Param.arg("mhc", "max_http_connections", "Maximum simultaneous HTTP connections (defaults to 8)", Integer::parseInt);
+  public static final Param<Integer> MAX_UPLOAD_RATE = Param.arg("mur", "max_upload_rate", "Maximum upload rate in KB/s, adding up all the connections (unlimited by default)", Integer::parseInt);
+  public static final Param<Integer> MAX_DOWNLOAD_RATE = Param.arg("mdr", "max_download_rate", "Maximum download rate in KB/s, adding up all the connections (unlimited by default)", Integer::parseInt);
   static final Param<Path> STORAGE_DIR = Param.arg("sd", "storage_directory", "Briefcase storage directory", Common::absolutePath);
   static final Param<String> FORM_ID = Param.arg("id", "form_id", "Form ID");
   static final Param<Integer> PROJECT_ID = Param.arg("pid", "project_id", "ODK Project ID number", Integer::parseInt);
   static final Param<String> CREDENTIALS_USERNAME = Param.arg("u", "odk_username", "ODK Username");
   static final Param<String> CREDENTIALS_EMAIL = Param.arg("E", "odk_email", "ODK Email");
   static final Param<String> CREDENTIALS_PASSWORD = Param.arg("p", "odk_password", "ODK Password");
+  static final Param<Void> RESUME_LAST_PULL = Param.flag("sfl", "start_from_last", "Start pull from last submission pulled");
+  static final Param<Void> DEFER_ATTACHMENTS = Param.flag("dsa", "defer_submission_attachments", "Pull all submissions first, and their attachments afterwards");
 
   static Path getOrCreateBriefcaseDir(Path storageDir) {
     Path briefcaseDir = BriefcasePreferences.buildBriefcaseDir(storageDir);
@@ -44,6 +56,41 @@ public class Common {
     return briefcaseDir;
   }
 
+  /**
+   * Returns a new Http instance with the given maximum simultaneous connections
+   * and bandwidth limits, and the timeout, retries, and proxy in the app's preferences.
+   */
+  public static Http buildHttp(BriefcasePreferences appPreferences, int maxHttpConnections, BandwidthLimits bandwidthLimits) {
+    int httpTimeout = appPreferences.getHttpTimeout().orElse(DEFAULT_HTTP_TIMEOUT);
+    int httpRetries = appPreferences.getHttpRetries().orElse(DEFAULT_HTTP_RETRIES);
+    Http http = appPreferences.getHttpProxy()
+        .map(host -> CommonsHttp.of(maxHttpConnections, httpTimeout, httpRetries, host))
+        .orElseGet(() -> CommonsHttp.of(maxHttpConnections, httpTimeout, httpRetries));
+    http.setBandwidthLimits(bandwidthLimits);
+    return http;
+  }
+
+  /**
+   * Returns the bandwidth limits of an operation. The given rates take
+   * precedence over the ones in the app's preferences.
+   */
+  static BandwidthLimits getBandwidthLimits(Optional<Integer> maxUploadRate, Optional<Integer> maxDownloadRate, BriefcasePreferences appPreferences) {
+    return BandwidthLimits.of(
+        Optionals.race(maxUploadRate, appPreferences.getMaxUploadRate()),
+        Optionals.race(maxDownloadRate, appPreferences.getMaxDownloadRate())
+    );
+  }
+
+  /**
+   * Prints the traffic with each server, adding up the requests of all the forms.
+   */
+  static void printHttpTraffic(Http http) {
+    http.getAllConcurrencyStats().forEach(stats -> System.out.println("HTTP traffic with " + stats.getHost() + ": " + stats.describe()));
+    BandwidthLimits bandwidthLimits = http.getBandwidthLimits();
+    if (!bandwidthLimits.isUnlimited())
+      System.out.println("HTTP bandwidth: " + bandwidthLimits.describe());
+  }
+
   /**
    * Returns an absolute path to the given string path, using the user.dir property
    * to resolve input relative paths if necessary
@@ -20,6 +20,7 @@ import static org.opendatakit.briefcase.export.ExportForms.buildExportDateTimePr
 import static org.opendatakit.briefcase.model.form.FormMetadataQueries.lastCursorOf;
 import static org.opendatakit.briefcase.operations.Common.FORM_ID;
 import static org.opendatakit.briefcase.operations.Common.STORAGE_DIR;
+import static org.opendatakit.briefcase.operations.Common.buildHttp;
 import static org.opendatakit.briefcase.reused.UncheckedFiles.createDirectories;
 import static org.opendatakit.briefcase.reused.http.Http.DEFAULT_HTTP_CONNECTIONS;
 
@@ -33,6 +34,7 @@ import org.opendatakit.briefcase.export.ExportConfiguration;
 import org.opendatakit.briefcase.export.ExportToCsv;
 import org.opendatakit.briefcase.export.ExportToGeoJson;
 import org.opendatakit.briefcase.export.FormDefinition;
+import org.opendatakit.briefcase.export.MediaFetcher;
 import org.opendatakit.briefcase.model.BriefcaseFormDefinition;
 import org.opendatakit.briefcase.model.BriefcasePreferences;
 import org.opendatakit.briefcase.model.FormStatus;
@@ -44,8 +46,9 @@ import org.opendatakit.briefcase.model.form.FormMetadataPort;
 import org.opendatakit.briefcase.pull.aggregate.Cursor;
 import org.opendatakit.briefcase.pull.aggregate.PullFromAggregate;
 import org.opendatakit.briefcase.reused.BriefcaseException;
-import org.opendatakit.briefcase.reused.http.CommonsHttp;
+import org.opendatakit.briefcase.reused.http.BandwidthLimits;
 import org.opendatakit.briefcase.reused.http.Http;
+import org.opendatakit.briefcase.reused.http.HttpValidatorCache;
 import org.opendatakit.briefcase.reused.job.Job;
 import org.opendatakit.briefcase.reused.job.JobsRunner;
 import org.opendatakit.briefcase.reused.transfer.AggregateServer;
@@ -106,9 +109,8 @@ public class Export {
     FormMetadataPort formMetadataPort = FileSystemFormMetadataAdapter.at(briefcaseDir);
 
     int maxHttpConnections = appPreferences.getMaxHttpConnections().orElse(DEFAULT_HTTP_CONNECTIONS);
-    Http http = appPreferences.getHttpProxy()
-        .map(host -> CommonsHttp.of(maxHttpConnections, host))
-        .orElseGet(() -> CommonsHttp.of(maxHttpConnections));
+    Http http = buildHttp(appPreferences, maxHttpConnections, BandwidthLimits.of(appPreferences.getMaxUploadRate(), appPreferences.getMaxDownloadRate()));
+    http.setValidatorCache(HttpValidatorCache.at(briefcaseDir));
 
     Optional<BriefcaseFormDefinition> maybeFormDefinition = formCache.getForms().stream()
         .filter(form -> form.getFormId().equals(formid))
@@ -121,6 +123,8 @@ public class Export {
 
     System.out.println("Exporting form " + formDefinition.getFormName() + " (" + formDefinition.getFormId() + ") to: " + exportDir);
     DateRange dateRange = new DateRange(startDate, endDate);
+    FormStatus formStatus = new FormStatus(formDefinition);
+    Optional<AggregateServer> server = AggregateServer.readFromPrefs(appPreferences, pullPrefs, formStatus);
     ExportConfiguration configuration = ExportConfiguration.Builder.empty()
         .setExportFilename(baseFilename)
         .setExportDir(exportDir)
@@ -133,15 +137,14 @@ public class Export {
         .setIncludeGeoJsonExport(includeGeoJsonExport)
         .setRemoveGroupNames(removeGroupNames)
         .setSmartAppend(smartAppend)
-        .build();
+        .build()
+        .withMediaFetcher(MediaFetcher.of(http, formStatus, briefcaseDir, server));
 
-    FormStatus formStatus = new FormStatus(formDefinition);
     FormKey key = FormKey.from(formStatus);
     FormMetadata formMetadata = formMetadataPort.fetch(key).orElseThrow(BriefcaseException::new);
 
     Job<Void> pullJob = Job.noOpSupplier();
     if (configuration.resolvePullBefore()) {
-      Optional<AggregateServer> server = AggregateServer.readFromPrefs(appPreferences, pullPrefs, formStatus);
       if (server.isPresent()) {
         Optional<Cursor> lastCursor = appPreferences.resolveStartFromLast()
             ? formMetadataPort.query(lastCursorOf(key))
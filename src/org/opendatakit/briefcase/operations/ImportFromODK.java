@@ -29,6 +29,8 @@ import org.opendatakit.briefcase.pull.PullEvent;
 import org.opendatakit.briefcase.pull.PullFromCollect;
 import org.opendatakit.briefcase.reused.BriefcaseException;
 import org.opendatakit.briefcase.transfer.TransferForms;
+import org.opendatakit.briefcase.util.CollectArchive;
+import org.opendatakit.briefcase.util.CollectImportSummary;
 import org.opendatakit.briefcase.util.FileSystemUtils;
 import org.opendatakit.briefcase.util.FormCache;
 import org.opendatakit.common.cli.Operation;
@@ -39,7 +41,7 @@ import org.slf4j.LoggerFactory;
 public class ImportFromODK {
   private static final Logger log = LoggerFactory.getLogger(ImportFromODK.class);
   private static final Param<Void> IMPORT = Param.flag("pc", "pull_collect", "Pull from Collect");
-  private static final Param<Path> ODK_DIR = Param.arg("od", "odk_directory", "ODK directory", Common::absolutePath);
+  private static final Param<Path> ODK_DIR = Param.arg("od", "odk_directory", "ODK directory, or a .zip or .tar.gz archive of it", Common::absolutePath);
 
   public static final Operation IMPORT_FROM_ODK = Operation.of(
       IMPORT,
@@ -59,6 +61,24 @@ public class ImportFromODK {
     formCache.update();
     FormMetadataPort formMetadataPort = FileSystemFormMetadataAdapter.at(briefcaseDir);
 
+    if (CollectArchive.isArchive(odkDir)) {
+      // Archives get read without extracting them, as long as they are open
+      try (CollectArchive archive = CollectArchive.open(odkDir)) {
+        TransferForms forms = getForms(archive.getOdkDir(), formId);
+        CollectImportSummary summary = new CollectImportSummary();
+        PullFromCollect.pullForms(formMetadataPort, forms, briefcaseDir, odkDir, archive, ImportFromODK::onEvent, summary).waitForCompletion();
+        System.out.println("Pull from " + odkDir + ": " + summary.describe());
+      }
+      return;
+    }
+
+    TransferForms forms = getForms(odkDir, formId);
+    CollectImportSummary summary = new CollectImportSummary();
+    PullFromCollect.pullForms(formMetadataPort, forms, briefcaseDir, odkDir, ImportFromODK::onEvent, summary).waitForCompletion();
+    System.out.println("Pull from " + odkDir + ": " + summary.describe());
+  }
+
+  private static TransferForms getForms(Path odkDir, Optional<String> formId) {
     TransferForms forms = TransferForms.from(FileSystemUtils.getODKFormList(odkDir.toFile()).stream()
         .map(FormStatus::new)
         .filter(form -> formId.map(id -> form.getFormDefinition().getFormId().equals(id)).orElse(true))
@@ -67,8 +87,7 @@ public class ImportFromODK {
 
     if (formId.isPresent() && forms.isEmpty())
       throw new BriefcaseException("Form " + formId.get() + " not found");
-
-    PullFromCollect.pullForms(formMetadataPort, forms, briefcaseDir, odkDir, ImportFromODK::onEvent).waitForCompletion();
+    return forms;
   }
 
   private static void onEvent(PullEvent pullEvent) {
@@ -19,10 +19,17 @@ import static java.util.stream.Collectors.toList;
 import static org.opendatakit.briefcase.model.form.FormMetadataQueries.lastCursorOf;
 import static org.opendatakit.briefcase.operations.Common.CREDENTIALS_PASSWORD;
 import static org.opendatakit.briefcase.operations.Common.CREDENTIALS_USERNAME;
+import static org.opendatakit.briefcase.operations.Common.DEFER_ATTACHMENTS;
 import static org.opendatakit.briefcase.operations.Common.FORM_ID;
+import static org.opendatakit.briefcase.operations.Common.MAX_DOWNLOAD_RATE;
 import static org.opendatakit.briefcase.operations.Common.MAX_HTTP_CONNECTIONS;
+import static org.opendatakit.briefcase.operations.Common.MAX_UPLOAD_RATE;
+import static org.opendatakit.briefcase.operations.Common.RESUME_LAST_PULL;
 import static org.opendatakit.briefcase.operations.Common.SERVER_URL;
 import static org.opendatakit.briefcase.operations.Common.STORAGE_DIR;
+import static org.opendatakit.briefcase.operations.Common.buildHttp;
+import static org.opendatakit.briefcase.operations.Common.getBandwidthLimits;
+import static org.opendatakit.briefcase.operations.Common.printHttpTraffic;
 import static org.opendatakit.briefcase.reused.http.Http.DEFAULT_HTTP_CONNECTIONS;
 
 import java.net.URL;
@@ -38,13 +45,14 @@ import org.opendatakit.briefcase.model.RemoteFormDefinition;
 import org.opendatakit.briefcase.model.form.FileSystemFormMetadataAdapter;
 import org.opendatakit.briefcase.model.form.FormKey;
 import org.opendatakit.briefcase.model.form.FormMetadataPort;
+import org.opendatakit.briefcase.pull.PulledSubmissionCallback;
 import org.opendatakit.briefcase.pull.aggregate.Cursor;
 import org.opendatakit.briefcase.pull.aggregate.PullFromAggregate;
 import org.opendatakit.briefcase.reused.BriefcaseException;
 import org.opendatakit.briefcase.reused.Optionals;
-import org.opendatakit.briefcase.reused.http.CommonsHttp;
 import org.opendatakit.briefcase.reused.http.Credentials;
 import org.opendatakit.briefcase.reused.http.Http;
+import org.opendatakit.briefcase.reused.http.HttpValidatorCache;
 import org.opendatakit.briefcase.reused.http.response.Response;
 import org.opendatakit.briefcase.reused.job.JobsRunner;
 import org.opendatakit.briefcase.reused.transfer.AggregateServer;
@@ -60,9 +68,9 @@ public class PullFormFromAggregate {
   public static final Param<Void> DEPRECATED_PULL_AGGREGATE = Param.flag("pa", "pull_aggregate", "(Deprecated. Use -plla instead)");
   public static final Param<Void> PULL_AGGREGATE = Param.flag("plla", "pull_aggregate", "Pull form from an Aggregate instance");
   public static final Param<Void> DEPRECATED_PULL_IN_PARALLEL = Param.flag("pp", "parallel_pull", "(Deprecated. Use -mhc instead)");
-  private static final Param<Void> RESUME_LAST_PULL = Param.flag("sfl", "start_from_last", "Start pull from last submission pulled");
   private static final Param<LocalDate> START_FROM_DATE = Param.arg("sfd", "start_from_date", "Start pull from date", LocalDate::parse);
   private static final Param<Void> INCLUDE_INCOMPLETE = Param.flag("ii", "include_incomplete", "Include incomplete submissions");
+  private static final Param<Void> LAZY_ATTACHMENTS = Param.flag("lsa", "lazy_submission_attachments", "Pull submissions without their attachments, which are downloaded when exporting media files. Only for Aggregate, as Central doesn't report attachment download URLs");
 
   public static Operation PULL_FORM_FROM_AGGREGATE = Operation.of(
       PULL_AGGREGATE,
@@ -75,13 +83,17 @@ public class PullFormFromAggregate {
           args.has(RESUME_LAST_PULL),
           args.getOptional(START_FROM_DATE),
           args.has(INCLUDE_INCOMPLETE),
-          args.getOptional(MAX_HTTP_CONNECTIONS)
+          args.getOptional(MAX_HTTP_CONNECTIONS),
+          args.getOptional(MAX_UPLOAD_RATE),
+          args.getOptional(MAX_DOWNLOAD_RATE),
+          args.has(DEFER_ATTACHMENTS),
+          args.has(LAZY_ATTACHMENTS)
       ),
       Arrays.asList(STORAGE_DIR, CREDENTIALS_USERNAME, CREDENTIALS_PASSWORD, SERVER_URL),
-      Arrays.asList(RESUME_LAST_PULL, INCLUDE_INCOMPLETE, FORM_ID, START_FROM_DATE, MAX_HTTP_CONNECTIONS)
+      Arrays.asList(RESUME_LAST_PULL, INCLUDE_INCOMPLETE, FORM_ID, START_FROM_DATE, MAX_HTTP_CONNECTIONS, MAX_UPLOAD_RATE, MAX_DOWNLOAD_RATE, DEFER_ATTACHMENTS, LAZY_ATTACHMENTS)
   );
 
-  public static void pullFormFromAggregate(Path storageDir, Optional<String> formId, String username, String password, URL server, boolean resumeLastPull, Optional<LocalDate> startFromDate, boolean includeIncomplete, Optional<Integer> maybeMaxHttpConnections) {
+  public static void pullFormFromAggregate(Path storageDir, Optional<String> formId, String username, String password, URL server, boolean resumeLastPull, Optional<LocalDate> startFromDate, boolean includeIncomplete, Optional<Integer> maybeMaxHttpConnections, Optional<Integer> maybeMaxUploadRate, Optional<Integer> maybeMaxDownloadRate, boolean deferAttachments, boolean lazyAttachments) {
     CliEventsCompanion.attach(log);
     Path briefcaseDir = Common.getOrCreateBriefcaseDir(storageDir);
     FormCache formCache = FormCache.from(briefcaseDir);
@@ -93,9 +105,8 @@ public class PullFormFromAggregate {
         maybeMaxHttpConnections,
         appPreferences.getMaxHttpConnections()
     ).orElse(DEFAULT_HTTP_CONNECTIONS);
-    Http http = appPreferences.getHttpProxy()
-        .map(host -> CommonsHttp.of(maxHttpConnections, host))
-        .orElseGet(() -> CommonsHttp.of(maxHttpConnections));
+    Http http = buildHttp(appPreferences, maxHttpConnections, getBandwidthLimits(maybeMaxUploadRate, maybeMaxDownloadRate, appPreferences));
+    http.setValidatorCache(HttpValidatorCache.at(briefcaseDir));
 
     AggregateServer aggregateServer = AggregateServer.authenticated(server, new Credentials(username, password));
 
@@ -131,11 +142,18 @@ public class PullFormFromAggregate {
             startFromDate,
             form,
             formMetadataPort
-        ))),
+        ), deferAttachments, lazyAttachments, PulledSubmissionCallback.NONE)),
         PullFormFromAggregate::onError
     ).waitForCompletion();
+    // Lazy attachments stay pending until an export needs them
+    if (deferAttachments) {
+      System.out.println();
+      System.out.println("All submissions pulled. Pulling their attachments");
+      JobsRunner.launchAsync(forms.map(pullOp::pullPendingAttachments), PullFormFromAggregate::onError).waitForCompletion();
+    }
     System.out.println();
     System.out.println("All operations completed");
+    printHttpTraffic(http);
     System.out.println();
   }
 
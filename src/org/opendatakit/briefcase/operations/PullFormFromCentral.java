@@ -16,13 +16,21 @@
 package org.opendatakit.briefcase.operations;
 
 import static java.util.stream.Collectors.toList;
+import static org.opendatakit.briefcase.model.form.FormMetadataQueries.lastPulledSubmissionDateOf;
 import static org.opendatakit.briefcase.operations.Common.CREDENTIALS_EMAIL;
 import static org.opendatakit.briefcase.operations.Common.CREDENTIALS_PASSWORD;
+import static org.opendatakit.briefcase.operations.Common.DEFER_ATTACHMENTS;
 import static org.opendatakit.briefcase.operations.Common.FORM_ID;
+import static org.opendatakit.briefcase.operations.Common.MAX_DOWNLOAD_RATE;
 import static org.opendatakit.briefcase.operations.Common.MAX_HTTP_CONNECTIONS;
+import static org.opendatakit.briefcase.operations.Common.MAX_UPLOAD_RATE;
 import static org.opendatakit.briefcase.operations.Common.PROJECT_ID;
+import static org.opendatakit.briefcase.operations.Common.RESUME_LAST_PULL;
 import static org.opendatakit.briefcase.operations.Common.SERVER_URL;
 import static org.opendatakit.briefcase.operations.Common.STORAGE_DIR;
+import static org.opendatakit.briefcase.operations.Common.buildHttp;
+import static org.opendatakit.briefcase.operations.Common.getBandwidthLimits;
+import static org.opendatakit.briefcase.operations.Common.printHttpTraffic;
 import static org.opendatakit.briefcase.reused.http.Http.DEFAULT_HTTP_CONNECTIONS;
 
 import java.nio.file.Path;
@@ -34,11 +42,11 @@ import org.opendatakit.briefcase.model.FormStatus;
 import org.opendatakit.briefcase.model.FormStatusEvent;
 import org.opendatakit.briefcase.model.RemoteFormDefinition;
 import org.opendatakit.briefcase.model.form.FileSystemFormMetadataAdapter;
+import org.opendatakit.briefcase.model.form.FormKey;
 import org.opendatakit.briefcase.model.form.FormMetadataPort;
 import org.opendatakit.briefcase.pull.central.PullFromCentral;
 import org.opendatakit.briefcase.reused.BriefcaseException;
 import org.opendatakit.briefcase.reused.Optionals;
-import org.opendatakit.briefcase.reused.http.CommonsHttp;
 import org.opendatakit.briefcase.reused.http.Credentials;
 import org.opendatakit.briefcase.reused.http.Http;
 import org.opendatakit.briefcase.reused.http.response.Response;
@@ -61,7 +69,7 @@ public class PullFormFromCentral {
       PULL_FROM_CENTRAL,
       PullFormFromCentral::pullFromCentral,
       Arrays.asList(STORAGE_DIR, SERVER_URL, PROJECT_ID, CREDENTIALS_EMAIL, CREDENTIALS_PASSWORD),
-      Arrays.asList(FORM_ID, MAX_HTTP_CONNECTIONS)
+      Arrays.asList(RESUME_LAST_PULL, FORM_ID, MAX_HTTP_CONNECTIONS, MAX_UPLOAD_RATE, MAX_DOWNLOAD_RATE, DEFER_ATTACHMENTS)
   );
 
   private static void pullFromCentral(Args args) {
@@ -76,9 +84,7 @@ public class PullFormFromCentral {
         args.getOptional(MAX_HTTP_CONNECTIONS),
         appPreferences.getMaxHttpConnections()
     ).orElse(DEFAULT_HTTP_CONNECTIONS);
-    Http http = appPreferences.getHttpProxy()
-        .map(host -> CommonsHttp.of(maxHttpConnections, host))
-        .orElseGet(() -> CommonsHttp.of(maxHttpConnections));
+    Http http = buildHttp(appPreferences, maxHttpConnections, getBandwidthLimits(args.getOptional(MAX_UPLOAD_RATE), args.getOptional(MAX_DOWNLOAD_RATE), appPreferences));
 
     CentralServer server = CentralServer.of(args.get(SERVER_URL), args.get(PROJECT_ID), new Credentials(args.get(CREDENTIALS_EMAIL), args.get(CREDENTIALS_PASSWORD)));
 
@@ -113,12 +119,26 @@ public class PullFormFromCentral {
     forms.selectAll();
 
     PullFromCentral pullOp = new PullFromCentral(http, server, briefcaseDir, token, PullFormFromCentral::onEvent, formMetadataPort);
+    boolean resumeLastPull = args.has(RESUME_LAST_PULL);
+    boolean deferAttachments = args.has(DEFER_ATTACHMENTS);
     JobsRunner.launchAsync(
-        forms.map(pullOp::pull),
+        forms.map(form -> pullOp.pull(
+            form,
+            resumeLastPull
+                ? formMetadataPort.query(lastPulledSubmissionDateOf(FormKey.from(form)))
+                : Optional.empty(),
+            deferAttachments
+        )),
         PullFormFromCentral::onError
     ).waitForCompletion();
+    if (deferAttachments) {
+      System.out.println();
+      System.out.println("All submissions pulled. Pulling their attachments");
+      JobsRunner.launchAsync(forms.map(pullOp::pullPendingAttachments), PullFormFromCentral::onError).waitForCompletion();
+    }
     System.out.println();
     System.out.println("All operations completed");
+    printHttpTraffic(http);
     System.out.println();
   }
 
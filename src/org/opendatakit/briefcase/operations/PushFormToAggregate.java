@@ -18,9 +18,14 @@ package org.opendatakit.briefcase.operations;
 import static org.opendatakit.briefcase.operations.Common.CREDENTIALS_PASSWORD;
 import static org.opendatakit.briefcase.operations.Common.CREDENTIALS_USERNAME;
 import static org.opendatakit.briefcase.operations.Common.FORM_ID;
+import static org.opendatakit.briefcase.operations.Common.MAX_DOWNLOAD_RATE;
 import static org.opendatakit.briefcase.operations.Common.MAX_HTTP_CONNECTIONS;
+import static org.opendatakit.briefcase.operations.Common.MAX_UPLOAD_RATE;
 import static org.opendatakit.briefcase.operations.Common.SERVER_URL;
 import static org.opendatakit.briefcase.operations.Common.STORAGE_DIR;
+import static org.opendatakit.briefcase.operations.Common.buildHttp;
+import static org.opendatakit.briefcase.operations.Common.getBandwidthLimits;
+import static org.opendatakit.briefcase.operations.Common.printHttpTraffic;
 import static org.opendatakit.briefcase.reused.http.Http.DEFAULT_HTTP_CONNECTIONS;
 
 import java.net.URL;
@@ -35,7 +40,6 @@ import org.opendatakit.briefcase.model.FormStatusEvent;
 import org.opendatakit.briefcase.push.aggregate.PushToAggregate;
 import org.opendatakit.briefcase.reused.BriefcaseException;
 import org.opendatakit.briefcase.reused.Optionals;
-import org.opendatakit.briefcase.reused.http.CommonsHttp;
 import org.opendatakit.briefcase.reused.http.Credentials;
 import org.opendatakit.briefcase.reused.http.Http;
 import org.opendatakit.briefcase.reused.http.response.Response;
@@ -52,6 +56,7 @@ public class PushFormToAggregate {
   private static final Logger log = LoggerFactory.getLogger(PushFormToAggregate.class);
   private static final Param<Void> PUSH_AGGREGATE = Param.flag("psha", "push_aggregate", "Push form to an Aggregate instance");
   private static final Param<Void> FORCE_SEND_BLANK = Param.flag("fsb", "force_send_blank", "Force sending the blank form to the Aggregate instance");
+  private static final Param<Void> FORCE_SEND_SUBMISSIONS = Param.flag("fss", "force_send_submissions", "Force sending all submissions, including the ones already sent to the Aggregate instance");
 
   public static Operation PUSH_FORM_TO_AGGREGATE = Operation.of(
       PUSH_AGGREGATE,
@@ -62,13 +67,16 @@ public class PushFormToAggregate {
           args.get(CREDENTIALS_PASSWORD),
           args.get(SERVER_URL),
           args.has(FORCE_SEND_BLANK),
-          args.getOptional(MAX_HTTP_CONNECTIONS)
+          args.has(FORCE_SEND_SUBMISSIONS),
+          args.getOptional(MAX_HTTP_CONNECTIONS),
+          args.getOptional(MAX_UPLOAD_RATE),
+          args.getOptional(MAX_DOWNLOAD_RATE)
       ),
       Arrays.asList(STORAGE_DIR, CREDENTIALS_USERNAME, CREDENTIALS_PASSWORD, SERVER_URL),
-      Arrays.asList(FORCE_SEND_BLANK, MAX_HTTP_CONNECTIONS, FORM_ID)
+      Arrays.asList(FORCE_SEND_BLANK, FORCE_SEND_SUBMISSIONS, MAX_HTTP_CONNECTIONS, MAX_UPLOAD_RATE, MAX_DOWNLOAD_RATE, FORM_ID)
   );
 
-  private static void pushFormToAggregate(Path storageDir, Optional<String> formid, String username, String password, URL server, boolean forceSendBlank, Optional<Integer> maybeMaxConnections) {
+  private static void pushFormToAggregate(Path storageDir, Optional<String> formid, String username, String password, URL server, boolean forceSendBlank, boolean forceSendSubmissions, Optional<Integer> maybeMaxConnections, Optional<Integer> maybeMaxUploadRate, Optional<Integer> maybeMaxDownloadRate) {
     CliEventsCompanion.attach(log);
     Path briefcaseDir = Common.getOrCreateBriefcaseDir(storageDir);
     FormCache formCache = FormCache.from(briefcaseDir);
@@ -79,9 +87,7 @@ public class PushFormToAggregate {
         maybeMaxConnections,
         appPreferences.getMaxHttpConnections()
     ).orElse(DEFAULT_HTTP_CONNECTIONS);
-    Http http = appPreferences.getHttpProxy()
-        .map(host -> CommonsHttp.of(maxHttpConnections, host))
-        .orElseGet(() -> CommonsHttp.of(maxHttpConnections));
+    Http http = buildHttp(appPreferences, maxHttpConnections, getBandwidthLimits(maybeMaxUploadRate, maybeMaxDownloadRate, appPreferences));
 
     AggregateServer aggregateServer = AggregateServer.authenticated(server, new Credentials(username, password));
 
@@ -115,10 +121,11 @@ public class PushFormToAggregate {
     TransferForms forms = TransferForms.of(statuses);
     forms.selectAll();
 
-    PushToAggregate pushOp = new PushToAggregate(http, aggregateServer, briefcaseDir, forceSendBlank, PushFormToAggregate::onEvent);
+    PushToAggregate pushOp = new PushToAggregate(http, aggregateServer, briefcaseDir, forceSendBlank, forceSendSubmissions, PushFormToAggregate::onEvent);
     JobsRunner.launchAsync(forms.map(pushOp::push), PushFormToAggregate::onError).waitForCompletion();
     System.out.println();
     System.out.println("All operations completed");
+    printHttpTraffic(http);
     System.out.println();
   }
 
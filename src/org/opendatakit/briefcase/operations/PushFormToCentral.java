@@ -18,10 +18,15 @@ package org.opendatakit.briefcase.operations;
 import static org.opendatakit.briefcase.operations.Common.CREDENTIALS_EMAIL;
 import static org.opendatakit.briefcase.operations.Common.CREDENTIALS_PASSWORD;
 import static org.opendatakit.briefcase.operations.Common.FORM_ID;
+import static org.opendatakit.briefcase.operations.Common.MAX_DOWNLOAD_RATE;
 import static org.opendatakit.briefcase.operations.Common.MAX_HTTP_CONNECTIONS;
+import static org.opendatakit.briefcase.operations.Common.MAX_UPLOAD_RATE;
 import static org.opendatakit.briefcase.operations.Common.PROJECT_ID;
 import static org.opendatakit.briefcase.operations.Common.SERVER_URL;
 import static org.opendatakit.briefcase.operations.Common.STORAGE_DIR;
+import static org.opendatakit.briefcase.operations.Common.buildHttp;
+import static org.opendatakit.briefcase.operations.Common.getBandwidthLimits;
+import static org.opendatakit.briefcase.operations.Common.printHttpTraffic;
 import static org.opendatakit.briefcase.reused.http.Http.DEFAULT_HTTP_CONNECTIONS;
 
 import java.nio.file.Path;
@@ -34,7 +39,6 @@ import org.opendatakit.briefcase.model.FormStatusEvent;
 import org.opendatakit.briefcase.push.central.PushToCentral;
 import org.opendatakit.briefcase.reused.BriefcaseException;
 import org.opendatakit.briefcase.reused.Optionals;
-import org.opendatakit.briefcase.reused.http.CommonsHttp;
 import org.opendatakit.briefcase.reused.http.Credentials;
 import org.opendatakit.briefcase.reused.http.Http;
 import org.opendatakit.briefcase.reused.job.JobsRunner;
@@ -55,7 +59,7 @@ public class PushFormToCentral {
       PUSH_TO_CENTRAL,
       PushFormToCentral::pushToCentral,
       Arrays.asList(STORAGE_DIR, PROJECT_ID, CREDENTIALS_EMAIL, CREDENTIALS_PASSWORD, SERVER_URL),
-      Arrays.asList(MAX_HTTP_CONNECTIONS, FORM_ID)
+      Arrays.asList(MAX_HTTP_CONNECTIONS, MAX_UPLOAD_RATE, MAX_DOWNLOAD_RATE, FORM_ID)
   );
 
   private static void pushToCentral(Args args) {
@@ -69,9 +73,7 @@ public class PushFormToCentral {
         args.getOptional(MAX_HTTP_CONNECTIONS),
         appPreferences.getMaxHttpConnections()
     ).orElse(DEFAULT_HTTP_CONNECTIONS);
-    Http http = appPreferences.getHttpProxy()
-        .map(host -> CommonsHttp.of(maxHttpConnections, host))
-        .orElseGet(() -> CommonsHttp.of(maxHttpConnections));
+    Http http = buildHttp(appPreferences, maxHttpConnections, getBandwidthLimits(args.getOptional(MAX_UPLOAD_RATE), args.getOptional(MAX_DOWNLOAD_RATE), appPreferences));
 
     CentralServer server = CentralServer.of(args.get(SERVER_URL), args.get(PROJECT_ID), new Credentials(args.get(CREDENTIALS_EMAIL), args.get(CREDENTIALS_PASSWORD)));
 
@@ -100,6 +102,7 @@ public class PushFormToCentral {
     JobsRunner.launchAsync(forms.map(pushOp::push), PushFormToCentral::onError).waitForCompletion();
     System.out.println();
     System.out.println("All operations completed");
+    printHttpTraffic(http);
     System.out.println();
   }
 
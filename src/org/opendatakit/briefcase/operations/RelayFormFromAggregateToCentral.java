@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.operations;
+
+import static java.util.stream.Collectors.toList;
+import static org.opendatakit.briefcase.model.form.FormMetadataQueries.lastCursorOf;
+import static org.opendatakit.briefcase.operations.Common.CREDENTIALS_EMAIL;
+import static org.opendatakit.briefcase.operations.Common.CREDENTIALS_PASSWORD;
+import static org.opendatakit.briefcase.operations.Common.FORM_ID;
+import static org.opendatakit.briefcase.operations.Common.MAX_DOWNLOAD_RATE;
+import static org.opendatakit.briefcase.operations.Common.MAX_HTTP_CONNECTIONS;
+import static org.opendatakit.briefcase.operations.Common.MAX_UPLOAD_RATE;
+import static org.opendatakit.briefcase.operations.Common.PROJECT_ID;
+import static org.opendatakit.briefcase.operations.Common.SERVER_URL;
+import static org.opendatakit.briefcase.operations.Common.STORAGE_DIR;
+import static org.opendatakit.briefcase.operations.Common.buildHttp;
+import static org.opendatakit.briefcase.operations.Common.getBandwidthLimits;
+import static org.opendatakit.briefcase.operations.Common.printHttpTraffic;
+import static org.opendatakit.briefcase.reused.http.Http.DEFAULT_HTTP_CONNECTIONS;
+
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.opendatakit.briefcase.model.BriefcasePreferences;
+import org.opendatakit.briefcase.model.FormStatus;
+import org.opendatakit.briefcase.model.FormStatusEvent;
+import org.opendatakit.briefcase.model.RemoteFormDefinition;
+import org.opendatakit.briefcase.model.form.FileSystemFormMetadataAdapter;
+import org.opendatakit.briefcase.model.form.FormKey;
+import org.opendatakit.briefcase.model.form.FormMetadataPort;
+import org.opendatakit.briefcase.pull.aggregate.PullFromAggregate;
+import org.opendatakit.briefcase.push.central.PushToCentral;
+import org.opendatakit.briefcase.relay.Relay;
+import org.opendatakit.briefcase.reused.BriefcaseException;
+import org.opendatakit.briefcase.reused.Optionals;
+import org.opendatakit.briefcase.reused.UncheckedFiles;
+import org.opendatakit.briefcase.reused.http.Credentials;
+import org.opendatakit.briefcase.reused.http.Http;
+import org.opendatakit.briefcase.reused.http.HttpValidatorCache;
+import org.opendatakit.briefcase.reused.http.RequestBuilder;
+import org.opendatakit.briefcase.reused.http.response.Response;
+import org.opendatakit.briefcase.reused.job.JobsRunner;
+import org.opendatakit.briefcase.reused.transfer.AggregateServer;
+import org.opendatakit.briefcase.reused.transfer.CentralServer;
+import org.opendatakit.briefcase.transfer.TransferForms;
+import org.opendatakit.common.cli.Args;
+import org.opendatakit.common.cli.Operation;
+import org.opendatakit.common.cli.Param;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class RelayFormFromAggregateToCentral {
+  private static final Logger log = LoggerFactory.getLogger(RelayFormFromAggregateToCentral.class);
+  private static final Param<Void> RELAY_AGGREGATE_TO_CENTRAL = Param.flag("rlac", "relay_aggregate_central", "Relay forms from an Aggregate server to a Central server");
+  private static final Param<URL> SOURCE_SERVER_URL = Param.arg("sU", "source_odk_url", "Aggregate server URL to relay forms from", RequestBuilder::url);
+  private static final Param<String> SOURCE_USERNAME = Param.arg("su", "source_odk_username", "Aggregate server username");
+  private static final Param<String> SOURCE_PASSWORD = Param.arg("sp", "source_odk_password", "Aggregate server password");
+  private static final Param<Void> KEEP_LOCAL_COPY = Param.flag("klc", "keep_local_copy", "Keep the relayed forms and submissions in the storage directory");
+
+  public static Operation OPERATION = Operation.of(
+      RELAY_AGGREGATE_TO_CENTRAL,
+      RelayFormFromAggregateToCentral::relay,
+      Arrays.asList(STORAGE_DIR, SOURCE_SERVER_URL, SOURCE_USERNAME, SOURCE_PASSWORD, SERVER_URL, PROJECT_ID, CREDENTIALS_EMAIL, CREDENTIALS_PASSWORD),
+      Arrays.asList(FORM_ID, MAX_HTTP_CONNECTIONS, MAX_UPLOAD_RATE, MAX_DOWNLOAD_RATE, KEEP_LOCAL_COPY)
+  );
+
+  private static void relay(Args args) {
+    CliEventsCompanion.attach(log);
+    Path briefcaseDir = Common.getOrCreateBriefcaseDir(args.get(STORAGE_DIR));
+    BriefcasePreferences appPreferences = BriefcasePreferences.appScoped();
+
+    int maxHttpConnections = Optionals.race(
+        args.getOptional(MAX_HTTP_CONNECTIONS),
+        appPreferences.getMaxHttpConnections()
+    ).orElse(DEFAULT_HTTP_CONNECTIONS);
+    Http http = buildHttp(appPreferences, maxHttpConnections, getBandwidthLimits(args.getOptional(MAX_UPLOAD_RATE), args.getOptional(MAX_DOWNLOAD_RATE), appPreferences));
+    http.setValidatorCache(HttpValidatorCache.at(briefcaseDir));
+
+    AggregateServer source = AggregateServer.authenticated(args.get(SOURCE_SERVER_URL), new Credentials(args.get(SOURCE_USERNAME), args.get(SOURCE_PASSWORD)));
+    CentralServer target = CentralServer.of(args.get(SERVER_URL), args.get(PROJECT_ID), new Credentials(args.get(CREDENTIALS_EMAIL), args.get(CREDENTIALS_PASSWORD)));
+
+    String token = http.execute(target.getSessionTokenRequest())
+        .orElseThrow(() -> new BriefcaseException("Can't authenticate with ODK Central"));
+
+    Response<List<RemoteFormDefinition>> response = http.execute(source.getFormListRequest());
+    if (!response.isSuccess()) {
+      System.err.println(response.isRedirection()
+          ? "Error connecting to Aggregate: Redirection detected"
+          : response.isUnauthorized()
+          ? "Error connecting to Aggregate: Wrong credentials"
+          : response.isNotFound()
+          ? "Error connecting to Aggregate: Aggregate not found"
+          : "Error connecting to Aggregate");
+      return;
+    }
+
+    Optional<String> formId = args.getOptional(FORM_ID);
+    List<FormStatus> filteredForms = response.orElseThrow(BriefcaseException::new)
+        .stream()
+        .filter(f -> formId.map(id -> f.getFormId().equals(id)).orElse(true))
+        .map(FormStatus::new)
+        .collect(toList());
+
+    if (formId.isPresent() && filteredForms.isEmpty())
+      throw new BriefcaseException("Form " + formId.get() + " not found");
+
+    TransferForms forms = TransferForms.empty();
+    forms.load(filteredForms);
+    forms.selectAll();
+
+    // Without a local copy, submissions go through a staging directory that keeps the progress of the relay
+    boolean keepLocalCopy = args.has(KEEP_LOCAL_COPY);
+    Path relayDir = keepLocalCopy ? briefcaseDir : Relay.stagingDir(briefcaseDir, source.getBaseUrl().toString(), target.getBaseUrl() + "/v1/projects/" + target.getProjectId());
+    if (!Files.exists(relayDir))
+      UncheckedFiles.createBriefcaseDir(relayDir);
+    FormMetadataPort formMetadataPort = FileSystemFormMetadataAdapter.at(relayDir);
+
+    PullFromAggregate pullOp = new PullFromAggregate(http, source, relayDir, false, RelayFormFromAggregateToCentral::onEvent, formMetadataPort);
+    PushToCentral pushOp = new PushToCentral(http, target, relayDir, token, RelayFormFromAggregateToCentral::onEvent);
+    Relay relay = new Relay(relayDir, target.getBaseUrl(), maxHttpConnections, keepLocalCopy);
+    JobsRunner.launchAsync(
+        forms.map(form -> relay.relay(
+            form,
+            onSubmissionPulled -> pullOp.pull(form, formMetadataPort.query(lastCursorOf(FormKey.from(form))), false, onSubmissionPulled),
+            pushOp.forwarder(form)
+        )),
+        RelayFormFromAggregateToCentral::onError
+    ).waitForCompletion();
+    System.out.println();
+    System.out.println("All operations completed");
+    printHttpTraffic(http);
+    System.out.println();
+  }
+
+  private static void onEvent(FormStatusEvent event) {
+    System.out.println(event.getStatus().getFormName() + " - " + event.getStatusString());
+    // The pull and push trackers already log normal events
+  }
+
+  private static void onError(Throwable e) {
+    System.err.println("Error relaying a form: " + e.getMessage() + " (see the logs for more info)");
+    log.error("Error relaying a form", e);
+  }
+
+}
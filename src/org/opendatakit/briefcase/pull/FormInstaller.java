@@ -24,11 +24,13 @@ import static org.opendatakit.briefcase.reused.UncheckedFiles.exists;
 import static org.opendatakit.briefcase.reused.UncheckedFiles.walk;
 import static org.opendatakit.briefcase.util.StringUtils.stripIllegalChars;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import org.bushe.swing.event.EventBus;
 import org.opendatakit.briefcase.model.FormStatus;
 import org.opendatakit.briefcase.model.FormStatusEvent;
 import org.opendatakit.briefcase.model.OdkCollectFormDefinition;
+import org.opendatakit.briefcase.reused.MediaBlobStore;
 
 /**
  * This class has UI/CLI independent methods to install forms into
@@ -71,15 +73,21 @@ public class FormInstaller {
     Path targetMediaDir = targetFormDir.resolve(form.getFormName() + "-media");
     if (exists(targetMediaDir))
       deleteRecursive(targetMediaDir);
+    MediaBlobStore mediaStore = MediaBlobStore.at(briefcaseDir);
     if (exists(sourceMediaDir))
       walk(sourceMediaDir)
           .forEach(sourcePath -> {
-            copy(sourcePath, targetMediaDir.resolve(sourceMediaDir.relativize(sourcePath)));
+            Path targetPath = targetMediaDir.resolve(sourceMediaDir.relativize(sourcePath));
+            copy(sourcePath, targetPath);
+            if (Files.isRegularFile(targetPath))
+              mediaStore.store(targetPath);
             form.setStatusString("Installed " + sourcePath.getFileName() + " media file");
             form.setStatusString("Installed " + sourcePath.getFileName() + " media file");
             EventBus.publish(new FormStatusEvent(form));
           });
 
+    mediaStore.save();
+
     form.setStatusString("Success");
     EventBus.publish(new FormStatusEvent(form));
   }
@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.pull;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.util.stream.Collectors.toList;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createDirectories;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteIfExists;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps track of the submission attachments of a form that have been left
+ * to download later, when pulling submissions and attachments in two phases.
+ * <p>
+ * Pending attachments are persisted at the form's directory, so that they
+ * can be downloaded by a later pull if the download gets interrupted. Each
+ * change is appended as a JSON line to a journal file, which keeps saving
+ * the attachments of a submission cheap regardless of how many are pending.
+ * The journal gets rewritten with only the pending attachments once most of
+ * its lines are outdated.
+ */
+public class PendingAttachments {
+  private static final Logger log = LoggerFactory.getLogger(PendingAttachments.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  static final String FILE_NAME = "pending-attachments.jsonl";
+  private static final String REMOVED = "removed";
+  // Small journals aren't worth rewriting
+  private static final int MIN_COMPACTED_LINES = 100;
+  private final Path file;
+  private final Map<String, PendingAttachment> attachments;
+  private final List<String> unsavedLines = new ArrayList<>();
+  private int savedLines;
+  private boolean rewrite;
+
+  private PendingAttachments(Path file, Map<String, PendingAttachment> attachments, int savedLines, boolean rewrite) {
+    this.file = file;
+    this.attachments = attachments;
+    this.savedLines = savedLines;
+    this.rewrite = rewrite;
+  }
+
+  /**
+   * Returns a new PendingAttachments instance for the form at the given
+   * directory, loading any pending attachment previously saved.
+   */
+  public static PendingAttachments at(Path formDir) {
+    Path file = formDir.resolve(FILE_NAME);
+    Map<String, PendingAttachment> attachments = new LinkedHashMap<>();
+    int savedLines = 0;
+    boolean rewrite = false;
+    if (Files.exists(file))
+      try {
+        for (String line : Files.readAllLines(file, UTF_8)) {
+          savedLines++;
+          try {
+            JsonNode node = MAPPER.readTree(line);
+            PendingAttachment attachment = PendingAttachment.from(node);
+            if (node.path(REMOVED).asBoolean(false))
+              attachments.remove(attachment.getKey());
+            else
+              attachments.put(attachment.getKey(), attachment);
+          } catch (IOException | RuntimeException e) {
+            // Likely the last line of a save that got interrupted, which
+            // has to go away before appending anything else
+            log.warn("Can't read pending attachment line at {}", file, e);
+            rewrite = true;
+          }
+        }
+      } catch (IOException e) {
+        log.warn("Can't read pending attachments at {}", file, e);
+      }
+    return new PendingAttachments(file, attachments, savedLines, rewrite);
+  }
+
+  public synchronized void add(PendingAttachment attachment) {
+    attachments.put(attachment.getKey(), attachment);
+    unsavedLines.add(attachment.asJson(MAPPER).toString());
+  }
+
+  public synchronized void remove(PendingAttachment attachment) {
+    if (attachments.remove(attachment.getKey()) != null)
+      unsavedLines.add(attachment.asJson(MAPPER).put(REMOVED, true).toString());
+  }
+
+  public synchronized List<PendingAttachment> getAll() {
+    return new ArrayList<>(attachments.values());
+  }
+
+  /**
+   * Returns the pending attachments that pulls have to download, leaving
+   * out the lazy ones, which only get fetched by exports of media files.
+   */
+  public synchronized List<PendingAttachment> getDeferred() {
+    return attachments.values().stream()
+        .filter(attachment -> !attachment.isLazy())
+        .collect(toList());
+  }
+
+  /**
+   * Returns the pending attachments of the submission with the given instance ID.
+   */
+  public synchronized List<PendingAttachment> getAll(String instanceId) {
+    return attachments.values().stream()
+        .filter(attachment -> attachment.getInstanceId().equals(instanceId))
+        .collect(toList());
+  }
+
+  public synchronized boolean isEmpty() {
+    return attachments.isEmpty();
+  }
+
+  /**
+   * Appends the changes made since the last save to the journal, deleting
+   * it once there are no pending attachments, or rewriting it when most of
+   * its lines are outdated or unreadable.
+   * <p>
+   * The journal gets rewritten into a temp file that replaces it in a single
+   * move, so that an interrupted save never loses pending attachments.
+   *
+   * @return false if the pending attachments couldn't be saved
+   */
+  public synchronized boolean save() {
+    if (unsavedLines.isEmpty())
+      return true;
+    try {
+      if (attachments.isEmpty()) {
+        deleteIfExists(file);
+        savedLines = 0;
+        rewrite = false;
+      } else if (rewrite || savedLines + unsavedLines.size() > 2 * attachments.size() + MIN_COMPACTED_LINES) {
+        Path tempFile = file.resolveSibling(FILE_NAME + ".tmp");
+        List<String> lines = attachments.values().stream().map(attachment -> attachment.asJson(MAPPER).toString()).collect(toList());
+        createDirectories(file.getParent());
+        Files.write(tempFile, lines, UTF_8, CREATE, TRUNCATE_EXISTING);
+        move(tempFile, file);
+        savedLines = lines.size();
+        rewrite = false;
+      } else {
+        createDirectories(file.getParent());
+        Files.write(file, unsavedLines, UTF_8, CREATE, APPEND);
+        savedLines += unsavedLines.size();
+      }
+      unsavedLines.clear();
+      return true;
+    } catch (IOException | UncheckedIOException e) {
+      log.warn("Can't save pending attachments at {}", file, e);
+      // An append could have left an incomplete line behind
+      rewrite = true;
+      return false;
+    }
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, ATOMIC_MOVE, REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Represents a submission attachment that is pending to be downloaded.
+   * <p>
+   * The hash and download URL are only known when the server
+   * reports them (e.g. Aggregate).
+   * <p>
+   * Deferred attachments get downloaded by the second phase of a pull,
+   * while lazy ones stay pending until an export of media files needs them.
+   */
+  public static class PendingAttachment {
+    private final String instanceId;
+    private final String filename;
+    private final Optional<String> hash;
+    private final Optional<String> downloadUrl;
+    private final boolean lazy;
+
+    public PendingAttachment(String instanceId, String filename, Optional<String> hash, Optional<String> downloadUrl) {
+      this(instanceId, filename, hash, downloadUrl, false);
+    }
+
+    public PendingAttachment(String instanceId, String filename, Optional<String> hash, Optional<String> downloadUrl, boolean lazy) {
+      this.instanceId = instanceId;
+      this.filename = filename;
+      this.hash = hash;
+      this.downloadUrl = downloadUrl;
+      this.lazy = lazy;
+    }
+
+    static PendingAttachment from(JsonNode root) {
+      return new PendingAttachment(
+          root.get("instanceId").asText(),
+          root.get("filename").asText(),
+          Optional.ofNullable(root.get("hash")).map(JsonNode::asText),
+          Optional.ofNullable(root.get("downloadUrl")).map(JsonNode::asText),
+          root.path("lazy").asBoolean(false)
+      );
+    }
+
+    ObjectNode asJson(ObjectMapper mapper) {
+      ObjectNode root = mapper.createObjectNode();
+      root.put("instanceId", instanceId);
+      root.put("filename", filename);
+      hash.ifPresent(value -> root.put("hash", value));
+      downloadUrl.ifPresent(value -> root.put("downloadUrl", value));
+      if (lazy)
+        root.put("lazy", true);
+      return root;
+    }
+
+    private String getKey() {
+      return instanceId + "/" + filename;
+    }
+
+    public String getInstanceId() {
+      return instanceId;
+    }
+
+    public String getFilename() {
+      return filename;
+    }
+
+    public Optional<String> getHash() {
+      return hash;
+    }
+
+    public Optional<String> getDownloadUrl() {
+      return downloadUrl;
+    }
+
+    public boolean isLazy() {
+      return lazy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      PendingAttachment that = (PendingAttachment) o;
+      return Objects.equals(instanceId, that.instanceId) &&
+          Objects.equals(filename, that.filename) &&
+          Objects.equals(hash, that.hash) &&
+          Objects.equals(downloadUrl, that.downloadUrl) &&
+          lazy == that.lazy;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(instanceId, filename, hash, downloadUrl, lazy);
+    }
+
+    @Override
+    public String toString() {
+      return "PendingAttachment{" +
+          "instanceId='" + instanceId + '\'' +
+          ", filename='" + filename + '\'' +
+          ", hash=" + hash +
+          ", downloadUrl=" + downloadUrl +
+          ", lazy=" + lazy +
+          '}';
+    }
+  }
+}
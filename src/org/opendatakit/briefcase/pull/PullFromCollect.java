@@ -7,18 +7,50 @@ import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.function.Consumer;
+import org.opendatakit.briefcase.model.FormStatus;
 import org.opendatakit.briefcase.model.form.FormKey;
 import org.opendatakit.briefcase.model.form.FormMetadataPort;
 import org.opendatakit.briefcase.reused.BriefcaseException;
 import org.opendatakit.briefcase.reused.job.JobsRunner;
+import org.opendatakit.briefcase.reused.job.RunnerStatus;
 import org.opendatakit.briefcase.transfer.TransferForms;
+import org.opendatakit.briefcase.util.CollectArchive;
+import org.opendatakit.briefcase.util.CollectImportSummary;
 import org.opendatakit.briefcase.util.TransferFromODK;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class PullFromCollect {
+  private static final Logger log = LoggerFactory.getLogger(PullFromCollect.class);
+
   public static JobsRunner pullForms(FormMetadataPort formMetadataPort, TransferForms forms, Path briefcaseDir, Path collectDir, Consumer<PullEvent> onEvent) {
+    return pullForms(formMetadataPort, forms, briefcaseDir, collectDir, onEvent, new CollectImportSummary());
+  }
+
+  /**
+   * Pulls the given forms from an ODK Collect directory, adding up the
+   * imported submissions of all the forms into the given summary.
+   */
+  public static JobsRunner pullForms(FormMetadataPort formMetadataPort, TransferForms forms, Path briefcaseDir, Path collectDir, Consumer<PullEvent> onEvent, CollectImportSummary summary) {
+    return pullForms(formMetadataPort, forms, briefcaseDir, collectDir, onEvent, summary, (jobStatus, form, submissionVersions) ->
+        new TransferFromODK(briefcaseDir, collectDir.toFile(), jobStatus, TransferForms.of(form), submissionVersions, summary));
+  }
+
+  /**
+   * Pulls the given forms from an archive of an ODK Collect directory, adding
+   * up the imported submissions of all the forms into the given summary.
+   * <p>
+   * The archive must stay open until the returned runner completes.
+   */
+  public static JobsRunner pullForms(FormMetadataPort formMetadataPort, TransferForms forms, Path briefcaseDir, Path archivePath, CollectArchive archive, Consumer<PullEvent> onEvent, CollectImportSummary summary) {
+    return pullForms(formMetadataPort, forms, briefcaseDir, archivePath, onEvent, summary, (jobStatus, form, submissionVersions) ->
+        new TransferFromODK(briefcaseDir, archive, jobStatus, TransferForms.of(form), submissionVersions, summary));
+  }
+
+  private static JobsRunner pullForms(FormMetadataPort formMetadataPort, TransferForms forms, Path briefcaseDir, Path source, Consumer<PullEvent> onEvent, CollectImportSummary summary, ActionFactory actionFactory) {
     return JobsRunner.launchAsync(forms.map(form -> run(jobStatus -> {
       Set<String> submissionVersions = new HashSet<>();
-      TransferFromODK action = new TransferFromODK(briefcaseDir, collectDir.toFile(), jobStatus, TransferForms.of(form), submissionVersions);
+      TransferFromODK action = actionFactory.create(jobStatus, form, submissionVersions);
       try {
         boolean success = action.doAction();
         if (success) {
@@ -31,6 +63,14 @@ public class PullFromCollect {
         // flow driven by the Launcher class
         throw new BriefcaseException("Failed to pull form (legacy)", e);
       }
-    }))).onComplete(() -> onEvent.accept(new PullEvent.PullComplete()));
+    }))).onComplete(() -> {
+      log.info("Pull from {} - {}", source, summary.describe());
+      onEvent.accept(new PullEvent.PullComplete());
+    });
+  }
+
+  @FunctionalInterface
+  private interface ActionFactory {
+    TransferFromODK create(RunnerStatus jobStatus, FormStatus form, Set<String> submissionVersions);
   }
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.pull;
+
+import java.nio.file.Path;
+
+/**
+ * Gets called by pulls each time a submission has been downloaded
+ * together with all its attachments.
+ * <p>
+ * It's called from the threads running the pull, which it can slow down by
+ * blocking them, and possibly from several threads at the same time.
+ */
+@FunctionalInterface
+public interface PulledSubmissionCallback {
+  PulledSubmissionCallback NONE = (submissionFile, submissionNumber, totalSubmissions) -> { };
+
+  void accept(Path submissionFile, int submissionNumber, int totalSubmissions);
+
+  /**
+   * Returns true if the submission with the given instance ID has been pulled
+   * and handed over before, and it doesn't have to be downloaded again even if
+   * it's not in local storage anymore (e.g. a relay has pushed and removed it).
+   */
+  default boolean isAlreadyPulled(String instanceId) {
+    return false;
+  }
+}
@@ -19,17 +19,12 @@ package org.opendatakit.briefcase.pull.aggregate;
 import static org.opendatakit.briefcase.reused.http.RequestBuilder.url;
 
 import java.net.URL;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.Objects;
-import org.opendatakit.briefcase.reused.BriefcaseException;
-import org.opendatakit.briefcase.reused.UncheckedFiles;
+import org.opendatakit.briefcase.reused.FileHashCache;
 
 // TODO v2.0 Move to reused.transfer with CentralAttachment
 public class AggregateAttachment {
-  private final static char[] hexArray = "0123456789ABCDEF".toCharArray();
   private final String filename;
   private final String hash;
   private final URL downloadUrl;
@@ -44,25 +39,8 @@ public class AggregateAttachment {
     return new AggregateAttachment(filename, hash, url(downloadUrl));
   }
 
-  private static String bytesToHex(byte[] bytes) {
-    char[] hexChars = new char[bytes.length * 2];
-    for (int j = 0; j < bytes.length; j++) {
-      int v = bytes[j] & 0xFF;
-      hexChars[j * 2] = hexArray[v >>> 4];
-      hexChars[j * 2 + 1] = hexArray[v & 0x0F];
-    }
-    return new String(hexChars);
-  }
-
   static String md5(Path file) {
-    try {
-      MessageDigest md = MessageDigest.getInstance("MD5");
-      md.update(UncheckedFiles.readAllBytes(file));
-      byte[] digest = md.digest();
-      return bytesToHex(digest);
-    } catch (NoSuchAlgorithmException e) {
-      throw new BriefcaseException(e);
-    }
+    return FileHashCache.computeMd5(file).toUpperCase();
   }
 
   /**
@@ -73,12 +51,12 @@ public class AggregateAttachment {
    * <li>The local file has a different hash</li>
    * <li>The hash is unknown</li>
    * </ul>
+   * The local file is hashed with the provided {@link FileHashCache}, which
+   * avoids reading it again if it hasn't changed since it was last hashed.
    */
-  boolean needsUpdate(Path mediaDir) {
-    Path targetPath = mediaDir.resolve(filename);
-    return !hash.startsWith("md5:") || // we didn't get an MD5 hash
-        !Files.exists(targetPath) || // There's no local file at the target path
-        !hash.equalsIgnoreCase("md5:" + md5(targetPath)); // The local file's hash doesn't match what we expected
+  boolean needsUpdate(Path mediaDir, FileHashCache hashes) {
+    return !hasMd5() || // we didn't get an MD5 hash
+        !hashes.matches(mediaDir.resolve(filename), getMd5()); // There's no local file or its hash doesn't match what we expected
   }
 
   public String getFilename() {
@@ -89,6 +67,17 @@ public class AggregateAttachment {
     return hash;
   }
 
+  boolean hasMd5() {
+    return hash.startsWith("md5:");
+  }
+
+  /**
+   * Returns the hexadecimal MD5 hash of this attachment, without the "md5:" prefix.
+   */
+  String getMd5() {
+    return hash.substring("md5:".length());
+  }
+
   public URL getDownloadUrl() {
     return downloadUrl;
   }
@@ -24,6 +24,7 @@ import java.util.List;
 import org.opendatakit.briefcase.export.XmlElement;
 import org.opendatakit.briefcase.reused.Pair;
 import org.opendatakit.briefcase.reused.http.Http;
+import org.opendatakit.briefcase.reused.http.TransferCounter;
 import org.opendatakit.briefcase.reused.http.response.Response;
 import org.opendatakit.briefcase.reused.transfer.AggregateServer;
 
@@ -36,16 +37,22 @@ public class InstanceIdBatchGetter implements Iterator<InstanceIdBatch> {
   private final Http http;
   private final String formId;
   private final boolean includeIncomplete;
+  private final TransferCounter transferCounter;
   private Cursor nextCursor;
   private List<String> nextUids;
 
   // TODO v2.0 Remove the public keyword if possible
   public InstanceIdBatchGetter(AggregateServer server, Http http, String formId, boolean includeIncomplete, Cursor nextCursor) {
+    this(server, http, formId, includeIncomplete, nextCursor, new TransferCounter());
+  }
+
+  InstanceIdBatchGetter(AggregateServer server, Http http, String formId, boolean includeIncomplete, Cursor nextCursor, TransferCounter transferCounter) {
     this.server = server;
     this.http = http;
     this.formId = formId;
     this.includeIncomplete = includeIncomplete;
     this.nextCursor = nextCursor;
+    this.transferCounter = transferCounter;
     fetchNext();
   }
 
@@ -55,7 +62,7 @@ public class InstanceIdBatchGetter implements Iterator<InstanceIdBatch> {
         100,
         nextCursor,
         includeIncomplete
-    ));
+    ).builder().withTransferCounter(transferCounter).withSchedulingGroup(formId).build());
     Pair<Cursor, List<String>> batch = response
         .map(this::parseBatch)
         .orElseThrow(() -> new InstanceIdBatchGetterException(response));
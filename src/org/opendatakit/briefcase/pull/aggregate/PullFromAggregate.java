@@ -29,13 +29,15 @@ import static org.opendatakit.briefcase.reused.job.Job.run;
 import static org.opendatakit.briefcase.util.DatabaseUtils.withDb;
 
 import java.net.URL;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import org.bushe.swing.event.EventBus;
@@ -45,10 +47,16 @@ import org.opendatakit.briefcase.model.FormStatusEvent;
 import org.opendatakit.briefcase.model.RemoteFormDefinition;
 import org.opendatakit.briefcase.model.form.FormKey;
 import org.opendatakit.briefcase.model.form.FormMetadataPort;
+import org.opendatakit.briefcase.pull.PendingAttachments;
+import org.opendatakit.briefcase.pull.PendingAttachments.PendingAttachment;
 import org.opendatakit.briefcase.pull.PullEvent;
+import org.opendatakit.briefcase.pull.PulledSubmissionCallback;
+import org.opendatakit.briefcase.reused.BriefcaseException;
+import org.opendatakit.briefcase.reused.FileHashCache;
+import org.opendatakit.briefcase.reused.Futures;
+import org.opendatakit.briefcase.reused.MediaBlobStore;
 import org.opendatakit.briefcase.reused.OptionalProduct;
 import org.opendatakit.briefcase.reused.Pair;
-import org.opendatakit.briefcase.reused.Triple;
 import org.opendatakit.briefcase.reused.http.Http;
 import org.opendatakit.briefcase.reused.http.Request;
 import org.opendatakit.briefcase.reused.http.RequestBuilder;
@@ -64,6 +72,7 @@ public class PullFromAggregate {
   private final boolean includeIncomplete;
   private final Consumer<FormStatusEvent> onEventCallback;
   private final FormMetadataPort formMetadataPort;
+  private final MediaBlobStore mediaStore;
 
   public PullFromAggregate(Http http, AggregateServer server, Path briefcaseDir, boolean includeIncomplete, Consumer<FormStatusEvent> onEventCallback, FormMetadataPort formMetadataPort) {
     this.http = http;
@@ -72,6 +81,7 @@ public class PullFromAggregate {
     this.includeIncomplete = includeIncomplete;
     this.onEventCallback = onEventCallback;
     this.formMetadataPort = formMetadataPort;
+    this.mediaStore = MediaBlobStore.at(briefcaseDir);
   }
 
   static Optional<Cursor> getLastCursor(List<InstanceIdBatch> batches) {
@@ -91,9 +101,46 @@ public class PullFromAggregate {
    * Returns a Job that will produce a pull operation result.
    */
   public Job<Void> pull(FormStatus form, Optional<Cursor> lastCursor) {
+    return pull(form, lastCursor, false);
+  }
+
+  /**
+   * Pulls a form like {@link #pull(FormStatus, Optional)} does, optionally
+   * leaving the submission attachments pending, to be downloaded later
+   * with {@link #pullPendingAttachments(FormStatus)}.
+   * <p>
+   * Deferring attachments lets us have all the submissions as soon as
+   * possible. Submissions are recorded as pulled all the same.
+   * <p>
+   * Attachments deferred by previous pulls are downloaded when
+   * attachments are not deferred.
+   */
+  public Job<Void> pull(FormStatus form, Optional<Cursor> lastCursor, boolean deferAttachments) {
+    return pull(form, lastCursor, deferAttachments, false, PulledSubmissionCallback.NONE);
+  }
+
+  /**
+   * Pulls a form like {@link #pull(FormStatus, Optional, boolean)} does,
+   * calling the given callback each time a submission has been downloaded
+   * together with all its attachments.
+   */
+  public Job<Void> pull(FormStatus form, Optional<Cursor> lastCursor, boolean deferAttachments, PulledSubmissionCallback onSubmissionPulled) {
+    return pull(form, lastCursor, deferAttachments, false, onSubmissionPulled);
+  }
+
+  /**
+   * Pulls a form like {@link #pull(FormStatus, Optional, boolean, PulledSubmissionCallback)}
+   * does, optionally leaving the submission attachments pending as lazy
+   * attachments, which no pull downloads. They only get fetched by exports
+   * of media files (see {@link org.opendatakit.briefcase.export.MediaFetcher}).
+   */
+  public Job<Void> pull(FormStatus form, Optional<Cursor> lastCursor, boolean deferAttachments, boolean lazyAttachments, PulledSubmissionCallback onSubmissionPulled) {
+    boolean leaveAttachmentsPending = deferAttachments || lazyAttachments;
     FormKey key = FormKey.from(form);
 
     PullFromAggregateTracker tracker = new PullFromAggregateTracker(form, onEventCallback);
+    FileHashCache hashes = FileHashCache.at(form.getFormDir(briefcaseDir));
+    PendingAttachments pendingAttachments = PendingAttachments.at(form.getFormDir(briefcaseDir));
 
     // Download the form and attachments, and get the submissions list
     return run(rs -> tracker.trackStart())
@@ -102,12 +149,13 @@ public class PullFromAggregate {
           if (formXml == null)
             return;
 
-          List<AggregateAttachment> attachments = getFormAttachments(form, rs, tracker);
+          List<AggregateAttachment> attachments = getFormAttachments(form, hashes, rs, tracker);
           int totalAttachments = attachments.size();
           AtomicInteger attachmentNumber = new AtomicInteger(1);
-          attachments.parallelStream().forEach(attachment ->
-              downloadFormAttachment(form, attachment, rs, tracker, attachmentNumber.getAndIncrement(), totalAttachments)
-          );
+          Futures.allOf(attachments.stream().map(attachment ->
+              downloadFormAttachment(form, attachment, hashes, rs, tracker, attachmentNumber.getAndIncrement(), totalAttachments)
+          ));
+          mediaStore.save();
 
           List<InstanceIdBatch> instanceIdBatches = getSubmissionIds(form, lastCursor.orElse(Cursor.empty()), rs, tracker);
 
@@ -120,41 +168,57 @@ public class PullFromAggregate {
               .collect(toList());
           int totalSubmissions = ids.size();
           AtomicInteger submissionNumber = new AtomicInteger(1);
-          Set<String> submissionVersions = new HashSet<>();
+          Set<String> submissionVersions = ConcurrentHashMap.newKeySet();
 
           if (ids.isEmpty())
             tracker.trackNoSubmissions();
 
           withDb(form.getFormDir(briefcaseDir), db -> {
-            // We need to collect to be able to create a parallel stream again
-            ids.parallelStream()
-                .map(instanceId -> Triple.of(submissionNumber.getAndIncrement(), instanceId, db.hasRecordedInstance(instanceId) == null))
-                .peek(triple -> {
-                  if (!triple.get3())
-                    tracker.trackSubmissionAlreadyDownloaded(triple.get1(), totalSubmissions);
+            // Submissions are downloaded on the I/O threads, like attachments. The rest of the
+            // work of each submission is chained to its download, so that no I/O thread waits for another
+            Futures.allOf(ids.stream()
+                .map(instanceId -> Pair.of(submissionNumber.getAndIncrement(), instanceId))
+                .filter(pair -> {
+                  boolean recorded = db.hasRecordedInstance(pair.getRight()) != null;
+                  if (recorded)
+                    tracker.trackSubmissionAlreadyDownloaded(pair.getLeft(), totalSubmissions);
+                  return !recorded;
                 })
-                .filter(Triple::get3)
-                .map(triple -> Pair.of(
-                    triple.get1(),
-                    downloadSubmission(form, triple.get2(), subKeyGen, rs, tracker, triple.get1(), totalSubmissions)
-                ))
-                .filter(p -> p.getRight() != null)
-                .forEach(pair -> {
+                .map(pair -> {
                   int currentSubmissionNumber = pair.getLeft();
-                  DownloadedSubmission submission = pair.getRight();
-                  submission.getFormVersion().ifPresent(submissionVersions::add);
-                  List<AggregateAttachment> submissionAttachments = submission.getAttachments();
-                  AtomicInteger submissionAttachmentNumber = new AtomicInteger(1);
-                  int totalSubmissionAttachments = submissionAttachments.size();
-                  submissionAttachments.parallelStream().forEach(attachment ->
-                      downloadSubmissionAttachment(form, submission, attachment, rs, tracker, currentSubmissionNumber, totalSubmissions, submissionAttachmentNumber.getAndIncrement(), totalSubmissionAttachments)
-                  );
-                  if (!rs.isCancelled()) {
-                    db.putRecordedInstanceDirectory(submission.getInstanceId(), form.getSubmissionDir(briefcaseDir, submission.getInstanceId()).toFile());
-                  }
-                });
+                  return http.supplyAsync(() -> downloadSubmission(form, pair.getRight(), subKeyGen, rs, tracker, currentSubmissionNumber, totalSubmissions)).thenCompose(submission -> {
+                    if (submission == null)
+                      return CompletableFuture.<Void>completedFuture(null);
+                    submission.getFormVersion().ifPresent(submissionVersions::add);
+                    List<AggregateAttachment> submissionAttachments = getSubmissionAttachments(form, submission, hashes, tracker, currentSubmissionNumber, totalSubmissions);
+                    if (leaveAttachmentsPending) {
+                      // A submission whose pending attachments can't be saved is left
+                      // unrecorded, so that the next pull downloads it again
+                      boolean deferred = deferSubmissionAttachments(submission, submissionAttachments, lazyAttachments, pendingAttachments, tracker, currentSubmissionNumber, totalSubmissions);
+                      if (!rs.isCancelled() && deferred)
+                        db.putRecordedInstanceDirectory(submission.getInstanceId(), form.getSubmissionDir(briefcaseDir, submission.getInstanceId()).toFile());
+                      return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    AtomicInteger submissionAttachmentNumber = new AtomicInteger(1);
+                    int totalSubmissionAttachments = submissionAttachments.size();
+                    return CompletableFuture.allOf(submissionAttachments.stream().map(attachment ->
+                        downloadSubmissionAttachment(form, submission, attachment, hashes, rs, tracker, currentSubmissionNumber, totalSubmissions, submissionAttachmentNumber.getAndIncrement(), totalSubmissionAttachments)
+                    ).toArray(CompletableFuture<?>[]::new)).thenRun(() -> {
+                      if (!rs.isCancelled()) {
+                        db.putRecordedInstanceDirectory(submission.getInstanceId(), form.getSubmissionDir(briefcaseDir, submission.getInstanceId()).toFile());
+                        if (isComplete(form, submission, submissionAttachments))
+                          onSubmissionPulled.accept(form.getSubmissionFile(briefcaseDir, submission.getInstanceId()), currentSubmissionNumber, totalSubmissions);
+                      }
+                    });
+                  });
+                }));
           });
+          if (!leaveAttachmentsPending)
+            downloadPendingAttachments(form, pendingAttachments, hashes, rs, tracker, false);
+          pendingAttachments.save();
+          hashes.save();
 
+          tracker.trackTraffic(http.getConcurrencyStats(server.getBaseUrl()));
           tracker.trackEnd();
           Cursor newCursor = getLastCursor(instanceIdBatches).orElse(Cursor.empty());
 
@@ -165,6 +229,30 @@ public class PullFromAggregate {
 
   }
 
+  private boolean isComplete(FormStatus form, DownloadedSubmission submission, List<AggregateAttachment> attachments) {
+    return attachments.stream()
+        .allMatch(attachment -> Files.exists(form.getSubmissionMediaFile(briefcaseDir, submission.getInstanceId(), attachment.getFilename())));
+  }
+
+  /**
+   * Downloads the submission attachments of a form that previous pulls have
+   * deferred, leaving the lazy ones pending. These downloads give way to the rest of requests sent to
+   * the server, and they can be cancelled at any time, leaving the remaining
+   * attachments pending.
+   */
+  public Job<Void> pullPendingAttachments(FormStatus form) {
+    PullFromAggregateTracker tracker = new PullFromAggregateTracker(form, onEventCallback);
+    return run(rs -> {
+      FileHashCache hashes = FileHashCache.at(form.getFormDir(briefcaseDir));
+      PendingAttachments pendingAttachments = PendingAttachments.at(form.getFormDir(briefcaseDir));
+      downloadPendingAttachments(form, pendingAttachments, hashes, rs, tracker, true);
+      pendingAttachments.save();
+      hashes.save();
+      tracker.trackTraffic(http.getConcurrencyStats(server.getBaseUrl()));
+      tracker.trackEnd();
+    });
+  }
+
   String downloadForm(FormStatus form, RunnerStatus runnerStatus, PullFromAggregateTracker tracker) {
     if (runnerStatus.isCancelled()) {
       tracker.trackCancellation("Download form");
@@ -172,7 +260,7 @@ public class PullFromAggregate {
     }
 
     tracker.trackStartDownloadingForm();
-    Response<String> response = http.execute(getDownloadFormRequest(form, tracker));
+    Response<String> response = http.execute(tracker.tracked(getDownloadFormRequest(form, tracker)));
     if (!response.isSuccess()) {
       tracker.trackErrorDownloadingForm(response);
       return null;
@@ -182,7 +270,9 @@ public class PullFromAggregate {
     createDirectories(formFile.getParent());
 
     String formXml = response.get();
-    write(formFile, formXml, CREATE, TRUNCATE_EXISTING);
+    // Leave an unchanged form file alone, which saves re-hashing it when updating the form cache
+    if (!response.isNotModified() || !Files.exists(formFile))
+      write(formFile, formXml, CREATE, TRUNCATE_EXISTING);
     tracker.trackEndDownloadingForm();
     return formXml;
   }
@@ -194,7 +284,7 @@ public class PullFromAggregate {
     } else {
       // This is a pull before export operation. We need to get the manifest
       // to get the download URL of this blank form.
-      Response<List<RemoteFormDefinition>> remoteFormsResponse = http.execute(server.getFormListRequest());
+      Response<List<RemoteFormDefinition>> remoteFormsResponse = http.execute(tracker.tracked(server.getFormListRequest()));
       if (remoteFormsResponse.isSuccess())
         maybeRemoteForm = remoteFormsResponse.get().stream()
             .filter(remoteForm -> remoteForm.getFormId().equals(form.getFormId()))
@@ -213,7 +303,7 @@ public class PullFromAggregate {
         .orElse(server.getDownloadFormRequest(form.getFormId()));
   }
 
-  List<AggregateAttachment> getFormAttachments(FormStatus form, RunnerStatus runnerStatus, PullFromAggregateTracker tracker) {
+  List<AggregateAttachment> getFormAttachments(FormStatus form, FileHashCache hashes, RunnerStatus runnerStatus, PullFromAggregateTracker tracker) {
     if (runnerStatus.isCancelled()) {
       tracker.trackCancellation("Get form attachments");
       return emptyList();
@@ -227,8 +317,9 @@ public class PullFromAggregate {
     Request<List<AggregateAttachment>> request = get(manifestUrl)
         .asXmlElement()
         .withResponseMapper(PullFromAggregate::parseMediaFiles)
+        .conditional()
         .build();
-    Response<List<AggregateAttachment>> response = http.execute(request);
+    Response<List<AggregateAttachment>> response = http.execute(tracker.tracked(request));
     if (!response.isSuccess()) {
       tracker.trackErrorGettingFormManifest(response);
       return Collections.emptyList();
@@ -236,7 +327,7 @@ public class PullFromAggregate {
 
     List<AggregateAttachment> attachments = response.get();
     List<AggregateAttachment> attachmentsToDownload = attachments.stream()
-        .filter(mediaFile -> mediaFile.needsUpdate(form.getFormMediaDir(briefcaseDir)))
+        .filter(mediaFile -> mediaFile.needsUpdate(form.getFormMediaDir(briefcaseDir), hashes))
         .collect(toList());
     tracker.trackEndGettingFormManifest();
     tracker.trackIgnoredFormAttachments(attachmentsToDownload.size(), attachments.size());
@@ -252,21 +343,32 @@ public class PullFromAggregate {
     return getInstanceIdBatches(form, runnerStatus, tracker, lastCursor);
   }
 
-  void downloadFormAttachment(FormStatus form, AggregateAttachment attachment, RunnerStatus runnerStatus, PullFromAggregateTracker tracker, int attachmentNumber, int totalAttachments) {
-    if (runnerStatus.isCancelled()) {
-      tracker.trackCancellation("Download form attachment " + attachment.getFilename());
-      return;
-    }
-
-    Path target = form.getFormMediaFile(briefcaseDir, attachment.getFilename());
-    createDirectories(target.getParent());
+  CompletableFuture<Void> downloadFormAttachment(FormStatus form, AggregateAttachment attachment, FileHashCache hashes, RunnerStatus runnerStatus, PullFromAggregateTracker tracker, int attachmentNumber, int totalAttachments) {
+    // Cancellation is checked once the download gets its turn on the I/O threads
+    return http.supplyAsync(() -> {
+      if (runnerStatus.isCancelled()) {
+        tracker.trackCancellation("Download form attachment " + attachment.getFilename());
+        return null;
+      }
 
-    tracker.trackStartDownloadingFormAttachment(attachmentNumber, totalAttachments);
-    Response response = http.execute(get(attachment.getDownloadUrl()).downloadTo(target).build());
-    if (response.isSuccess())
-      tracker.trackEndDownloadingFormAttachment(attachmentNumber, totalAttachments);
-    else
-      tracker.trackErrorDownloadingFormAttachment(attachmentNumber, totalAttachments, response);
+      Path target = form.getFormMediaFile(briefcaseDir, attachment.getFilename());
+      if (attachment.hasMd5() && mediaStore.linkTo(attachment.getMd5(), target)) {
+        hashes.put(target, attachment.getMd5());
+        tracker.trackFormAttachmentFromMediaStore(attachmentNumber, totalAttachments);
+        return null;
+      }
+      createDirectories(target.getParent());
+
+      tracker.trackStartDownloadingFormAttachment(attachmentNumber, totalAttachments);
+      Response<Void> response = http.execute(tracker.tracked(get(attachment.getDownloadUrl()).downloadTo(target).build()));
+      if (response.isSuccess()) {
+        hashes.put(target, mediaStore.store(target));
+        tracker.trackEndDownloadingFormAttachment(attachmentNumber, totalAttachments);
+      } else {
+        tracker.trackErrorDownloadingFormAttachment(attachmentNumber, totalAttachments, response);
+      }
+      return null;
+    });
   }
 
   DownloadedSubmission downloadSubmission(FormStatus form, String instanceId, SubmissionKeyGenerator subKeyGen, RunnerStatus runnerStatus, PullFromAggregateTracker tracker, int submissionNumber,
@@ -278,7 +380,7 @@ public class PullFromAggregate {
 
     tracker.trackStartDownloadingSubmission(submissionNumber, totalSubmissions);
     String submissionKey = subKeyGen.buildKey(instanceId);
-    Response<DownloadedSubmission> response = http.execute(server.getDownloadSubmissionRequest(submissionKey));
+    Response<DownloadedSubmission> response = http.execute(tracker.tracked(server.getDownloadSubmissionRequest(submissionKey)));
     if (!response.isSuccess()) {
       tracker.trackErrorDownloadingSubmission(submissionNumber, totalSubmissions, response);
       return null;
@@ -292,21 +394,109 @@ public class PullFromAggregate {
     return submission;
   }
 
-  void downloadSubmissionAttachment(FormStatus form, DownloadedSubmission submission, AggregateAttachment attachment, RunnerStatus runnerStatus, PullFromAggregateTracker tracker, int submissionNumber, int totalSubmissions, int attachmentNumber, int totalAttachments) {
-    if (runnerStatus.isCancelled()) {
-      tracker.trackCancellation("Download attachment " + attachmentNumber + " of " + totalAttachments + " of submission " + submissionNumber + " of " + totalSubmissions);
+  /**
+   * Returns the attachments of a submission that need to be downloaded, leaving
+   * out the ones we already have locally with the same hash the server reports.
+   */
+  List<AggregateAttachment> getSubmissionAttachments(FormStatus form, DownloadedSubmission submission, FileHashCache hashes, PullFromAggregateTracker tracker, int submissionNumber, int totalSubmissions) {
+    Path submissionMediaDir = form.getSubmissionMediaDir(briefcaseDir, submission.getInstanceId());
+    List<AggregateAttachment> attachments = submission.getAttachments();
+    List<AggregateAttachment> attachmentsToDownload = attachments.stream()
+        .filter(attachment -> attachment.needsUpdate(submissionMediaDir, hashes))
+        .collect(toList());
+    tracker.trackIgnoredSubmissionAttachments(submissionNumber, totalSubmissions, attachmentsToDownload.size(), attachments.size());
+    return attachmentsToDownload;
+  }
+
+  CompletableFuture<Void> downloadSubmissionAttachment(FormStatus form, DownloadedSubmission submission, AggregateAttachment attachment, FileHashCache hashes, RunnerStatus runnerStatus, PullFromAggregateTracker tracker, int submissionNumber, int totalSubmissions, int attachmentNumber, int totalAttachments) {
+    return http.supplyAsync(() -> {
+      if (runnerStatus.isCancelled()) {
+        tracker.trackCancellation("Download attachment " + attachmentNumber + " of " + totalAttachments + " of submission " + submissionNumber + " of " + totalSubmissions);
+        return null;
+      }
+
+      Path target = form.getSubmissionMediaFile(briefcaseDir, submission.getInstanceId(), attachment.getFilename());
+      createDirectories(target.getParent());
+
+      tracker.trackStartDownloadingSubmissionAttachment(submissionNumber, totalSubmissions, attachmentNumber, totalAttachments);
+      Response<Void> response = http.execute(tracker.tracked(get(attachment.getDownloadUrl()).downloadTo(target).build()));
+      if (response.isSuccess()) {
+        if (attachment.hasMd5())
+          hashes.put(target, attachment.getMd5());
+        tracker.trackEndDownloadingSubmissionAttachment(submissionNumber, totalSubmissions, attachmentNumber, totalAttachments);
+      } else {
+        tracker.trackErrorDownloadingSubmissionAttachment(submissionNumber, totalSubmissions, attachmentNumber, totalAttachments, response);
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Leaves the given submission attachments pending, saving them right away
+   * so that they're on disk before the submission gets recorded as downloaded.
+   *
+   * @return false if the pending attachments couldn't be saved
+   */
+  boolean deferSubmissionAttachments(DownloadedSubmission submission, List<AggregateAttachment> attachments, boolean lazy, PendingAttachments pendingAttachments, PullFromAggregateTracker tracker, int submissionNumber, int totalSubmissions) {
+    if (attachments.isEmpty())
+      return true;
+    attachments.forEach(attachment -> pendingAttachments.add(new PendingAttachment(
+        submission.getInstanceId(),
+        attachment.getFilename(),
+        Optional.of(attachment.getHash()),
+        Optional.of(attachment.getDownloadUrl().toString()),
+        lazy
+    )));
+    tracker.trackDeferredSubmissionAttachments(submissionNumber, totalSubmissions, attachments.size());
+    return pendingAttachments.save();
+  }
+
+  void downloadPendingAttachments(FormStatus form, PendingAttachments pendingAttachments, FileHashCache hashes, RunnerStatus runnerStatus, PullFromAggregateTracker tracker, boolean inBackground) {
+    List<PendingAttachment> attachments = pendingAttachments.getDeferred();
+    if (attachments.isEmpty())
       return;
-    }
+    int totalAttachments = attachments.size();
+    AtomicInteger attachmentNumber = new AtomicInteger(1);
+    tracker.trackStartDownloadingPendingAttachments(totalAttachments);
+    Futures.allOf(attachments.stream().map(attachment ->
+        downloadPendingAttachment(form, attachment, pendingAttachments, hashes, runnerStatus, tracker, inBackground, attachmentNumber.getAndIncrement(), totalAttachments)
+    ));
+    tracker.trackEndDownloadingPendingAttachments(pendingAttachments.getDeferred().size());
+  }
 
-    Path target = form.getSubmissionMediaFile(briefcaseDir, submission.getInstanceId(), attachment.getFilename());
-    createDirectories(target.getParent());
+  private CompletableFuture<Void> downloadPendingAttachment(FormStatus form, PendingAttachment pendingAttachment, PendingAttachments pendingAttachments, FileHashCache hashes, RunnerStatus runnerStatus, PullFromAggregateTracker tracker, boolean inBackground, int attachmentNumber, int totalAttachments) {
+    return http.supplyAsync(() -> {
+      if (runnerStatus.isCancelled()) {
+        tracker.trackCancellation("Download pending attachment " + attachmentNumber + " of " + totalAttachments);
+        return null;
+      }
 
-    tracker.trackStartDownloadingSubmissionAttachment(submissionNumber, totalSubmissions, attachmentNumber, totalAttachments);
-    Response response = http.execute(get(attachment.getDownloadUrl()).downloadTo(target).build());
-    if (response.isSuccess())
-      tracker.trackEndDownloadingSubmissionAttachment(submissionNumber, totalSubmissions, attachmentNumber, totalAttachments);
-    else
-      tracker.trackErrorDownloadingSubmissionAttachment(submissionNumber, totalSubmissions, attachmentNumber, totalAttachments, response);
+      AggregateAttachment attachment = AggregateAttachment.of(
+          pendingAttachment.getFilename(),
+          pendingAttachment.getHash().orElse(""),
+          pendingAttachment.getDownloadUrl().orElseThrow(BriefcaseException::new)
+      );
+      Path target = form.getSubmissionMediaFile(briefcaseDir, pendingAttachment.getInstanceId(), attachment.getFilename());
+      // A later pull could have downloaded it already
+      if (!attachment.needsUpdate(target.getParent(), hashes)) {
+        pendingAttachments.remove(pendingAttachment);
+        return null;
+      }
+      createDirectories(target.getParent());
+
+      tracker.trackStartDownloadingPendingAttachment(attachmentNumber, totalAttachments);
+      RequestBuilder<Void> request = get(attachment.getDownloadUrl()).downloadTo(target);
+      Response<Void> response = http.execute(tracker.tracked((inBackground ? request.inBackground() : request).build()));
+      if (response.isSuccess()) {
+        if (attachment.hasMd5())
+          hashes.put(target, attachment.getMd5());
+        pendingAttachments.remove(pendingAttachment);
+        tracker.trackEndDownloadingPendingAttachment(attachmentNumber, totalAttachments);
+      } else {
+        tracker.trackErrorDownloadingPendingAttachment(attachmentNumber, totalAttachments, response);
+      }
+      return null;
+    });
   }
 
   private static List<AggregateAttachment> parseMediaFiles(XmlElement root) {
@@ -329,7 +519,7 @@ public class PullFromAggregate {
     tracker.trackStartGettingSubmissionIds();
     InstanceIdBatchGetter batchPager;
     try {
-      batchPager = new InstanceIdBatchGetter(server, http, form.getFormId(), includeIncomplete, lastCursor);
+      batchPager = new InstanceIdBatchGetter(server, http, form.getFormId(), includeIncomplete, lastCursor, tracker.getTransferCounter());
     } catch (InstanceIdBatchGetterException e) {
       tracker.trackErrorGettingInstanceIdBatches(e.aggregateResponse);
       return emptyList();
@@ -16,9 +16,14 @@
 
 package org.opendatakit.briefcase.pull.aggregate;
 
+import java.util.Optional;
 import java.util.function.Consumer;
 import org.opendatakit.briefcase.model.FormStatus;
 import org.opendatakit.briefcase.model.FormStatusEvent;
+import org.opendatakit.briefcase.reused.http.ConcurrencyStats;
+import org.opendatakit.briefcase.reused.http.Request;
+import org.opendatakit.briefcase.reused.http.TrafficReport;
+import org.opendatakit.briefcase.reused.http.TransferCounter;
 import org.opendatakit.briefcase.reused.http.response.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +32,7 @@ class PullFromAggregateTracker {
   private static final Logger log = LoggerFactory.getLogger(PullFromAggregateTracker.class);
   private final FormStatus form;
   private final Consumer<FormStatusEvent> onEventCallback;
+  private final TransferCounter transferCounter = new TransferCounter();
   private boolean errored = false;
 
   PullFromAggregateTracker(FormStatus form, Consumer<FormStatusEvent> onEventCallback) {
@@ -52,6 +58,30 @@ class PullFromAggregateTracker {
     notifyTrackingEvent();
   }
 
+  void trackTraffic(ConcurrencyStats stats) {
+    TrafficReport.describe(stats, Optional.of(transferCounter)).forEach(message -> {
+      form.setStatusString(message);
+      log.info("Pull {} - {}", form.getFormName(), message);
+      notifyTrackingEvent();
+    });
+  }
+
+  /**
+   * Returns a copy of the provided request that will count its
+   * transferred bytes into this pull's totals, and take turns with
+   * the requests of other forms sent to the same server.
+   */
+  <T> Request<T> tracked(Request<T> request) {
+    return request.builder()
+        .withTransferCounter(transferCounter)
+        .withSchedulingGroup(form.getFormId())
+        .build();
+  }
+
+  TransferCounter getTransferCounter() {
+    return transferCounter;
+  }
+
   void trackCancellation(String job) {
     String message = "Operation cancelled - " + job;
     form.setStatusString(message);
@@ -126,6 +156,15 @@ class PullFromAggregateTracker {
     }
   }
 
+  void trackIgnoredSubmissionAttachments(int submissionNumber, int totalSubmissions, int attachmentsToDownload, int totalAttachments) {
+    if (attachmentsToDownload < totalAttachments) {
+      String message = "Skipping " + (totalAttachments - attachmentsToDownload) + " attachments of submission " + submissionNumber + " of " + totalSubmissions + " that have been already downloaded";
+      form.setStatusString(message);
+      log.info("Pull {} - {}", form.getFormName(), message);
+      notifyTrackingEvent();
+    }
+  }
+
   void trackSubmissionAlreadyDownloaded(int submissionNumber, int totalSubmissions) {
     String message = "Skipping submission " + submissionNumber + " of " + totalSubmissions + ": already downloaded";
     form.setStatusString(message);
@@ -147,6 +186,13 @@ class PullFromAggregateTracker {
     notifyTrackingEvent();
   }
 
+  void trackFormAttachmentFromMediaStore(int attachmentNumber, int totalAttachments) {
+    String message = "Form attachment " + attachmentNumber + " of " + totalAttachments + " linked from the local media store";
+    form.setStatusString(message);
+    log.info("Pull {} - {}", form.getFormName(), message);
+    notifyTrackingEvent();
+  }
+
   void trackErrorDownloadingFormAttachment(int attachmentNumber, int totalAttachments, Response response) {
     errored = true;
     String message = "Error downloading form attachment " + attachmentNumber + " of " + totalAttachments;
@@ -199,6 +245,51 @@ class PullFromAggregateTracker {
     notifyTrackingEvent();
   }
 
+  void trackDeferredSubmissionAttachments(int submissionNumber, int totalSubmissions, int totalAttachments) {
+    String message = "Left " + totalAttachments + " attachments of submission " + submissionNumber + " of " + totalSubmissions + " to download later";
+    form.setStatusString(message);
+    log.info("Pull {} - {}", form.getFormName(), message);
+    notifyTrackingEvent();
+  }
+
+  void trackStartDownloadingPendingAttachments(int totalAttachments) {
+    String message = "Start downloading " + totalAttachments + " pending submission attachments";
+    form.setStatusString(message);
+    log.info("Pull {} - {}", form.getFormName(), message);
+    notifyTrackingEvent();
+  }
+
+  void trackStartDownloadingPendingAttachment(int attachmentNumber, int totalAttachments) {
+    String message = "Start downloading pending attachment " + attachmentNumber + " of " + totalAttachments;
+    form.setStatusString(message);
+    log.info("Pull {} - {}", form.getFormName(), message);
+    notifyTrackingEvent();
+  }
+
+  void trackEndDownloadingPendingAttachment(int attachmentNumber, int totalAttachments) {
+    String message = "Pending attachment " + attachmentNumber + " of " + totalAttachments + " downloaded";
+    form.setStatusString(message);
+    log.info("Pull {} - {}", form.getFormName(), message);
+    notifyTrackingEvent();
+  }
+
+  void trackErrorDownloadingPendingAttachment(int attachmentNumber, int totalAttachments, Response response) {
+    errored = true;
+    String message = "Error downloading pending attachment " + attachmentNumber + " of " + totalAttachments;
+    form.setStatusString(message + ": " + response.getStatusPhrase());
+    log.error("Pull {} - {}: HTTP {} {}", form.getFormName(), message, response.getStatusCode(), response.getStatusPhrase());
+    notifyTrackingEvent();
+  }
+
+  void trackEndDownloadingPendingAttachments(int remainingAttachments) {
+    String message = remainingAttachments == 0
+        ? "All pending submission attachments downloaded"
+        : remainingAttachments + " submission attachments are still pending";
+    form.setStatusString(message);
+    log.info("Pull {} - {}", form.getFormName(), message);
+    notifyTrackingEvent();
+  }
+
   void trackNoSubmissions() {
     String message = "There are no submissions to download";
     form.setStatusString(message);
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.pull.central;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+
+/**
+ * Works out the date from which the next pull of a form should start, as its
+ * submissions get pulled.
+ * <p>
+ * Submissions that couldn't be completely pulled hold the date back,
+ * to get them again next time.
+ */
+class LastPulledSubmissionDate {
+  private final Optional<OffsetDateTime> previousDate;
+  private Optional<OffsetDateTime> lastDate;
+  private Optional<OffsetDateTime> firstIncompleteDate = Optional.empty();
+  private boolean heldBack = false;
+
+  LastPulledSubmissionDate(Optional<OffsetDateTime> previousDate) {
+    this.previousDate = previousDate;
+    this.lastDate = previousDate;
+  }
+
+  void addComplete(OffsetDateTime submissionDate) {
+    if (!lastDate.isPresent() || submissionDate.isAfter(lastDate.get()))
+      lastDate = Optional.of(submissionDate);
+  }
+
+  void addIncomplete(OffsetDateTime submissionDate) {
+    if (!firstIncompleteDate.isPresent() || submissionDate.isBefore(firstIncompleteDate.get()))
+      firstIncompleteDate = Optional.of(submissionDate);
+  }
+
+  /**
+   * Keeps the previous date, for when we don't know which submissions
+   * have been left behind (e.g. the submission list couldn't be completed).
+   */
+  void holdBack() {
+    heldBack = true;
+  }
+
+  Optional<OffsetDateTime> get() {
+    if (heldBack)
+      return previousDate;
+    if (firstIncompleteDate.isPresent())
+      return firstIncompleteDate;
+    return lastDate;
+  }
+}
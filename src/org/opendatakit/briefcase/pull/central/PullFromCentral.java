@@ -17,38 +17,51 @@
 package org.opendatakit.briefcase.pull.central;
 
 import static java.util.Collections.emptyList;
+import static java.util.Comparator.comparing;
 import static java.util.stream.Collectors.toList;
 import static org.opendatakit.briefcase.model.form.FormMetadataCommands.updateAsPulled;
 import static org.opendatakit.briefcase.reused.UncheckedFiles.createDirectories;
-import static org.opendatakit.briefcase.reused.UncheckedFiles.readAllBytes;
-import static org.opendatakit.briefcase.reused.job.Job.allOf;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.exists;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.list;
 import static org.opendatakit.briefcase.reused.job.Job.run;
-import static org.opendatakit.briefcase.reused.job.Job.supply;
 import static org.opendatakit.briefcase.util.DatabaseUtils.withDb;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.OffsetDateTime;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 import org.bushe.swing.event.EventBus;
 import org.opendatakit.briefcase.export.SubmissionMetaData;
-import org.opendatakit.briefcase.export.XmlElement;
 import org.opendatakit.briefcase.model.FormStatus;
 import org.opendatakit.briefcase.model.FormStatusEvent;
 import org.opendatakit.briefcase.model.form.FormKey;
 import org.opendatakit.briefcase.model.form.FormMetadataPort;
+import org.opendatakit.briefcase.pull.PendingAttachments;
+import org.opendatakit.briefcase.pull.PendingAttachments.PendingAttachment;
 import org.opendatakit.briefcase.pull.PullEvent;
-import org.opendatakit.briefcase.reused.Pair;
+import org.opendatakit.briefcase.pull.PulledSubmissionCallback;
+import org.opendatakit.briefcase.reused.Futures;
 import org.opendatakit.briefcase.reused.http.Http;
+import org.opendatakit.briefcase.reused.http.Request;
+import org.opendatakit.briefcase.reused.http.ResumableDownload;
 import org.opendatakit.briefcase.reused.http.response.Response;
 import org.opendatakit.briefcase.reused.job.Job;
 import org.opendatakit.briefcase.reused.job.RunnerStatus;
 import org.opendatakit.briefcase.reused.transfer.CentralAttachment;
 import org.opendatakit.briefcase.reused.transfer.CentralServer;
+import org.opendatakit.briefcase.reused.transfer.CentralSubmission;
+import org.opendatakit.briefcase.reused.transfer.CentralSubmissionPage;
 
 public class PullFromCentral {
+  static final int SUBMISSIONS_PAGE_SIZE = 1000;
   private final Http http;
   private final CentralServer server;
   private final Path briefcaseDir;
@@ -71,70 +84,195 @@ public class PullFromCentral {
    * under the Briefcase Storage directory.
    */
   public Job<Void> pull(FormStatus form) {
+    return pull(form, Optional.empty());
+  }
+
+  /**
+   * Pulls a form, writing the form file, form attachments, submission
+   * files and their attachments to the local filesystem under the
+   * Briefcase Storage directory.
+   * <p>
+   * Only the submissions received on or after the provided date
+   * will be pulled, if present.
+   */
+  public Job<Void> pull(FormStatus form, Optional<OffsetDateTime> lastPulledSubmissionDate) {
+    return pull(form, lastPulledSubmissionDate, false);
+  }
+
+  /**
+   * Pulls a form like {@link #pull(FormStatus, Optional)} does, optionally
+   * leaving the submission attachments pending, to be downloaded later
+   * with {@link #pullPendingAttachments(FormStatus)}.
+   * <p>
+   * Deferring attachments lets us have all the submissions as soon as
+   * possible. Submissions are recorded as pulled all the same.
+   * <p>
+   * Attachments left pending by previous pulls are downloaded when
+   * attachments are not deferred.
+   */
+  public Job<Void> pull(FormStatus form, Optional<OffsetDateTime> lastPulledSubmissionDate, boolean deferAttachments) {
+    return pull(form, lastPulledSubmissionDate, deferAttachments, PulledSubmissionCallback.NONE);
+  }
+
+  /**
+   * Pulls a form like {@link #pull(FormStatus, Optional, boolean)} does,
+   * calling the given callback each time a submission has been downloaded
+   * together with all its attachments.
+   */
+  public Job<Void> pull(FormStatus form, Optional<OffsetDateTime> lastPulledSubmissionDate, boolean deferAttachments, PulledSubmissionCallback onSubmissionPulled) {
     FormKey key = FormKey.from(form);
 
     PullFromCentralTracker tracker = new PullFromCentralTracker(form, onEventCallback);
+    PendingAttachments pendingAttachments = PendingAttachments.at(form.getFormDir(briefcaseDir));
 
     return run(rs -> tracker.trackStart())
-        .thenRun(allOf(
-            supply(runnerStatus -> getSubmissionIds(form, token, runnerStatus, tracker)),
-            run(runnerStatus -> {
-              downloadForm(form, token, runnerStatus, tracker);
-              List<CentralAttachment> attachments = getFormAttachments(form, token, runnerStatus, tracker);
-              int totalAttachments = attachments.size();
-              AtomicInteger attachmentNumber = new AtomicInteger(1);
-              attachments.parallelStream().forEach(attachment ->
-                  downloadFormAttachment(form, attachment, token, runnerStatus, tracker, attachmentNumber.getAndIncrement(), totalAttachments)
-              );
-            })
-        ))
-        .thenAccept((runnerStatus, pair) -> withDb(form.getFormDir(briefcaseDir), db -> {
-          List<String> submissions = pair.getLeft();
-          int totalSubmissions = submissions.size();
+        // The first page of submissions is requested while we get the form
+        .thenSupply(runnerStatus -> requestSubmissionPage(form, lastPulledSubmissionDate, 0, token, tracker))
+        .thenApply((runnerStatus, firstSubmissionPage) -> {
+          downloadForm(form, token, runnerStatus, tracker);
+          List<CentralAttachment> attachments = getFormAttachments(form, token, runnerStatus, tracker);
+          int totalAttachments = attachments.size();
+          AtomicInteger attachmentNumber = new AtomicInteger(1);
+          Futures.allOf(attachments.stream().map(attachment ->
+              downloadFormAttachment(form, attachment, token, runnerStatus, tracker, attachmentNumber.getAndIncrement(), totalAttachments)
+          ));
+          return firstSubmissionPage;
+        })
+        .thenAccept((runnerStatus, firstSubmissionPage) -> withDb(form.getFormDir(briefcaseDir), db -> {
           AtomicInteger submissionNumber = new AtomicInteger(1);
           Set<String> submissionVersions = new HashSet<>();
-
-          if (submissions.isEmpty())
-            tracker.trackNoSubmissions();
-
-          submissions.stream()
-              .map(instanceId -> Pair.of(submissionNumber.getAndIncrement(), instanceId))
-              .forEach(submissionNumberId -> {
-                int currentSubmissionNumber = submissionNumberId.getLeft();
-                String instanceId = submissionNumberId.getRight();
-
-                boolean inDb = db.hasRecordedInstance(instanceId) != null;
-                Path downloadedSubmissionPath = form.getSubmissionFile(briefcaseDir, instanceId);
-                if (!inDb || !downloadedSubmissionPath.toFile().exists()) {
-                  downloadSubmission(form, instanceId, token, runnerStatus, tracker, currentSubmissionNumber, totalSubmissions);
-                  if (downloadedSubmissionPath.toFile().exists()) {
-                    XmlElement root = XmlElement.from(new String(readAllBytes(downloadedSubmissionPath)));
-                    SubmissionMetaData metaData = new SubmissionMetaData(root);
-                    metaData.getVersion().ifPresent(submissionVersions::add);
-                  }
-                } else {
-                  tracker.trackSubmissionAlreadyDownloaded(currentSubmissionNumber, totalSubmissions);
+          LastPulledSubmissionDate newLastPulledSubmissionDate = new LastPulledSubmissionDate(lastPulledSubmissionDate);
+
+          boolean listedAllSubmissions = forEachSubmissionPage(form, lastPulledSubmissionDate, firstSubmissionPage, token, runnerStatus, tracker, (submissions, totalSubmissions) -> {
+            if (totalSubmissions == 0)
+              tracker.trackNoSubmissions();
+
+            submissions.forEach(submission -> {
+              int currentSubmissionNumber = submissionNumber.getAndIncrement();
+              String instanceId = submission.getInstanceId();
+
+              boolean inDb = db.hasRecordedInstance(instanceId) != null;
+              Path downloadedSubmissionPath = form.getSubmissionFile(briefcaseDir, instanceId);
+              if (inDb && !downloadedSubmissionPath.toFile().exists() && onSubmissionPulled.isAlreadyPulled(instanceId)) {
+                tracker.trackSubmissionAlreadyDownloaded(currentSubmissionNumber, totalSubmissions);
+                newLastPulledSubmissionDate.addComplete(submission.getSubmissionDate());
+                return;
+              }
+              boolean needsDownload = !inDb || !downloadedSubmissionPath.toFile().exists();
+              if (needsDownload) {
+                downloadSubmission(form, instanceId, token, runnerStatus, tracker, currentSubmissionNumber, totalSubmissions);
+                if (downloadedSubmissionPath.toFile().exists()) {
+                  SubmissionMetaData metaData = SubmissionMetaData.readFrom(downloadedSubmissionPath);
+                  metaData.getVersion().ifPresent(submissionVersions::add);
                 }
-
-                List<CentralAttachment> attachments = getSubmissionAttachmentList(form, instanceId, token, runnerStatus, tracker, currentSubmissionNumber, totalSubmissions);
+              } else {
+                tracker.trackSubmissionAlreadyDownloaded(currentSubmissionNumber, totalSubmissions);
+              }
+
+              Optional<List<CentralAttachment>> maybeAttachments;
+              if (needsAttachmentList(form, submission, inDb)) {
+                maybeAttachments = getSubmissionAttachmentList(form, instanceId, token, runnerStatus, tracker, currentSubmissionNumber, totalSubmissions);
+              } else {
+                tracker.trackSubmissionAttachmentListSkipped(currentSubmissionNumber, totalSubmissions);
+                maybeAttachments = Optional.of(emptyList());
+              }
+              List<CentralAttachment> attachments = maybeAttachments.orElse(emptyList());
+              // A submission whose pending attachments can't be saved is left
+              // unrecorded and incomplete, so that the next pull gets it again
+              boolean deferred = true;
+              boolean downloadedAttachments = false;
+              if (deferAttachments) {
+                deferred = deferSubmissionAttachments(instanceId, attachments.stream()
+                    .filter(attachment -> !form.getSubmissionMediaFile(briefcaseDir, instanceId, attachment.getName()).toFile().exists())
+                    .collect(toList()), pendingAttachments, tracker, currentSubmissionNumber, totalSubmissions);
+              } else {
                 int totalAttachments = attachments.size();
                 AtomicInteger attachmentNumber = new AtomicInteger(1);
-                attachments.stream()
+                List<CentralAttachment> missingAttachments = attachments.stream()
                     .filter(attachment -> !inDb || !form.getSubmissionMediaFile(briefcaseDir, instanceId, attachment.getName()).toFile().exists())
-                    .forEach(attachment ->
-                        downloadSubmissionAttachment(form, instanceId, attachment, token, runnerStatus, tracker, currentSubmissionNumber, totalSubmissions, attachmentNumber.getAndIncrement(), totalAttachments)
-                  );
-                if (!runnerStatus.isCancelled() && !inDb) {
-                  db.putRecordedInstanceDirectory(instanceId, form.getSubmissionDir(briefcaseDir, instanceId).toFile());
-                }
-              });
+                    .collect(toList());
+                Futures.allOf(missingAttachments.stream().map(attachment ->
+                    downloadSubmissionAttachment(form, instanceId, attachment, token, runnerStatus, tracker, currentSubmissionNumber, totalSubmissions, attachmentNumber.getAndIncrement(), totalAttachments)
+                ));
+                downloadedAttachments = !missingAttachments.isEmpty();
+              }
+              if (!runnerStatus.isCancelled() && !inDb && deferred) {
+                db.putRecordedInstanceDirectory(instanceId, form.getSubmissionDir(briefcaseDir, instanceId).toFile());
+              }
+              // Deferred attachments don't hold back the submission date, since they're pending already
+              if (runnerStatus.isCancelled() || !deferred || !maybeAttachments.isPresent() || !isComplete(form, instanceId, deferAttachments ? emptyList() : attachments)) {
+                newLastPulledSubmissionDate.addIncomplete(submission.getSubmissionDate());
+              } else {
+                newLastPulledSubmissionDate.addComplete(submission.getSubmissionDate());
+                // Submissions that were already complete in local storage have been notified by a previous pull
+                if ((needsDownload || downloadedAttachments) && !deferAttachments)
+                  onSubmissionPulled.accept(downloadedSubmissionPath, currentSubmissionNumber, totalSubmissions);
+              }
+            });
+          });
+          if (!listedAllSubmissions)
+            newLastPulledSubmissionDate.holdBack();
+          if (!deferAttachments)
+            downloadPendingAttachments(form, pendingAttachments, runnerStatus, tracker, false);
+          pendingAttachments.save();
+          tracker.trackTraffic(http.getConcurrencyStats(server.getBaseUrl()));
           tracker.trackEnd();
 
-          formMetadataPort.execute(updateAsPulled(key, briefcaseDir, form.getFormDir(briefcaseDir), submissionVersions));
+          formMetadataPort.execute(newLastPulledSubmissionDate.get()
+              .map(date -> updateAsPulled(key, date, briefcaseDir, form.getFormDir(briefcaseDir), submissionVersions))
+              .orElseGet(() -> updateAsPulled(key, briefcaseDir, form.getFormDir(briefcaseDir), submissionVersions)));
           EventBus.publish(PullEvent.Success.of(form, server));
         }));
   }
 
+  /**
+   * Downloads the submission attachments of a form that previous pulls have
+   * left pending. These downloads give way to the rest of requests sent to
+   * the server, and they can be cancelled at any time, leaving the remaining
+   * attachments pending.
+   */
+  public Job<Void> pullPendingAttachments(FormStatus form) {
+    PullFromCentralTracker tracker = new PullFromCentralTracker(form, onEventCallback);
+    return run(runnerStatus -> {
+      PendingAttachments pendingAttachments = PendingAttachments.at(form.getFormDir(briefcaseDir));
+      downloadPendingAttachments(form, pendingAttachments, runnerStatus, tracker, true);
+      pendingAttachments.save();
+      tracker.trackTraffic(http.getConcurrencyStats(server.getBaseUrl()));
+      tracker.trackEnd();
+    });
+  }
+
+  /**
+   * Returns false when there's nothing to download from the attachment list of
+   * a submission, which saves a request per submission. This happens when the
+   * server has reported that the submission has no attachments, or when all of
+   * them are already in the submission's directory.
+   */
+  private boolean needsAttachmentList(FormStatus form, CentralSubmission submission, boolean inDb) {
+    if (submission.hasNoAttachments())
+      return false;
+    return !inDb || submission.getAttachmentsPresent()
+        .map(attachmentsPresent -> countLocalAttachments(form, submission.getInstanceId()) < attachmentsPresent)
+        .orElse(true);
+  }
+
+  private long countLocalAttachments(FormStatus form, String instanceId) {
+    Path submissionFile = form.getSubmissionFile(briefcaseDir, instanceId);
+    Path submissionDir = form.getSubmissionMediaDir(briefcaseDir, instanceId);
+    if (!exists(submissionDir))
+      return 0;
+    try (Stream<Path> files = list(submissionDir)) {
+      return files
+          .filter(file -> Files.isRegularFile(file) && !file.equals(submissionFile) && !ResumableDownload.isPartialFile(file))
+          .count();
+    }
+  }
+
+  private boolean isComplete(FormStatus form, String instanceId, List<CentralAttachment> attachments) {
+    return form.getSubmissionFile(briefcaseDir, instanceId).toFile().exists() && attachments.stream()
+        .allMatch(attachment -> form.getSubmissionMediaFile(briefcaseDir, instanceId, attachment.getName()).toFile().exists());
+  }
+
   void downloadForm(FormStatus form, String token, RunnerStatus runnerStatus, PullFromCentralTracker tracker) {
     if (runnerStatus.isCancelled()) {
       tracker.trackCancellation("Download form");
@@ -145,7 +283,7 @@ public class PullFromCentral {
     createDirectories(formFile.getParent());
 
     tracker.trackStartDownloadingForm();
-    Response response = http.execute(server.getDownloadFormRequest(form.getFormId(), formFile, token));
+    Response response = http.execute(tracker.tracked(server.getDownloadFormRequest(form.getFormId(), formFile, token)));
     if (response.isSuccess())
       tracker.trackEndDownloadingForm();
     else
@@ -159,7 +297,7 @@ public class PullFromCentral {
     }
 
     tracker.trackStartGettingFormAttachments();
-    Response<List<CentralAttachment>> response = http.execute(server.getFormAttachmentListRequest(form.getFormId(), token));
+    Response<List<CentralAttachment>> response = http.execute(tracker.tracked(server.getFormAttachmentListRequest(form.getFormId(), token)));
     if (!response.isSuccess()) {
       tracker.trackErrorGettingFormAttachments(response);
       return emptyList();
@@ -172,39 +310,117 @@ public class PullFromCentral {
     return existingAttachments;
   }
 
-  void downloadFormAttachment(FormStatus form, CentralAttachment attachment, String token, RunnerStatus runnerStatus, PullFromCentralTracker tracker, int attachmentNumber, int totalAttachments) {
-    if (runnerStatus.isCancelled()) {
-      tracker.trackCancellation("Download form attachment " + attachment.getName());
-      return;
-    }
-
-    Path targetFile = form.getFormMediaFile(briefcaseDir, attachment.getName());
-    createDirectories(targetFile.getParent());
+  CompletableFuture<Void> downloadFormAttachment(FormStatus form, CentralAttachment attachment, String token, RunnerStatus runnerStatus, PullFromCentralTracker tracker, int attachmentNumber, int totalAttachments) {
+    return http.supplyAsync(() -> {
+      if (runnerStatus.isCancelled()) {
+        tracker.trackCancellation("Download form attachment " + attachment.getName());
+        return null;
+      }
+
+      Path targetFile = form.getFormMediaFile(briefcaseDir, attachment.getName());
+      createDirectories(targetFile.getParent());
+
+      tracker.trackStartDownloadingFormAttachment(attachmentNumber, totalAttachments);
+      Response<Void> response = http.execute(tracker.tracked(server.getDownloadFormAttachmentRequest(form.getFormId(), attachment, targetFile, token)));
+      if (response.isSuccess()) {
+        tracker.trackEndDownloadingFormAttachment(attachmentNumber, totalAttachments);
+      } else {
+        tracker.trackErrorDownloadingFormAttachment(attachmentNumber, totalAttachments, response);
+      }
+      return null;
+    });
+  }
 
-    tracker.trackStartDownloadingFormAttachment(attachmentNumber, totalAttachments);
-    Response response = http.execute(server.getDownloadFormAttachmentRequest(form.getFormId(), attachment, targetFile, token));
-    if (response.isSuccess())
-      tracker.trackEndDownloadingFormAttachment(attachmentNumber, totalAttachments);
-    else
-      tracker.trackErrorDownloadingFormAttachment(attachmentNumber, totalAttachments, response);
+  /**
+   * Requests a page of the submissions of a form without waiting for the response.
+   */
+  CompletableFuture<Response<CentralSubmissionPage>> requestSubmissionPage(FormStatus form, Optional<OffsetDateTime> since, int skip, String token, PullFromCentralTracker tracker) {
+    if (skip == 0) {
+      if (since.isPresent())
+        tracker.trackStartGettingSubmissionIds(since.get());
+      else
+        tracker.trackStartGettingSubmissionIds();
+    }
+    return http.executeAsync(tracker.tracked(server.getSubmissionPageRequest(form.getFormId(), since, skip, SUBMISSIONS_PAGE_SIZE, token)));
   }
 
-  List<String> getSubmissionIds(FormStatus form, String token, RunnerStatus runnerStatus, PullFromCentralTracker tracker) {
-    if (runnerStatus.isCancelled()) {
-      tracker.trackCancellation("Get submissions");
-      return emptyList();
+  /**
+   * Lists the submissions of a form page by page, handing over each page along
+   * with the total number of submissions to the provided consumer.
+   * <p>
+   * Each page is parsed as it's received, and the next page is requested before
+   * handing over the current one. This way, the submissions of a page can be
+   * downloaded while the next page is on its way, and we never hold more than
+   * two pages in memory, no matter how many submissions the form has.
+   * <p>
+   * Submissions are listed with Central's OData API, which can filter them by
+   * date. If the server doesn't support it (e.g. in Central versions without
+   * OData filters), we fall back to listing all the submissions with the REST
+   * API and filtering them here, handing them over as a single page.
+   *
+   * @return false if some submissions couldn't be listed
+   */
+  boolean forEachSubmissionPage(FormStatus form, Optional<OffsetDateTime> since, CompletableFuture<Response<CentralSubmissionPage>> firstPage, String token, RunnerStatus runnerStatus, PullFromCentralTracker tracker, BiConsumer<List<CentralSubmission>, Integer> pageConsumer) {
+    CompletableFuture<Response<CentralSubmissionPage>> nextPage = firstPage;
+    int skip = 0;
+    while (true) {
+      if (runnerStatus.isCancelled()) {
+        tracker.trackCancellation("Get submissions");
+        return false;
+      }
+
+      Response<CentralSubmissionPage> response = Futures.join(nextPage);
+      if (!response.isSuccess() && skip == 0 && isPagingUnsupported(response)) {
+        tracker.trackFallbackToFullSubmissionList(response);
+        Optional<List<CentralSubmission>> submissions = getAllSubmissions(form, since, token, tracker);
+        submissions.ifPresent(list -> pageConsumer.accept(list, list.size()));
+        return submissions.isPresent();
+      }
+      if (!response.isSuccess()) {
+        tracker.trackErrorGettingSubmissionIds(response);
+        return false;
+      }
+
+      List<CentralSubmission> submissions = response.get().getSubmissions();
+      skip += submissions.size();
+      boolean lastPage = submissions.size() < SUBMISSIONS_PAGE_SIZE;
+      if (lastPage)
+        tracker.trackEndGettingSubmissionIds();
+      else
+        nextPage = requestSubmissionPage(form, since, skip, token, tracker);
+      // Pages are sorted by submission date, so submissions received while we get
+      // them land on the last page instead of shifting the ones we haven't got yet.
+      // Submissions deleted meanwhile could still shift them back and make us get
+      // some submissions twice, which get skipped because they've been already
+      // downloaded. Servers that don't send a total count get the running count.
+      pageConsumer.accept(submissions, response.get().getTotalCount().orElse(skip));
+      if (lastPage)
+        return true;
     }
+  }
+
+  /**
+   * Returns true if the response to the first page of submissions means that
+   * the server can't list them page by page. Any other error (e.g. wrong
+   * credentials, or the server being down) would happen with the full list too.
+   */
+  private static boolean isPagingUnsupported(Response<?> response) {
+    int statusCode = response.getStatusCode();
+    return statusCode == 400 || statusCode == 404 || statusCode == 501;
+  }
 
-    tracker.trackStartGettingSubmissionIds();
-    Response<List<String>> response = http.execute(server.getInstanceIdListRequest(form.getFormId(), token));
+  private Optional<List<CentralSubmission>> getAllSubmissions(FormStatus form, Optional<OffsetDateTime> since, String token, PullFromCentralTracker tracker) {
+    Response<List<CentralSubmission>> response = http.execute(tracker.tracked(server.getSubmissionListRequest(form.getFormId(), token)));
     if (!response.isSuccess()) {
       tracker.trackErrorGettingSubmissionIds(response);
-      return emptyList();
+      return Optional.empty();
     }
 
-    List<String> instanceIds = response.get();
     tracker.trackEndGettingSubmissionIds();
-    return instanceIds;
+    return Optional.of(response.get().stream()
+        .filter(submission -> since.map(date -> !submission.getSubmissionDate().isBefore(date)).orElse(true))
+        .sorted(comparing(CentralSubmission::getSubmissionDate))
+        .collect(toList()));
   }
 
   void downloadSubmission(FormStatus form, String instanceId, String token, RunnerStatus runnerStatus, PullFromCentralTracker tracker, int submissionNumber, int totalSubmissions) {
@@ -216,45 +432,104 @@ public class PullFromCentral {
     createDirectories(form.getSubmissionDir(briefcaseDir, instanceId));
 
     tracker.trackStartDownloadingSubmission(submissionNumber, totalSubmissions);
-    Response response = http.execute(server.getDownloadSubmissionRequest(form.getFormId(), instanceId, form.getSubmissionFile(briefcaseDir, instanceId), token));
+    Response response = http.execute(tracker.tracked(server.getDownloadSubmissionRequest(form.getFormId(), instanceId, form.getSubmissionFile(briefcaseDir, instanceId), token)));
     if (response.isSuccess())
       tracker.trackEndDownloadingSubmission(submissionNumber, totalSubmissions);
     else
       tracker.trackErrorDownloadingSubmission(submissionNumber, totalSubmissions, response);
   }
 
-  List<CentralAttachment> getSubmissionAttachmentList(FormStatus form, String instanceId, String token, RunnerStatus runnerStatus, PullFromCentralTracker tracker, int submissionNumber, int totalSubmissions) {
+  Optional<List<CentralAttachment>> getSubmissionAttachmentList(FormStatus form, String instanceId, String token, RunnerStatus runnerStatus, PullFromCentralTracker tracker, int submissionNumber, int totalSubmissions) {
     if (runnerStatus.isCancelled()) {
       tracker.trackCancellation("Get submission attachments of " + instanceId);
-      return emptyList();
+      return Optional.of(emptyList());
     }
 
     tracker.trackStartGettingSubmissionAttachmentList(submissionNumber, totalSubmissions);
-    Response<List<CentralAttachment>> response = http.execute(server.getSubmissionAttachmentListRequest(form.getFormId(), instanceId, token));
+    Response<List<CentralAttachment>> response = http.execute(tracker.tracked(server.getSubmissionAttachmentListRequest(form.getFormId(), instanceId, token)));
     if (!response.isSuccess()) {
       tracker.trackErrorGettingSubmissionAttachmentList(instanceId, response);
-      return emptyList();
+      return Optional.empty();
     }
 
     List<CentralAttachment> attachments = response.get();
     tracker.trackEndGettingSubmissionAttachmentList(submissionNumber, totalSubmissions);
-    return attachments;
+    return Optional.of(attachments);
   }
 
-  void downloadSubmissionAttachment(FormStatus form, String instanceId, CentralAttachment attachment, String token, RunnerStatus runnerStatus, PullFromCentralTracker tracker, int submissionNumber, int totalSubmissions, int attachmentNumber, int totalAttachments) {
-    if (runnerStatus.isCancelled()) {
-      tracker.trackCancellation("Download submission attachment " + attachment.getName() + " of " + instanceId);
-      return;
-    }
+  CompletableFuture<Void> downloadSubmissionAttachment(FormStatus form, String instanceId, CentralAttachment attachment, String token, RunnerStatus runnerStatus, PullFromCentralTracker tracker, int submissionNumber, int totalSubmissions, int attachmentNumber, int totalAttachments) {
+    return http.supplyAsync(() -> {
+      if (runnerStatus.isCancelled()) {
+        tracker.trackCancellation("Download submission attachment " + attachment.getName() + " of " + instanceId);
+        return null;
+      }
+
+      Path targetFile = form.getSubmissionMediaFile(briefcaseDir, instanceId, attachment.getName());
+      createDirectories(targetFile.getParent());
+
+      tracker.trackStartDownloadingSubmissionAttachment(submissionNumber, totalSubmissions, attachmentNumber, totalAttachments);
+      Response<Void> response = http.execute(tracker.tracked(server.getDownloadSubmissionAttachmentRequest(form.getFormId(), instanceId, attachment, targetFile, token)));
+      if (response.isSuccess())
+        tracker.trackEndDownloadingSubmissionAttachment(submissionNumber, totalSubmissions, attachmentNumber, totalAttachments);
+      else
+        tracker.trackErrorDownloadingSubmissionAttachment(instanceId, attachment.getName(), response);
+      return null;
+    });
+  }
 
-    Path targetFile = form.getSubmissionMediaFile(briefcaseDir, instanceId, attachment.getName());
-    createDirectories(targetFile.getParent());
+  /**
+   * Leaves the given submission attachments pending, saving them right away
+   * so that they're on disk before the submission gets recorded as downloaded.
+   *
+   * @return false if the pending attachments couldn't be saved
+   */
+  boolean deferSubmissionAttachments(String instanceId, List<CentralAttachment> attachments, PendingAttachments pendingAttachments, PullFromCentralTracker tracker, int submissionNumber, int totalSubmissions) {
+    if (attachments.isEmpty())
+      return true;
+    attachments.forEach(attachment -> pendingAttachments.add(new PendingAttachment(instanceId, attachment.getName(), Optional.empty(), Optional.empty())));
+    tracker.trackDeferredSubmissionAttachments(submissionNumber, totalSubmissions, attachments.size());
+    return pendingAttachments.save();
+  }
 
-    tracker.trackStartDownloadingSubmissionAttachment(submissionNumber, totalSubmissions, attachmentNumber, totalAttachments);
-    Response response = http.execute(server.getDownloadSubmissionAttachmentRequest(form.getFormId(), instanceId, attachment, targetFile, token));
-    if (response.isSuccess())
-      tracker.trackEndDownloadingSubmissionAttachment(submissionNumber, totalSubmissions, attachmentNumber, totalAttachments);
-    else
-      tracker.trackErrorDownloadingSubmissionAttachment(instanceId, attachment.getName(), response);
+  void downloadPendingAttachments(FormStatus form, PendingAttachments pendingAttachments, RunnerStatus runnerStatus, PullFromCentralTracker tracker, boolean inBackground) {
+    List<PendingAttachment> attachments = pendingAttachments.getDeferred();
+    if (attachments.isEmpty())
+      return;
+    int totalAttachments = attachments.size();
+    AtomicInteger attachmentNumber = new AtomicInteger(1);
+    tracker.trackStartDownloadingPendingAttachments(totalAttachments);
+    Futures.allOf(attachments.stream().map(attachment ->
+        downloadPendingAttachment(form, attachment, pendingAttachments, runnerStatus, tracker, inBackground, attachmentNumber.getAndIncrement(), totalAttachments)
+    ));
+    tracker.trackEndDownloadingPendingAttachments(pendingAttachments.getDeferred().size());
+  }
+
+  private CompletableFuture<Void> downloadPendingAttachment(FormStatus form, PendingAttachment pendingAttachment, PendingAttachments pendingAttachments, RunnerStatus runnerStatus, PullFromCentralTracker tracker, boolean inBackground, int attachmentNumber, int totalAttachments) {
+    return http.supplyAsync(() -> {
+      if (runnerStatus.isCancelled()) {
+        tracker.trackCancellation("Download pending attachment " + attachmentNumber + " of " + totalAttachments);
+        return null;
+      }
+
+      String instanceId = pendingAttachment.getInstanceId();
+      Path targetFile = form.getSubmissionMediaFile(briefcaseDir, instanceId, pendingAttachment.getFilename());
+      // A later pull could have downloaded it already
+      if (exists(targetFile)) {
+        pendingAttachments.remove(pendingAttachment);
+        return null;
+      }
+      createDirectories(targetFile.getParent());
+
+      tracker.trackStartDownloadingPendingAttachment(attachmentNumber, totalAttachments);
+      Request<Void> request = server.getDownloadSubmissionAttachmentRequest(form.getFormId(), instanceId, new CentralAttachment(pendingAttachment.getFilename(), true), targetFile, token);
+      Response<Void> response = http.execute(tracker.tracked(inBackground ? request.builder().inBackground().build() : request));
+      if (response.isSuccess()) {
+        pendingAttachments.remove(pendingAttachment);
+        tracker.trackEndDownloadingPendingAttachment(attachmentNumber, totalAttachments);
+      } else {
+        tracker.trackErrorDownloadingPendingAttachment(attachmentNumber, totalAttachments, response);
+      }
+      return null;
+    });
   }
 }
@@ -16,9 +16,17 @@
 
 package org.opendatakit.briefcase.pull.central;
 
+import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
 import java.util.function.Consumer;
 import org.opendatakit.briefcase.model.FormStatus;
 import org.opendatakit.briefcase.model.FormStatusEvent;
+import org.opendatakit.briefcase.reused.http.ConcurrencyStats;
+import org.opendatakit.briefcase.reused.http.Request;
+import org.opendatakit.briefcase.reused.http.TrafficReport;
+import org.opendatakit.briefcase.reused.http.TransferCounter;
 import org.opendatakit.briefcase.reused.http.response.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +35,7 @@ class PullFromCentralTracker {
   private static final Logger log = LoggerFactory.getLogger(PullFromCentralTracker.class);
   private final FormStatus form;
   private final Consumer<FormStatusEvent> onEventCallback;
+  private final TransferCounter transferCounter = new TransferCounter();
   private boolean errored = false;
 
   PullFromCentralTracker(FormStatus form, Consumer<FormStatusEvent> onEventCallback) {
@@ -52,6 +61,30 @@ class PullFromCentralTracker {
     notifyTrackingEvent();
   }
 
+  void trackTraffic(ConcurrencyStats stats) {
+    TrafficReport.describe(stats, Optional.of(transferCounter)).forEach(message -> {
+      form.setStatusString(message);
+      log.info("Pull {} - {}", form.getFormName(), message);
+      notifyTrackingEvent();
+    });
+  }
+
+  /**
+   * Returns a copy of the provided request that will count its
+   * transferred bytes into this pull's totals, and take turns with
+   * the requests of other forms sent to the same server.
+   */
+  <T> Request<T> tracked(Request<T> request) {
+    return request.builder()
+        .withTransferCounter(transferCounter)
+        .withSchedulingGroup(form.getFormId())
+        .build();
+  }
+
+  TransferCounter getTransferCounter() {
+    return transferCounter;
+  }
+
   void trackCancellation(String job) {
     String message = "Operation cancelled - " + job;
     form.setStatusString(message);
@@ -88,6 +121,20 @@ class PullFromCentralTracker {
     notifyTrackingEvent();
   }
 
+  void trackStartGettingSubmissionIds(OffsetDateTime since) {
+    String message = "Start getting IDs of submissions received since " + since.format(ISO_OFFSET_DATE_TIME);
+    form.setStatusString(message);
+    log.info("Pull {} - {}", form.getFormName(), message);
+    notifyTrackingEvent();
+  }
+
+  void trackFallbackToFullSubmissionList(Response response) {
+    String message = "Can't get the submission IDs page by page. Getting all of them at once";
+    form.setStatusString(message);
+    log.warn("Pull {} - {}: HTTP {} {}", form.getFormName(), message, response.getStatusCode(), response.getStatusPhrase());
+    notifyTrackingEvent();
+  }
+
   void trackErrorGettingSubmissionIds(Response response) {
     errored = true;
     String message = "Error getting submission IDs";
@@ -193,6 +240,13 @@ class PullFromCentralTracker {
     notifyTrackingEvent();
   }
 
+  void trackSubmissionAttachmentListSkipped(int submissionNumber, int totalSubmissions) {
+    String message = "  Skipping attachment list of submission " + submissionNumber + " of " + totalSubmissions + ": no attachments to download";
+    form.setStatusString(message);
+    log.info("Pull {} - {}", form.getFormName(), message);
+    notifyTrackingEvent();
+  }
+
   void trackErrorGettingSubmissionAttachmentList(String instanceId, Response response) {
     errored = true;
     String message = "  Error getting attachment list of submission " + instanceId;
@@ -231,6 +285,51 @@ class PullFromCentralTracker {
     notifyTrackingEvent();
   }
 
+  void trackDeferredSubmissionAttachments(int submissionNumber, int totalSubmissions, int totalAttachments) {
+    String message = "Left " + totalAttachments + " attachments of submission " + submissionNumber + " of " + totalSubmissions + " to download later";
+    form.setStatusString(message);
+    log.info("Pull {} - {}", form.getFormName(), message);
+    notifyTrackingEvent();
+  }
+
+  void trackStartDownloadingPendingAttachments(int totalAttachments) {
+    String message = "Start downloading " + totalAttachments + " pending submission attachments";
+    form.setStatusString(message);
+    log.info("Pull {} - {}", form.getFormName(), message);
+    notifyTrackingEvent();
+  }
+
+  void trackStartDownloadingPendingAttachment(int attachmentNumber, int totalAttachments) {
+    String message = "Start downloading pending attachment " + attachmentNumber + " of " + totalAttachments;
+    form.setStatusString(message);
+    log.info("Pull {} - {}", form.getFormName(), message);
+    notifyTrackingEvent();
+  }
+
+  void trackEndDownloadingPendingAttachment(int attachmentNumber, int totalAttachments) {
+    String message = "Pending attachment " + attachmentNumber + " of " + totalAttachments + " downloaded";
+    form.setStatusString(message);
+    log.info("Pull {} - {}", form.getFormName(), message);
+    notifyTrackingEvent();
+  }
+
+  void trackErrorDownloadingPendingAttachment(int attachmentNumber, int totalAttachments, Response response) {
+    errored = true;
+    String message = "Error downloading pending attachment " + attachmentNumber + " of " + totalAttachments;
+    form.setStatusString(message + ": " + response.getStatusPhrase());
+    log.error("Pull {} - {}: HTTP {} {}", form.getFormName(), message, response.getStatusCode(), response.getStatusPhrase());
+    notifyTrackingEvent();
+  }
+
+  void trackEndDownloadingPendingAttachments(int remainingAttachments) {
+    String message = remainingAttachments == 0
+        ? "All pending submission attachments downloaded"
+        : remainingAttachments + " submission attachments are still pending";
+    form.setStatusString(message);
+    log.info("Pull {} - {}", form.getFormName(), message);
+    notifyTrackingEvent();
+  }
+
   void trackNoSubmissions() {
     String message = "There are no submissions to download";
     form.setStatusString(message);
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.push;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.util.Comparator.comparing;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createDirectories;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.write;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.opendatakit.briefcase.reused.BriefcaseException;
+import org.opendatakit.briefcase.reused.FileHashCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers which submissions of a form have been accepted by a push
+ * target server, together with a hash of their contents, so that later
+ * pushes to the same server can send only new or changed submissions.
+ * <p>
+ * Submissions are identified by the name of their instance directory,
+ * which is derived from their instance ID.
+ * <p>
+ * Each target server gets its own JSON file at the form's directory.
+ */
+public class PushLedger {
+  private static final Logger log = LoggerFactory.getLogger(PushLedger.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  static final String FILE_PREFIX = "push-ledger-";
+  private final Path file;
+  private final String server;
+  private final Map<String, String> submissions;
+  private volatile boolean dirty = false;
+
+  private PushLedger(Path file, String server, Map<String, String> submissions) {
+    this.file = file;
+    this.server = server;
+    this.submissions = submissions;
+  }
+
+  /**
+   * Returns a new PushLedger instance for the form at the given directory and
+   * the given target server, loading any submission previously recorded.
+   */
+  public static PushLedger at(Path formDir, URL serverUrl) {
+    String server = serverUrl.toString();
+    Path file = formDir.resolve(FILE_PREFIX + md5(server) + ".json");
+    Map<String, String> submissions = new ConcurrentHashMap<>();
+    if (Files.exists(file))
+      try {
+        MAPPER.readTree(file.toFile()).get("submissions").fields().forEachRemaining(field -> submissions.put(field.getKey(), field.getValue().asText()));
+      } catch (IOException | RuntimeException e) {
+        // A broken ledger only means that we will send submissions again
+        log.warn("Can't read push ledger at {}", file, e);
+        submissions.clear();
+      }
+    return new PushLedger(file, server, submissions);
+  }
+
+  /**
+   * Returns a hash of the contents of the given submission file and
+   * attachments, using the given cache to avoid reading unchanged files.
+   */
+  public static String contentHash(FileHashCache hashes, Path submissionFile, List<Path> attachments) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(submissionFile.getFileName()).append(':').append(hashes.md5(submissionFile)).append('\n');
+    attachments.stream()
+        .sorted(comparing(attachment -> attachment.getFileName().toString()))
+        .forEach(attachment -> sb.append(attachment.getFileName()).append(':').append(hashes.md5(attachment)).append('\n'));
+    return md5(sb.toString());
+  }
+
+  /**
+   * Returns true if the given submission has already been
+   * accepted by the server with the same contents.
+   */
+  public boolean contains(String instanceDirName, String contentHash) {
+    return contentHash.equals(submissions.get(instanceDirName));
+  }
+
+  /**
+   * Records that the server has accepted the given submission.
+   */
+  public void put(String instanceDirName, String contentHash) {
+    if (!contentHash.equals(submissions.put(instanceDirName, contentHash)))
+      dirty = true;
+  }
+
+  /**
+   * Writes the recorded submissions to disk, if anything has changed.
+   * <p>
+   * The ledger gets written into a temp file that replaces it in a single
+   * move, so that an interrupted save never leaves a broken ledger behind.
+   */
+  public synchronized void save() {
+    if (!dirty)
+      return;
+    ObjectNode root = MAPPER.createObjectNode();
+    root.put("server", server);
+    ObjectNode submissionsNode = root.putObject("submissions");
+    submissions.forEach(submissionsNode::put);
+    try {
+      createDirectories(file.getParent());
+      Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+      write(tempFile, MAPPER.writeValueAsString(root), CREATE, TRUNCATE_EXISTING);
+      move(tempFile, file);
+      dirty = false;
+    } catch (IOException | UncheckedIOException e) {
+      log.warn("Can't save push ledger at {}", file, e);
+    }
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, ATOMIC_MOVE, REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, REPLACE_EXISTING);
+    }
+  }
+
+  private static String md5(String value) {
+    try {
+      StringBuilder sb = new StringBuilder();
+      for (byte b : MessageDigest.getInstance("MD5").digest(value.getBytes(UTF_8)))
+        sb.append(String.format("%02x", b));
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new BriefcaseException(e);
+    }
+  }
+}
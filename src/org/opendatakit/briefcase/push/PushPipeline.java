@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.push;
+
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import org.opendatakit.briefcase.reused.Futures;
+
+/**
+ * Runs the uploads of a push on its own pool of threads, with a thread for
+ * each allowed HTTP connection, instead of the common ForkJoinPool, which is
+ * sized to the number of CPUs.
+ * <p>
+ * Submission uploads and attachment uploads are separate tasks sharing the
+ * same bound. The attachments of a submission are scheduled only once its
+ * upload has succeeded, which lets the server have the submission before
+ * receiving any of its attachments.
+ * <p>
+ * To keep the pipeline bounded, {@link #submit(BooleanSupplier, Supplier)}
+ * blocks the calling thread while there are too many submissions waiting
+ * to be completed. Pipelines pushing to the same server share their threads
+ * and this bound, which makes it a bound per server instead of per form.
+ */
+public class PushPipeline implements AutoCloseable {
+  private static final Map<String, Lane> LANES_BY_SERVER = new ConcurrentHashMap<>();
+  private final Lane lane;
+  private final boolean ownsLane;
+  // Only the submissions still running are kept, together with the first failure
+  private final Set<CompletableFuture<Void>> runningSubmissions = ConcurrentHashMap.newKeySet();
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+  private PushPipeline(Lane lane, boolean ownsLane) {
+    this.lane = lane;
+    this.ownsLane = ownsLane;
+  }
+
+  /**
+   * Returns a new PushPipeline instance that will run as many uploads at
+   * once as the given number of HTTP connections, together with the rest
+   * of pipelines pushing to the given server.
+   */
+  public static PushPipeline of(URL server, int maxConnections) {
+    String key = server.getProtocol() + "://" + server.getAuthority() + " " + maxConnections;
+    return new PushPipeline(LANES_BY_SERVER.computeIfAbsent(key, __ -> Lane.of(maxConnections)), false);
+  }
+
+  /**
+   * Returns a new PushPipeline instance that will run as many
+   * uploads at once as the given number of HTTP connections.
+   */
+  public static PushPipeline of(int maxConnections) {
+    return new PushPipeline(Lane.of(maxConnections), true);
+  }
+
+  /**
+   * Schedules the upload of a submission that has no attachments to upload separately.
+   *
+   * @see #submit(BooleanSupplier, Supplier)
+   */
+  public void submit(BooleanSupplier submissionUpload) {
+    submit(submissionUpload, () -> emptyList());
+  }
+
+  /**
+   * Schedules the upload of a submission, followed by the uploads of its
+   * attachments, which run concurrently as separate tasks.
+   *
+   * @param submissionUpload  uploads the submission, returning true if the
+   *                          server has it, which is required to upload
+   *                          its attachments
+   * @param attachmentUploads supplies the attachment uploads of the submission
+   */
+  public void submit(BooleanSupplier submissionUpload, Supplier<List<Runnable>> attachmentUploads) {
+    try {
+      lane.waitingSubmissions.acquire();
+    } catch (InterruptedException e) {
+      // The push has been cancelled
+      Thread.currentThread().interrupt();
+      return;
+    }
+    CompletableFuture<Void> submission = CompletableFuture.supplyAsync(submissionUpload::getAsBoolean, lane.executor)
+        .thenCompose(sent -> sent ? runAll(attachmentUploads.get()) : completedFuture(null));
+    runningSubmissions.add(submission);
+    submission.whenComplete((__, error) -> {
+      if (error != null)
+        failure.compareAndSet(null, error);
+      runningSubmissions.remove(submission);
+      lane.waitingSubmissions.release();
+    });
+  }
+
+  private CompletableFuture<Void> runAll(List<Runnable> uploads) {
+    return CompletableFuture.allOf(uploads.stream()
+        .map(upload -> CompletableFuture.runAsync(upload, lane.executor))
+        .toArray(CompletableFuture<?>[]::new));
+  }
+
+  /**
+   * Blocks the current thread until all the scheduled uploads are completed.
+   * <p>
+   * If any of them has thrown an exception, it's thrown.
+   */
+  public void awaitAll() {
+    Futures.allOf(runningSubmissions.stream());
+    Throwable error = failure.get();
+    if (error != null) {
+      CompletableFuture<Void> failed = new CompletableFuture<>();
+      failed.completeExceptionally(error);
+      Futures.join(failed);
+    }
+  }
+
+  int countRunningSubmissions() {
+    return runningSubmissions.size();
+  }
+
+  /**
+   * Releases the threads of this pipeline, unless they're shared
+   * with other pipelines pushing to the same server, in which case
+   * they're released once they have been idle for a while.
+   */
+  @Override
+  public void close() {
+    if (ownsLane)
+      lane.executor.shutdown();
+  }
+
+  private static class Lane {
+    private final ExecutorService executor;
+    private final Semaphore waitingSubmissions;
+
+    private Lane(ExecutorService executor, Semaphore waitingSubmissions) {
+      this.executor = executor;
+      this.waitingSubmissions = waitingSubmissions;
+    }
+
+    static Lane of(int maxConnections) {
+      AtomicInteger threadNumber = new AtomicInteger(1);
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConnections, maxConnections, 30, SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "briefcase-push-" + threadNumber.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+      });
+      // Let idle threads go even if the pipeline isn't closed, e.g. when the push fails
+      executor.allowCoreThreadTimeOut(true);
+      // Having a few more submissions than threads waiting keeps every connection busy
+      return new Lane(executor, new Semaphore(maxConnections * 2));
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.push;
+
+import java.nio.file.Path;
+import org.opendatakit.briefcase.reused.job.RunnerStatus;
+
+/**
+ * Pushes the submissions of a form one by one, as they become available
+ * in local storage, instead of pushing all of them at once.
+ */
+public interface SubmissionForwarder {
+  /**
+   * Sends the form and its attachments, unless the server already has them.
+   * It has to be called before sending any submission.
+   *
+   * @return false if the submissions of the form can't be sent to the server
+   */
+  boolean pushForm(RunnerStatus runnerStatus);
+
+  /**
+   * Sends the given submission and its attachments. It can be called from
+   * several threads at the same time.
+   *
+   * @return true if the server has the submission and all its attachments
+   */
+  boolean pushSubmission(Path submissionFile, RunnerStatus runnerStatus, int submissionNumber, int totalSubmissions);
+
+  /**
+   * Saves any state of the push, once all the submissions have been sent.
+   */
+  void finish();
+}
@@ -18,6 +18,7 @@ package org.opendatakit.briefcase.push.aggregate;
 
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static org.opendatakit.briefcase.reused.UncheckedFiles.list;
 import static org.opendatakit.briefcase.reused.UncheckedFiles.size;
 
@@ -25,6 +26,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import org.bushe.swing.event.EventBus;
@@ -32,26 +35,35 @@ import org.opendatakit.briefcase.export.XmlElement;
 import org.opendatakit.briefcase.model.FormStatus;
 import org.opendatakit.briefcase.model.FormStatusEvent;
 import org.opendatakit.briefcase.push.PushEvent;
+import org.opendatakit.briefcase.push.PushLedger;
+import org.opendatakit.briefcase.push.PushPipeline;
+import org.opendatakit.briefcase.push.SubmissionForwarder;
+import org.opendatakit.briefcase.reused.FileHashCache;
 import org.opendatakit.briefcase.reused.UncheckedFiles;
 import org.opendatakit.briefcase.reused.http.Http;
+import org.opendatakit.briefcase.reused.http.ResumableDownload;
 import org.opendatakit.briefcase.reused.http.response.Response;
 import org.opendatakit.briefcase.reused.job.Job;
 import org.opendatakit.briefcase.reused.job.RunnerStatus;
 import org.opendatakit.briefcase.reused.transfer.AggregateServer;
 
 public class PushToAggregate {
-  private static final int BYTES_IN_ONE_MEGABYTE = 1_048_576;
+  private static final long DEFAULT_MAX_REQUEST_SIZE = 10_485_760;
+  private static final String ACCEPT_CONTENT_LENGTH_HEADER = "X-OpenRosa-Accept-Content-Length";
   private final Http http;
   private final AggregateServer server;
   private final Path briefcaseDir;
   private final boolean forceSendForm;
+  private final boolean forceSendSubmissions;
   private final Consumer<FormStatusEvent> onEventCallback;
+  private Long maxRequestSize;
 
-  public PushToAggregate(Http http, AggregateServer server, Path briefcaseDir, boolean forceSendForm, Consumer<FormStatusEvent> onEventCallback) {
+  public PushToAggregate(Http http, AggregateServer server, Path briefcaseDir, boolean forceSendForm, boolean forceSendSubmissions, Consumer<FormStatusEvent> onEventCallback) {
     this.http = http;
     this.server = server;
     this.briefcaseDir = briefcaseDir;
     this.forceSendForm = forceSendForm;
+    this.forceSendSubmissions = forceSendSubmissions;
     this.onEventCallback = onEventCallback;
   }
 
@@ -62,6 +74,16 @@ public class PushToAggregate {
    * By default, it won't push a form and form attachments if it's already
    * present in the server, which can be overriden with the {@link #forceSendForm}
    * field.
+   * <p>
+   * Submissions already accepted by the server with the same contents, as
+   * recorded by the form's {@link PushLedger} for this server, won't be sent
+   * again unless the {@link #forceSendSubmissions} field is set.
+   * <p>
+   * Forms and submissions with attachments that don't fit in the maximum
+   * request size advertised by the server are sent in several parts, each
+   * one with a group of their attachments.
+   * <p>
+   * Submissions are uploaded with a {@link PushPipeline}.
    */
   public Job<Void> push(FormStatus form) {
     PushToAggregateTracker tracker = new PushToAggregateTracker(form, onEventCallback);
@@ -72,52 +94,172 @@ public class PushToAggregate {
         })
         .thenSupply(runnerStatus -> !forceSendForm && checkFormExists(form.getFormId(), runnerStatus, tracker))
         .thenAccept(((runnerStatus, formExists) -> {
-          if (!formExists) {
-            Path formFile = form.getFormFile(briefcaseDir);
-            List<Path> allAttachments = getFormAttachments(form);
-            if (allAttachments.isEmpty()) {
-              pushFormAndAttachments(form, emptyList(), runnerStatus, tracker);
-            } else {
-              AtomicInteger partsSeq = new AtomicInteger(1);
-              List<List<Path>> attachmentGroups = createGroupsOfMaxSize(formFile, allAttachments, 10);
-              attachmentGroups.forEach(attachments ->
-                  pushFormAndAttachments(form, attachments, runnerStatus, tracker, partsSeq.getAndIncrement(), attachmentGroups.size())
-              );
-            }
-          }
+          if (!formExists)
+            pushFormInParts(form, runnerStatus, tracker);
         }))
         .thenSupply(__ -> getSubmissions(form))
         .thenAccept((runnerStatus, submissions) -> {
+          Path formDir = form.getFormDir(briefcaseDir);
+          FileHashCache hashes = FileHashCache.at(formDir);
+          PushLedger ledger = PushLedger.at(formDir, server.getBaseUrl());
+          Map<Path, String> contentHashes = submissions.parallelStream().collect(toMap(
+              submission -> submission,
+              submission -> PushLedger.contentHash(hashes, submission, getSubmissionAttachments(submission))
+          ));
+          List<Path> submissionsToSend = submissions.stream()
+              .filter(submission -> forceSendSubmissions || !ledger.contains(getInstanceDirName(submission), contentHashes.get(submission)))
+              .collect(toList());
+
           AtomicInteger submissionsSeq = new AtomicInteger(1);
-          int totalSubmissions = submissions.size();
+          int totalSubmissions = submissionsToSend.size();
+          long maxSize = submissionsToSend.isEmpty() ? DEFAULT_MAX_REQUEST_SIZE : getMaxRequestSize();
           if (submissions.isEmpty())
             tracker.trackNoSubmissions();
-          submissions.parallelStream().forEach(submission -> {
-            List<Path> allAttachments = getSubmissionAttachments(submission);
-            if (allAttachments.isEmpty()) {
-              pushSubmissionAndAttachments(submission, emptyList(), runnerStatus, tracker, submissionsSeq.getAndIncrement(), totalSubmissions);
-            } else {
-              AtomicInteger partsSeq = new AtomicInteger(1);
-              List<List<Path>> attachmentGroups = createGroupsOfMaxSize(submission, allAttachments, 10);
-              attachmentGroups.forEach(attachment ->
-                  pushSubmissionAndAttachments(submission, allAttachments, runnerStatus, tracker, submissionsSeq.getAndIncrement(), totalSubmissions, partsSeq.getAndIncrement(), attachmentGroups.size())
-              );
-            }
-          });
+          tracker.trackForceSendSubmissions(forceSendSubmissions);
+          tracker.trackSubmissionsAlreadySent(submissions.size() - submissionsToSend.size());
+          // Attachments are sent in the same requests as their submission, which have to go one after the other
+          try (PushPipeline pipeline = PushPipeline.of(server.getBaseUrl(), http.getConcurrencyStats(server.getBaseUrl()).getMaxLimit())) {
+            submissionsToSend.forEach(submission -> {
+              int submissionNumber = submissionsSeq.getAndIncrement();
+              pipeline.submit(() -> {
+                boolean sent = pushSubmissionInParts(submission, maxSize, runnerStatus, tracker, submissionNumber, totalSubmissions);
+                if (sent)
+                  ledger.put(getInstanceDirName(submission), contentHashes.get(submission));
+                return sent;
+              });
+            });
+            pipeline.awaitAll();
+          } finally {
+            // Submissions accepted before a failure or a cancellation won't be sent again
+            ledger.save();
+            hashes.save();
+          }
+          tracker.trackTraffic(http.getConcurrencyStats(server.getBaseUrl()));
           tracker.trackEnd();
         })
         .thenRun(rs -> EventBus.publish(new PushEvent.Success(form)));
   }
 
+  /**
+   * Sends the form and its attachments, in as many parts as needed to
+   * fit in the maximum request size of the server.
+   *
+   * @return true if all the parts have been sent
+   */
+  private boolean pushFormInParts(FormStatus form, RunnerStatus runnerStatus, PushToAggregateTracker tracker) {
+    Path formFile = form.getFormFile(briefcaseDir);
+    List<Path> allAttachments = getFormAttachments(form);
+    if (allAttachments.isEmpty())
+      return pushFormAndAttachments(form, emptyList(), runnerStatus, tracker);
+    AtomicInteger partsSeq = new AtomicInteger(1);
+    List<List<Path>> attachmentGroups = createGroupsOfMaxSize(formFile, allAttachments, getMaxRequestSize());
+    return attachmentGroups.stream()
+        .map(attachments -> pushFormAndAttachments(form, attachments, runnerStatus, tracker, partsSeq.getAndIncrement(), attachmentGroups.size()))
+        .reduce(true, Boolean::logicalAnd);
+  }
+
+  /**
+   * Sends a submission and its attachments, in as many parts as
+   * needed to fit in the given maximum request size.
+   *
+   * @return true if all the parts have been sent
+   */
+  private boolean pushSubmissionInParts(Path submission, long maxSize, RunnerStatus runnerStatus, PushToAggregateTracker tracker, int submissionNumber, int totalSubmissions) {
+    List<Path> allAttachments = getSubmissionAttachments(submission);
+    if (allAttachments.isEmpty())
+      return pushSubmissionAndAttachments(submission, emptyList(), runnerStatus, tracker, submissionNumber, totalSubmissions);
+    AtomicInteger partsSeq = new AtomicInteger(1);
+    List<List<Path>> attachmentGroups = createGroupsOfMaxSize(submission, allAttachments, maxSize);
+    return attachmentGroups.stream()
+        .map(attachments -> pushSubmissionAndAttachments(submission, attachments, runnerStatus, tracker, submissionNumber, totalSubmissions, partsSeq.getAndIncrement(), attachmentGroups.size()))
+        .reduce(true, Boolean::logicalAnd);
+  }
+
+  /**
+   * Returns a {@link SubmissionForwarder} that will push the given form
+   * and its submissions like {@link #push(FormStatus)} does, one by one.
+   */
+  public SubmissionForwarder forwarder(FormStatus form) {
+    return new Forwarder(form);
+  }
+
+  private class Forwarder implements SubmissionForwarder {
+    private final FormStatus form;
+    private final PushToAggregateTracker tracker;
+    private final FileHashCache hashes;
+    private final PushLedger ledger;
+
+    Forwarder(FormStatus form) {
+      this.form = form;
+      this.tracker = new PushToAggregateTracker(form, onEventCallback);
+      Path formDir = form.getFormDir(briefcaseDir);
+      this.hashes = FileHashCache.at(formDir);
+      this.ledger = PushLedger.at(formDir, server.getBaseUrl());
+    }
+
+    @Override
+    public boolean pushForm(RunnerStatus runnerStatus) {
+      tracker.trackStart();
+      tracker.trackForceSendForm(forceSendForm);
+      tracker.trackForceSendSubmissions(forceSendSubmissions);
+      boolean formExists = !forceSendForm && checkFormExists(form.getFormId(), runnerStatus, tracker);
+      return formExists || pushFormInParts(form, runnerStatus, tracker);
+    }
+
+    @Override
+    public boolean pushSubmission(Path submissionFile, RunnerStatus runnerStatus, int submissionNumber, int totalSubmissions) {
+      String instanceDirName = getInstanceDirName(submissionFile);
+      String contentHash = PushLedger.contentHash(hashes, submissionFile, getSubmissionAttachments(submissionFile));
+      if (!forceSendSubmissions && ledger.contains(instanceDirName, contentHash)) {
+        tracker.trackSubmissionsAlreadySent(1);
+        return true;
+      }
+      boolean sent = pushSubmissionInParts(submissionFile, getMaxRequestSize(), runnerStatus, tracker, submissionNumber, totalSubmissions);
+      if (sent)
+        ledger.put(instanceDirName, contentHash);
+      return sent;
+    }
+
+    @Override
+    public void finish() {
+      ledger.save();
+      hashes.save();
+      tracker.trackTraffic(http.getConcurrencyStats(server.getBaseUrl()));
+      tracker.trackEnd();
+    }
+  }
+
   private List<Path> getSubmissionAttachments(Path formFile) {
     Path submissionDir = formFile.getParent();
     return UncheckedFiles.list(submissionDir)
         .filter(p -> !p.getFileName().toString().equals("submission.xml"))
+        .filter(p -> !ResumableDownload.isPartialFile(p))
         .collect(toList());
   }
 
-  static List<List<Path>> createGroupsOfMaxSize(Path baseDocument, List<Path> attachments, int sizeInMegabytes) {
-    int maxSize = sizeInMegabytes * BYTES_IN_ONE_MEGABYTE;
+  /**
+   * Returns the maximum size of the requests the server accepts, as advertised
+   * by its response to the preflight request, which is sent only once.
+   */
+  synchronized long getMaxRequestSize() {
+    if (maxRequestSize == null) {
+      Response<String> response = http.execute(server.getPushFormPreflightRequest());
+      maxRequestSize = response.isSuccess()
+          ? response.getHeader(ACCEPT_CONTENT_LENGTH_HEADER).flatMap(PushToAggregate::parseSize).orElse(DEFAULT_MAX_REQUEST_SIZE)
+          : DEFAULT_MAX_REQUEST_SIZE;
+    }
+    return maxRequestSize;
+  }
+
+  private static Optional<Long> parseSize(String value) {
+    try {
+      return Optional.of(Long.parseLong(value.trim())).filter(size -> size > 0);
+    } catch (NumberFormatException e) {
+      return Optional.empty();
+    }
+  }
+
+  static List<List<Path>> createGroupsOfMaxSize(Path baseDocument, List<Path> attachments, long maxSize) {
     long formSize = size(baseDocument);
     List<List<Path>> groupsOfAttachments = new ArrayList<>();
     long currentSize = formSize;
@@ -125,7 +267,7 @@ public class PushToAggregate {
     groupsOfAttachments.add(currentList);
     for (Path attachment : attachments) {
       long attachmentSize = size(attachment);
-      if (currentSize + attachmentSize > maxSize) {
+      if (currentSize + attachmentSize > maxSize && !currentList.isEmpty()) {
         currentList = new ArrayList<>();
         currentSize = formSize;
         groupsOfAttachments.add(currentList);
@@ -142,7 +284,7 @@ public class PushToAggregate {
       return false;
     }
 
-    Response<Boolean> response = http.execute(server.getFormExistsRequest(formId));
+    Response<Boolean> response = http.execute(tracker.tracked(server.getFormExistsRequest(formId)));
     if (!response.isSuccess()) {
       tracker.trackErrorCheckingForm(response);
       return false;
@@ -153,43 +295,49 @@ public class PushToAggregate {
     return exists;
   }
 
-  void pushFormAndAttachments(FormStatus form, List<Path> attachments, RunnerStatus runnerStatus, PushToAggregateTracker tracker) {
-    pushFormAndAttachments(form, attachments, runnerStatus, tracker, 1, 1);
+  boolean pushFormAndAttachments(FormStatus form, List<Path> attachments, RunnerStatus runnerStatus, PushToAggregateTracker tracker) {
+    return pushFormAndAttachments(form, attachments, runnerStatus, tracker, 1, 1);
   }
 
-  void pushFormAndAttachments(FormStatus form, List<Path> attachments, RunnerStatus runnerStatus, PushToAggregateTracker tracker, int part, int parts) {
+  boolean pushFormAndAttachments(FormStatus form, List<Path> attachments, RunnerStatus runnerStatus, PushToAggregateTracker tracker, int part, int parts) {
     if (runnerStatus.isCancelled()) {
       tracker.trackCancellation("Push form");
-      return;
+      return false;
     }
 
     tracker.trackStartSendingFormAndAttachments(part, parts);
-    Response response = http.execute(server.getPushFormRequest(form.getFormFile(briefcaseDir), attachments));
+    Response response = http.execute(tracker.tracked(server.getPushFormRequest(form.getFormFile(briefcaseDir), attachments)));
     if (response.isSuccess())
       tracker.trackEndSendingFormAndAttachments(part, parts);
     else
       tracker.trackErrorSendingFormAndAttachments(part, parts, response);
+    return response.isSuccess();
   }
 
-  void pushSubmissionAndAttachments(Path submissionFile, List<Path> attachments, RunnerStatus runnerStatus, PushToAggregateTracker tracker, int submissionNumber, int totalSubmissions) {
-    pushSubmissionAndAttachments(submissionFile, attachments, runnerStatus, tracker, submissionNumber, totalSubmissions, 1, 1);
+  boolean pushSubmissionAndAttachments(Path submissionFile, List<Path> attachments, RunnerStatus runnerStatus, PushToAggregateTracker tracker, int submissionNumber, int totalSubmissions) {
+    return pushSubmissionAndAttachments(submissionFile, attachments, runnerStatus, tracker, submissionNumber, totalSubmissions, 1, 1);
   }
 
-  void pushSubmissionAndAttachments(Path submissionFile, List<Path> attachments, RunnerStatus runnerStatus, PushToAggregateTracker tracker, int submissionNumber, int totalSubmissions, int part, int parts) {
+  boolean pushSubmissionAndAttachments(Path submissionFile, List<Path> attachments, RunnerStatus runnerStatus, PushToAggregateTracker tracker, int submissionNumber, int totalSubmissions, int part, int parts) {
     if (runnerStatus.isCancelled()) {
       tracker.trackCancellation("Sending submissions " + submissionNumber + " of " + totalSubmissions);
-      return;
+      return false;
     }
 
     tracker.trackStartSendingSubmissionAndAttachments(submissionNumber, totalSubmissions, part, parts);
-    Response<XmlElement> response = http.execute(server.getPushSubmissionRequest(
+    Response<XmlElement> response = http.execute(tracker.tracked(server.getPushSubmissionRequest(
         submissionFile,
         attachments
-    ));
+    )));
     if (response.isSuccess())
       tracker.trackEndSendingSubmissionAndAttachments(submissionNumber, totalSubmissions, part, parts);
     else
       tracker.trackErrorSendingSubmissionAndAttachments(submissionNumber, totalSubmissions, part, parts, response);
+    return response.isSuccess();
+  }
+
+  private static String getInstanceDirName(Path submissionFile) {
+    return submissionFile.getParent().getFileName().toString();
   }
 
   private List<Path> getSubmissions(FormStatus form) {
@@ -16,9 +16,14 @@
 
 package org.opendatakit.briefcase.push.aggregate;
 
+import java.util.Optional;
 import java.util.function.Consumer;
 import org.opendatakit.briefcase.model.FormStatus;
 import org.opendatakit.briefcase.model.FormStatusEvent;
+import org.opendatakit.briefcase.reused.http.ConcurrencyStats;
+import org.opendatakit.briefcase.reused.http.Request;
+import org.opendatakit.briefcase.reused.http.TrafficReport;
+import org.opendatakit.briefcase.reused.http.TransferCounter;
 import org.opendatakit.briefcase.reused.http.response.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +32,7 @@ class PushToAggregateTracker {
   private static final Logger log = LoggerFactory.getLogger(PushToAggregateTracker.class);
   private final FormStatus form;
   private final Consumer<FormStatusEvent> onEventCallback;
+  private final TransferCounter transferCounter = new TransferCounter();
   private boolean errored = false;
 
   PushToAggregateTracker(FormStatus form, Consumer<FormStatusEvent> onEventCallback) {
@@ -38,6 +44,18 @@ class PushToAggregateTracker {
     onEventCallback.accept(new FormStatusEvent(form));
   }
 
+  /**
+   * Returns a copy of the provided request that will count its
+   * transferred bytes into this push's totals, and take turns with
+   * the requests of other forms sent to the same server.
+   */
+  <T> Request<T> tracked(Request<T> request) {
+    return request.builder()
+        .withTransferCounter(transferCounter)
+        .withSchedulingGroup(form.getFormId())
+        .build();
+  }
+
   void trackStart() {
     String message = "Start pushing form and submissions";
     form.setStatusString(message);
@@ -52,6 +70,14 @@ class PushToAggregateTracker {
     notifyTrackingEvent();
   }
 
+  void trackTraffic(ConcurrencyStats stats) {
+    TrafficReport.describe(stats, Optional.of(transferCounter)).forEach(message -> {
+      form.setStatusString(message);
+      log.info("Push {} - {}", form.getFormName(), message);
+      notifyTrackingEvent();
+    });
+  }
+
   void trackErrorCheckingForm(Response response) {
     errored = true;
     String message = "Error checking if form exists in Aggregate";
@@ -127,6 +153,24 @@ class PushToAggregateTracker {
     notifyTrackingEvent();
   }
 
+  void trackForceSendSubmissions(boolean forceSendSubmissions) {
+    if (forceSendSubmissions) {
+      String message = "Forcing push of all submissions";
+      form.setStatusString(message);
+      log.info("Push {} - {}", form.getFormName(), message);
+      notifyTrackingEvent();
+    }
+  }
+
+  void trackSubmissionsAlreadySent(int submissions) {
+    if (submissions > 0) {
+      String message = "Skipping " + submissions + " submission" + (submissions == 1 ? "" : "s") + " already sent to Aggregate";
+      form.setStatusString(message);
+      log.info("Push {} - {}", form.getFormName(), message);
+      notifyTrackingEvent();
+    }
+  }
+
   void trackNoSubmissions() {
     String message = "There are no submissions to send";
     form.setStatusString(message);
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.push.central;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.emptySet;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.opendatakit.briefcase.reused.transfer.CentralSubmission;
+
+/**
+ * Describes what a push has to send to Central, based on what the
+ * server already has: the form versions missing in the server, and the
+ * submissions that the server already has, by instance ID.
+ */
+class CentralPushPlan {
+  private final Set<String> missingFormVersions;
+  private final Map<String, CentralSubmission> remoteSubmissions;
+
+  CentralPushPlan(Set<String> missingFormVersions, Map<String, CentralSubmission> remoteSubmissions) {
+    this.missingFormVersions = missingFormVersions;
+    this.remoteSubmissions = remoteSubmissions;
+  }
+
+  static CentralPushPlan empty() {
+    return new CentralPushPlan(emptySet(), emptyMap());
+  }
+
+  /**
+   * Returns a mutable copy of the form versions missing in the server.
+   */
+  Set<String> getMissingFormVersions() {
+    return new HashSet<>(missingFormVersions);
+  }
+
+  boolean isSubmissionPresent(String instanceId) {
+    return remoteSubmissions.containsKey(instanceId);
+  }
+
+  /**
+   * Returns true if the server has the submission and reports having at least
+   * the given number of attachments. Returns false if it's unknown.
+   */
+  boolean isSubmissionComplete(String instanceId, int attachments) {
+    return Optional.ofNullable(remoteSubmissions.get(instanceId))
+        .flatMap(CentralSubmission::getAttachmentsPresent)
+        .map(present -> present >= attachments)
+        .orElse(false);
+  }
+}
@@ -17,41 +17,50 @@
 package org.opendatakit.briefcase.push.central;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static java.util.stream.Collectors.toList;
 import static org.opendatakit.briefcase.model.form.FormMetadataCommands.updateSubmissionVersions;
 import static org.opendatakit.briefcase.model.form.FormMetadataQueries.submissionVersionsOf;
 import static org.opendatakit.briefcase.reused.UncheckedFiles.exists;
 import static org.opendatakit.briefcase.reused.UncheckedFiles.list;
-import static org.opendatakit.briefcase.reused.UncheckedFiles.readAllBytes;
 
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import org.bushe.swing.event.EventBus;
 import org.opendatakit.briefcase.export.FormDefinition;
 import org.opendatakit.briefcase.export.SubmissionMetaData;
-import org.opendatakit.briefcase.export.XmlElement;
 import org.opendatakit.briefcase.model.FormStatus;
 import org.opendatakit.briefcase.model.FormStatusEvent;
 import org.opendatakit.briefcase.model.form.FileSystemFormMetadataAdapter;
 import org.opendatakit.briefcase.model.form.FormKey;
 import org.opendatakit.briefcase.model.form.FormMetadataPort;
 import org.opendatakit.briefcase.push.PushEvent;
+import org.opendatakit.briefcase.push.PushPipeline;
+import org.opendatakit.briefcase.push.SubmissionForwarder;
+import org.opendatakit.briefcase.reused.Futures;
 import org.opendatakit.briefcase.reused.Triple;
 import org.opendatakit.briefcase.reused.UncheckedFiles;
 import org.opendatakit.briefcase.reused.http.Http;
+import org.opendatakit.briefcase.reused.http.ResumableDownload;
 import org.opendatakit.briefcase.reused.http.response.Response;
 import org.opendatakit.briefcase.reused.job.Job;
 import org.opendatakit.briefcase.reused.job.RunnerStatus;
 import org.opendatakit.briefcase.reused.transfer.CentralServer;
+import org.opendatakit.briefcase.reused.transfer.CentralSubmission;
+import org.opendatakit.briefcase.reused.transfer.CentralSubmissionPage;
 
 public class PushToCentral {
+  static final int SUBMISSIONS_PAGE_SIZE = 1000;
 
   private final Http http;
   private final CentralServer server;
@@ -73,6 +82,11 @@ public class PushToCentral {
    * <p>
    * It won't push a form and form attachments if it's already
    * present in the server.
+   * <p>
+   * Before sending anything, it lists the form versions and submissions
+   * the server already has (see {@link #planPush}), to skip them.
+   * <p>
+   * Submissions and their attachments are uploaded with a {@link PushPipeline}.
    */
   @SuppressWarnings("checkstyle:Indentation")
   public Job<Void> push(FormStatus form) {
@@ -98,37 +112,13 @@ public class PushToCentral {
     FormMetadataPort formMetadataPort = FileSystemFormMetadataAdapter.at(briefcaseDir);
 
     return startTrackingJob
-        .thenSupply(rs -> getMissingFormVersions(form, rs, tracker, formMetadataPort))
-        .thenAccept(((rs, missingFormVersions) -> {
-          String localFormVersion = form.getVersion().orElse("");
-          boolean sendLocal = missingFormVersions.remove(localFormVersion);
-
-          // First send a request to create the form. It doesn't matter what version is sent because it will be replaced
-          // below. Will fail if a published form already exists with this id but then missing versions can still be added.
-          createForm(form.getFormFile(briefcaseDir), rs, tracker);
-
-          // Send all of the obsolete versions first so that we can send corresponding submissions. Skip attachments
-          // because those versions won't be used by clients.
-          missingFormVersions.stream().sorted().forEach(version -> {
-            pushFormDraft(form.getFormFile(briefcaseDir), form.getFormId(), version, rs, tracker);
-            publishDraft(form.getFormId(), version, rs, tracker);
-          });
-
-          if (sendLocal) {
-            boolean formSent = pushFormDraft(formFile, form.getFormId(), localFormVersion, rs, tracker);
-            if (formSent) {
-              List<Path> formAttachments = getFormAttachments(form);
-              AtomicInteger attachmentSeq = new AtomicInteger(1);
-              int totalAttachments = formAttachments.size();
-              formAttachments.forEach(attachment ->
-                  pushFormAttachment(form.getFormId(), attachment, rs, tracker, attachmentSeq.getAndIncrement(), totalAttachments)
-              );
-              publishDraft(form.getFormId(), localFormVersion, rs, tracker);
-            }
-          }
+        .thenSupply(rs -> planPush(form, rs, tracker, formMetadataPort))
+        .thenApply(((rs, plan) -> {
+          pushFormVersions(form, plan, rs, tracker);
+          return plan;
         }))
-        .thenSupply(__ -> getSubmissions(form))
-        .thenAccept((rs, submissions) -> {
+        .thenAccept((rs, plan) -> {
+          List<Path> submissions = getSubmissions(form);
           AtomicInteger submissionNumber = new AtomicInteger(1);
           int totalSubmissions = submissions.size();
           if (submissions.isEmpty())
@@ -138,58 +128,219 @@ public class PushToCentral {
           // Briefcase folder or were imported in <=v1.17 when submission versions weren't saved.
           Set<String> seenVersions = new HashSet<>();
 
-          submissions.parallelStream()
-              .map(submission -> {
-                XmlElement root = XmlElement.from(new String(readAllBytes(submission)));
-                SubmissionMetaData metaData = new SubmissionMetaData(root);
-                metaData.getVersion().ifPresent(seenVersions::add);
-                return Triple.of(submission, submissionNumber.getAndIncrement(), metaData.getInstanceId());
-              })
-              .peek(triple -> {
-                if (!triple.get3().isPresent())
-                  tracker.trackNoInstanceId(triple.get2(), totalSubmissions);
-              })
-              .filter(triple -> triple.get3().isPresent())
-              .forEach(triple -> {
-                Path submission = triple.get1();
-                int currentSubmissionNumber = triple.get2();
-                String instanceId = triple.get3().get();
-                boolean submissionSent = pushSubmission(form.getFormId(), submission, rs, tracker, currentSubmissionNumber, totalSubmissions);
-                if (submissionSent) {
+          // Submissions are read here, and their uploads run on the pipeline's threads
+          try (PushPipeline pipeline = PushPipeline.of(server.getBaseUrl(), http.getConcurrencyStats(server.getBaseUrl()).getMaxLimit())) {
+            submissions.stream()
+                .map(submission -> {
+                  SubmissionMetaData metaData = SubmissionMetaData.readFrom(submission);
+                  metaData.getVersion().ifPresent(seenVersions::add);
+                  return Triple.of(submission, submissionNumber.getAndIncrement(), metaData.getInstanceId());
+                })
+                .peek(triple -> {
+                  if (!triple.get3().isPresent())
+                    tracker.trackNoInstanceId(triple.get2(), totalSubmissions);
+                })
+                .filter(triple -> triple.get3().isPresent())
+                .forEach(triple -> {
+                  Path submission = triple.get1();
+                  int currentSubmissionNumber = triple.get2();
+                  String instanceId = triple.get3().get();
                   List<Path> submissionAttachments = getSubmissionAttachments(submission);
-                  AtomicInteger attachmentSeq = new AtomicInteger(1);
-                  int totalAttachments = submissionAttachments.size();
-                  submissionAttachments.parallelStream().forEach(attachment ->
-                      pushSubmissionAttachment(form.getFormId(), instanceId, attachment, rs, tracker, currentSubmissionNumber, totalSubmissions, attachmentSeq.getAndIncrement(), totalAttachments)
+                  if (plan.isSubmissionComplete(instanceId, submissionAttachments.size())) {
+                    tracker.trackSubmissionAlreadyExists(currentSubmissionNumber, totalSubmissions);
+                    return;
+                  }
+                  // Submissions in the server might still miss some attachments, which we send again
+                  boolean submissionPresent = plan.isSubmissionPresent(instanceId);
+                  if (submissionPresent)
+                    tracker.trackSubmissionAlreadyExists(currentSubmissionNumber, totalSubmissions);
+                  pipeline.submit(
+                      () -> submissionPresent || pushSubmission(form.getFormId(), submission, rs, tracker, currentSubmissionNumber, totalSubmissions),
+                      () -> {
+                        AtomicInteger attachmentSeq = new AtomicInteger(1);
+                        int totalAttachments = submissionAttachments.size();
+                        return submissionAttachments.stream().<Runnable>map(attachment -> () ->
+                            pushSubmissionAttachment(form.getFormId(), instanceId, attachment, rs, tracker, currentSubmissionNumber, totalSubmissions, attachmentSeq.getAndIncrement(), totalAttachments)
+                        ).collect(toList());
+                      }
                   );
-                }
-              });
+                });
+            pipeline.awaitAll();
+          }
           formMetadataPort.execute(updateSubmissionVersions(FormKey.from(form), briefcaseDir, form.getFormDir(briefcaseDir), seenVersions));
+          tracker.trackTraffic(http.getConcurrencyStats(server.getBaseUrl()));
           tracker.trackEnd();
         })
         .thenRun(rs -> EventBus.publish(new PushEvent.Success(form)));
   }
 
+  /**
+   * Sends the form versions missing in the server, sending the form
+   * attachments only with the local version of the form.
+   */
+  private void pushFormVersions(FormStatus form, CentralPushPlan plan, RunnerStatus rs, PushToCentralTracker tracker) {
+    Path formFile = form.getFormFile(briefcaseDir);
+    Set<String> missingFormVersions = plan.getMissingFormVersions();
+    String localFormVersion = form.getVersion().orElse("");
+    boolean sendLocal = missingFormVersions.remove(localFormVersion);
+
+    // First send a request to create the form. It doesn't matter what version is sent because it will be replaced
+    // below. Will fail if a published form already exists with this id but then missing versions can still be added.
+    createForm(formFile, rs, tracker);
+
+    // Send all of the obsolete versions first so that we can send corresponding submissions. Skip attachments
+    // because those versions won't be used by clients.
+    missingFormVersions.stream().sorted().forEach(version -> {
+      pushFormDraft(formFile, form.getFormId(), version, rs, tracker);
+      publishDraft(form.getFormId(), version, rs, tracker);
+    });
+
+    if (sendLocal) {
+      boolean formSent = pushFormDraft(formFile, form.getFormId(), localFormVersion, rs, tracker);
+      if (formSent) {
+        List<Path> formAttachments = getFormAttachments(form);
+        AtomicInteger attachmentSeq = new AtomicInteger(1);
+        int totalAttachments = formAttachments.size();
+        formAttachments.forEach(attachment ->
+            pushFormAttachment(form.getFormId(), attachment, rs, tracker, attachmentSeq.getAndIncrement(), totalAttachments)
+        );
+        publishDraft(form.getFormId(), localFormVersion, rs, tracker);
+      }
+    }
+  }
+
+  /**
+   * Returns a {@link SubmissionForwarder} that will push the given form
+   * and its submissions like {@link #push(FormStatus)} does, one by one.
+   * <p>
+   * The attachments of each submission are sent after it, in sequence.
+   */
+  public SubmissionForwarder forwarder(FormStatus form) {
+    return new Forwarder(form);
+  }
+
+  private class Forwarder implements SubmissionForwarder {
+    private final FormStatus form;
+    private final PushToCentralTracker tracker;
+    private final FormMetadataPort formMetadataPort = FileSystemFormMetadataAdapter.at(briefcaseDir);
+    private final Set<String> seenVersions = ConcurrentHashMap.newKeySet();
+    private volatile CentralPushPlan plan = CentralPushPlan.empty();
+
+    Forwarder(FormStatus form) {
+      this.form = form;
+      this.tracker = new PushToCentralTracker(form, onEventCallback);
+    }
+
+    @Override
+    public boolean pushForm(RunnerStatus runnerStatus) {
+      tracker.trackStart();
+      try {
+        if (FormDefinition.from(form.getFormFile(briefcaseDir)).isFileEncryptedForm()) {
+          tracker.trackEncryptedForm();
+          return false;
+        }
+      } catch (RuntimeException e) {
+        tracker.trackCannotDetermineEncryption(e);
+        return false;
+      }
+      plan = planPush(form, runnerStatus, tracker, formMetadataPort);
+      pushFormVersions(form, plan, runnerStatus, tracker);
+      return true;
+    }
+
+    @Override
+    public boolean pushSubmission(Path submissionFile, RunnerStatus runnerStatus, int submissionNumber, int totalSubmissions) {
+      SubmissionMetaData metaData = SubmissionMetaData.readFrom(submissionFile);
+      metaData.getVersion().ifPresent(seenVersions::add);
+      if (!metaData.getInstanceId().isPresent()) {
+        tracker.trackNoInstanceId(submissionNumber, totalSubmissions);
+        return false;
+      }
+      String instanceId = metaData.getInstanceId().get();
+      List<Path> submissionAttachments = getSubmissionAttachments(submissionFile);
+      if (plan.isSubmissionComplete(instanceId, submissionAttachments.size())) {
+        tracker.trackSubmissionAlreadyExists(submissionNumber, totalSubmissions);
+        return true;
+      }
+      boolean submissionSent;
+      if (plan.isSubmissionPresent(instanceId)) {
+        tracker.trackSubmissionAlreadyExists(submissionNumber, totalSubmissions);
+        submissionSent = true;
+      } else {
+        submissionSent = PushToCentral.this.pushSubmission(form.getFormId(), submissionFile, runnerStatus, tracker, submissionNumber, totalSubmissions);
+      }
+      AtomicInteger attachmentSeq = new AtomicInteger(1);
+      int totalAttachments = submissionAttachments.size();
+      return submissionSent && submissionAttachments.stream()
+          .map(attachment -> pushSubmissionAttachment(form.getFormId(), instanceId, attachment, runnerStatus, tracker, submissionNumber, totalSubmissions, attachmentSeq.getAndIncrement(), totalAttachments))
+          .reduce(true, Boolean::logicalAnd);
+    }
+
+    @Override
+    public void finish() {
+      formMetadataPort.execute(updateSubmissionVersions(FormKey.from(form), briefcaseDir, form.getFormDir(briefcaseDir), seenVersions));
+      tracker.trackTraffic(http.getConcurrencyStats(server.getBaseUrl()));
+      tracker.trackEnd();
+    }
+  }
+
   private List<Path> getSubmissionAttachments(Path formFile) {
     Path submissionDir = formFile.getParent();
     return list(submissionDir)
         .filter(p -> !p.getFileName().toString().equals("submission.xml"))
+        .filter(p -> !ResumableDownload.isPartialFile(p))
         .collect(toList());
   }
 
-  Set<String> getMissingFormVersions(FormStatus form, RunnerStatus runnerStatus, PushToCentralTracker tracker, FormMetadataPort formMetadataPort) {
+  /**
+   * Finds out what the server already has, to plan what the push has to send.
+   * <p>
+   * Form versions are checked with a single request that lists them, falling
+   * back to checking them concurrently one by one if that fails. The instance
+   * IDs of the submissions in the server are listed page by page. If the form
+   * doesn't exist in the server, nothing else is requested.
+   */
+  CentralPushPlan planPush(FormStatus form, RunnerStatus runnerStatus, PushToCentralTracker tracker, FormMetadataPort formMetadataPort) {
     if (runnerStatus.isCancelled()) {
       tracker.trackCancellation("Check if all form versions exist in Central");
-      return new HashSet<>();
+      return CentralPushPlan.empty();
     }
 
+    Set<String> knownVersions = getKnownVersions(form, formMetadataPort);
+    Response<Set<String>> response = http.execute(tracker.tracked(server.getFormVersionListRequest(form.getFormId(), token)));
+    if (response.isNotFound())
+      return new CentralPushPlan(knownVersions, emptyMap());
+
+    Set<String> missingFormVersions;
+    if (response.isSuccess()) {
+      Set<String> remoteVersions = response.get();
+      missingFormVersions = new HashSet<>();
+      knownVersions.forEach(version -> {
+        if (remoteVersions.contains(version))
+          tracker.trackFormVersionAlreadyExists(version);
+        else
+          missingFormVersions.add(version);
+      });
+    } else {
+      tracker.trackFallbackToFormVersionChecks(response);
+      missingFormVersions = checkFormVersions(form, knownVersions, tracker);
+    }
+    return new CentralPushPlan(missingFormVersions, getRemoteSubmissions(form, runnerStatus, tracker));
+  }
+
+  private Set<String> getKnownVersions(FormStatus form, FormMetadataPort formMetadataPort) {
     Set<String> knownVersions = formMetadataPort.query(submissionVersionsOf(FormKey.from(form)));
     form.getVersion().ifPresent(knownVersions::add);
+    return knownVersions;
+  }
 
-    Set<String> missingFormVersions = new HashSet<>();
-
-    knownVersions.forEach(v -> {
-      Response<InputStream> response = http.execute(server.getFormVersionExists(form.getFormId(), v, token));
+  /**
+   * Checks if the given form versions exist in the server, sending
+   * all the requests at once, and returns the ones that don't exist.
+   */
+  private Set<String> checkFormVersions(FormStatus form, Set<String> versions, PushToCentralTracker tracker) {
+    Set<String> missingFormVersions = ConcurrentHashMap.newKeySet();
+    Futures.allOf(versions.stream().map(v -> http.executeAsync(tracker.tracked(server.getFormVersionExists(form.getFormId(), v, token))).thenAccept(response -> {
       if (response.isNotFound()) {
         missingFormVersions.add(v);
       } else if (!response.isSuccess()) {
@@ -197,9 +348,33 @@ public class PushToCentral {
       } else {
         tracker.trackFormVersionAlreadyExists(v);
       }
-    });
+    })));
+    return new HashSet<>(missingFormVersions);
+  }
 
-    return missingFormVersions;
+  /**
+   * Lists the submissions of the form in the server, page by page.
+   * <p>
+   * If a page can't be listed, the submissions listed so far are returned.
+   * The server will reject the ones we miss when we send them.
+   */
+  private Map<String, CentralSubmission> getRemoteSubmissions(FormStatus form, RunnerStatus runnerStatus, PushToCentralTracker tracker) {
+    Map<String, CentralSubmission> remoteSubmissions = new HashMap<>();
+    int skip = 0;
+    while (!runnerStatus.isCancelled()) {
+      Response<CentralSubmissionPage> response = http.execute(tracker.tracked(server.getSubmissionPageRequest(form.getFormId(), Optional.empty(), skip, SUBMISSIONS_PAGE_SIZE, token)));
+      if (!response.isSuccess()) {
+        tracker.trackErrorGettingRemoteSubmissions(response);
+        break;
+      }
+      CentralSubmissionPage page = response.get();
+      page.getSubmissions().forEach(submission -> remoteSubmissions.put(submission.getInstanceId(), submission));
+      skip += page.getSubmissions().size();
+      if (page.getSubmissions().size() < SUBMISSIONS_PAGE_SIZE || page.getTotalCount().map(total -> remoteSubmissions.size() >= total).orElse(false))
+        break;
+    }
+    tracker.trackRemoteSubmissions(remoteSubmissions.size());
+    return remoteSubmissions;
   }
 
   void createForm(Path formFile, RunnerStatus runnerStatus, PushToCentralTracker tracker) {
@@ -209,7 +384,7 @@ public class PushToCentral {
     }
 
     tracker.trackCreatingForm();
-    Response response = http.execute(server.getPushFormRequest(formFile, token));
+    Response response = http.execute(tracker.tracked(server.getPushFormRequest(formFile, token)));
 
     if (response.isSuccess()) {
       tracker.trackEndCreatingForm();
@@ -231,7 +406,7 @@ public class PushToCentral {
     }
 
     tracker.trackStartSendingDraft(version);
-    Response response = http.execute(server.getPushFormDraftRequest(formId, formFile, token));
+    Response response = http.execute(tracker.tracked(server.getPushFormDraftRequest(formId, formFile, token)));
 
     if (response.isSuccess()) {
       tracker.trackEndSendingDraft(version);
@@ -254,7 +429,7 @@ public class PushToCentral {
     }
 
     tracker.trackStartSendingFormAttachment(attachmentNumber, totalAttachments);
-    Response response = http.execute(server.getPushFormAttachmentRequest(formId, attachment, token));
+    Response response = http.execute(tracker.tracked(server.getPushFormAttachmentRequest(formId, attachment, token)));
     if (response.isSuccess())
       tracker.trackEndSendingFormAttachment(attachmentNumber, totalAttachments);
     else if (response.getStatusCode() == 409)
@@ -269,7 +444,7 @@ public class PushToCentral {
       return;
     }
 
-    Response response = http.execute(server.getPublishDraftRequest(formId, token, version));
+    Response response = http.execute(tracker.tracked(server.getPublishDraftRequest(formId, token, version)));
     if (response.isSuccess())
       tracker.trackSuccessfulPublish(version);
     else
@@ -283,7 +458,7 @@ public class PushToCentral {
     }
 
     tracker.trackStartSendingSubmission(submissionNumber, totalSubmissions);
-    Response response = http.execute(server.getPushSubmissionRequest(token, formId, submissionFile));
+    Response response = http.execute(tracker.tracked(server.getPushSubmissionRequest(token, formId, submissionFile)));
 
     if (response.isSuccess()) {
       tracker.trackEndSendingSubmission(submissionNumber, totalSubmissions);
@@ -299,20 +474,27 @@ public class PushToCentral {
     return false;
   }
 
-  void pushSubmissionAttachment(String formId, String instanceId, Path attachment, RunnerStatus runnerStatus, PushToCentralTracker tracker, int submissionNumber, int totalSubmissions, int attachmentNumber, int totalAttachments) {
+  boolean pushSubmissionAttachment(String formId, String instanceId, Path attachment, RunnerStatus runnerStatus, PushToCentralTracker tracker, int submissionNumber, int totalSubmissions, int attachmentNumber, int totalAttachments) {
     if (runnerStatus.isCancelled()) {
       tracker.trackCancellation("Sending submission attachment " + attachmentNumber + " of " + totalAttachments + " of submission " + submissionNumber + " of " + totalSubmissions);
-      return;
+      return false;
     }
 
     tracker.trackStartSendingSubmissionAttachment(submissionNumber, totalSubmissions, attachmentNumber, totalAttachments);
-    Response response = http.execute(server.getPushSubmissionAttachmentRequest(token, formId, instanceId, attachment));
-    if (response.isSuccess())
+    Response response = http.execute(tracker.tracked(server.getPushSubmissionAttachmentRequest(token, formId, instanceId, attachment)));
+
+    if (response.isSuccess()) {
       tracker.trackEndSendingSubmissionAttachment(submissionNumber, totalSubmissions, attachmentNumber, totalAttachments);
-    else if (response.getStatusCode() == 409)
+      return true;
+    }
+
+    if (response.getStatusCode() == 409) {
       tracker.trackSubmissionAttachmentAlreadyExists(submissionNumber, totalSubmissions, attachmentNumber, totalAttachments);
-    else
-      tracker.trackErrorSendingSubmissionAttachment(submissionNumber, totalSubmissions, attachmentNumber, totalAttachments, response);
+      return true;
+    }
+
+    tracker.trackErrorSendingSubmissionAttachment(submissionNumber, totalSubmissions, attachmentNumber, totalAttachments, response);
+    return false;
   }
 
   private List<Path> getSubmissions(FormStatus form) {
@@ -20,9 +20,14 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.Optional;
 import java.util.function.Consumer;
 import org.opendatakit.briefcase.model.FormStatus;
 import org.opendatakit.briefcase.model.FormStatusEvent;
+import org.opendatakit.briefcase.reused.http.ConcurrencyStats;
+import org.opendatakit.briefcase.reused.http.Request;
+import org.opendatakit.briefcase.reused.http.TrafficReport;
+import org.opendatakit.briefcase.reused.http.TransferCounter;
 import org.opendatakit.briefcase.reused.http.response.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,6 +36,7 @@ class PushToCentralTracker {
   private static final Logger log = LoggerFactory.getLogger(PushToCentralTracker.class);
   private final FormStatus form;
   private final Consumer<FormStatusEvent> onEventCallback;
+  private final TransferCounter transferCounter = new TransferCounter();
   private boolean errored = false;
 
   PushToCentralTracker(FormStatus form, Consumer<FormStatusEvent> onEventCallback) {
@@ -42,6 +48,18 @@ class PushToCentralTracker {
     onEventCallback.accept(new FormStatusEvent(form));
   }
 
+  /**
+   * Returns a copy of the provided request that will count its
+   * transferred bytes into this push's totals, and take turns with
+   * the requests of other forms sent to the same server.
+   */
+  <T> Request<T> tracked(Request<T> request) {
+    return request.builder()
+        .withTransferCounter(transferCounter)
+        .withSchedulingGroup(form.getFormId())
+        .build();
+  }
+
   // TODO v2.0 Move this factory to the CentralErrorMessage class
   private static String parseErrorResponse(String errorResponse) {
     if (errorResponse.isEmpty())
@@ -101,6 +119,14 @@ class PushToCentralTracker {
     notifyTrackingEvent();
   }
 
+  void trackTraffic(ConcurrencyStats stats) {
+    TrafficReport.describe(stats, Optional.of(transferCounter)).forEach(message -> {
+      form.setStatusString(message);
+      log.info("Push {} - {}", form.getFormName(), message);
+      notifyTrackingEvent();
+    });
+  }
+
   void trackNoSubmissions() {
     String message = "There are no submissions to send";
     form.setStatusString(message);
@@ -150,6 +176,28 @@ class PushToCentralTracker {
     notifyTrackingEvent();
   }
 
+  void trackFallbackToFormVersionChecks(Response response) {
+    String message = "Can't list form versions in Central. Checking them one by one";
+    form.setStatusString(message);
+    log.warn("Push {} - {}: HTTP {} {}", form.getFormName(), message, response.getStatusCode(), response.getStatusPhrase());
+    notifyTrackingEvent();
+  }
+
+  void trackRemoteSubmissions(int count) {
+    String message = count + " submission" + (count == 1 ? "" : "s") + " already in Central";
+    form.setStatusString(message);
+    log.info("Push {} - {}", form.getFormName(), message);
+    notifyTrackingEvent();
+  }
+
+  void trackErrorGettingRemoteSubmissions(Response response) {
+    // Not an error: submissions that already exist will be rejected by the server
+    String message = "Can't list the submissions in Central";
+    form.setStatusString(message + ": " + response.getStatusPhrase());
+    log.warn("Push {} - {}: HTTP {} {}", form.getFormName(), message, response.getStatusCode(), response.getStatusPhrase());
+    notifyTrackingEvent();
+  }
+
   void trackErrorSendingForm(Response response, String version) {
     errored = true;
     String centralErrorMessage = parseErrorResponse(response.getServerErrorResponse());
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.relay;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteRecursive;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.exists;
+
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.opendatakit.briefcase.model.FormStatus;
+import org.opendatakit.briefcase.pull.PulledSubmissionCallback;
+import org.opendatakit.briefcase.push.PushPipeline;
+import org.opendatakit.briefcase.push.SubmissionForwarder;
+import org.opendatakit.briefcase.reused.BriefcaseException;
+import org.opendatakit.briefcase.reused.UncheckedFiles;
+import org.opendatakit.briefcase.reused.job.Job;
+import org.opendatakit.briefcase.reused.job.RunnerStatus;
+
+/**
+ * Relays forms from one server to another, pushing each submission as soon as
+ * a pull has downloaded it together with its attachments, instead of pulling
+ * everything to local storage before pushing it.
+ * <p>
+ * Pulled submissions are pushed with a {@link PushPipeline}, which blocks the
+ * pull while too many submissions are waiting to be pushed. This bounds the
+ * number of submissions buffered in local storage.
+ * <p>
+ * Unless a local copy is requested, pulls leave submissions in a staging
+ * Briefcase Storage directory (see {@link #stagingDir(Path, String, String)}),
+ * and pushed submissions are removed from it. The staging directory keeps
+ * the pull's metadata, which lets the next relay resume from the last pulled
+ * submission, and submissions that couldn't be pushed, which the next relay
+ * pushes before pulling anything else. A {@link RelayLedger} remembers which
+ * staged submissions were pulled completely, which are the only ones pushed,
+ * and which ones were pushed and removed, so that pulls don't get them again.
+ */
+public class Relay {
+  static final String STAGING_DIR_NAME = "relay";
+  private final Path briefcaseDir;
+  private final URL target;
+  private final int maxConnections;
+  private final boolean keepLocalCopy;
+
+  /**
+   * @param briefcaseDir   the Briefcase Storage directory where pulls leave submissions
+   * @param target         the URL of the target server
+   * @param maxConnections the maximum simultaneous HTTP connections with the target server
+   * @param keepLocalCopy  true to keep pushed submissions in the Briefcase Storage directory
+   */
+  public Relay(Path briefcaseDir, URL target, int maxConnections, boolean keepLocalCopy) {
+    this.briefcaseDir = briefcaseDir;
+    this.target = target;
+    this.maxConnections = maxConnections;
+    this.keepLocalCopy = keepLocalCopy;
+  }
+
+  /**
+   * Returns the staging Briefcase Storage directory of relays between the
+   * given servers, under the given Briefcase Storage directory.
+   *
+   * @param source a string identifying the source server, e.g. its URL
+   * @param target a string identifying the target server, e.g. its URL
+   */
+  public static Path stagingDir(Path briefcaseDir, String source, String target) {
+    String key = UUID.nameUUIDFromBytes((source + " " + target).getBytes(UTF_8)).toString();
+    return briefcaseDir.resolve(STAGING_DIR_NAME).resolve(key);
+  }
+
+  /**
+   * Returns a Job that will relay the given form.
+   *
+   * @param pull      builds the Job that pulls the form to this relay's Briefcase
+   *                  Storage directory, calling the given callback with each
+   *                  pulled submission
+   * @param forwarder pushes the form and its submissions to the target server
+   */
+  public Job<Void> relay(FormStatus form, Function<PulledSubmissionCallback, Job<Void>> pull, SubmissionForwarder forwarder) {
+    RelayRun run = new RelayRun(form, forwarder);
+    return Job.run(run::start)
+        .thenRun(pull.apply(run))
+        .thenRun(run::finish);
+  }
+
+  private class RelayRun implements PulledSubmissionCallback {
+    private final FormStatus form;
+    private final SubmissionForwarder forwarder;
+    private final RelayLedger ledger;
+    private volatile RunnerStatus runnerStatus;
+    private volatile PushPipeline pipeline;
+    private boolean formPushed = false;
+    private boolean formRejected = false;
+
+    RelayRun(FormStatus form, SubmissionForwarder forwarder) {
+      this.form = form;
+      this.forwarder = forwarder;
+      this.ledger = RelayLedger.at(form.getFormDir(briefcaseDir));
+    }
+
+    void start(RunnerStatus runnerStatus) {
+      this.runnerStatus = runnerStatus;
+      pipeline = PushPipeline.of(target, maxConnections);
+      // With a local copy, submissions that couldn't be pushed can be sent with a regular push
+      if (keepLocalCopy)
+        return;
+      List<Path> stagedSubmissions = getStagedSubmissions();
+      AtomicInteger submissionNumber = new AtomicInteger(1);
+      int totalSubmissions = stagedSubmissions.size();
+      stagedSubmissions.forEach(submission -> forward(submission, submissionNumber.getAndIncrement(), totalSubmissions));
+    }
+
+    @Override
+    public void accept(Path submissionFile, int submissionNumber, int totalSubmissions) {
+      if (!keepLocalCopy)
+        ledger.putPulled(submissionFile.getParent().getFileName().toString());
+      forward(submissionFile, submissionNumber, totalSubmissions);
+    }
+
+    @Override
+    public boolean isAlreadyPulled(String instanceId) {
+      return !keepLocalCopy && ledger.isPushed(form.getSubmissionDir(briefcaseDir, instanceId).getFileName().toString());
+    }
+
+    private void forward(Path submissionFile, int submissionNumber, int totalSubmissions) {
+      ensureFormPushed();
+      pipeline.submit(() -> {
+        boolean sent = forwarder.pushSubmission(submissionFile, runnerStatus, submissionNumber, totalSubmissions);
+        if (sent && !keepLocalCopy) {
+          deleteRecursive(submissionFile.getParent());
+          ledger.putPushed(submissionFile.getParent().getFileName().toString());
+        }
+        return sent;
+      });
+    }
+
+    void finish(RunnerStatus runnerStatus) {
+      try {
+        pipeline.awaitAll();
+      } finally {
+        pipeline.close();
+      }
+      // The form gets relayed even if it has no new submissions
+      if (exists(form.getFormFile(briefcaseDir)))
+        ensureFormPushed();
+      forwarder.finish();
+    }
+
+    private synchronized void ensureFormPushed() {
+      if (formPushed)
+        return;
+      if (formRejected || !forwarder.pushForm(runnerStatus)) {
+        formRejected = true;
+        throw new BriefcaseException("Can't relay the submissions of form " + form.getFormName());
+      }
+      formPushed = true;
+    }
+
+    /**
+     * Returns the staged submissions that have been pulled completely,
+     * leaving out the ones that a pull couldn't complete.
+     */
+    private List<Path> getStagedSubmissions() {
+      Path submissionsDir = form.getSubmissionsDir(briefcaseDir);
+      if (!exists(submissionsDir) || !exists(form.getFormFile(briefcaseDir)))
+        return emptyList();
+      return ledger.getPulled().stream()
+          .map(instanceDirName -> submissionsDir.resolve(instanceDirName).resolve("submission.xml"))
+          .filter(UncheckedFiles::exists)
+          .collect(toList());
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.opendatakit.briefcase.relay;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createDirectories;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers which submissions of a form a relay has pulled completely and
+ * which ones it has pushed and removed from its staging Briefcase Storage
+ * directory.
+ * <p>
+ * Only submissions recorded as pulled get pushed by later relays, which
+ * leaves out the ones that a pull left incomplete, and pushed submissions
+ * are remembered after removing them, so that pulls don't download them again.
+ * <p>
+ * Submissions are identified by the name of their instance directory. Each
+ * change is appended as a line to a file at the form's directory, which
+ * keeps recording a submission cheap regardless of how many there are.
+ */
+class RelayLedger {
+  private static final Logger log = LoggerFactory.getLogger(RelayLedger.class);
+  static final String FILE_NAME = "relay-ledger.txt";
+  private static final String PULLED = "pulled ";
+  private static final String PUSHED = "pushed ";
+  private final Path file;
+  private final Set<String> pulledSubmissions;
+  private final Set<String> pushedSubmissions;
+
+  private RelayLedger(Path file, Set<String> pulledSubmissions, Set<String> pushedSubmissions) {
+    this.file = file;
+    this.pulledSubmissions = pulledSubmissions;
+    this.pushedSubmissions = pushedSubmissions;
+  }
+
+  /**
+   * Returns a new RelayLedger instance for the form at the given
+   * directory, loading any submission previously recorded.
+   */
+  static RelayLedger at(Path formDir) {
+    Path file = formDir.resolve(FILE_NAME);
+    Set<String> pulledSubmissions = new LinkedHashSet<>();
+    Set<String> pushedSubmissions = new HashSet<>();
+    if (Files.exists(file))
+      try {
+        List<String> lines = Files.readAllLines(file, UTF_8);
+        for (String line : lines)
+          if (line.startsWith(PULLED)) {
+            pulledSubmissions.add(line.substring(PULLED.length()));
+          } else if (line.startsWith(PUSHED)) {
+            pulledSubmissions.remove(line.substring(PUSHED.length()));
+            pushedSubmissions.add(line.substring(PUSHED.length()));
+          }
+      } catch (IOException e) {
+        // The staged submissions will have to be pulled again
+        log.warn("Can't read relay ledger at {}", file, e);
+      }
+    return new RelayLedger(file, pulledSubmissions, pushedSubmissions);
+  }
+
+  /**
+   * Returns the submissions that have been pulled and not pushed yet.
+   */
+  synchronized Set<String> getPulled() {
+    return new LinkedHashSet<>(pulledSubmissions);
+  }
+
+  synchronized boolean isPushed(String instanceDirName) {
+    return pushedSubmissions.contains(instanceDirName);
+  }
+
+  synchronized void putPulled(String instanceDirName) {
+    if (pulledSubmissions.add(instanceDirName))
+      append(PULLED + instanceDirName);
+  }
+
+  synchronized void putPushed(String instanceDirName) {
+    pulledSubmissions.remove(instanceDirName);
+    if (pushedSubmissions.add(instanceDirName))
+      append(PUSHED + instanceDirName);
+  }
+
+  private void append(String line) {
+    try {
+      createDirectories(file.getParent());
+      Files.write(file, (line + "\n").getBytes(UTF_8), CREATE, APPEND);
+    } catch (IOException | UncheckedIOException e) {
+      log.warn("Can't write relay ledger at {}", file, e);
+    }
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createDirectories;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.getMd5Hash;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.write;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers the MD5 hashes of the files under a directory, together with
+ * the size and last modification time they had when they were hashed.
+ * <p>
+ * A cached hash is used for as long as the file's size and last modification
+ * time don't change, which lets us avoid reading big files over and over again
+ * just to know if they have changed.
+ * <p>
+ * Hashes are persisted in a JSON sidecar file at the root of the directory.
+ * Several instances can share the same sidecar file, since saving only
+ * adds the hashes each instance has changed to what is already stored.
+ */
+public class FileHashCache {
+  private static final Logger log = LoggerFactory.getLogger(FileHashCache.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final Object SAVE_LOCK = new Object();
+  static final String FILE_NAME = "file-hashes.json";
+  private final Path baseDir;
+  private final Map<String, Entry> entries;
+  private final Set<String> changedKeys = ConcurrentHashMap.newKeySet();
+
+  private FileHashCache(Path baseDir, Map<String, Entry> entries) {
+    this.baseDir = baseDir;
+    this.entries = entries;
+  }
+
+  /**
+   * Returns a new FileHashCache instance for the files under the given directory,
+   * loading any hash previously saved to its sidecar file.
+   */
+  public static FileHashCache at(Path baseDir) {
+    return new FileHashCache(baseDir, read(baseDir.resolve(FILE_NAME)));
+  }
+
+  private static Map<String, Entry> read(Path file) {
+    Map<String, Entry> entries = new ConcurrentHashMap<>();
+    if (Files.exists(file))
+      try {
+        MAPPER.readTree(file.toFile()).fields().forEachRemaining(field -> entries.put(field.getKey(), Entry.from(field.getValue())));
+      } catch (IOException | RuntimeException e) {
+        // A broken sidecar file only means that we will have to hash files again
+        log.warn("Can't read file hashes at {}", file, e);
+        entries.clear();
+      }
+    return entries;
+  }
+
+  /**
+   * Returns the hexadecimal MD5 hash of the given file, which will be
+   * read only if we don't have a valid cached hash for it.
+   */
+  public String md5(Path file) {
+    String key = keyOf(file);
+    long size = UncheckedFiles.size(file);
+    long lastModified = lastModifiedOf(file);
+    Entry entry = entries.get(key);
+    if (entry != null && entry.size == size && entry.lastModified == lastModified)
+      return entry.hash;
+    String hash = computeMd5(file);
+    entries.put(key, new Entry(size, lastModified, hash));
+    changedKeys.add(key);
+    return hash;
+  }
+
+  /**
+   * Returns true when the given file exists and its MD5 hash
+   * matches the provided hexadecimal hash, ignoring its case.
+   */
+  public boolean matches(Path file, String expectedHash) {
+    return Files.exists(file) && md5(file).equalsIgnoreCase(expectedHash);
+  }
+
+  /**
+   * Remembers the given hash of a file we already know, like when
+   * the server has told us the hash of a file we have just downloaded.
+   */
+  public void put(Path file, String hash) {
+    if (!Files.exists(file))
+      return;
+    String key = keyOf(file);
+    entries.put(key, new Entry(UncheckedFiles.size(file), lastModifiedOf(file), hash.toLowerCase()));
+    changedKeys.add(key);
+  }
+
+  /**
+   * Returns the hash we have for the given file, as long as
+   * it hasn't changed since we hashed it.
+   */
+  public Optional<String> get(Path file) {
+    if (!Files.exists(file))
+      return Optional.empty();
+    Entry entry = entries.get(keyOf(file));
+    return Optional.ofNullable(entry)
+        .filter(e -> e.size == UncheckedFiles.size(file) && e.lastModified == lastModifiedOf(file))
+        .map(e -> e.hash);
+  }
+
+  /**
+   * Writes the hashes that have changed since the last save to the sidecar
+   * file, keeping the ones other instances have saved in the meantime.
+   */
+  public void save() {
+    synchronized (SAVE_LOCK) {
+      if (changedKeys.isEmpty())
+        return;
+      Path file = baseDir.resolve(FILE_NAME);
+      Set<String> savedKeys = new HashSet<>(changedKeys);
+      Map<String, Entry> merged = read(file);
+      savedKeys.forEach(key -> merged.put(key, entries.get(key)));
+      ObjectNode root = MAPPER.createObjectNode();
+      merged.forEach((key, entry) -> root.set(key, entry.asJson(MAPPER)));
+      try {
+        createDirectories(baseDir);
+        write(file, MAPPER.writeValueAsString(root), CREATE, TRUNCATE_EXISTING);
+        changedKeys.removeAll(savedKeys);
+        merged.forEach((key, entry) -> {
+          if (!changedKeys.contains(key))
+            entries.put(key, entry);
+        });
+      } catch (IOException | UncheckedIOException e) {
+        log.warn("Can't save file hashes at {}", baseDir, e);
+      }
+    }
+  }
+
+  private String keyOf(Path file) {
+    Path relativePath = file.isAbsolute() && baseDir.isAbsolute() ? baseDir.relativize(file) : file;
+    return relativePath.toString().replace("\\", "/");
+  }
+
+  private static long lastModifiedOf(Path file) {
+    try {
+      return Files.getLastModifiedTime(file).toMillis();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns the hexadecimal MD5 hash of the given file, reading it.
+   */
+  public static String computeMd5(Path file) {
+    return getMd5Hash(file)
+        .orElseThrow(() -> new BriefcaseException("Can't compute the MD5 hash of " + file));
+  }
+
+  private static class Entry {
+    private final long size;
+    private final long lastModified;
+    private final String hash;
+
+    Entry(long size, long lastModified, String hash) {
+      this.size = size;
+      this.lastModified = lastModified;
+      this.hash = hash;
+    }
+
+    static Entry from(JsonNode root) {
+      return new Entry(
+          root.get("size").asLong(),
+          root.get("lastModified").asLong(),
+          root.get("md5").asText()
+      );
+    }
+
+    ObjectNode asJson(ObjectMapper mapper) {
+      ObjectNode root = mapper.createObjectNode();
+      root.put("size", size);
+      root.put("lastModified", lastModified);
+      root.put("md5", hash);
+      return root;
+    }
+  }
+}
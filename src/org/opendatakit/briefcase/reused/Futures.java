@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+/**
+ * This class holds helper methods to work with {@link CompletableFuture} instances.
+ */
+public class Futures {
+
+  /**
+   * Blocks the current thread until all the provided futures are completed.
+   * <p>
+   * If any of them completes exceptionally, the original exception is thrown,
+   * instead of the {@link CompletionException} that would wrap it.
+   */
+  public static void allOf(Stream<? extends CompletableFuture<?>> futures) {
+    List<CompletableFuture<?>> futureList = futures.collect(toList());
+    join(CompletableFuture.allOf(futureList.toArray(new CompletableFuture<?>[0])));
+  }
+
+  /**
+   * Blocks the current thread until the provided future is completed
+   * and returns its value.
+   * <p>
+   * If it completes exceptionally, the original exception is thrown,
+   * instead of the {@link CompletionException} that would wrap it.
+   */
+  public static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw e;
+    }
+  }
+}
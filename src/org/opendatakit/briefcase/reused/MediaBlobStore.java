@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createDirectories;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteIfExists;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the media files of forms by their MD5 hash under the Briefcase
+ * Storage directory, so that forms sharing the same media files don't have
+ * to download and store them more than once.
+ * <p>
+ * Each file in a form's media directory is a hard link to a stored blob.
+ * When the filesystem doesn't support hard links, files are copied instead,
+ * which still saves the downloads, but not the disk space.
+ * <p>
+ * Briefcase never writes into existing media files: new versions are
+ * downloaded into a partial file that then replaces the link, which
+ * leaves the blob and the other forms' media files untouched.
+ * <p>
+ * Blobs are checked against their hash before being used, which is cheap
+ * thanks to a {@link FileHashCache} at the root of the store, and a blob
+ * that has been modified through one of its links, e.g. by editing a media
+ * file by hand, is discarded.
+ */
+public class MediaBlobStore {
+  private static final Logger log = LoggerFactory.getLogger(MediaBlobStore.class);
+  static final String DIR_NAME = "media-blobs";
+  private final Path storeDir;
+  private final FileHashCache hashes;
+
+  private MediaBlobStore(Path storeDir, FileHashCache hashes) {
+    this.storeDir = storeDir;
+    this.hashes = hashes;
+  }
+
+  /**
+   * Returns a new MediaBlobStore instance with the blobs stored
+   * under the given Briefcase Storage directory.
+   */
+  public static MediaBlobStore at(Path briefcaseDir) {
+    Path storeDir = briefcaseDir.resolve(DIR_NAME);
+    return new MediaBlobStore(storeDir, FileHashCache.at(storeDir));
+  }
+
+  Path getBlob(String md5) {
+    String key = md5.toLowerCase();
+    return storeDir.resolve(key.substring(0, 2)).resolve(key);
+  }
+
+  /**
+   * Returns true if there's a blob with the given hexadecimal MD5 hash.
+   */
+  public boolean has(String md5) {
+    Path blob = getBlob(md5);
+    if (!Files.exists(blob))
+      return false;
+    if (hashes.matches(blob, md5))
+      return true;
+    log.warn("Discarding modified media blob {}", blob);
+    deleteIfExists(blob);
+    return false;
+  }
+
+  /**
+   * Makes the given target file a link to the blob with the given
+   * hexadecimal MD5 hash, replacing any file already at the target.
+   *
+   * @return false if there's no blob with that hash
+   */
+  public boolean linkTo(String md5, Path target) {
+    if (!has(md5))
+      return false;
+    createDirectories(target.getParent());
+    link(getBlob(md5), target);
+    return true;
+  }
+
+  /**
+   * Adds the given file to the store and makes it a link to the stored blob.
+   * If there's a blob with the same contents already, the file is replaced
+   * with a link to it.
+   *
+   * @return the hexadecimal MD5 hash of the file
+   */
+  public String store(Path file) {
+    String md5 = FileHashCache.computeMd5(file);
+    Path blob = getBlob(md5);
+    synchronized (this) {
+      if (has(md5)) {
+        link(blob, file);
+      } else {
+        createDirectories(blob.getParent());
+        link(file, blob);
+        hashes.put(blob, md5);
+      }
+    }
+    return md5;
+  }
+
+  /**
+   * Writes the hashes of the stored blobs to disk.
+   */
+  public void save() {
+    hashes.save();
+  }
+
+  private static void link(Path existing, Path target) {
+    // Link to a temp file first to replace the target in a single move
+    Path tempLink = target.resolveSibling(target.getFileName() + ".blob-link");
+    try {
+      if (Files.exists(target) && Files.isSameFile(existing, target))
+        return;
+      deleteIfExists(tempLink);
+      try {
+        Files.createLink(tempLink, existing);
+      } catch (UnsupportedOperationException | IOException e) {
+        Files.copy(existing, tempLink, REPLACE_EXISTING);
+      }
+      Files.move(tempLink, target, REPLACE_EXISTING);
+    } catch (IOException e) {
+      deleteIfExists(tempLink);
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -102,6 +102,22 @@ public class UncheckedFiles {
     }
   }
 
+  public static boolean deleteIfExists(Path path) {
+    try {
+      return Files.deleteIfExists(path);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public static Path move(Path source, Path target, CopyOption... options) {
+    try {
+      return Files.move(source, target, options);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
   public static Path copy(Path source, Path target, CopyOption... options) {
     try {
       return Files.copy(source, target, options);
@@ -160,45 +176,19 @@ public class UncheckedFiles {
   }
 
   public static Optional<String> getMd5Hash(Path file) {
-    try {
-      // CTS (6/15/2010) : stream file through digest instead of handing
-      // it the
-      // byte[]
+    // Stream the file through the digest, whatever its size
+    try (InputStream is = Files.newInputStream(file)) {
       MessageDigest md = MessageDigest.getInstance("MD5");
-      int chunkSize = 256;
-
-      byte[] chunk = new byte[chunkSize];
-
-      // Get the size of the file
-      long lLength = Files.size(file);
-
-      if (lLength > Integer.MAX_VALUE) {
-        log.error("File is too large");
-        return Optional.empty();
-      }
-
-      int length = (int) lLength;
-
-      InputStream is = Files.newInputStream(file);
-
-      int l = 0;
-      for (l = 0; l + chunkSize < length; l += chunkSize) {
-        is.read(chunk, 0, chunkSize);
-        md.update(chunk, 0, chunkSize);
-      }
-
-      int remaining = length - l;
-      if (remaining > 0) {
-        is.read(chunk, 0, remaining);
-        md.update(chunk, 0, remaining);
-      }
+      byte[] chunk = new byte[64 * 1024];
+      int read;
+      while ((read = is.read(chunk)) != -1)
+        md.update(chunk, 0, read);
       byte[] messageDigest = md.digest();
 
       BigInteger number = new BigInteger(1, messageDigest);
       String md5 = number.toString(16);
       while (md5.length() < 32)
         md5 = "0" + md5;
-      is.close();
       return Optional.of(md5);
 
     } catch (NoSuchAlgorithmException e) {
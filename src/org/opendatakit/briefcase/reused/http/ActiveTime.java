@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.opendatakit.briefcase.reused.http;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds up the time during which bytes are being transferred, leaving out
+ * the idle periods between transfers.
+ * <p>
+ * Activity recorded less than a second after the previous one extends the
+ * current period, and anything later starts a new one. Average rates computed
+ * over this time stay meaningful long after the transfers have finished.
+ */
+class ActiveTime {
+  private static final long MAX_GAP_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private long closedNanos = 0;
+  private long periodStartNanos = -1;
+  private long periodEndNanos = -1;
+
+  /**
+   * Records that bytes are being transferred from the given moment until the other.
+   */
+  synchronized void record(long fromNanos, long untilNanos) {
+    if (periodStartNanos == -1) {
+      periodStartNanos = fromNanos;
+      periodEndNanos = untilNanos;
+    } else if (fromNanos - periodEndNanos > MAX_GAP_NANOS) {
+      closedNanos += periodEndNanos - periodStartNanos;
+      periodStartNanos = fromNanos;
+      periodEndNanos = untilNanos;
+    } else
+      periodEndNanos = Math.max(periodEndNanos, untilNanos);
+  }
+
+  synchronized long getNanos() {
+    return periodStartNanos == -1 ? 0 : closedNanos + periodEndNanos - periodStartNanos;
+  }
+
+  /**
+   * Returns the average bytes per second of the given bytes over the active time.
+   */
+  double rateOf(long bytes) {
+    long nanos = getNanos();
+    return nanos <= 0 ? 0 : (double) bytes * TimeUnit.SECONDS.toNanos(1) / nanos;
+  }
+}
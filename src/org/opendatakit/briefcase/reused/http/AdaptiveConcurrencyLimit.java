@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused.http;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the number of simultaneous requests sent to a host, adapting
+ * the limit to how well the host is coping with them (AIMD).
+ * <p>
+ * The limit grows by one after a full window of healthy responses, and it's
+ * cut down when the host shows signs of overload:
+ * <ul>
+ * <li>Halved when the host responds with a 429 or 5xx status code, or when
+ * we get an error before getting a response (e.g. timeouts).</li>
+ * <li>Reduced by 10% when the recent time to get a response grows well
+ * above its long term average.</li>
+ * </ul>
+ * The limit is never decreased more than once per round-trip, to avoid
+ * overreacting to a burst of in-flight requests failing at once.
+ * <p>
+ * Requests waiting for a slot are let through in turns by scheduling group
+ * (e.g. by form), so that all the groups sharing the host make progress.
+ * Each waiting request has its own condition, and only the request that is
+ * next in line gets woken up when a slot could be available.
+ * <p>
+ * Background requests wait in a separate line that only moves when no other
+ * request is waiting, and they never take the last available slot.
+ */
+class AdaptiveConcurrencyLimit {
+  private static final double BACKOFF_RATIO = 0.5;
+  private static final double LATENCY_BACKOFF_RATIO = 0.9;
+  private static final double LATENCY_TOLERANCE = 2;
+  private static final double SHORT_LATENCY_SMOOTHING = 0.2;
+  private static final double LONG_LATENCY_SMOOTHING = 0.01;
+  private static final long THROUGHPUT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+  static final String DEFAULT_GROUP = "";
+  private final String host;
+  private final int maxLimit;
+  private final LongSupplier nanoClock;
+  private final Deque<Long> completions = new ArrayDeque<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  // Groups take turns in the iteration order of this map,
+  // moving to its end each time one of their requests is let through
+  private final Map<String, Deque<Condition>> waitingByGroup = new LinkedHashMap<>();
+  private final Map<String, Deque<Condition>> backgroundWaitingByGroup = new LinkedHashMap<>();
+  private double limit;
+  private int inFlight = 0;
+  private long completedRequests = 0;
+  private int healthyResponses = 0;
+  private double shortLatencyNanos = 0;
+  private double longLatencyNanos = 0;
+  private long lastDecreaseNanos;
+  private int retries = 0;
+  private int timeouts = 0;
+
+  AdaptiveConcurrencyLimit(String host, int maxLimit, LongSupplier nanoClock) {
+    this.host = host;
+    this.maxLimit = maxLimit;
+    this.nanoClock = nanoClock;
+    this.limit = maxLimit;
+    this.lastDecreaseNanos = nanoClock.getAsLong();
+  }
+
+  static AdaptiveConcurrencyLimit of(String host, int maxLimit) {
+    return new AdaptiveConcurrencyLimit(host, maxLimit, System::nanoTime);
+  }
+
+  /**
+   * Blocks the current thread until a new request can be sent to the host.
+   */
+  void acquire() throws InterruptedException {
+    acquire(DEFAULT_GROUP);
+  }
+
+  /**
+   * Blocks the current thread until a new request of the provided scheduling
+   * group can be sent to the host.
+   * <p>
+   * When requests of more than one group are waiting, groups take turns
+   * (round robin), regardless of how many requests each one has queued.
+   */
+  void acquire(String group) throws InterruptedException {
+    acquire(group, false);
+  }
+
+  /**
+   * Blocks the current thread until a new request of the provided scheduling
+   * group can be sent to the host, giving way to any other request if it's
+   * a background request.
+   */
+  void acquire(String group, boolean background) throws InterruptedException {
+    lock.lock();
+    try {
+      Map<String, Deque<Condition>> line = background ? backgroundWaitingByGroup : waitingByGroup;
+      Condition ticket = lock.newCondition();
+      line.computeIfAbsent(group, __ -> new ArrayDeque<>()).addLast(ticket);
+      try {
+        while (!canGo(ticket, background))
+          ticket.await();
+      } catch (InterruptedException e) {
+        leaveLine(line, group, ticket);
+        signalNextInLine();
+        throw e;
+      }
+      leaveLine(line, group, ticket);
+      inFlight++;
+      // The next request in line could fit as well
+      signalNextInLine();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Releases the slot taken by a request that has received a response.
+   *
+   * @param statusCode   the status code of the response
+   * @param latencyNanos the time it took to get the response, without reading its body
+   */
+  void release(int statusCode, long latencyNanos) {
+    lock.lock();
+    try {
+      long now = nanoClock.getAsLong();
+      trackCompletion(now);
+      if (statusCode == 429 || statusCode >= 500) {
+        decrease(now, BACKOFF_RATIO);
+      } else {
+        shortLatencyNanos = smooth(shortLatencyNanos, latencyNanos, SHORT_LATENCY_SMOOTHING);
+        longLatencyNanos = smooth(longLatencyNanos, latencyNanos, LONG_LATENCY_SMOOTHING);
+        if (shortLatencyNanos > longLatencyNanos * LATENCY_TOLERANCE)
+          decrease(now, LATENCY_BACKOFF_RATIO);
+        else
+          increase();
+      }
+      inFlight--;
+      signalNextInLine();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Releases the slot taken by a request that has failed without getting a response.
+   */
+  void releaseWithError() {
+    lock.lock();
+    try {
+      long now = nanoClock.getAsLong();
+      trackCompletion(now);
+      decrease(now, BACKOFF_RATIO);
+      inFlight--;
+      signalNextInLine();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int getWaiting() {
+    lock.lock();
+    try {
+      return waitingByGroup.values().stream().mapToInt(Deque::size).sum()
+          + backgroundWaitingByGroup.values().stream().mapToInt(Deque::size).sum();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void trackRetry() {
+    lock.lock();
+    try {
+      retries++;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void trackTimeout() {
+    lock.lock();
+    try {
+      timeouts++;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  ConcurrencyStats getStats() {
+    lock.lock();
+    try {
+      long now = nanoClock.getAsLong();
+      discardOldCompletions(now);
+      double windowSeconds = (double) THROUGHPUT_WINDOW_NANOS / TimeUnit.SECONDS.toNanos(1);
+      return new ConcurrencyStats(host, getLimit(), maxLimit, inFlight, completions.size() / windowSeconds, completedRequests, retries, timeouts);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Wakes up the request that would go next, if any. Waking up the rest
+   * is pointless, since they can't go before it.
+   */
+  private void signalNextInLine() {
+    Map<String, Deque<Condition>> line = waitingByGroup.isEmpty() ? backgroundWaitingByGroup : waitingByGroup;
+    if (!line.isEmpty())
+      line.values().iterator().next().peekFirst().signal();
+  }
+
+  private boolean canGo(Condition ticket, boolean background) {
+    if (!background)
+      return inFlight < getLimit() && isNextInLine(waitingByGroup, ticket);
+    return waitingByGroup.isEmpty()
+        && inFlight < Math.max(1, getLimit() - 1)
+        && isNextInLine(backgroundWaitingByGroup, ticket);
+  }
+
+  private static boolean isNextInLine(Map<String, Deque<Condition>> line, Condition ticket) {
+    return line.values().iterator().next().peekFirst() == ticket;
+  }
+
+  private static void leaveLine(Map<String, Deque<Condition>> line, String group, Condition ticket) {
+    Deque<Condition> tickets = line.remove(group);
+    tickets.remove(ticket);
+    // Back of the line for the rest of the group's requests
+    if (!tickets.isEmpty())
+      line.put(group, tickets);
+  }
+
+  private int getLimit() {
+    return (int) limit;
+  }
+
+  private void increase() {
+    healthyResponses++;
+    if (healthyResponses >= getLimit()) {
+      limit = Math.min(maxLimit, getLimit() + 1);
+      healthyResponses = 0;
+    }
+  }
+
+  private void decrease(long now, double ratio) {
+    healthyResponses = 0;
+    // Responses to requests that were sent before the last decrease
+    // can't tell us anything about the current limit
+    if (now - lastDecreaseNanos < shortLatencyNanos)
+      return;
+    limit = Math.max(Http.MIN_HTTP_CONNECTIONS, Math.floor(limit * ratio));
+    lastDecreaseNanos = now;
+  }
+
+  private static double smooth(double average, long sample, double weight) {
+    return average == 0 ? sample : average * (1 - weight) + sample * weight;
+  }
+
+  private void trackCompletion(long now) {
+    completedRequests++;
+    completions.addLast(now);
+    discardOldCompletions(now);
+  }
+
+  private void discardOldCompletions(long now) {
+    while (!completions.isEmpty() && now - completions.peekFirst() > THROUGHPUT_WINDOW_NANOS)
+      completions.removeFirst();
+  }
+}
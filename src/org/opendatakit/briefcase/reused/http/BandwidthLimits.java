@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused.http;
+
+import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Optional;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.commons.io.output.ProxyOutputStream;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.opendatakit.briefcase.reused.BriefcaseException;
+
+/**
+ * Holds the maximum rates at which an {@link Http} instance will upload
+ * and download bytes, adding up the traffic of all its connections.
+ * <p>
+ * Uploads and downloads have separate budgets, and each one can be unlimited.
+ */
+public class BandwidthLimits {
+  private static final BandwidthLimits UNLIMITED = new BandwidthLimits(Optional.empty(), Optional.empty());
+  private final Optional<TokenBucket> upload;
+  private final Optional<TokenBucket> download;
+
+  private BandwidthLimits(Optional<TokenBucket> upload, Optional<TokenBucket> download) {
+    this.upload = upload;
+    this.download = download;
+  }
+
+  public static BandwidthLimits unlimited() {
+    return UNLIMITED;
+  }
+
+  /**
+   * Returns new limits with the given maximum rates.
+   *
+   * @param maxUploadKbps   the maximum kilobytes per second to upload, or empty for no limit
+   * @param maxDownloadKbps the maximum kilobytes per second to download, or empty for no limit
+   */
+  public static BandwidthLimits of(Optional<Integer> maxUploadKbps, Optional<Integer> maxDownloadKbps) {
+    maxUploadKbps.ifPresent(value -> validate("upload", value));
+    maxDownloadKbps.ifPresent(value -> validate("download", value));
+    return new BandwidthLimits(
+        maxUploadKbps.map(kbps -> TokenBucket.of(kbps * 1024L)),
+        maxDownloadKbps.map(kbps -> TokenBucket.of(kbps * 1024L))
+    );
+  }
+
+  private static void validate(String direction, int kbps) {
+    if (kbps < 1)
+      throw new BriefcaseException("Invalid maximum " + direction + " rate " + kbps + ". Try a value of 1 or more KB/s");
+  }
+
+  public boolean isUnlimited() {
+    return !upload.isPresent() && !download.isPresent();
+  }
+
+  /**
+   * Returns a human readable description of the limits, the transferred bytes,
+   * and their average rates while transferring.
+   */
+  public String describe() {
+    return "upload " + describe(upload) + ", download " + describe(download);
+  }
+
+  private static String describe(Optional<TokenBucket> bucket) {
+    return bucket
+        .map(b -> byteCountToDisplaySize(b.getTotalBytes()) + " at " + byteCountToDisplaySize((long) b.getAverageRate()) + "/s of " + byteCountToDisplaySize(b.getBytesPerSecond()) + "/s")
+        .orElse("unlimited");
+  }
+
+  /**
+   * Returns an entity that will write the contents of the given entity
+   * no faster than the upload limit.
+   */
+  HttpEntity throttleUpload(HttpEntity entity) {
+    return upload.<HttpEntity>map(bucket -> new HttpEntityWrapper(entity) {
+      @Override
+      public void writeTo(OutputStream out) throws IOException {
+        super.writeTo(new ProxyOutputStream(out) {
+          @Override
+          protected void beforeWrite(int n) throws IOException {
+            take(bucket, n);
+          }
+        });
+      }
+    }).orElse(entity);
+  }
+
+  /**
+   * Returns an entity that will read the contents of the given entity
+   * no faster than the download limit.
+   */
+  HttpEntity throttleDownload(HttpEntity entity) {
+    return download.<HttpEntity>map(bucket -> new HttpEntityWrapper(entity) {
+      @Override
+      public InputStream getContent() throws IOException {
+        return new ProxyInputStream(super.getContent()) {
+          @Override
+          protected void afterRead(int n) throws IOException {
+            if (n > 0)
+              take(bucket, n);
+          }
+        };
+      }
+
+      @Override
+      public void writeTo(OutputStream out) throws IOException {
+        try (InputStream in = getContent()) {
+          byte[] buffer = new byte[8192];
+          int n;
+          while ((n = in.read(buffer)) != -1)
+            out.write(buffer, 0, n);
+        }
+      }
+    }).orElse(entity);
+  }
+
+  private static void take(TokenBucket bucket, int bytes) throws InterruptedIOException {
+    try {
+      bucket.acquire(bytes);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+    }
+  }
+}
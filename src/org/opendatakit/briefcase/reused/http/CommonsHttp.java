@@ -16,29 +16,62 @@
 
 package org.opendatakit.briefcase.reused.http;
 
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toList;
 import static org.apache.http.client.config.CookieSpecs.STANDARD;
 import static org.apache.http.client.config.RequestConfig.custom;
 import static org.opendatakit.briefcase.reused.http.RequestMethod.POST;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.apache.commons.io.output.ProxyOutputStream;
+import org.apache.http.ConnectionClosedException;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.entity.DeflateDecompressingEntity;
+import org.apache.http.client.entity.GzipDecompressingEntity;
 import org.apache.http.client.fluent.Executor;
 import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.HttpHostConnectException;
 import org.apache.http.entity.BasicHttpEntity;
 import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.ContentBody;
+import org.apache.http.entity.mime.content.FileBody;
 import org.apache.http.entity.mime.content.InputStreamBody;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.opendatakit.briefcase.reused.BriefcaseException;
+import org.opendatakit.briefcase.reused.Pair;
 import org.opendatakit.briefcase.reused.UncheckedFiles;
 import org.opendatakit.briefcase.reused.http.response.Response;
 import org.slf4j.Logger;
@@ -47,43 +80,104 @@ import org.slf4j.LoggerFactory;
 public class CommonsHttp implements Http {
   private Executor executor;
   private final int maxConnections;
+  private final int timeoutSeconds;
+  private final RetryPolicy retryPolicy;
   private final BasicCookieStore cookieStore;
+  private final ExecutorService ioExecutor;
+  private final Map<String, AdaptiveConcurrencyLimit> concurrencyLimits = new ConcurrentHashMap<>();
+  private volatile Optional<HttpValidatorCache> validatorCache = Optional.empty();
+  private volatile BandwidthLimits bandwidthLimits = BandwidthLimits.unlimited();
   private static final Logger log = LoggerFactory.getLogger(CommonsHttp.class);
 
-  private CommonsHttp(Executor executor, int maxConnections, BasicCookieStore cookieStore) {
+  private CommonsHttp(Executor executor, int maxConnections, int timeoutSeconds, RetryPolicy retryPolicy, BasicCookieStore cookieStore) {
     this.executor = executor;
     this.maxConnections = maxConnections;
+    this.timeoutSeconds = timeoutSeconds;
+    this.retryPolicy = retryPolicy;
     this.cookieStore = cookieStore;
+    this.ioExecutor = buildIoExecutor(maxConnections);
+  }
+
+  /**
+   * Builds the pool of threads that will run async requests. There is a thread
+   * for each allowed connection, so that the concurrency of async requests is
+   * bounded by the HTTP connection pool and not by any other thread pool.
+   */
+  private static ExecutorService buildIoExecutor(int maxConnections) {
+    AtomicInteger threadNumber = new AtomicInteger(1);
+    return Executors.newFixedThreadPool(maxConnections, runnable -> {
+      Thread thread = new Thread(runnable, "briefcase-http-" + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
   }
 
   public static Http of(int maxConnections, HttpHost httpProxy) {
-    if (!Http.isValidHttpConnections(maxConnections))
-      throw new BriefcaseException("Invalid maximum simultaneous HTTP connections " + maxConnections + ". Try a value between " + MIN_HTTP_CONNECTIONS + " and " + MAX_HTTP_CONNECTIONS);
-    BasicCookieStore cookieStore = new BasicCookieStore();
-    return new CommonsHttp(Executor.newInstance(getBaseBuilder(maxConnections, cookieStore).setProxy(httpProxy).build()), maxConnections, cookieStore);
+    return of(maxConnections, DEFAULT_HTTP_TIMEOUT, DEFAULT_HTTP_RETRIES, httpProxy);
   }
 
   public static Http of(int maxConnections) {
-    if (!Http.isValidHttpConnections(maxConnections))
-      throw new BriefcaseException("Invalid maximum simultaneous HTTP connections " + maxConnections + ". Try a value between " + MIN_HTTP_CONNECTIONS + " and " + MAX_HTTP_CONNECTIONS);
+    return of(maxConnections, DEFAULT_HTTP_TIMEOUT, DEFAULT_HTTP_RETRIES);
+  }
+
+  /**
+   * Returns a new Http instance that will use a proxy.
+   *
+   * @param timeoutSeconds the seconds to wait while connecting or waiting for data
+   *                       before giving up with a timeout. Use 0 to wait indefinitely.
+   * @param maxRetries     the maximum number of times a request will be sent again
+   *                       after a transient failure
+   */
+  public static Http of(int maxConnections, int timeoutSeconds, int maxRetries, HttpHost httpProxy) {
+    validate(maxConnections, timeoutSeconds, maxRetries);
     BasicCookieStore cookieStore = new BasicCookieStore();
-    HttpClientBuilder baseBuilder = getBaseBuilder(maxConnections, cookieStore);
+    return new CommonsHttp(Executor.newInstance(getBaseBuilder(maxConnections, timeoutSeconds, cookieStore).setProxy(httpProxy).build()), maxConnections, timeoutSeconds, RetryPolicy.of(maxRetries), cookieStore);
+  }
+
+  /**
+   * Returns a new Http instance.
+   *
+   * @param timeoutSeconds the seconds to wait while connecting or waiting for data
+   *                       before giving up with a timeout. Use 0 to wait indefinitely.
+   * @param maxRetries     the maximum number of times a request will be sent again
+   *                       after a transient failure
+   */
+  public static Http of(int maxConnections, int timeoutSeconds, int maxRetries) {
+    validate(maxConnections, timeoutSeconds, maxRetries);
+    return of(maxConnections, timeoutSeconds, RetryPolicy.of(maxRetries));
+  }
+
+  static Http of(int maxConnections, int timeoutSeconds, RetryPolicy retryPolicy) {
+    BasicCookieStore cookieStore = new BasicCookieStore();
+    HttpClientBuilder baseBuilder = getBaseBuilder(maxConnections, timeoutSeconds, cookieStore);
 
     CloseableHttpClient build = baseBuilder.build();
 
-    return new CommonsHttp(Executor.newInstance(build), maxConnections, cookieStore);
+    return new CommonsHttp(Executor.newInstance(build), maxConnections, timeoutSeconds, retryPolicy, cookieStore);
+  }
+
+  private static void validate(int maxConnections, int timeoutSeconds, int maxRetries) {
+    if (!Http.isValidHttpConnections(maxConnections))
+      throw new BriefcaseException("Invalid maximum simultaneous HTTP connections " + maxConnections + ". Try a value between " + MIN_HTTP_CONNECTIONS + " and " + MAX_HTTP_CONNECTIONS);
+    if (timeoutSeconds < 0)
+      throw new BriefcaseException("Invalid HTTP timeout " + timeoutSeconds + ". Try a value of 0 or more seconds");
+    if (maxRetries < 0)
+      throw new BriefcaseException("Invalid maximum HTTP retries " + maxRetries + ". Try a value of 0 or more");
   }
 
-  private static HttpClientBuilder getBaseBuilder(int maxConnections, BasicCookieStore cookieStore) {
+  private static HttpClientBuilder getBaseBuilder(int maxConnections, int timeoutSeconds, BasicCookieStore cookieStore) {
+    int timeoutMillis = (int) TimeUnit.SECONDS.toMillis(timeoutSeconds);
     return HttpClientBuilder
         .create()
         .setDefaultCookieStore(cookieStore)
         .setMaxConnPerRoute(maxConnections)
         .setMaxConnTotal(maxConnections)
+        // We handle compressed responses ourselves to be able to count their bytes
+        .disableContentCompression()
         .setDefaultRequestConfig(custom()
-            .setConnectionRequestTimeout(0)
-            .setSocketTimeout(0)
-            .setConnectTimeout(0)
+            .setConnectionRequestTimeout(timeoutMillis)
+            .setSocketTimeout(timeoutMillis)
+            .setConnectTimeout(timeoutMillis)
             .setCookieSpec(STANDARD)
             .build());
   }
@@ -100,20 +194,114 @@ public class CommonsHttp implements Http {
     return uncheckedExecute(request, executor);
   }
 
+  @Override
+  public <T> CompletableFuture<Response<T>> executeAsync(Request<T> request) {
+    return supplyAsync(() -> execute(request));
+  }
+
+  @Override
+  public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+    return CompletableFuture.supplyAsync(task, ioExecutor);
+  }
+
+  @Override
+  public ConcurrencyStats getConcurrencyStats(URL url) {
+    return Optional.ofNullable(concurrencyLimits.get(hostOf(url)))
+        .map(AdaptiveConcurrencyLimit::getStats)
+        .orElse(ConcurrencyStats.idle(hostOf(url), maxConnections));
+  }
+
+  @Override
+  public List<ConcurrencyStats> getAllConcurrencyStats() {
+    return concurrencyLimits.values().stream()
+        .map(AdaptiveConcurrencyLimit::getStats)
+        .sorted(comparing(ConcurrencyStats::getHost))
+        .collect(toList());
+  }
+
+  @Override
+  public void setValidatorCache(HttpValidatorCache validatorCache) {
+    this.validatorCache = Optional.of(validatorCache);
+  }
+
+  @Override
+  public void unsetValidatorCache() {
+    this.validatorCache = Optional.empty();
+  }
+
+  @Override
+  public void setBandwidthLimits(BandwidthLimits bandwidthLimits) {
+    this.bandwidthLimits = bandwidthLimits;
+  }
+
+  @Override
+  public BandwidthLimits getBandwidthLimits() {
+    return bandwidthLimits;
+  }
+
   @Override
   public void setProxy(HttpHost proxy) {
-    executor = Executor.newInstance(getBaseBuilder(maxConnections, new BasicCookieStore()).setProxy(proxy).build());
+    executor = Executor.newInstance(getBaseBuilder(maxConnections, timeoutSeconds, new BasicCookieStore()).setProxy(proxy).build());
   }
 
   @Override
   public void unsetProxy() {
-    executor = Executor.newInstance(getBaseBuilder(maxConnections, new BasicCookieStore()).build());
+    executor = Executor.newInstance(getBaseBuilder(maxConnections, timeoutSeconds, new BasicCookieStore()).build());
   }
 
   private <T> Response<T> uncheckedExecute(Request<T> request, Executor executor) {
     if (request.ignoreCookies())
       cookieStore.clear();
 
+    // Set the request's body if it's a POST request. Bodies are buffered, unless
+    // they can be read again from disk, which lets us send them again if we
+    // have to retry the request. Bodies are sent no faster than the upload limit,
+    // and their bytes are counted as they're sent
+    Optional<HttpEntity> body = Optional.empty();
+    BandwidthLimits limits = bandwidthLimits;
+    AdaptiveConcurrencyLimit concurrencyLimit = concurrencyLimits.computeIfAbsent(
+        hostOf(request.getUrl()),
+        host -> AdaptiveConcurrencyLimit.of(host, maxConnections)
+    );
+    try {
+      if (request.getMethod() == POST) {
+        HttpEntity throttledBody = limits.throttleUpload(buildBody(request));
+        body = Optional.of(request.getTransferCounter()
+            .map(counter -> countingWrites(throttledBody, counter::addSentBytes))
+            .orElse(throttledBody));
+      }
+
+      int retry = 0;
+      while (true) {
+        Pair<Response<T>, Optional<Duration>> result;
+        try {
+          result = executeOnce(request, body, executor, concurrencyLimit, limits);
+        } catch (RuntimeException e) {
+          if (isTimeout(e))
+            concurrencyLimit.trackTimeout();
+          if (!isTransient(e) || !retryPolicy.canRetry(request, retry))
+            throw e;
+          waitBeforeRetry(request, concurrencyLimit, retry++, Optional.empty(), e.getMessage());
+          continue;
+        }
+
+        Response<T> response = result.getLeft();
+        // The partial file of an interrupted download is no longer valid
+        // if the server can't send its missing bytes. Start over.
+        if (response.getStatusCode() == 416 && request.getDownload().map(ResumableDownload::discard).orElse(false))
+          continue;
+        if (!RetryPolicy.isTransient(response.getStatusCode()) || !retryPolicy.canRetry(request, retry))
+          return response;
+        waitBeforeRetry(request, concurrencyLimit, retry++, result.getRight(), "HTTP " + response.getStatusCode() + " " + response.getStatusPhrase());
+      }
+    } finally {
+      request.ifBody(UncheckedFiles::closeInputStream);
+      if (request.multipartMessages != null)
+        request.multipartMessages.forEach(MultipartMessage::closeBody);
+    }
+  }
+
+  private <T> Pair<Response<T>, Optional<Duration>> executeOnce(Request<T> request, Optional<HttpEntity> body, Executor executor, AdaptiveConcurrencyLimit concurrencyLimit, BandwidthLimits limits) {
     // Get an Apache Commons HTTPClient request and set some reasonable timeouts
     org.apache.http.client.fluent.Request commonsRequest = getCommonsRequest(request);
 
@@ -123,28 +311,50 @@ public class CommonsHttp implements Http {
       commonsRequest.addHeader("X-OpenRosa-Version", "1.0");
     }
     request.headers.forEach(commonsRequest::addHeader);
+    request.getDownload()
+        .map(ResumableDownload::getResumeHeaders)
+        .ifPresent(headers -> headers.forEach(commonsRequest::setHeader));
+    body.ifPresent(commonsRequest::body);
+    // Make the request conditional on the validators of the last response we cached
+    String cacheKey = request.asUri().toString();
+    Optional<HttpValidatorCache> cache = request.isConditional() ? validatorCache : Optional.empty();
+    Optional<HttpValidatorCache.Entry> cachedEntry = cache.flatMap(c -> c.get(cacheKey));
+    cachedEntry.ifPresent(entry -> entry.getConditionalHeaders().forEach(commonsRequest::setHeader));
 
-    // Set the request's body if it's a POST request
-    if (request.getMethod() == POST) {
-      HttpEntity body;
-      if (request.isMultipart()) {
-        MultipartEntityBuilder bodyBuilder = MultipartEntityBuilder.create();
-        for (MultipartMessage part : request.multipartMessages)
-          bodyBuilder = bodyBuilder.addPart(
-              part.getName(),
-              new InputStreamBody(part.getBody(), ContentType.create(part.getContentType()), part.getAttachmentName())
-          );
-        body = makeRepeatable(bodyBuilder.build());
-      } else {
-        body = makeRepeatable(buildBasicEntity(request.getBody()));
-      }
-      commonsRequest.body(body);
+    try {
+      concurrencyLimit.acquire(request.getSchedulingGroup().orElse(AdaptiveConcurrencyLimit.DEFAULT_GROUP), request.isBackground());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HttpException("Interrupted while waiting for a connection", e);
     }
+    int statusCode = -1;
+    long latencyNanos = -1;
     try {
       // Send the request and handle the response
-      return executor
-          .execute(commonsRequest)
-          .handleResponse(res -> Response.from(request, res));
+      long start = System.nanoTime();
+      org.apache.http.client.fluent.Response commonsResponse = executor.execute(commonsRequest);
+      latencyNanos = System.nanoTime() - start;
+      Pair<Response<T>, Optional<Duration>> result = commonsResponse.handleResponse(res -> {
+        int status = res.getStatusLine().getStatusCode();
+        if (status == 304 && cachedEntry.isPresent())
+          try (InputStream cachedBody = cachedEntry.get().openBody()) {
+            return Pair.of(Response.notModified(request, cachedBody), Optional.empty());
+          }
+        if (status >= 200 && status < 300)
+          request.getDownload().ifPresent(download -> download.prepare(res));
+        if (res.getEntity() != null)
+          res.setEntity(limits.throttleDownload(res.getEntity()));
+        HttpResponse decodedResponse = decodeContent(res, request.getTransferCounter());
+        if (status == 200)
+          cache.ifPresent(c -> cacheBody(c, cacheKey, decodedResponse));
+        return Pair.of(
+            Response.from(request, decodedResponse),
+            Optional.ofNullable(res.getFirstHeader("Retry-After"))
+                .flatMap(header -> RetryPolicy.parseRetryAfter(header.getValue(), Instant.now()))
+        );
+      });
+      statusCode = result.getLeft().getStatusCode();
+      return result;
     } catch (HttpHostConnectException e) {
       throw new HttpException("Connection refused", e);
     } catch (SocketTimeoutException | ConnectTimeoutException e) {
@@ -152,12 +362,159 @@ public class CommonsHttp implements Http {
     } catch (IOException e) {
       throw new UncheckedIOException(e);
     } finally {
-      request.ifBody(UncheckedFiles::closeInputStream);
-      if (request.multipartMessages != null)
-        request.multipartMessages.stream()
-          .map(MultipartMessage::getBody)
-          .forEach(UncheckedFiles::closeInputStream);
+      if (statusCode == -1)
+        concurrencyLimit.releaseWithError();
+      else
+        concurrencyLimit.release(statusCode, latencyNanos);
+    }
+  }
+
+  private void waitBeforeRetry(Request<?> request, AdaptiveConcurrencyLimit concurrencyLimit, int retry, Optional<Duration> retryAfter, String reason) {
+    Duration delay = retryPolicy.getDelay(retry, retryAfter);
+    concurrencyLimit.trackRetry();
+    log.warn("Retrying {} in {} ms after a failed attempt ({}). Retry {} of {}", request, delay.toMillis(), reason, retry + 1, retryPolicy.getMaxRetries());
+    try {
+      Thread.sleep(delay.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HttpException("Interrupted while waiting to retry a request", e);
+    }
+  }
+
+  /**
+   * Returns true if the provided error has been caused by a network
+   * problem that could go away if we send the request again.
+   */
+  private static boolean isTransient(Throwable error) {
+    for (Throwable cause = error; cause != null; cause = cause.getCause())
+      if (cause instanceof InterruptedIOException
+          || cause instanceof SocketException
+          || cause instanceof NoHttpResponseException
+          || cause instanceof ConnectionClosedException)
+        return true;
+    return false;
+  }
+
+  private static boolean isTimeout(Throwable error) {
+    for (Throwable cause = error; cause != null; cause = cause.getCause())
+      if (cause instanceof SocketTimeoutException || cause instanceof ConnectTimeoutException)
+        return true;
+    return false;
+  }
+
+  /**
+   * Replaces the entity of the provided response with another one that
+   * decompresses its contents according to its Content-Encoding header
+   * and counts the bytes read from it, before and after decompressing them.
+   */
+  static HttpResponse decodeContent(HttpResponse response, Optional<TransferCounter> transferCounter) {
+    HttpEntity entity = response.getEntity();
+    if (entity == null)
+      return response;
+
+    HttpEntity wireEntity = transferCounter
+        .map(counter -> counting(entity, counter::addWireBytes))
+        .orElse(entity);
+    String contentEncoding = Optional.ofNullable(entity.getContentEncoding())
+        .map(Header::getValue)
+        .map(value -> value.trim().toLowerCase(Locale.ENGLISH))
+        .orElse("identity");
+    HttpEntity decodedEntity;
+    switch (contentEncoding) {
+      case "gzip":
+      case "x-gzip":
+        decodedEntity = new GzipDecompressingEntity(wireEntity);
+        break;
+      case "deflate":
+        decodedEntity = new DeflateDecompressingEntity(wireEntity);
+        break;
+      default:
+        decodedEntity = wireEntity;
+    }
+    response.setEntity(transferCounter
+        .map(counter -> counting(decodedEntity, counter::addDecodedBytes))
+        .orElse(decodedEntity));
+    if (decodedEntity != wireEntity) {
+      response.removeHeaders("Content-Length");
+      response.removeHeaders("Content-Encoding");
+      response.removeHeaders("Content-MD5");
+    }
+    return response;
+  }
+
+  /**
+   * Stores the body of the provided response in the validator cache, if it
+   * has any validator, and replaces its entity with the stored body.
+   */
+  private static void cacheBody(HttpValidatorCache cache, String cacheKey, HttpResponse response) {
+    Optional<String> etag = Optional.ofNullable(response.getFirstHeader("ETag")).map(Header::getValue);
+    Optional<String> lastModified = Optional.ofNullable(response.getFirstHeader("Last-Modified")).map(Header::getValue);
+    if (response.getEntity() == null || (!etag.isPresent() && !lastModified.isPresent()))
+      return;
+    Path body;
+    try (InputStream in = response.getEntity().getContent()) {
+      body = cache.put(cacheKey, etag, lastModified, in);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    response.setEntity(new FileEntity(body.toFile()));
+  }
+
+  private static HttpEntity counting(HttpEntity entity, LongConsumer counter) {
+    return new HttpEntityWrapper(entity) {
+      @Override
+      public InputStream getContent() throws IOException {
+        return new ProxyInputStream(super.getContent()) {
+          @Override
+          protected void afterRead(int n) {
+            if (n > 0)
+              counter.accept(n);
+          }
+        };
+      }
+    };
+  }
+
+  private static HttpEntity countingWrites(HttpEntity entity, LongConsumer counter) {
+    return new HttpEntityWrapper(entity) {
+      @Override
+      public void writeTo(OutputStream out) throws IOException {
+        super.writeTo(new ProxyOutputStream(out) {
+          @Override
+          protected void afterWrite(int n) {
+            if (n > 0)
+              counter.accept(n);
+          }
+        });
+      }
+    };
+  }
+
+  private static String hostOf(URL url) {
+    return url.getPort() == -1 ? url.getHost() : url.getHost() + ":" + url.getPort();
+  }
+
+  private HttpEntity buildBody(Request<?> request) {
+    if (request.isMultipart()) {
+      MultipartEntityBuilder bodyBuilder = MultipartEntityBuilder.create();
+      for (MultipartMessage part : request.multipartMessages)
+        bodyBuilder = bodyBuilder.addPart(part.getName(), buildPartBody(part));
+      // Multipart bodies made of files only are repeatable, and get streamed
+      // straight from disk every time they're sent
+      HttpEntity entity = bodyBuilder.build();
+      return entity.isRepeatable() ? entity : makeRepeatable(entity);
     }
+    // File bodies are repeatable too, and don't need to be buffered
+    return request.getBodyFile()
+        .<HttpEntity>map(file -> new FileEntity(file.toFile()))
+        .orElseGet(() -> makeRepeatable(buildBasicEntity(request.getBody())));
+  }
+
+  private static ContentBody buildPartBody(MultipartMessage part) {
+    ContentType contentType = ContentType.create(part.getContentType());
+    return part.getFile()
+        .<ContentBody>map(file -> new FileBody(file.toFile(), contentType, part.getAttachmentName()))
+        .orElseGet(() -> new InputStreamBody(part.getBody(), contentType, part.getAttachmentName()));
   }
 
   private BasicHttpEntity buildBasicEntity(InputStream contents) {
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused.http;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * This class holds a snapshot of the HTTP traffic with a host.
+ */
+public class ConcurrencyStats {
+  private final String host;
+  private final int limit;
+  private final int maxLimit;
+  private final int inFlight;
+  private final double throughput;
+  private final long completedRequests;
+  private final int retries;
+  private final int timeouts;
+
+  ConcurrencyStats(String host, int limit, int maxLimit, int inFlight, double throughput, long completedRequests, int retries, int timeouts) {
+    this.host = host;
+    this.limit = limit;
+    this.maxLimit = maxLimit;
+    this.inFlight = inFlight;
+    this.throughput = throughput;
+    this.completedRequests = completedRequests;
+    this.retries = retries;
+    this.timeouts = timeouts;
+  }
+
+  /**
+   * Returns stats for a host we haven't talked to yet.
+   */
+  public static ConcurrencyStats idle(String host, int maxLimit) {
+    return new ConcurrencyStats(host, maxLimit, maxLimit, 0, 0, 0, 0, 0);
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+  /**
+   * Returns the number of simultaneous requests currently allowed with the host.
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Returns the configured maximum number of simultaneous requests, which
+   * acts as an upper bound of the value returned by {@link #getLimit()}.
+   */
+  public int getMaxLimit() {
+    return maxLimit;
+  }
+
+  public int getInFlight() {
+    return inFlight;
+  }
+
+  /**
+   * Returns the number of completed requests per second during the last few seconds.
+   */
+  public double getThroughput() {
+    return throughput;
+  }
+
+  /**
+   * Returns the number of requests that have been completed since
+   * the first one, adding up the requests of all the jobs.
+   */
+  public long getCompletedRequests() {
+    return completedRequests;
+  }
+
+  /**
+   * Returns the number of requests that have been sent again after a transient failure.
+   */
+  public int getRetries() {
+    return retries;
+  }
+
+  /**
+   * Returns the number of requests that have timed out.
+   */
+  public int getTimeouts() {
+    return timeouts;
+  }
+
+  /**
+   * Returns a human readable description of these stats.
+   */
+  public String describe() {
+    return String.format(Locale.ENGLISH, "%d of %d connections allowed, %d requests completed, %.1f requests per second, %d retries, %d timeouts", limit, maxLimit, completedRequests, throughput, retries, timeouts);
+  }
+
+  @Override
+  public String toString() {
+    return "ConcurrencyStats{" +
+        "host='" + host + '\'' +
+        ", limit=" + limit +
+        ", maxLimit=" + maxLimit +
+        ", inFlight=" + inFlight +
+        ", throughput=" + throughput +
+        ", completedRequests=" + completedRequests +
+        ", retries=" + retries +
+        ", timeouts=" + timeouts +
+        '}';
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    ConcurrencyStats that = (ConcurrencyStats) o;
+    return limit == that.limit &&
+        maxLimit == that.maxLimit &&
+        inFlight == that.inFlight &&
+        Double.compare(that.throughput, throughput) == 0 &&
+        completedRequests == that.completedRequests &&
+        retries == that.retries &&
+        timeouts == that.timeouts &&
+        Objects.equals(host, that.host);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(host, limit, maxLimit, inFlight, throughput, completedRequests, retries, timeouts);
+  }
+}
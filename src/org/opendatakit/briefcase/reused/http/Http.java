@@ -16,6 +16,10 @@
 
 package org.opendatakit.briefcase.reused.http;
 
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import org.apache.http.HttpHost;
 import org.opendatakit.briefcase.reused.http.response.Response;
 
@@ -27,6 +31,8 @@ public interface Http {
   int DEFAULT_HTTP_CONNECTIONS = 8;
   int MIN_HTTP_CONNECTIONS = 1;
   int MAX_HTTP_CONNECTIONS = 32;
+  int DEFAULT_HTTP_TIMEOUT = 60;
+  int DEFAULT_HTTP_RETRIES = 3;
 
   static boolean isValidHttpConnections(int value) {
     return value >= MIN_HTTP_CONNECTIONS && value <= MAX_HTTP_CONNECTIONS;
@@ -34,6 +40,55 @@ public interface Http {
 
   <T> Response<T> execute(Request<T> request);
 
+  /**
+   * Executes the provided request without blocking the calling thread.
+   * <p>
+   * Implementations run the request on their own I/O threads, which lets callers
+   * keep as many requests in flight as the implementation allows.
+   * <p>
+   * The returned future completes exceptionally with the same exceptions that
+   * {@link #execute(Request)} would throw.
+   */
+  <T> CompletableFuture<Response<T>> executeAsync(Request<T> request);
+
+  /**
+   * Runs the provided task, which executes requests with this instance,
+   * on the same I/O threads {@link #executeAsync(Request)} uses.
+   * <p>
+   * Unlike requests queued with {@link #executeAsync(Request)}, tasks can check
+   * whether they still have to send their requests by the time they start
+   * running, e.g. after their job has been cancelled.
+   */
+  <T> CompletableFuture<T> supplyAsync(Supplier<T> task);
+
+  /**
+   * Returns a snapshot of the traffic with the host of the provided URL,
+   * including how many simultaneous requests are currently allowed with it.
+   */
+  ConcurrencyStats getConcurrencyStats(URL url);
+
+  /**
+   * Returns a snapshot of the traffic with each host this instance
+   * has sent requests to, aggregating the requests of all the jobs.
+   */
+  List<ConcurrencyStats> getAllConcurrencyStats();
+
+  /**
+   * Sets the cache of validators that {@link RequestBuilder#conditional() conditional}
+   * requests will use. Without it, conditional requests are sent as any other request.
+   */
+  void setValidatorCache(HttpValidatorCache validatorCache);
+
+  void unsetValidatorCache();
+
+  /**
+   * Sets the maximum rates at which this instance will upload and download
+   * bytes, adding up the traffic of all its requests.
+   */
+  void setBandwidthLimits(BandwidthLimits bandwidthLimits);
+
+  BandwidthLimits getBandwidthLimits();
+
   void setProxy(HttpHost proxy);
 
   void unsetProxy();
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused.http;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createDirectories;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteIfExists;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.write;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.opendatakit.briefcase.reused.BriefcaseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers the ETag and Last-Modified validators of the responses to
+ * {@link RequestBuilder#conditional() conditional} requests, together with
+ * their bodies, so that unchanged documents can be revalidated with a
+ * 304 Not Modified round trip instead of being downloaded again.
+ * <p>
+ * Validators are persisted in a JSON file, and bodies in files next to it,
+ * under the Briefcase Storage directory.
+ */
+public class HttpValidatorCache {
+  private static final Logger log = LoggerFactory.getLogger(HttpValidatorCache.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  static final String DIR_NAME = "http-cache";
+  static final String FILE_NAME = "validators.json";
+  private final Path cacheDir;
+  private final Map<String, Entry> entries;
+
+  private HttpValidatorCache(Path cacheDir, Map<String, Entry> entries) {
+    this.cacheDir = cacheDir;
+    this.entries = entries;
+  }
+
+  /**
+   * Returns a new HttpValidatorCache instance under the given Briefcase
+   * Storage directory, loading any validator previously saved.
+   */
+  public static HttpValidatorCache at(Path briefcaseDir) {
+    Path cacheDir = briefcaseDir.resolve(DIR_NAME);
+    Map<String, Entry> entries = new ConcurrentHashMap<>();
+    Path file = cacheDir.resolve(FILE_NAME);
+    if (Files.exists(file))
+      try {
+        MAPPER.readTree(file.toFile()).fields().forEachRemaining(field -> entries.put(field.getKey(), Entry.from(cacheDir, field.getValue())));
+      } catch (IOException | RuntimeException e) {
+        // A broken file only means that we will have to download documents again
+        log.warn("Can't read HTTP validators at {}", file, e);
+        entries.clear();
+      }
+    return new HttpValidatorCache(cacheDir, entries);
+  }
+
+  /**
+   * Returns the cached entry of the given URL, as long as its body is still there.
+   */
+  Optional<Entry> get(String url) {
+    return Optional.ofNullable(entries.get(url)).filter(entry -> Files.exists(entry.body));
+  }
+
+  /**
+   * Stores the given body and validators of the response to the given URL,
+   * replacing any previous entry, and saves the validators to disk.
+   *
+   * @return the path to the stored body
+   */
+  Path put(String url, Optional<String> etag, Optional<String> lastModified, InputStream body) {
+    String key = hash(url);
+    Path bodyFile = cacheDir.resolve(key + ".body");
+    createDirectories(cacheDir);
+    Path tempFile = null;
+    try {
+      tempFile = Files.createTempFile(cacheDir, key, ".tmp");
+      Files.copy(body, tempFile, REPLACE_EXISTING);
+      synchronized (this) {
+        Files.move(tempFile, bodyFile, REPLACE_EXISTING);
+        entries.put(url, new Entry(etag, lastModified, bodyFile));
+        save();
+      }
+      return bodyFile;
+    } catch (IOException e) {
+      if (tempFile != null)
+        deleteIfExists(tempFile);
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void save() {
+    Path file = cacheDir.resolve(FILE_NAME);
+    try {
+      ObjectNode root = MAPPER.createObjectNode();
+      new HashMap<>(entries).forEach((url, entry) -> root.set(url, entry.asJson(MAPPER)));
+      write(file, MAPPER.writeValueAsString(root), CREATE, TRUNCATE_EXISTING);
+    } catch (IOException | UncheckedIOException e) {
+      log.warn("Can't save HTTP validators at {}", file, e);
+    }
+  }
+
+  private static String hash(String url) {
+    try {
+      StringBuilder sb = new StringBuilder();
+      for (byte b : MessageDigest.getInstance("MD5").digest(url.getBytes(UTF_8)))
+        sb.append(String.format("%02x", b));
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new BriefcaseException(e);
+    }
+  }
+
+  static class Entry {
+    private final Optional<String> etag;
+    private final Optional<String> lastModified;
+    private final Path body;
+
+    Entry(Optional<String> etag, Optional<String> lastModified, Path body) {
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.body = body;
+    }
+
+    static Entry from(Path cacheDir, JsonNode root) {
+      return new Entry(
+          Optional.ofNullable(root.get("etag")).map(JsonNode::asText),
+          Optional.ofNullable(root.get("lastModified")).map(JsonNode::asText),
+          cacheDir.resolve(root.get("body").asText())
+      );
+    }
+
+    ObjectNode asJson(ObjectMapper mapper) {
+      ObjectNode root = mapper.createObjectNode();
+      etag.ifPresent(value -> root.put("etag", value));
+      lastModified.ifPresent(value -> root.put("lastModified", value));
+      root.put("body", body.getFileName().toString());
+      return root;
+    }
+
+    /**
+     * Returns the headers that make a request conditional on this entry's validators.
+     */
+    Map<String, String> getConditionalHeaders() {
+      Map<String, String> headers = new HashMap<>();
+      etag.ifPresent(value -> headers.put("If-None-Match", value));
+      lastModified.ifPresent(value -> headers.put("If-Modified-Since", value));
+      return headers;
+    }
+
+    InputStream openBody() throws IOException {
+      return Files.newInputStream(body);
+    }
+  }
+}
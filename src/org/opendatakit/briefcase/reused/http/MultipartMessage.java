@@ -16,20 +16,41 @@
 
 package org.opendatakit.briefcase.reused.http;
 
+import static org.opendatakit.briefcase.reused.UncheckedFiles.newInputStream;
+
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Objects;
+import java.util.Optional;
+import org.opendatakit.briefcase.reused.UncheckedFiles;
 
+/**
+ * Represents a part of a multipart request.
+ * <p>
+ * Parts backed by a file can be streamed straight from disk, and read
+ * again if the request has to be retried.
+ */
 public class MultipartMessage {
   private final String name;
   private final String contentType;
   private final String attachmentName;
-  private final InputStream body;
+  private final Optional<InputStream> body;
+  private final Optional<Path> file;
 
   MultipartMessage(String name, String contentType, String attachmentName, InputStream body) {
+    this(name, contentType, attachmentName, Optional.of(body), Optional.empty());
+  }
+
+  MultipartMessage(String name, String contentType, String attachmentName, Path file) {
+    this(name, contentType, attachmentName, Optional.empty(), Optional.of(file));
+  }
+
+  private MultipartMessage(String name, String contentType, String attachmentName, Optional<InputStream> body, Optional<Path> file) {
     this.name = name;
     this.contentType = contentType;
     this.attachmentName = attachmentName;
     this.body = body;
+    this.file = file;
   }
 
   public String getName() {
@@ -44,8 +65,23 @@ public class MultipartMessage {
     return attachmentName;
   }
 
+  /**
+   * Returns the body of this part. Parts backed by a file
+   * return a new stream on every call that must be closed.
+   */
   public InputStream getBody() {
-    return body;
+    return body.orElseGet(() -> newInputStream(file.get()));
+  }
+
+  public Optional<Path> getFile() {
+    return file;
+  }
+
+  /**
+   * Closes the body stream this part was created with, if any.
+   */
+  void closeBody() {
+    body.ifPresent(UncheckedFiles::closeInputStream);
   }
 
   @Override
@@ -56,12 +92,13 @@ public class MultipartMessage {
     return Objects.equals(name, that.name) &&
         Objects.equals(contentType, that.contentType) &&
         Objects.equals(attachmentName, that.attachmentName) &&
-        Objects.equals(body, that.body);
+        Objects.equals(body, that.body) &&
+        Objects.equals(file, that.file);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(name, contentType, attachmentName, body);
+    return Objects.hash(name, contentType, attachmentName, body, file);
   }
 
   @Override
@@ -16,10 +16,13 @@
 
 package org.opendatakit.briefcase.reused.http;
 
+import static org.opendatakit.briefcase.reused.UncheckedFiles.newInputStream;
+
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -46,18 +49,32 @@ public class Request<T> {
   private final Function<InputStream, T> responseMapper;
   final Map<String, String> headers;
   private final Optional<InputStream> body;
+  private final Optional<Path> bodyFile;
   final List<MultipartMessage> multipartMessages;
   private final boolean ignoreCookies;
-
-  Request(RequestMethod method, URL url, Optional<Credentials> credentials, Function<InputStream, T> responseMapper, Map<String, String> headers, Optional<InputStream> body, List<MultipartMessage> multipartMessages, boolean ignoreCookies) {
+  private final boolean repeatable;
+  private final Optional<TransferCounter> transferCounter;
+  private final Optional<ResumableDownload> download;
+  private final Optional<String> schedulingGroup;
+  private final boolean background;
+  private final boolean conditional;
+
+  Request(RequestMethod method, URL url, Optional<Credentials> credentials, Function<InputStream, T> responseMapper, Map<String, String> headers, Optional<InputStream> body, Optional<Path> bodyFile, List<MultipartMessage> multipartMessages, boolean ignoreCookies, boolean repeatable, Optional<TransferCounter> transferCounter, Optional<ResumableDownload> download, Optional<String> schedulingGroup, boolean background, boolean conditional) {
     this.method = method;
     this.url = url;
     this.credentials = credentials;
     this.responseMapper = responseMapper;
     this.headers = headers;
     this.body = body;
+    this.bodyFile = bodyFile;
     this.multipartMessages = multipartMessages;
     this.ignoreCookies = ignoreCookies;
+    this.repeatable = repeatable;
+    this.transferCounter = transferCounter;
+    this.download = download;
+    this.schedulingGroup = schedulingGroup;
+    this.background = background;
+    this.conditional = conditional;
   }
 
   public T map(InputStream responseBody) {
@@ -94,7 +111,7 @@ public class Request<T> {
    * Returns a RequestBuilder that would produce this instance when built.
    */
   public RequestBuilder<T> builder() {
-    return new RequestBuilder<>(method, url, responseMapper, credentials, headers, body, multipartMessages, ignoreCookies);
+    return new RequestBuilder<>(method, url, responseMapper, credentials, headers, body, bodyFile, multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional);
   }
 
   @Override
@@ -121,8 +138,16 @@ public class Request<T> {
     return !multipartMessages.isEmpty();
   }
 
+  public List<MultipartMessage> getMultipartMessages() {
+    return multipartMessages;
+  }
+
   public InputStream getBody() {
-    return body.orElseThrow(BriefcaseException::new);
+    return body.orElseGet(() -> newInputStream(getBodyFile().orElseThrow(BriefcaseException::new)));
+  }
+
+  Optional<Path> getBodyFile() {
+    return bodyFile;
   }
 
   public void ifBody(Consumer<InputStream> consumer) {
@@ -132,4 +157,28 @@ public class Request<T> {
   public boolean ignoreCookies() {
     return ignoreCookies;
   }
+
+  public boolean isRepeatable() {
+    return repeatable;
+  }
+
+  Optional<TransferCounter> getTransferCounter() {
+    return transferCounter;
+  }
+
+  Optional<ResumableDownload> getDownload() {
+    return download;
+  }
+
+  Optional<String> getSchedulingGroup() {
+    return schedulingGroup;
+  }
+
+  boolean isBackground() {
+    return background;
+  }
+
+  boolean isConditional() {
+    return conditional;
+  }
 }
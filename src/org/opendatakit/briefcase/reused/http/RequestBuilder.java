@@ -17,11 +17,9 @@
 package org.opendatakit.briefcase.reused.http;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
-import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static java.util.Collections.emptyList;
 import static java.util.Optional.empty;
 import static java.util.stream.Collectors.joining;
-import static org.opendatakit.briefcase.reused.UncheckedFiles.copy;
 import static org.opendatakit.briefcase.reused.http.RequestMethod.GET;
 import static org.opendatakit.briefcase.reused.http.RequestMethod.HEAD;
 import static org.opendatakit.briefcase.reused.http.RequestMethod.POST;
@@ -70,34 +68,48 @@ public class RequestBuilder<T> {
   private final Optional<Credentials> credentials;
   private final Map<String, String> headers;
   private final Optional<InputStream> body;
+  private final Optional<Path> bodyFile;
   private final List<MultipartMessage> multipartMessages;
   private final boolean ignoreCookies;
-
-  RequestBuilder(RequestMethod method, URL baseUrl, Function<InputStream, T> responseMapper, Optional<Credentials> credentials, Map<String, String> headers, Optional<InputStream> body, List<MultipartMessage> multipartMessages, boolean ignoreCookies) {
+  private final boolean repeatable;
+  private final Optional<TransferCounter> transferCounter;
+  private final Optional<ResumableDownload> download;
+  private final Optional<String> schedulingGroup;
+  private final boolean background;
+  private final boolean conditional;
+
+  RequestBuilder(RequestMethod method, URL baseUrl, Function<InputStream, T> responseMapper, Optional<Credentials> credentials, Map<String, String> headers, Optional<InputStream> body, Optional<Path> bodyFile, List<MultipartMessage> multipartMessages, boolean ignoreCookies, boolean repeatable, Optional<TransferCounter> transferCounter, Optional<ResumableDownload> download, Optional<String> schedulingGroup, boolean background, boolean conditional) {
     this.method = method;
     this.baseUrl = baseUrl;
     this.credentials = credentials;
     this.responseMapper = responseMapper;
     this.headers = headers;
     this.body = body;
+    this.bodyFile = bodyFile;
     this.multipartMessages = multipartMessages;
     this.ignoreCookies = ignoreCookies;
+    this.repeatable = repeatable;
+    this.transferCounter = transferCounter;
+    this.download = download;
+    this.schedulingGroup = schedulingGroup;
+    this.background = background;
+    this.conditional = conditional;
   }
 
   public static RequestBuilder<InputStream> get(String baseUrl) {
-    return new RequestBuilder<>(GET, url(stripTrailingSlash(baseUrl)), Function.identity(), empty(), new HashMap<>(), empty(), emptyList(), false);
+    return new RequestBuilder<>(GET, url(stripTrailingSlash(baseUrl)), Function.identity(), empty(), new HashMap<>(), empty(), empty(), emptyList(), false, false, empty(), empty(), empty(), false, false);
   }
 
   public static RequestBuilder<InputStream> get(URL baseUrl) {
-    return new RequestBuilder<>(GET, url(stripTrailingSlash(baseUrl)), Function.identity(), empty(), new HashMap<>(), empty(), emptyList(), false);
+    return new RequestBuilder<>(GET, url(stripTrailingSlash(baseUrl)), Function.identity(), empty(), new HashMap<>(), empty(), empty(), emptyList(), false, false, empty(), empty(), empty(), false, false);
   }
 
   public static RequestBuilder<InputStream> post(URL baseUrl) {
-    return new RequestBuilder<>(POST, url(stripTrailingSlash(baseUrl)), Function.identity(), empty(), new HashMap<>(), empty(), emptyList(), false);
+    return new RequestBuilder<>(POST, url(stripTrailingSlash(baseUrl)), Function.identity(), empty(), new HashMap<>(), empty(), empty(), emptyList(), false, false, empty(), empty(), empty(), false, false);
   }
 
   public static RequestBuilder<InputStream> head(URL baseUrl) {
-    return new RequestBuilder<>(HEAD, url(stripTrailingSlash(baseUrl)), Function.identity(), empty(), new HashMap<>(), empty(), emptyList(), false);
+    return new RequestBuilder<>(HEAD, url(stripTrailingSlash(baseUrl)), Function.identity(), empty(), new HashMap<>(), empty(), empty(), emptyList(), false, false, empty(), empty(), empty(), false, false);
   }
 
   private static String readString(InputStream in) {
@@ -178,46 +190,67 @@ public class RequestBuilder<T> {
   }
 
   public Request<T> build() {
-    return new Request<>(method, baseUrl, credentials, responseMapper, headers, body, multipartMessages, ignoreCookies);
+    return new Request<>(method, baseUrl, credentials, responseMapper, headers, body, bodyFile, multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional);
   }
 
   public RequestBuilder<String> asText() {
-    return new RequestBuilder<>(method, baseUrl, RequestBuilder::readString, credentials, headers, body, multipartMessages, ignoreCookies);
+    return new RequestBuilder<>(method, baseUrl, RequestBuilder::readString, credentials, headers, body, bodyFile, multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional)
+        .acceptingCompression();
   }
 
   public RequestBuilder<XmlElement> asXmlElement() {
-    return new RequestBuilder<>(method, baseUrl, RequestBuilder::readXmlElement, credentials, headers, body, multipartMessages, ignoreCookies);
+    return new RequestBuilder<>(method, baseUrl, RequestBuilder::readXmlElement, credentials, headers, body, bodyFile, multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional)
+        .acceptingCompression();
   }
 
   public RequestBuilder<Map<String, Object>> asJsonMap() {
-    return new RequestBuilder<>(method, baseUrl, RequestBuilder::readJsonMap, credentials, headers, body, multipartMessages, ignoreCookies);
+    return new RequestBuilder<>(method, baseUrl, RequestBuilder::readJsonMap, credentials, headers, body, bodyFile, multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional)
+        .acceptingCompression();
   }
 
   public RequestBuilder<List<Map>> asJsonList() {
-    return new RequestBuilder<>(method, baseUrl, RequestBuilder.readJsonList(Map.class), credentials, headers, body, multipartMessages, ignoreCookies);
+    return new RequestBuilder<>(method, baseUrl, RequestBuilder.readJsonList(Map.class), credentials, headers, body, bodyFile, multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional)
+        .acceptingCompression();
   }
 
   public <U> RequestBuilder<List<U>> asJsonList(Class<U> mappingClass) {
-    return new RequestBuilder<>(method, baseUrl, RequestBuilder.readJsonList(mappingClass), credentials, headers, body, multipartMessages, ignoreCookies);
+    return new RequestBuilder<>(method, baseUrl, RequestBuilder.readJsonList(mappingClass), credentials, headers, body, bodyFile, multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional)
+        .acceptingCompression();
+  }
+
+  /**
+   * Asks the server to compress the response body. Text responses, like
+   * XML and JSON documents, compress well, but binary media files are
+   * usually compressed already, and trying to compress them again only
+   * wastes CPU on both ends.
+   * <p>
+   * Requests that map the response to text, XML or JSON ask for it already.
+   */
+  public RequestBuilder<T> acceptingCompression() {
+    return withHeader("Accept-Encoding", "gzip, deflate");
   }
 
+  /**
+   * Writes the response body to the given target file.
+   * <p>
+   * The download is resumed if a previous attempt to download
+   * the same file was interrupted. See {@link ResumableDownload}.
+   */
   public RequestBuilder<Void> downloadTo(Path target) {
-    return new RequestBuilder<>(method, baseUrl, in -> {
-      copy(in, target, REPLACE_EXISTING);
-      return null;
-    }, credentials, headers, body, multipartMessages, ignoreCookies);
+    ResumableDownload download = new ResumableDownload(target);
+    return new RequestBuilder<>(method, baseUrl, download::writeBody, credentials, headers, body, bodyFile, multipartMessages, ignoreCookies, repeatable, transferCounter, Optional.of(download), schedulingGroup, background, conditional);
   }
 
   public <U> RequestBuilder<U> withResponseMapper(Function<T, U> mapper) {
-    return new RequestBuilder<>(method, baseUrl, responseMapper.andThen(mapper), credentials, headers, body, multipartMessages, ignoreCookies);
+    return new RequestBuilder<>(method, baseUrl, responseMapper.andThen(mapper), credentials, headers, body, bodyFile, multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional);
   }
 
   public RequestBuilder<T> withCredentials(Optional<Credentials> credentials) {
-    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, headers, body, multipartMessages, ignoreCookies);
+    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, headers, body, bodyFile, multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional);
   }
 
   public RequestBuilder<T> withCredentials(Credentials credentials) {
-    return new RequestBuilder<>(method, baseUrl, responseMapper, Optional.of(credentials), headers, body, multipartMessages, ignoreCookies);
+    return new RequestBuilder<>(method, baseUrl, responseMapper, Optional.of(credentials), headers, body, bodyFile, multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional);
   }
 
   public RequestBuilder<T> withPath(String path) {
@@ -225,7 +258,7 @@ public class RequestBuilder<T> {
     int endOffset = path.endsWith("/") ? 1 : 0;
     String cleanPath = path.substring(startOffset, path.length() - endOffset);
     URL newBaseUrl = url(baseUrl + "/" + cleanPath);
-    return new RequestBuilder<>(method, newBaseUrl, responseMapper, credentials, headers, body, multipartMessages, ignoreCookies);
+    return new RequestBuilder<>(method, newBaseUrl, responseMapper, credentials, headers, body, bodyFile, multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional);
   }
 
   @SafeVarargs
@@ -234,31 +267,98 @@ public class RequestBuilder<T> {
       throw new BriefcaseException("Can't apply withQuery() twice");
     String queryString = Stream.of(keyValues).map(p -> p.getLeft() + "=" + urlEncode(p.getRight())).collect(joining("&"));
     URL newBaseUrl = url(baseUrl.toString() + "?" + queryString);
-    return new RequestBuilder<>(method, newBaseUrl, responseMapper, credentials, headers, body, multipartMessages, ignoreCookies);
+    return new RequestBuilder<>(method, newBaseUrl, responseMapper, credentials, headers, body, bodyFile, multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional);
   }
 
   public RequestBuilder<T> withBody(String bodyContents) {
     Optional<InputStream> newBody = Optional.of(new ByteArrayInputStream(bodyContents.getBytes(UTF_8)));
-    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, headers, newBody, multipartMessages, ignoreCookies);
+    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, headers, newBody, empty(), multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional);
   }
 
   public RequestBuilder<T> withBody(InputStream body) {
-    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, headers, Optional.of(body), multipartMessages, ignoreCookies);
+    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, headers, Optional.of(body), empty(), multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional);
+  }
+
+  /**
+   * Uses the contents of the given file as the body of the request, which will
+   * be streamed from disk every time the request is sent, instead of being buffered.
+   */
+  public RequestBuilder<T> withBody(Path file) {
+    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, headers, empty(), Optional.of(file), multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional);
   }
 
   public RequestBuilder<T> withHeader(String name, String value) {
     Map<String, String> newHeaders = new HashMap<>(headers);
     newHeaders.put(name, value);
-    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, newHeaders, body, multipartMessages, ignoreCookies);
+    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, newHeaders, body, bodyFile, multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional);
   }
 
   public RequestBuilder<T> withMultipartMessage(String name, String contentType, String attachmentName, InputStream messageBody) {
     List<MultipartMessage> newMultipartMessages = new ArrayList<>(multipartMessages);
     newMultipartMessages.add(new MultipartMessage(name, contentType, attachmentName, messageBody));
-    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, headers, body, newMultipartMessages, ignoreCookies);
+    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, headers, body, bodyFile, newMultipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional);
+  }
+
+  /**
+   * Adds a multipart message with the contents of the given file, which will
+   * be streamed from disk when the request is sent, instead of being buffered.
+   */
+  public RequestBuilder<T> withMultipartMessage(String name, String contentType, String attachmentName, Path file) {
+    List<MultipartMessage> newMultipartMessages = new ArrayList<>(multipartMessages);
+    newMultipartMessages.add(new MultipartMessage(name, contentType, attachmentName, file));
+    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, headers, body, bodyFile, newMultipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, conditional);
   }
 
   public RequestBuilder<T> withIgnoreCookies() {
-    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, headers, body, multipartMessages, true);
+    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, headers, body, bodyFile, multipartMessages, true, repeatable, transferCounter, download, schedulingGroup, background, conditional);
+  }
+
+  /**
+   * Marks the request as safe to be sent more than once, which lets
+   * {@link Http} implementations retry it after a transient failure.
+   * <p>
+   * GET and HEAD requests are always considered repeatable.
+   */
+  public RequestBuilder<T> asRepeatable() {
+    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, headers, body, bodyFile, multipartMessages, ignoreCookies, true, transferCounter, download, schedulingGroup, background, conditional);
+  }
+
+  /**
+   * Counts the bytes received by the request with the provided counter.
+   */
+  public RequestBuilder<T> withTransferCounter(TransferCounter transferCounter) {
+    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, headers, body, bodyFile, multipartMessages, ignoreCookies, repeatable, Optional.of(transferCounter), download, schedulingGroup, background, conditional);
+  }
+
+  /**
+   * Makes the request take turns with the requests of other scheduling
+   * groups (e.g. other forms) sent to the same host, instead of competing
+   * with them for the available connections.
+   */
+  public RequestBuilder<T> withSchedulingGroup(String schedulingGroup) {
+    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, headers, body, bodyFile, multipartMessages, ignoreCookies, repeatable, transferCounter, download, Optional.of(schedulingGroup), background, conditional);
+  }
+
+  /**
+   * Makes the request give way to the rest of requests sent to the same host.
+   * It will only be sent when no other request is waiting, and it will never
+   * take the last available connection.
+   */
+  public RequestBuilder<T> inBackground() {
+    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, headers, body, bodyFile, multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, true, conditional);
+  }
+
+  /**
+   * Makes the request use the HTTP validator cache, if there's one. The
+   * request will be sent with the ETag and Last-Modified values of the last
+   * response received for the same URL, and a 304 Not Modified response
+   * will get the body of that last response.
+   * <p>
+   * Use it with documents that rarely change, like form definitions.
+   *
+   * @see HttpValidatorCache
+   */
+  public RequestBuilder<T> conditional() {
+    return new RequestBuilder<>(method, baseUrl, responseMapper, credentials, headers, body, bodyFile, multipartMessages, ignoreCookies, repeatable, transferCounter, download, schedulingGroup, background, true);
   }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused.http;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteIfExists;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.exists;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.readFirstLine;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.size;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.write;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+
+/**
+ * Downloads a response body to a file in a way that survives interrupted
+ * transfers.
+ * <p>
+ * The body is written to a partial file next to the target file, which
+ * gets atomically renamed to the target file once the whole body has
+ * been received. This way, the target file is never left truncated.
+ * <p>
+ * When the partial file of a previous attempt exists, the download asks the
+ * server for the remaining bytes with a Range request. The If-Range header
+ * makes the server send the full body instead if the file has changed since
+ * the partial file was started.
+ */
+public class ResumableDownload {
+  private static final String PARTIAL_SUFFIX = ".partial";
+  private static final String VALIDATOR_SUFFIX = ".partial-validator";
+  private static final Pattern CONTENT_RANGE = Pattern.compile("^bytes (\\d+)-\\d+/(\\d+|\\*)$");
+  private final Path target;
+
+  ResumableDownload(Path target) {
+    this.target = target;
+  }
+
+  /**
+   * Returns true if the given file is the partial contents, or the related
+   * metadata, of an unfinished download.
+   */
+  public static boolean isPartialFile(Path file) {
+    String fileName = file.getFileName().toString();
+    return fileName.endsWith(PARTIAL_SUFFIX) || fileName.endsWith(VALIDATOR_SUFFIX);
+  }
+
+  Path getPartialFile() {
+    return target.resolveSibling(target.getFileName() + PARTIAL_SUFFIX);
+  }
+
+  private Path getValidatorFile() {
+    return target.resolveSibling(target.getFileName() + VALIDATOR_SUFFIX);
+  }
+
+  /**
+   * Returns the headers that will ask the server for the bytes missing in
+   * the partial file, or an empty map if the download has to start over.
+   */
+  Map<String, String> getResumeHeaders() {
+    Map<String, String> headers = new HashMap<>();
+    if (!exists(getPartialFile()) || !exists(getValidatorFile()))
+      return headers;
+    long partialSize = size(getPartialFile());
+    if (partialSize == 0)
+      return headers;
+    headers.put("Range", "bytes=" + partialSize + "-");
+    headers.put("If-Range", readFirstLine(getValidatorFile()));
+    // Ranges are relative to the encoded contents, and
+    // the partial file holds the decoded contents
+    headers.put("Accept-Encoding", "identity");
+    return headers;
+  }
+
+  /**
+   * Prepares the partial file to receive the body of a successful response.
+   * <p>
+   * Partial content responses are appended to the partial file, and any other
+   * response replaces it.
+   */
+  void prepare(HttpResponse response) {
+    if (response.getStatusLine().getStatusCode() == 206) {
+      long start = getRangeStart(response).orElse(-1L);
+      if (start != size(getPartialFile())) {
+        discard();
+        throw new HttpException("The server sent an unexpected range of " + target.getFileName());
+      }
+      return;
+    }
+    discard();
+    getValidator(response).ifPresent(validator -> write(getValidatorFile(), validator, CREATE, TRUNCATE_EXISTING));
+  }
+
+  /**
+   * Deletes the partial file and its metadata.
+   *
+   * @return true if there was a partial file to delete
+   */
+  boolean discard() {
+    deleteIfExists(getValidatorFile());
+    return deleteIfExists(getPartialFile());
+  }
+
+  /**
+   * Appends the given stream to the partial file and moves it to the target
+   * file once the stream has been completely read.
+   */
+  Void writeBody(InputStream in) {
+    Path partialFile = getPartialFile();
+    try (InputStream inHandle = in; OutputStream out = Files.newOutputStream(partialFile, CREATE, APPEND)) {
+      IOUtils.copyLarge(inHandle, out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    try {
+      Files.move(partialFile, target, ATOMIC_MOVE, REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      moveNonAtomically(partialFile);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    deleteIfExists(getValidatorFile());
+    return null;
+  }
+
+  private void moveNonAtomically(Path partialFile) {
+    try {
+      Files.move(partialFile, target, REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns the value that will let the server know if the file has changed
+   * when resuming the download. Only strong ETags are allowed in If-Range headers.
+   */
+  private static Optional<String> getValidator(HttpResponse response) {
+    Optional<String> etag = Optional.ofNullable(response.getFirstHeader("ETag"))
+        .map(Header::getValue)
+        .filter(value -> !value.startsWith("W/"));
+    return etag.isPresent()
+        ? etag
+        : Optional.ofNullable(response.getFirstHeader("Last-Modified")).map(Header::getValue);
+  }
+
+  private static Optional<Long> getRangeStart(HttpResponse response) {
+    return Optional.ofNullable(response.getFirstHeader("Content-Range"))
+        .map(header -> CONTENT_RANGE.matcher(header.getValue().trim()))
+        .filter(Matcher::matches)
+        .map(matcher -> Long.parseLong(matcher.group(1)));
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused.http;
+
+import static java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME;
+import static org.opendatakit.briefcase.reused.http.RequestMethod.GET;
+import static org.opendatakit.briefcase.reused.http.RequestMethod.HEAD;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Decides which failed requests can be sent again and how long to wait before
+ * doing it.
+ * <p>
+ * Only GET and HEAD requests, and requests explicitly marked as repeatable
+ * with {@link RequestBuilder#asRepeatable()} are retried.
+ * <p>
+ * Delays grow exponentially with each retry, with full jitter to avoid
+ * retrying in lockstep with other requests. A Retry-After header sent
+ * by the server takes precedence over the computed delay.
+ */
+public class RetryPolicy {
+  private static final Duration MAX_RETRY_AFTER = Duration.ofMinutes(5);
+  private final int maxRetries;
+  private final Duration baseDelay;
+  private final Duration maxDelay;
+  private final DoubleSupplier random;
+
+  RetryPolicy(int maxRetries, Duration baseDelay, Duration maxDelay, DoubleSupplier random) {
+    this.maxRetries = maxRetries;
+    this.baseDelay = baseDelay;
+    this.maxDelay = maxDelay;
+    this.random = random;
+  }
+
+  /**
+   * Returns a policy that retries failed requests up to the given number of times.
+   */
+  public static RetryPolicy of(int maxRetries) {
+    return new RetryPolicy(maxRetries, Duration.ofSeconds(1), Duration.ofSeconds(30), () -> ThreadLocalRandom.current().nextDouble());
+  }
+
+  public static RetryPolicy none() {
+    return of(0);
+  }
+
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  boolean canRetry(Request<?> request, int retry) {
+    return retry < maxRetries && (request.getMethod() == GET || request.getMethod() == HEAD || request.isRepeatable());
+  }
+
+  static boolean isTransient(int statusCode) {
+    return statusCode == 408 || statusCode == 429 || statusCode == 502 || statusCode == 503 || statusCode == 504;
+  }
+
+  /**
+   * Returns the time to wait before sending a request again.
+   *
+   * @param retry      the number of retries already done
+   * @param retryAfter the delay requested by the server, if any
+   */
+  Duration getDelay(int retry, Optional<Duration> retryAfter) {
+    if (retryAfter.isPresent())
+      return retryAfter.get().compareTo(MAX_RETRY_AFTER) > 0 ? MAX_RETRY_AFTER : retryAfter.get();
+    long cappedMillis = Math.min(maxDelay.toMillis(), baseDelay.toMillis() << Math.min(retry, 20));
+    return Duration.ofMillis((long) (cappedMillis * random.getAsDouble()));
+  }
+
+  /**
+   * Parses the value of a Retry-After header, which can be a number
+   * of seconds or an HTTP date.
+   */
+  static Optional<Duration> parseRetryAfter(String value, Instant now) {
+    if (value == null || value.trim().isEmpty())
+      return Optional.empty();
+    try {
+      return Optional.of(Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim()))));
+    } catch (NumberFormatException e) {
+      // Try parsing it as a date below
+    }
+    try {
+      Instant date = OffsetDateTime.parse(value.trim(), RFC_1123_DATE_TIME).toInstant();
+      return Optional.of(date.isAfter(now) ? Duration.between(now, date) : Duration.ZERO);
+    } catch (DateTimeParseException e) {
+      return Optional.empty();
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the rate at which bytes go through it, shared by all the threads
+ * that use it.
+ * <p>
+ * The bucket fills up at the configured rate, up to a quarter of a second
+ * worth of bytes, which is the largest burst it lets through. Each transfer
+ * takes its bytes from the bucket even if it doesn't have enough of them,
+ * leaving a debt that the next transfers have to wait for. This lets large
+ * transfers through without stalling them forever, and makes concurrent
+ * transfers wait in the order they arrived.
+ * <p>
+ * It also keeps the total bytes and the time spent transferring them to
+ * report their average rate.
+ */
+class TokenBucket {
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+  private final long bytesPerSecond;
+  private final double capacity;
+  private final LongSupplier nanoClock;
+  private double tokens;
+  private long lastRefillNanos;
+  private long totalBytes = 0;
+  private final ActiveTime activeTime = new ActiveTime();
+
+  TokenBucket(long bytesPerSecond, LongSupplier nanoClock) {
+    this.bytesPerSecond = bytesPerSecond;
+    this.capacity = Math.max(1, bytesPerSecond / 4d);
+    this.nanoClock = nanoClock;
+    this.tokens = capacity;
+    this.lastRefillNanos = nanoClock.getAsLong();
+  }
+
+  static TokenBucket of(long bytesPerSecond) {
+    return new TokenBucket(bytesPerSecond, System::nanoTime);
+  }
+
+  /**
+   * Blocks the current thread until the given number of bytes can be transferred.
+   */
+  void acquire(int bytes) throws InterruptedException {
+    long waitNanos = reserve(bytes);
+    if (waitNanos > 0)
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+  }
+
+  /**
+   * Takes the given number of bytes from the bucket and returns the
+   * nanoseconds the caller has to wait before transferring them.
+   */
+  synchronized long reserve(int bytes) {
+    long now = nanoClock.getAsLong();
+    refill(now);
+    tokens -= bytes;
+    totalBytes += bytes;
+    long waitNanos = tokens >= 0 ? 0 : (long) Math.ceil(-tokens * NANOS_PER_SECOND / bytesPerSecond);
+    activeTime.record(now, now + waitNanos);
+    return waitNanos;
+  }
+
+  long getBytesPerSecond() {
+    return bytesPerSecond;
+  }
+
+  synchronized long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /**
+   * Returns the bytes per second that have gone through the bucket while
+   * transfers were going on, leaving out the time it was idle.
+   */
+  synchronized double getAverageRate() {
+    return activeTime.rateOf(totalBytes);
+  }
+
+  private void refill(long now) {
+    tokens = Math.min(capacity, tokens + (double) (now - lastRefillNanos) * bytesPerSecond / NANOS_PER_SECOND);
+    lastRefillNanos = now;
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.opendatakit.briefcase.reused.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Describes the HTTP traffic of a pull or a push of a form once it ends,
+ * so that all the pull and push trackers report it the same way.
+ */
+public class TrafficReport {
+  private TrafficReport() {
+  }
+
+  /**
+   * Returns the messages describing the traffic with a server.
+   *
+   * @param stats           the traffic with the server, adding up the requests of all the forms
+   * @param transferCounter the bytes transferred by the requests of the form, if they have been counted
+   */
+  public static List<String> describe(ConcurrencyStats stats, Optional<TransferCounter> transferCounter) {
+    List<String> messages = new ArrayList<>();
+    messages.add("HTTP traffic with " + stats.getHost() + ": " + stats.describe());
+    transferCounter.ifPresent(counter -> {
+      if (counter.getSentBytes() > 0)
+        messages.add("Uploaded " + counter.describeSent());
+      messages.add("Downloaded " + counter.describe());
+    });
+    return messages;
+  }
+}
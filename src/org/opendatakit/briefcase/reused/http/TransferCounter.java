@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused.http;
+
+import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts the bytes of request bodies sent and response bodies received by the
+ * requests it's attached to with {@link RequestBuilder#withTransferCounter(TransferCounter)}.
+ * <p>
+ * Wire bytes are counted as received, before decompressing them, and decoded
+ * bytes are counted as read by the response mappers. Sent bytes are counted
+ * as written, including the bodies sent again by retries.
+ * <p>
+ * The effective rates are measured over the time spent sending or receiving
+ * bytes, leaving out the idle periods between requests.
+ */
+public class TransferCounter {
+  private final AtomicLong wireBytes = new AtomicLong(0);
+  private final AtomicLong decodedBytes = new AtomicLong(0);
+  private final AtomicLong sentBytes = new AtomicLong(0);
+  private final ActiveTime activeTime = new ActiveTime();
+  private final ActiveTime sendingTime = new ActiveTime();
+  private final LongSupplier nanoClock;
+
+  public TransferCounter() {
+    this(System::nanoTime);
+  }
+
+  TransferCounter(LongSupplier nanoClock) {
+    this.nanoClock = nanoClock;
+  }
+
+  void addWireBytes(long bytes) {
+    long now = nanoClock.getAsLong();
+    activeTime.record(now, now);
+    wireBytes.addAndGet(bytes);
+  }
+
+  void addDecodedBytes(long bytes) {
+    decodedBytes.addAndGet(bytes);
+  }
+
+  void addSentBytes(long bytes) {
+    long now = nanoClock.getAsLong();
+    sendingTime.record(now, now);
+    sentBytes.addAndGet(bytes);
+  }
+
+  public long getWireBytes() {
+    return wireBytes.get();
+  }
+
+  public long getDecodedBytes() {
+    return decodedBytes.get();
+  }
+
+  public long getSentBytes() {
+    return sentBytes.get();
+  }
+
+  /**
+   * Returns the average wire bytes per second received while receiving them.
+   */
+  public double getWireRate() {
+    return activeTime.rateOf(getWireBytes());
+  }
+
+  /**
+   * Returns the average bytes per second sent while sending them.
+   */
+  public double getSentRate() {
+    return sendingTime.rateOf(getSentBytes());
+  }
+
+  /**
+   * Returns a human readable description of the received bytes.
+   */
+  public String describe() {
+    return byteCountToDisplaySize(getWireBytes()) + " transferred at " + byteCountToDisplaySize((long) getWireRate()) + "/s, " + byteCountToDisplaySize(getDecodedBytes()) + " once decompressed";
+  }
+
+  /**
+   * Returns a human readable description of the sent bytes.
+   */
+  public String describeSent() {
+    return byteCountToDisplaySize(getSentBytes()) + " transferred at " + byteCountToDisplaySize((long) getSentRate()) + "/s";
+  }
+}
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.Scanner;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -43,6 +44,14 @@ public interface Response<T> {
     return Success.from(request, response);
   }
 
+  /**
+   * Returns a successful response with the given body, cached from a previous
+   * response, to represent an HTTP 304 Not Modified response.
+   */
+  static <U> Response<U> notModified(Request<U> request, InputStream cachedBody) {
+    return new Success<>(304, "Not Modified", request.map(cachedBody));
+  }
+
   static InputStream uncheckedGetContent(HttpEntity entity) {
     try {
       return entity.getContent();
@@ -81,4 +90,20 @@ public interface Response<T> {
 
   boolean isRedirection();
 
+  /**
+   * Returns the value of the response header with the given name, ignoring
+   * its case. Only successful responses keep their headers.
+   */
+  default Optional<String> getHeader(String name) {
+    return Optional.empty();
+  }
+
+  /**
+   * Returns true if the server has confirmed that the body of
+   * this response hasn't changed since the last time we got it.
+   */
+  default boolean isNotModified() {
+    return isSuccess() && getStatusCode() == 304;
+  }
+
 }
@@ -17,11 +17,15 @@
 package org.opendatakit.briefcase.reused.http.response;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyMap;
 
 import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.opendatakit.briefcase.reused.BriefcaseException;
 import org.opendatakit.briefcase.reused.http.Request;
@@ -33,20 +37,30 @@ class Success<T> implements Response<T> {
   private final int statusCode;
   private final String statusPhrase;
   private final T output;
+  private final Map<String, String> headers;
 
   Success(int statusCode, String statusPhrase, T output) {
+    this(statusCode, statusPhrase, output, emptyMap());
+  }
+
+  Success(int statusCode, String statusPhrase, T output, Map<String, String> headers) {
     this.statusCode = statusCode;
     this.statusPhrase = statusPhrase;
     this.output = output;
+    this.headers = headers;
   }
 
   static <U> Response<U> from(Request<U> request, HttpResponse response) {
+    Map<String, String> headers = new HashMap<>();
+    for (Header header : response.getAllHeaders())
+      headers.putIfAbsent(header.getName().toLowerCase(), header.getValue());
     return new Success<>(
         response.getStatusLine().getStatusCode(),
         response.getStatusLine().getReasonPhrase(),
         request.map(Optional.ofNullable(response.getEntity())
             .map(Response::uncheckedGetContent)
-            .orElse(new ByteArrayInputStream("".getBytes(UTF_8))))
+            .orElse(new ByteArrayInputStream("".getBytes(UTF_8)))),
+        headers
     );
   }
 
@@ -65,6 +79,11 @@ class Success<T> implements Response<T> {
     return statusPhrase;
   }
 
+  @Override
+  public Optional<String> getHeader(String name) {
+    return Optional.ofNullable(headers.get(name.toLowerCase()));
+  }
+
   @Override
   public String getServerErrorResponse() {
     throw new BriefcaseException("No error response");
@@ -72,7 +91,7 @@ class Success<T> implements Response<T> {
 
   @Override
   public <U> Response<U> map(Function<T, U> outputMapper) {
-    return new Success<>(statusCode, statusPhrase, outputMapper.apply(output));
+    return new Success<>(statusCode, statusPhrase, outputMapper.apply(output), headers);
   }
 
   @Override
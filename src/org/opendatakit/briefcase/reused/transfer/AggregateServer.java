@@ -22,7 +22,6 @@ import static org.opendatakit.briefcase.model.BriefcasePreferences.AGGREGATE_1_0
 import static org.opendatakit.briefcase.model.BriefcasePreferences.PASSWORD;
 import static org.opendatakit.briefcase.model.BriefcasePreferences.USERNAME;
 import static org.opendatakit.briefcase.reused.UncheckedFiles.getFileExtension;
-import static org.opendatakit.briefcase.reused.UncheckedFiles.newInputStream;
 import static org.opendatakit.briefcase.reused.http.RequestBuilder.get;
 import static org.opendatakit.briefcase.reused.http.RequestBuilder.head;
 
@@ -84,6 +83,7 @@ public class AggregateServer implements RemoteServer {
         .withPath("/formXml")
         .withQuery(Pair.of("formId", formId))
         .withCredentials(credentials)
+        .conditional()
         .build();
   }
 
@@ -91,6 +91,14 @@ public class AggregateServer implements RemoteServer {
     return get(downloadUrl)
         .asText()
         .withCredentials(credentials)
+        .conditional()
+        .build();
+  }
+
+  public Request<Void> getDownloadAttachmentRequest(URL downloadUrl, Path target) {
+    return get(downloadUrl)
+        .downloadTo(target)
+        .withCredentials(credentials)
         .build();
   }
 
@@ -109,6 +117,7 @@ public class AggregateServer implements RemoteServer {
         .asXmlElement()
         .withPath("/formList")
         .withCredentials(credentials)
+        .conditional()
         .withResponseMapper(root -> root.findElements("xform")
             .stream()
             .filter(e -> e.findElement("name").flatMap(XmlElement::maybeValue).isPresent() &&
@@ -157,14 +166,14 @@ public class AggregateServer implements RemoteServer {
             "form_def_file",
             "application/xml",
             formFile.getFileName().toString(),
-            newInputStream(formFile)
+            formFile
         );
     for (Path attachment : attachments) {
       builder = builder.withMultipartMessage(
           attachment.getFileName().toString(),
           getContentType(attachment),
           attachment.getFileName().toString(),
-          newInputStream(attachment)
+          attachment
       );
     }
     return builder
@@ -177,19 +186,20 @@ public class AggregateServer implements RemoteServer {
   public Request<XmlElement> getPushSubmissionRequest(Path submissionFile, List<Path> attachments) {
     RequestBuilder<XmlElement> builder = RequestBuilder.post(baseUrl)
         .asXmlElement()
+        .asRepeatable()
         .withPath("/submission")
         .withMultipartMessage(
             "xml_submission_file",
             "application/xml",
             submissionFile.getFileName().toString(),
-            newInputStream(submissionFile)
+            submissionFile
         );
     for (Path attachment : attachments) {
       builder = builder.withMultipartMessage(
           attachment.getFileName().toString(),
           getContentType(attachment),
           attachment.getFileName().toString(),
-          newInputStream(attachment)
+          attachment
       );
     }
     return builder
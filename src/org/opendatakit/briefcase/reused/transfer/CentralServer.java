@@ -16,16 +16,19 @@
 
 package org.opendatakit.briefcase.reused.transfer;
 
+import static java.time.format.DateTimeFormatter.ISO_INSTANT;
 import static java.util.stream.Collectors.toList;
-import static org.opendatakit.briefcase.reused.UncheckedFiles.newInputStream;
+import static java.util.stream.Collectors.toSet;
 
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Path;
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import org.opendatakit.briefcase.model.BriefcasePreferences;
 import org.opendatakit.briefcase.model.FormStatus;
 import org.opendatakit.briefcase.model.RemoteFormDefinition;
@@ -106,6 +109,7 @@ public class CentralServer implements RemoteServer {
         .withIgnoreCookies()
         .withPath("/v1/projects/" + projectId + "/forms/" + formId + ".xml")
         .withHeader("Authorization", "Bearer " + token)
+        .acceptingCompression()
         .downloadTo(target)
         .build();
   }
@@ -128,13 +132,46 @@ public class CentralServer implements RemoteServer {
         .build();
   }
 
-  public Request<List<String>> getInstanceIdListRequest(String formId, String token) {
+  /**
+   * Returns a request to get the full list of submissions of a form.
+   */
+  public Request<List<CentralSubmission>> getSubmissionListRequest(String formId, String token) {
     return RequestBuilder.get(baseUrl)
-        .asJsonList()
         .withIgnoreCookies()
         .withPath("/v1/projects/" + projectId + "/forms/" + formId + "/submissions")
         .withHeader("Authorization", "Bearer " + token)
-        .withResponseMapper(json -> json.stream().map(o -> (String) o.get("instanceId")).collect(toList()))
+        .acceptingCompression()
+        .withResponseMapper(CentralSubmission::readRestList)
+        .build();
+  }
+
+  /**
+   * Returns a request to get a page of the list of submissions of a form,
+   * using Central's OData API, which can filter submissions by date.
+   * <p>
+   * The page includes the total number of submissions in all the pages.
+   * Submissions are sorted by submission date and instance ID, which keeps
+   * their order stable from one page to the next.
+   *
+   * @param since only get submissions received on or after this date, if present
+   * @param skip  the number of submissions to skip
+   * @param top   the maximum number of submissions in the page
+   */
+  public Request<CentralSubmissionPage> getSubmissionPageRequest(String formId, Optional<OffsetDateTime> since, int skip, int top, String token) {
+    RequestBuilder<InputStream> builder = RequestBuilder.get(baseUrl)
+        .withIgnoreCookies()
+        .withPath("/v1/projects/" + projectId + "/forms/" + formId + ".svc/Submissions")
+        .withHeader("Authorization", "Bearer " + token)
+        .acceptingCompression();
+    Pair<String, String> select = Pair.of("$select", "__id,__system");
+    Pair<String, String> skipPair = Pair.of("$skip", String.valueOf(skip));
+    Pair<String, String> topPair = Pair.of("$top", String.valueOf(top));
+    Pair<String, String> count = Pair.of("$count", "true");
+    Pair<String, String> orderBy = Pair.of("$orderby", "__system/submissionDate,__id");
+    return (since.isPresent()
+        ? builder.withQuery(Pair.of("$filter", "__system/submissionDate ge " + ISO_INSTANT.format(since.get())), select, orderBy, skipPair, topPair, count)
+        : builder.withQuery(select, orderBy, skipPair, topPair, count))
+        .withResponseMapper(CentralSubmissionPage::readODataPage)
         .build();
   }
 
@@ -143,6 +180,7 @@ public class CentralServer implements RemoteServer {
         .withIgnoreCookies()
         .withPath("/v1/projects/" + projectId + "/forms/" + formId + "/submissions/" + instanceId + ".xml")
         .withHeader("Authorization", "Bearer " + token)
+        .acceptingCompression()
         .downloadTo(target)
         .build();
   }
@@ -175,6 +213,22 @@ public class CentralServer implements RemoteServer {
         .build();
   }
 
+  /**
+   * Returns a request to get the list of published versions of a form,
+   * which lets us check all of them with a single round trip.
+   */
+  public Request<Set<String>> getFormVersionListRequest(String formId, String token) {
+    return RequestBuilder.get(baseUrl)
+        .asJsonList()
+        .withIgnoreCookies()
+        .withPath("/v1/projects/" + projectId + "/forms/" + formId + "/versions")
+        .withHeader("Authorization", "Bearer " + token)
+        .withResponseMapper(list -> list.stream()
+            .map(json -> Optional.ofNullable((String) json.get("version")).orElse(""))
+            .collect(toSet()))
+        .build();
+  }
+
   public Request<Map<String, Object>> getPushFormRequest(Path formFile, String token) {
     return RequestBuilder.post(baseUrl)
         .asJsonMap()
@@ -182,7 +236,7 @@ public class CentralServer implements RemoteServer {
         .withPath("/v1/projects/" + projectId + "/forms")
         .withHeader("Authorization", "Bearer " + token)
         .withHeader("Content-Type", "application/xml")
-        .withBody(newInputStream(formFile))
+        .withBody(formFile)
         .build();
   }
 
@@ -192,7 +246,7 @@ public class CentralServer implements RemoteServer {
         .withPath("/v1/projects/" + projectId + "/forms/" + formId + "/draft")
         .withHeader("Authorization", "Bearer " + token)
         .withHeader("Content-Type", "application/xml")
-        .withBody(newInputStream(formFile))
+        .withBody(formFile)
         .build();
   }
 
@@ -203,7 +257,7 @@ public class CentralServer implements RemoteServer {
         .withPath("/v1/projects/" + projectId + "/forms/" + formId + "/draft/attachments/" + attachment.getFileName().toString())
         .withHeader("Authorization", "Bearer " + token)
         .withHeader("Content-Type", "*/*")
-        .withBody(newInputStream(attachment))
+        .withBody(attachment)
         .build();
   }
 
@@ -222,22 +276,24 @@ public class CentralServer implements RemoteServer {
   public Request<Map<String, Object>> getPushSubmissionRequest(String token, String formId, Path submission) {
     return RequestBuilder.post(baseUrl)
         .asJsonMap()
+        .asRepeatable()
         .withIgnoreCookies()
         .withPath("/v1/projects/" + projectId + "/forms/" + formId + "/submissions")
         .withHeader("Authorization", "Bearer " + token)
         .withHeader("Content-Type", "application/xml")
-        .withBody(newInputStream(submission))
+        .withBody(submission)
         .build();
   }
 
   public Request<Map<String, Object>> getPushSubmissionAttachmentRequest(String token, String formId, String instanceId, Path attachment) {
     return RequestBuilder.post(baseUrl)
         .asJsonMap()
+        .asRepeatable()
         .withIgnoreCookies()
         .withPath("/v1/projects/" + projectId + "/forms/" + formId + "/submissions/" + instanceId + "/attachments/" + attachment.getFileName().toString())
         .withHeader("Authorization", "Bearer " + token)
         .withHeader("Content-Type", "*/*")
-        .withBody(newInputStream(attachment))
+        .withBody(attachment)
         .build();
   }
 
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused.transfer;
+
+import static com.fasterxml.jackson.core.JsonToken.FIELD_NAME;
+import static com.fasterxml.jackson.core.JsonToken.START_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_NUMBER_INT;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import org.opendatakit.briefcase.reused.BriefcaseException;
+
+/**
+ * Represents a submission in the submission lists of a Central form.
+ */
+public class CentralSubmission {
+  static final JsonFactory JSON_FACTORY = new JsonFactory();
+  private final String instanceId;
+  private final OffsetDateTime submissionDate;
+  private final Optional<Integer> attachmentsPresent;
+
+  public CentralSubmission(String instanceId, OffsetDateTime submissionDate) {
+    this(instanceId, submissionDate, Optional.empty());
+  }
+
+  /**
+   * Main constructor for {@link CentralSubmission}. The number of attachments
+   * uploaded to the server is only present in the OData submission list.
+   */
+  public CentralSubmission(String instanceId, OffsetDateTime submissionDate, Optional<Integer> attachmentsPresent) {
+    this.instanceId = instanceId;
+    this.submissionDate = submissionDate;
+    this.attachmentsPresent = attachmentsPresent;
+  }
+
+  /**
+   * Reads the submission list of Central's REST API, keeping only
+   * the fields we need from each item as they get parsed.
+   */
+  static List<CentralSubmission> readRestList(InputStream in) {
+    try (InputStream inHandle = in; JsonParser parser = JSON_FACTORY.createParser(inHandle)) {
+      expect(parser.nextToken(), START_ARRAY);
+      List<CentralSubmission> submissions = new ArrayList<>();
+      while (parser.nextToken() == START_OBJECT)
+        submissions.add(readRestItem(parser));
+      return submissions;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static CentralSubmission readRestItem(JsonParser parser) throws IOException {
+    String instanceId = null;
+    String createdAt = null;
+    while (parser.nextToken() == FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      if (field.equals("instanceId"))
+        instanceId = parser.getValueAsString();
+      else if (field.equals("createdAt"))
+        createdAt = parser.getValueAsString();
+      else
+        parser.skipChildren();
+    }
+    return new CentralSubmission(requireInstanceId(instanceId), parseDate(createdAt));
+  }
+
+  /**
+   * Reads an item of the submission list of Central's OData API. The
+   * parser must be positioned at the start of the item's object.
+   */
+  static CentralSubmission readODataItem(JsonParser parser) throws IOException {
+    String instanceId = null;
+    String submissionDate = null;
+    Optional<Integer> attachmentsPresent = Optional.empty();
+    while (parser.nextToken() == FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+      if (field.equals("__id")) {
+        instanceId = parser.getValueAsString();
+      } else if (field.equals("__system") && value == START_OBJECT) {
+        while (parser.nextToken() == FIELD_NAME) {
+          String systemField = parser.getCurrentName();
+          JsonToken systemValue = parser.nextToken();
+          if (systemField.equals("submissionDate"))
+            submissionDate = parser.getValueAsString();
+          else if (systemField.equals("attachmentsPresent") && systemValue == VALUE_NUMBER_INT)
+            attachmentsPresent = Optional.of(parser.getIntValue());
+          else
+            parser.skipChildren();
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return new CentralSubmission(requireInstanceId(instanceId), parseDate(submissionDate), attachmentsPresent);
+  }
+
+  static void expect(JsonToken actual, JsonToken expected) {
+    if (actual != expected)
+      throw new BriefcaseException("Unexpected submission list contents. Expected " + expected + " but got " + actual);
+  }
+
+  private static String requireInstanceId(String instanceId) {
+    if (instanceId == null)
+      throw new BriefcaseException("Missing submission instance ID");
+    return instanceId;
+  }
+
+  private static OffsetDateTime parseDate(String value) {
+    if (value == null)
+      throw new BriefcaseException("Missing submission date");
+    return OffsetDateTime.parse(value);
+  }
+
+  public String getInstanceId() {
+    return instanceId;
+  }
+
+  public OffsetDateTime getSubmissionDate() {
+    return submissionDate;
+  }
+
+  public Optional<Integer> getAttachmentsPresent() {
+    return attachmentsPresent;
+  }
+
+  /**
+   * Returns true if the server has reported that this submission has no
+   * attachments to download. Returns false if it's unknown.
+   */
+  public boolean hasNoAttachments() {
+    return attachmentsPresent.map(count -> count == 0).orElse(false);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    CentralSubmission that = (CentralSubmission) o;
+    return Objects.equals(instanceId, that.instanceId) &&
+        Objects.equals(submissionDate, that.submissionDate) &&
+        Objects.equals(attachmentsPresent, that.attachmentsPresent);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(instanceId, submissionDate, attachmentsPresent);
+  }
+
+  @Override
+  public String toString() {
+    return "CentralSubmission{" +
+        "instanceId='" + instanceId + '\'' +
+        ", submissionDate=" + submissionDate +
+        ", attachmentsPresent=" + attachmentsPresent +
+        '}';
+  }
+}
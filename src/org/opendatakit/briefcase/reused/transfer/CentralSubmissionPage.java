@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused.transfer;
+
+import static com.fasterxml.jackson.core.JsonToken.END_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.FIELD_NAME;
+import static com.fasterxml.jackson.core.JsonToken.START_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+import static com.fasterxml.jackson.core.JsonToken.VALUE_NUMBER_INT;
+import static org.opendatakit.briefcase.reused.transfer.CentralSubmission.JSON_FACTORY;
+import static org.opendatakit.briefcase.reused.transfer.CentralSubmission.expect;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Represents a page of the submission list of Central's OData API.
+ */
+public class CentralSubmissionPage {
+  private final List<CentralSubmission> submissions;
+  private final Optional<Integer> totalCount;
+
+  public CentralSubmissionPage(List<CentralSubmission> submissions, Optional<Integer> totalCount) {
+    this.submissions = submissions;
+    this.totalCount = totalCount;
+  }
+
+  /**
+   * Reads a page of the OData submission list with a streaming parser, which
+   * only keeps the fields we need from each submission. Any other field,
+   * no matter how big, is skipped as it gets parsed.
+   */
+  static CentralSubmissionPage readODataPage(InputStream in) {
+    try (InputStream inHandle = in; JsonParser parser = JSON_FACTORY.createParser(inHandle)) {
+      expect(parser.nextToken(), START_OBJECT);
+      List<CentralSubmission> submissions = new ArrayList<>();
+      Optional<Integer> totalCount = Optional.empty();
+      while (parser.nextToken() == FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+        if (field.equals("value")) {
+          expect(value, START_ARRAY);
+          JsonToken item;
+          while ((item = parser.nextToken()) == START_OBJECT)
+            submissions.add(CentralSubmission.readODataItem(parser));
+          expect(item, END_ARRAY);
+        } else if (field.equals("@odata.count") && value == VALUE_NUMBER_INT) {
+          totalCount = Optional.of(parser.getIntValue());
+        } else {
+          parser.skipChildren();
+        }
+      }
+      return new CentralSubmissionPage(submissions, totalCount);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public List<CentralSubmission> getSubmissions() {
+    return submissions;
+  }
+
+  /**
+   * Returns the number of submissions in all the pages, if the server has sent it.
+   */
+  public Optional<Integer> getTotalCount() {
+    return totalCount;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    CentralSubmissionPage that = (CentralSubmissionPage) o;
+    return Objects.equals(submissions, that.submissions) &&
+        Objects.equals(totalCount, that.totalCount);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(submissions, totalCount);
+  }
+
+  @Override
+  public String toString() {
+    return "CentralSubmissionPage{" +
+        "submissions=" + submissions +
+        ", totalCount=" + totalCount +
+        '}';
+  }
+}
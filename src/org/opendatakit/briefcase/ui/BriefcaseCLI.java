@@ -309,7 +309,7 @@ public class BriefcaseCLI {
         throw new BriefcaseException("You need to provide a form ID (legacy CLI)");
 
       if (odkDir == null && server != null)
-        pullFormFromAggregate(storageDir, Optional.ofNullable(formid), username, password, RequestBuilder.url(server), false, Optional.empty(), false, Optional.of(1));
+        pullFormFromAggregate(storageDir, Optional.ofNullable(formid), username, password, RequestBuilder.url(server), false, Optional.empty(), false, Optional.of(1), Optional.empty(), Optional.empty(), false, false);
 
       if (exportPath != null)
         export(
@@ -55,9 +55,11 @@ import org.bushe.swing.event.annotation.EventSubscriber;
 import org.opendatakit.briefcase.buildconfig.BuildConfig;
 import org.opendatakit.briefcase.model.BriefcasePreferences;
 import org.opendatakit.briefcase.model.form.FileSystemFormMetadataAdapter;
+import org.opendatakit.briefcase.operations.Common;
 import org.opendatakit.briefcase.reused.StorageLocationEvent;
-import org.opendatakit.briefcase.reused.http.CommonsHttp;
+import org.opendatakit.briefcase.reused.http.BandwidthLimits;
 import org.opendatakit.briefcase.reused.http.Http;
+import org.opendatakit.briefcase.reused.http.HttpValidatorCache;
 import org.opendatakit.briefcase.ui.export.ExportPanel;
 import org.opendatakit.briefcase.ui.pull.PullPanel;
 import org.opendatakit.briefcase.ui.push.PushPanel;
@@ -77,6 +79,8 @@ public class MainBriefcaseWindow {
   private final JTabbedPane tabbedPane = new JTabbedPane(JTabbedPane.TOP);
   private final JLabel versionLabel = new JLabel("Checking for updates…");
   private final Map<String, Integer> tabTitleIndexes = new HashMap<>();
+  private final BriefcasePreferences appPreferences = BriefcasePreferences.appScoped();
+  private Http http;
 
   public static void main(String[] args) {
     if (args.length == 0)
@@ -101,7 +105,6 @@ public class MainBriefcaseWindow {
 
   private MainBriefcaseWindow() {
     // Create all dependencies
-    BriefcasePreferences appPreferences = BriefcasePreferences.appScoped();
     BriefcasePreferences pullPreferences = BriefcasePreferences.forClass(PullPanel.class);
     BriefcasePreferences exportPreferences = BriefcasePreferences.forClass(ExportPanel.class);
     Optional<Path> briefcaseDir = appPreferences.getBriefcaseDir().filter(Files::exists);
@@ -115,9 +118,8 @@ public class MainBriefcaseWindow {
     briefcaseDir.ifPresent(formMetadataAdapter::syncWithFilesAt);
 
     int maxHttpConnections = appPreferences.getMaxHttpConnections().orElse(DEFAULT_HTTP_CONNECTIONS);
-    Http http = appPreferences.getHttpProxy()
-        .map(host -> CommonsHttp.of(maxHttpConnections, host))
-        .orElseGet(() -> CommonsHttp.of(maxHttpConnections));
+    http = Common.buildHttp(appPreferences, maxHttpConnections, BandwidthLimits.of(appPreferences.getMaxUploadRate(), appPreferences.getMaxDownloadRate()));
+    briefcaseDir.map(HttpValidatorCache::at).ifPresent(http::setValidatorCache);
 
     BriefcaseVersionManager versionManager = new BriefcaseVersionManager(http, VERSION);
 
@@ -221,11 +223,13 @@ public class MainBriefcaseWindow {
 
   @EventSubscriber(eventClass = StorageLocationEvent.LocationDefined.class)
   public void onFormStatusEvent(StorageLocationEvent.LocationDefined event) {
+    appPreferences.getBriefcaseDir().map(HttpValidatorCache::at).ifPresent(http::setValidatorCache);
     unlockUI();
   }
 
   @EventSubscriber(eventClass = StorageLocationEvent.LocationCleared.class)
   public void onFormStatusEvent(StorageLocationEvent.LocationCleared event) {
+    http.unsetValidatorCache();
     lockUI();
   }
 }
@@ -36,6 +36,7 @@ import org.opendatakit.briefcase.export.ExportForms;
 import org.opendatakit.briefcase.export.ExportToCsv;
 import org.opendatakit.briefcase.export.ExportToGeoJson;
 import org.opendatakit.briefcase.export.FormDefinition;
+import org.opendatakit.briefcase.export.MediaFetcher;
 import org.opendatakit.briefcase.model.BriefcaseFormDefinition;
 import org.opendatakit.briefcase.model.BriefcasePreferences;
 import org.opendatakit.briefcase.model.FormStatus;
@@ -198,10 +199,11 @@ public class ExportPanel {
       FormMetadata formMetadata = formMetadataPort.fetch(key).orElseThrow(BriefcaseException::new);
       form.setStatusString("Starting to export form");
       String formId = form.getFormDefinition().getFormId();
-      ExportConfiguration configuration = forms.getConfiguration(formId);
-      FormDefinition formDef = FormDefinition.from((BriefcaseFormDefinition) form.getFormDefinition());
       // TODO Abstract away the subtype of RemoteServer. This should say Optional<RemoteServer>
       Optional<AggregateServer> savedPullSource = RemoteServer.readFromPrefs(appPreferences, pullPanelPrefs, form);
+      ExportConfiguration configuration = forms.getConfiguration(formId)
+          .withMediaFetcher(MediaFetcher.of(http, form, appPreferences.getBriefcaseDir().orElseThrow(BriefcaseException::new), savedPullSource));
+      FormDefinition formDef = FormDefinition.from((BriefcaseFormDefinition) form.getFormDefinition());
 
       Job<Void> pullJob = configuration.resolvePullBefore() && savedPullSource.isPresent()
           ? new PullFromAggregate(http, savedPullSource.get(), appPreferences.getBriefcaseDir().orElseThrow(BriefcaseException::new), false, EventBus::publish, formMetadataPort)
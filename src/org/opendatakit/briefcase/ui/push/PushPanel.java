@@ -105,7 +105,7 @@ public class PushPanel {
           view.setWorking();
           forms.forEach(FormStatus::clearStatusHistory);
           new Thread(() -> {
-            pushJobRunner = target.push(forms.getSelectedForms(), briefcaseDir);
+            pushJobRunner = target.push(forms.getSelectedForms(), appPreferences);
             pushJobRunner.waitForCompletion();
           }).start();
         }
@@ -17,16 +17,19 @@
 package org.opendatakit.briefcase.ui.reused.transfer.sourcetarget.source;
 
 import static java.util.stream.Collectors.toList;
+import static org.opendatakit.briefcase.model.form.FormMetadataQueries.lastPulledSubmissionDateOf;
 import static org.opendatakit.briefcase.ui.reused.UI.makeClickable;
 import static org.opendatakit.briefcase.ui.reused.UI.uncheckedBrowse;
 
 import java.awt.Container;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Consumer;
 import javax.swing.JLabel;
 import org.bushe.swing.event.EventBus;
 import org.opendatakit.briefcase.model.BriefcasePreferences;
 import org.opendatakit.briefcase.model.FormStatus;
+import org.opendatakit.briefcase.model.form.FormKey;
 import org.opendatakit.briefcase.model.form.FormMetadataPort;
 import org.opendatakit.briefcase.pull.PullEvent;
 import org.opendatakit.briefcase.pull.central.PullFromCentral;
@@ -113,6 +116,7 @@ public class Central implements PullSource<CentralServer> {
 
   @Override
   public JobsRunner pull(TransferForms forms, BriefcasePreferences appPreferences, FormMetadataPort formMetadataPort) {
+    boolean resumeLastPull = appPreferences.resolveStartFromLast();
     String token = http.execute(server.getSessionTokenRequest()).orElseThrow(() -> new BriefcaseException("Can't authenticate with ODK Central"));
     PullFromCentral pullOp = new PullFromCentral(
         http,
@@ -124,7 +128,12 @@ public class Central implements PullSource<CentralServer> {
     );
 
     return JobsRunner
-        .launchAsync(forms.map(pullOp::pull))
+        .launchAsync(forms.map(form -> pullOp.pull(
+            form,
+            resumeLastPull
+                ? formMetadataPort.query(lastPulledSubmissionDateOf(FormKey.from(form)))
+                : Optional.empty()
+        )))
         .onComplete(() -> EventBus.publish(new PullEvent.PullComplete()));
   }
 
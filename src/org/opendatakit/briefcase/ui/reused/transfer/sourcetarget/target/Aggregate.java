@@ -28,6 +28,7 @@ import org.bushe.swing.event.EventBus;
 import org.opendatakit.briefcase.model.BriefcasePreferences;
 import org.opendatakit.briefcase.push.PushEvent;
 import org.opendatakit.briefcase.push.aggregate.PushToAggregate;
+import org.opendatakit.briefcase.reused.BriefcaseException;
 import org.opendatakit.briefcase.reused.http.Http;
 import org.opendatakit.briefcase.reused.job.JobsRunner;
 import org.opendatakit.briefcase.reused.transfer.AggregateServer;
@@ -76,8 +77,16 @@ public class Aggregate implements PushTarget<AggregateServer> {
   }
 
   @Override
-  public JobsRunner push(TransferForms forms, Path briefcaseDir) {
-    PushToAggregate pushOp = new PushToAggregate(http, server, briefcaseDir, false, EventBus::publish);
+  public JobsRunner push(TransferForms forms, BriefcasePreferences appPreferences) {
+    boolean resendSubmissions = appPreferences.resolveResendSubmissions();
+    PushToAggregate pushOp = new PushToAggregate(
+        http,
+        server,
+        appPreferences.getBriefcaseDir().orElseThrow(BriefcaseException::new),
+        false,
+        resendSubmissions,
+        EventBus::publish
+    );
 
     return JobsRunner
         .launchAsync(forms.map(pushOp::push))
@@ -64,7 +64,8 @@ public class Central implements PushTarget<CentralServer> {
   }
 
   @Override
-  public JobsRunner push(TransferForms forms, Path briefcaseDir) {
+  public JobsRunner push(TransferForms forms, BriefcasePreferences appPreferences) {
+    Path briefcaseDir = appPreferences.getBriefcaseDir().orElseThrow(BriefcaseException::new);
     forms.filter(FormStatus::isEncrypted)
         .forEach(form -> form.setStatusString("Skipping. Encrypted forms can't be pushed to ODK Central yet"));
 
@@ -51,7 +51,7 @@ public interface PushTarget<T> extends SourceOrTarget<T> {
 
   void storeTargetPrefs(BriefcasePreferences prefs, boolean storePasswords);
 
-  JobsRunner push(TransferForms forms, Path briefcaseDir);
+  JobsRunner push(TransferForms forms, BriefcasePreferences appPreferences);
 
   String getDescription();
 
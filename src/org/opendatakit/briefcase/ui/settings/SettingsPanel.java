@@ -25,6 +25,7 @@ import org.opendatakit.briefcase.model.BriefcasePreferences;
 import org.opendatakit.briefcase.model.form.FormMetadataPort;
 import org.opendatakit.briefcase.reused.BriefcaseException;
 import org.opendatakit.briefcase.reused.UncheckedFiles;
+import org.opendatakit.briefcase.reused.http.BandwidthLimits;
 import org.opendatakit.briefcase.reused.http.Http;
 import org.opendatakit.briefcase.ui.reused.Analytics;
 import org.opendatakit.briefcase.util.BriefcaseVersionManager;
@@ -41,7 +42,10 @@ public class SettingsPanel {
 
     appPreferences.getBriefcaseDir().ifPresent(path -> form.setStorageLocation(path.getParent()));
     appPreferences.getMaxHttpConnections().ifPresent(form::setMaxHttpConnections);
+    appPreferences.getMaxUploadRate().ifPresent(form::setMaxUploadRate);
+    appPreferences.getMaxDownloadRate().ifPresent(form::setMaxDownloadRate);
     appPreferences.getStartFromLast().ifPresent(form::setResumeLastPull);
+    appPreferences.getResendSubmissions().ifPresent(form::setResendSubmissions);
     appPreferences.getRememberPasswords().ifPresent(form::setRememberPasswords);
     appPreferences.getSendUsageData().ifPresent(form::setSendUsageData);
     appPreferences.getHttpProxy().ifPresent(httpProxy -> {
@@ -65,7 +69,22 @@ public class SettingsPanel {
       formMetadataPort.flush();
     });
     form.onMaxHttpConnectionsChange(appPreferences::setMaxHttpConnections);
+    form.onMaxUploadRateChange(kbps -> {
+      if (kbps > 0)
+        appPreferences.setMaxUploadRate(kbps);
+      else
+        appPreferences.unsetMaxUploadRate();
+      http.setBandwidthLimits(BandwidthLimits.of(appPreferences.getMaxUploadRate(), appPreferences.getMaxDownloadRate()));
+    });
+    form.onMaxDownloadRateChange(kbps -> {
+      if (kbps > 0)
+        appPreferences.setMaxDownloadRate(kbps);
+      else
+        appPreferences.unsetMaxDownloadRate();
+      http.setBandwidthLimits(BandwidthLimits.of(appPreferences.getMaxUploadRate(), appPreferences.getMaxDownloadRate()));
+    });
     form.onResumeLastPullChange(appPreferences::setStartFromLast);
+    form.onResendSubmissionsChange(appPreferences::setResendSubmissions);
     form.onRememberPasswordsChange(appPreferences::setRememberPasswords);
     form.onSendUsageDataChange(enabled -> {
       appPreferences.setSendUsage(enabled);
@@ -57,6 +57,7 @@ public class SettingsPanelForm {
   private JButton storageLocationClearButton;
   private JButton storageLocationChooseButton;
   private JCheckBox resumeLastPullField;
+  private JCheckBox resendSubmissionsField;
   private JCheckBox rememberPasswordsField;
   private JCheckBox sendUsageDataField;
   private JCheckBox useHttpProxyField;
@@ -69,6 +70,10 @@ public class SettingsPanelForm {
   private JSpinner maxHttpConnectionsField;
   private JLabel maxHttpConnectionsLabel;
   private JPanel maxHttpConnectionContainer;
+  private JSpinner maxUploadRateField;
+  private JLabel maxUploadRateLabel;
+  private JSpinner maxDownloadRateField;
+  private JLabel maxDownloadRateLabel;
   private JPanel httpProxyContainer;
   private JLabel versionLabel;
   private final List<Consumer<Path>> onStorageLocationCallbacks = new ArrayList<>();
@@ -79,6 +84,8 @@ public class SettingsPanelForm {
   SettingsPanelForm() {
     httpProxyPortField = new JIntegerSpinner(8080, 0, 65535, 1);
     maxHttpConnectionsField = new JIntegerSpinner(DEFAULT_HTTP_CONNECTIONS, MIN_HTTP_CONNECTIONS, MAX_HTTP_CONNECTIONS, 1);
+    maxUploadRateField = new JIntegerSpinner(0, 0, Integer.MAX_VALUE, 64);
+    maxDownloadRateField = new JIntegerSpinner(0, 0, Integer.MAX_VALUE, 64);
     $$$setupUI$$$();
 
     storageLocationChooseButton.addActionListener(__ -> FileChooser.directory(container, Optional.empty())
@@ -181,6 +188,30 @@ public class SettingsPanelForm {
     maxHttpConnectionsField.setValue(value);
   }
 
+  /**
+   * Registers a callback for changes of the maximum upload rate, in KB/s.
+   * Zero means there is no limit.
+   */
+  void onMaxUploadRateChange(Consumer<Integer> callback) {
+    maxUploadRateField.addChangeListener(__ -> callback.accept((Integer) maxUploadRateField.getValue()));
+  }
+
+  void setMaxUploadRate(int kbps) {
+    maxUploadRateField.setValue(kbps);
+  }
+
+  /**
+   * Registers a callback for changes of the maximum download rate, in KB/s.
+   * Zero means there is no limit.
+   */
+  void onMaxDownloadRateChange(Consumer<Integer> callback) {
+    maxDownloadRateField.addChangeListener(__ -> callback.accept((Integer) maxDownloadRateField.getValue()));
+  }
+
+  void setMaxDownloadRate(int kbps) {
+    maxDownloadRateField.setValue(kbps);
+  }
+
   void onResumeLastPullChange(Consumer<Boolean> callback) {
     resumeLastPullField.addActionListener(__ -> callback.accept(resumeLastPullField.isSelected()));
   }
@@ -189,6 +220,14 @@ public class SettingsPanelForm {
     resumeLastPullField.setSelected(enabled);
   }
 
+  void onResendSubmissionsChange(Consumer<Boolean> callback) {
+    resendSubmissionsField.addActionListener(__ -> callback.accept(resendSubmissionsField.isSelected()));
+  }
+
+  void setResendSubmissions(Boolean enabled) {
+    resendSubmissionsField.setSelected(enabled);
+  }
+
   void onRememberPasswordsChange(Consumer<Boolean> callback) {
     rememberPasswordsField.addActionListener(__ -> callback.accept(rememberPasswordsField.isSelected()));
   }
@@ -278,7 +317,7 @@ public class SettingsPanelForm {
     rememberPasswordsField.setText("Remember passwords (unencrypted)");
     gbc = new GridBagConstraints();
     gbc.gridx = 1;
-    gbc.gridy = 8;
+    gbc.gridy = 9;
     gbc.gridwidth = 5;
     gbc.anchor = GridBagConstraints.WEST;
     container.add(rememberPasswordsField, gbc);
@@ -286,7 +325,7 @@ public class SettingsPanelForm {
     sendUsageDataField.setText("Send usage data and crash logs to core developers");
     gbc = new GridBagConstraints();
     gbc.gridx = 1;
-    gbc.gridy = 10;
+    gbc.gridy = 11;
     gbc.gridwidth = 5;
     gbc.anchor = GridBagConstraints.WEST;
     container.add(sendUsageDataField, gbc);
@@ -294,14 +333,14 @@ public class SettingsPanelForm {
     useHttpProxyField.setText("Use HTTP Proxy");
     gbc = new GridBagConstraints();
     gbc.gridx = 1;
-    gbc.gridy = 12;
+    gbc.gridy = 13;
     gbc.gridwidth = 5;
     gbc.anchor = GridBagConstraints.WEST;
     container.add(useHttpProxyField, gbc);
     final JPanel spacer2 = new JPanel();
     gbc = new GridBagConstraints();
     gbc.gridx = 1;
-    gbc.gridy = 11;
+    gbc.gridy = 12;
     gbc.gridwidth = 5;
     gbc.fill = GridBagConstraints.VERTICAL;
     container.add(spacer2, gbc);
@@ -309,14 +348,14 @@ public class SettingsPanelForm {
     gbc = new GridBagConstraints();
     gbc.gridx = 6;
     gbc.gridy = 1;
-    gbc.gridheight = 14;
+    gbc.gridheight = 15;
     gbc.fill = GridBagConstraints.HORIZONTAL;
     container.add(spacer3, gbc);
     final JPanel spacer4 = new JPanel();
     gbc = new GridBagConstraints();
     gbc.gridx = 0;
     gbc.gridy = 1;
-    gbc.gridheight = 14;
+    gbc.gridheight = 15;
     gbc.fill = GridBagConstraints.HORIZONTAL;
     container.add(spacer4, gbc);
     final JPanel spacer5 = new JPanel();
@@ -329,7 +368,7 @@ public class SettingsPanelForm {
     final JPanel spacer6 = new JPanel();
     gbc = new GridBagConstraints();
     gbc.gridx = 1;
-    gbc.gridy = 16;
+    gbc.gridy = 17;
     gbc.gridwidth = 5;
     gbc.weighty = 1.0;
     gbc.fill = GridBagConstraints.VERTICAL;
@@ -337,7 +376,7 @@ public class SettingsPanelForm {
     final JPanel spacer7 = new JPanel();
     gbc = new GridBagConstraints();
     gbc.gridx = 1;
-    gbc.gridy = 9;
+    gbc.gridy = 10;
     gbc.gridwidth = 5;
     gbc.fill = GridBagConstraints.VERTICAL;
     container.add(spacer7, gbc);
@@ -345,7 +384,7 @@ public class SettingsPanelForm {
     panel1.setLayout(new GridBagLayout());
     gbc = new GridBagConstraints();
     gbc.gridx = 1;
-    gbc.gridy = 17;
+    gbc.gridy = 18;
     gbc.gridwidth = 5;
     gbc.fill = GridBagConstraints.BOTH;
     container.add(panel1, gbc);
@@ -449,7 +488,7 @@ public class SettingsPanelForm {
     final JPanel spacer17 = new JPanel();
     gbc = new GridBagConstraints();
     gbc.gridx = 0;
-    gbc.gridy = 20;
+    gbc.gridy = 21;
     gbc.gridwidth = 6;
     gbc.fill = GridBagConstraints.VERTICAL;
     container.add(spacer17, gbc);
@@ -461,11 +500,19 @@ public class SettingsPanelForm {
     gbc.gridwidth = 5;
     gbc.anchor = GridBagConstraints.WEST;
     container.add(resumeLastPullField, gbc);
-    final JPanel spacer18 = new JPanel();
+    resendSubmissionsField = new JCheckBox();
+    resendSubmissionsField.setText("Push submissions already sent to Aggregate again");
     gbc = new GridBagConstraints();
     gbc.gridx = 1;
     gbc.gridy = 7;
     gbc.gridwidth = 5;
+    gbc.anchor = GridBagConstraints.WEST;
+    container.add(resendSubmissionsField, gbc);
+    final JPanel spacer18 = new JPanel();
+    gbc = new GridBagConstraints();
+    gbc.gridx = 1;
+    gbc.gridy = 8;
+    gbc.gridwidth = 5;
     gbc.fill = GridBagConstraints.VERTICAL;
     container.add(spacer18, gbc);
     final JPanel spacer19 = new JPanel();
@@ -486,7 +533,7 @@ public class SettingsPanelForm {
     httpProxyContainer.setLayout(new GridBagLayout());
     gbc = new GridBagConstraints();
     gbc.gridx = 1;
-    gbc.gridy = 15;
+    gbc.gridy = 16;
     gbc.gridwidth = 5;
     gbc.fill = GridBagConstraints.BOTH;
     container.add(httpProxyContainer, gbc);
@@ -543,7 +590,7 @@ public class SettingsPanelForm {
     final JPanel spacer24 = new JPanel();
     gbc = new GridBagConstraints();
     gbc.gridx = 1;
-    gbc.gridy = 14;
+    gbc.gridy = 15;
     gbc.gridwidth = 5;
     gbc.fill = GridBagConstraints.VERTICAL;
     container.add(spacer24, gbc);
@@ -582,10 +629,38 @@ public class SettingsPanelForm {
     gbc.weightx = 1.0;
     gbc.fill = GridBagConstraints.HORIZONTAL;
     maxHttpConnectionContainer.add(spacer26, gbc);
+    gbc = new GridBagConstraints();
+    gbc.gridx = 3;
+    gbc.gridy = 1;
+    gbc.anchor = GridBagConstraints.WEST;
+    gbc.fill = GridBagConstraints.HORIZONTAL;
+    maxHttpConnectionContainer.add(maxUploadRateField, gbc);
+    maxUploadRateLabel = new JLabel();
+    maxUploadRateLabel.setText("Maximum upload rate in KB/s (0 for no limit)");
+    gbc = new GridBagConstraints();
+    gbc.gridx = 0;
+    gbc.gridy = 1;
+    gbc.gridwidth = 2;
+    gbc.anchor = GridBagConstraints.WEST;
+    maxHttpConnectionContainer.add(maxUploadRateLabel, gbc);
+    gbc = new GridBagConstraints();
+    gbc.gridx = 3;
+    gbc.gridy = 2;
+    gbc.anchor = GridBagConstraints.WEST;
+    gbc.fill = GridBagConstraints.HORIZONTAL;
+    maxHttpConnectionContainer.add(maxDownloadRateField, gbc);
+    maxDownloadRateLabel = new JLabel();
+    maxDownloadRateLabel.setText("Maximum download rate in KB/s (0 for no limit)");
+    gbc = new GridBagConstraints();
+    gbc.gridx = 0;
+    gbc.gridy = 2;
+    gbc.gridwidth = 2;
+    gbc.anchor = GridBagConstraints.WEST;
+    maxHttpConnectionContainer.add(maxDownloadRateLabel, gbc);
     final JPanel spacer27 = new JPanel();
     gbc = new GridBagConstraints();
     gbc.gridx = 1;
-    gbc.gridy = 18;
+    gbc.gridy = 19;
     gbc.gridwidth = 5;
     gbc.fill = GridBagConstraints.VERTICAL;
     container.add(spacer27, gbc);
@@ -596,7 +671,7 @@ public class SettingsPanelForm {
     versionLabel.setText("[version placeholder]");
     gbc = new GridBagConstraints();
     gbc.gridx = 1;
-    gbc.gridy = 19;
+    gbc.gridy = 20;
     gbc.gridwidth = 5;
     gbc.weightx = 1.0;
     container.add(versionLabel, gbc);
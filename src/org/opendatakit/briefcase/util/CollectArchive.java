@@ -0,0 +1,450 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.opendatakit.briefcase.util;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Comparator.comparingInt;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createTempDirectory;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteRecursive;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.opendatakit.briefcase.reused.BriefcaseException;
+
+/**
+ * Gives access to a zip or tar archive of an ODK Collect directory,
+ * e.g. a backup of a device's odk directory, without extracting it first.
+ * <p>
+ * Opening an archive only extracts its forms and the submission files of
+ * its instances to a temporary ODK directory (see {@link #getOdkDir()}),
+ * which is enough to list the forms and decide which instances have to be
+ * imported. The rest of the files of an instance, i.e. its attachments,
+ * only get extracted when the instance is imported.
+ */
+public abstract class CollectArchive implements AutoCloseable {
+  // Backups of a whole SD card have the odk directory a few levels down, e.g. at "sdcard/odk"
+  private static final int MAX_ROOT_DEPTH = 3;
+  private final Path odkDir;
+
+  private CollectArchive(Path odkDir) {
+    this.odkDir = odkDir;
+  }
+
+  /**
+   * Returns true if the given path is a file with the extension
+   * of a supported archive: .zip, .tar, .tar.gz, or .tgz
+   */
+  public static boolean isArchive(Path path) {
+    return Files.isRegularFile(path) && (isZip(path) || isTar(path) || isGzippedTar(path));
+  }
+
+  /**
+   * Opens the given archive, extracting its forms and submission files
+   * to a temporary directory that gets deleted when the archive is closed.
+   */
+  public static CollectArchive open(Path archive) {
+    Path odkDir = createTempDirectory("briefcase-collect-");
+    try {
+      return isZip(archive) ? ZipCollectArchive.open(archive, odkDir) : TarCollectArchive.open(archive, odkDir);
+    } catch (IOException | RuntimeException e) {
+      deleteRecursive(odkDir);
+      throw new BriefcaseException("Can't read the ODK Collect archive " + archive, e);
+    }
+  }
+
+  /**
+   * Returns the temporary ODK directory with the forms and the
+   * submission files of the instances in this archive.
+   */
+  public Path getOdkDir() {
+    return odkDir;
+  }
+
+  abstract InstanceCopier getInstanceCopier();
+
+  @Override
+  public void close() {
+    deleteRecursive(odkDir);
+  }
+
+  private static boolean isZip(Path path) {
+    return lowerCaseName(path).endsWith(".zip");
+  }
+
+  private static boolean isTar(Path path) {
+    return lowerCaseName(path).endsWith(".tar");
+  }
+
+  private static boolean isGzippedTar(Path path) {
+    String name = lowerCaseName(path);
+    return name.endsWith(".tar.gz") || name.endsWith(".tgz");
+  }
+
+  private static String lowerCaseName(Path path) {
+    return Optional.ofNullable(path.getFileName()).map(Path::toString).orElse("").toLowerCase();
+  }
+
+  /**
+   * Returns the shallowest directory with a "forms" directory among the
+   * given entry names, up to {@link #MAX_ROOT_DEPTH} levels deep, e.g.
+   * "sdcard/odk/", or "" when the forms directory is at the top of the archive.
+   * <p>
+   * Entries with ".." components are ignored.
+   */
+  private static Optional<String> findOdkRoot(Stream<String> entryNames) {
+    return entryNames
+        .filter(CollectArchive::isSafeEntryName)
+        .map(CollectArchive::findFormsParent)
+        .filter(Optional::isPresent)
+        .map(Optional::get)
+        .min(comparingInt(root -> root.length() - root.replace("/", "").length()));
+  }
+
+  /**
+   * Returns the part of the given entry name before its first
+   * "forms" directory component, if it's not too deep.
+   */
+  private static Optional<String> findFormsParent(String entryName) {
+    String[] parts = entryName.split("/");
+    int lastDirectory = entryName.endsWith("/") ? parts.length - 1 : parts.length - 2;
+    StringBuilder root = new StringBuilder();
+    for (int i = 0; i <= Math.min(lastDirectory, MAX_ROOT_DEPTH); i++) {
+      if (parts[i].equals("forms"))
+        return Optional.of(root.toString());
+      root.append(parts[i]).append("/");
+    }
+    return Optional.empty();
+  }
+
+  private static boolean isSafeEntryName(String entryName) {
+    for (String part : entryName.split("/"))
+      if (part.equals(".."))
+        return false;
+    return true;
+  }
+
+  /**
+   * Resolves the given relative path in the given directory, rejecting
+   * paths that would end up outside it, e.g. "../../etc/passwd"
+   */
+  private static Path resolveInside(Path dir, String relativePath) throws IOException {
+    Path path = dir.resolve(relativePath).normalize();
+    if (!path.startsWith(dir.normalize()))
+      throw new IOException("Archive entry " + relativePath + " is outside its target directory");
+    return path;
+  }
+
+  /**
+   * Zip archives are read with the zip file system provider,
+   * which gives random access to their entries.
+   */
+  private static class ZipCollectArchive extends CollectArchive {
+    private final FileSystem zipFs;
+    private final Path instancesDir;
+
+    private ZipCollectArchive(Path odkDir, FileSystem zipFs, Path instancesDir) {
+      super(odkDir);
+      this.zipFs = zipFs;
+      this.instancesDir = instancesDir;
+    }
+
+    static CollectArchive open(Path archive, Path odkDir) throws IOException {
+      FileSystem zipFs = FileSystems.newFileSystem(archive, (ClassLoader) null);
+      try {
+        Path root = findOdkRoot(zipFs.getPath("/"))
+            .orElseThrow(() -> new BriefcaseException("No forms directory found"));
+        InstanceCopier.copyDirectory(root.resolve("forms"), odkDir.resolve("forms"));
+        Path instancesDir = root.resolve("instances");
+        if (Files.isDirectory(instancesDir))
+          stageSubmissionFiles(instancesDir, odkDir.resolve("instances"));
+        return new ZipCollectArchive(odkDir, zipFs, instancesDir);
+      } catch (IOException | RuntimeException e) {
+        zipFs.close();
+        throw e;
+      }
+    }
+
+    private static Optional<Path> findOdkRoot(Path zipRoot) throws IOException {
+      try (Stream<Path> paths = Files.walk(zipRoot, MAX_ROOT_DEPTH + 1)) {
+        return CollectArchive.findOdkRoot(paths
+            .filter(path -> !path.equals(zipRoot) && Files.isDirectory(path))
+            .map(path -> entryName(zipRoot.relativize(path))))
+            .map(zipRoot::resolve);
+      }
+    }
+
+    private static String entryName(Path relativePath) {
+      StringBuilder entryName = new StringBuilder();
+      for (Path part : relativePath)
+        entryName.append(name(part)).append("/");
+      return entryName.toString();
+    }
+
+    /**
+     * Copies the xml files at the top level of each instance directory.
+     */
+    private static void stageSubmissionFiles(Path instancesDir, Path targetDir) throws IOException {
+      try (DirectoryStream<Path> instanceDirs = Files.newDirectoryStream(instancesDir, Files::isDirectory)) {
+        for (Path instanceDir : instanceDirs) {
+          Path targetInstanceDir = targetDir.resolve(name(instanceDir));
+          Files.createDirectories(targetInstanceDir);
+          try (DirectoryStream<Path> xmlFiles = Files.newDirectoryStream(instanceDir, file -> name(file).endsWith(".xml") && Files.isRegularFile(file))) {
+            for (Path xmlFile : xmlFiles)
+              Files.copy(xmlFile, targetInstanceDir.resolve(name(xmlFile)));
+          }
+        }
+      }
+    }
+
+    // Directory names from the zip file system can keep their trailing slash
+    private static String name(Path path) {
+      String name = path.getFileName().toString();
+      return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+    }
+
+    @Override
+    InstanceCopier getInstanceCopier() {
+      return (source, target) -> InstanceCopier.copyDirectory(instancesDir.resolve(source.getFileName().toString()), target);
+    }
+
+    @Override
+    public void close() {
+      try {
+        zipFs.close();
+      } catch (IOException e) {
+        throw new BriefcaseException(e);
+      } finally {
+        super.close();
+      }
+    }
+  }
+
+  /**
+   * Tar archives can only be read sequentially. Instances are extracted
+   * with one pass over the archive per imported form, which writes the
+   * files of all the instances of the form that have to be imported to
+   * a hidden staging directory next to the form's instances directory.
+   * Each instance gets moved from there into the instances directory when
+   * it's imported, which is a rename on the same file system. The staging
+   * directory gets deleted once the form is imported, if the archive can't
+   * be read, and when the archive is closed.
+   */
+  private static class TarCollectArchive extends CollectArchive {
+    private static final String STAGING_DIR_NAME = ".instances-staging";
+    private final Path archive;
+    private final String root;
+    private final TarInstanceCopier instanceCopier = new TarInstanceCopier();
+
+    private TarCollectArchive(Path odkDir, Path archive, String root) {
+      super(odkDir);
+      this.archive = archive;
+      this.root = root;
+    }
+
+    /**
+     * Opens the archive with two passes over it: the first one reads the
+     * entry names to find the odk directory, and the second one extracts
+     * the forms and the submission files under it.
+     */
+    static CollectArchive open(Path archive, Path odkDir) throws IOException {
+      String root = findOdkRoot(listEntryNames(archive).stream())
+          .orElseThrow(() -> new BriefcaseException("No forms directory found"));
+      try (TarArchiveInputStream tarIn = openTar(archive)) {
+        TarArchiveEntry entry;
+        while ((entry = tarIn.getNextTarEntry()) != null) {
+          String name = entryName(entry);
+          if (!name.startsWith(root) || !isSafeEntryName(name))
+            continue;
+          String relativeName = name.substring(root.length());
+          String[] parts = relativeName.split("/");
+          if (parts[0].equals("forms"))
+            extract(tarIn, entry, resolveInside(odkDir, relativeName));
+          else if (parts[0].equals("instances") && parts.length == 2 && entry.isDirectory())
+            Files.createDirectories(resolveInside(odkDir, relativeName));
+          else if (parts[0].equals("instances") && parts.length == 3 && parts[2].endsWith(".xml"))
+            extract(tarIn, entry, resolveInside(odkDir, relativeName));
+        }
+      }
+      if (!Files.isDirectory(odkDir.resolve("forms")))
+        throw new BriefcaseException("No forms directory found");
+      return new TarCollectArchive(odkDir, archive, root);
+    }
+
+    private static List<String> listEntryNames(Path archive) throws IOException {
+      List<String> names = new ArrayList<>();
+      try (TarArchiveInputStream tarIn = openTar(archive)) {
+        TarArchiveEntry entry;
+        while ((entry = tarIn.getNextTarEntry()) != null)
+          names.add(entryName(entry));
+      }
+      return names;
+    }
+
+    @Override
+    InstanceCopier getInstanceCopier() {
+      return instanceCopier;
+    }
+
+    @Override
+    public void close() {
+      instanceCopier.finish();
+      super.close();
+    }
+
+    private static TarArchiveInputStream openTar(Path archive) throws IOException {
+      InputStream in = new BufferedInputStream(Files.newInputStream(archive));
+      try {
+        return new TarArchiveInputStream(isGzippedTar(archive) ? new GZIPInputStream(in) : in);
+      } catch (IOException e) {
+        in.close();
+        throw e;
+      }
+    }
+
+    private static String entryName(TarArchiveEntry entry) {
+      String name = entry.getName();
+      while (name.startsWith("./") || name.startsWith("/"))
+        name = name.substring(name.startsWith("/") ? 1 : 2);
+      return name;
+    }
+
+    /**
+     * Writes the current entry of the archive and returns the number of written bytes.
+     */
+    private static long extract(TarArchiveInputStream tarIn, TarArchiveEntry entry, Path target) throws IOException {
+      if (entry.isDirectory()) {
+        Files.createDirectories(target);
+        return 0;
+      }
+      if (!entry.isFile())
+        return 0;
+      Files.createDirectories(target.getParent());
+      long bytes = Files.copy(tarIn, target, REPLACE_EXISTING);
+      Files.setLastModifiedTime(target, FileTime.fromMillis(entry.getModTime().getTime()));
+      return bytes;
+    }
+
+    private class TarInstanceCopier implements InstanceCopier {
+      private final Map<Path, Long> bytesBySource = new ConcurrentHashMap<>();
+      private final Map<Path, IOException> errorsBySource = new ConcurrentHashMap<>();
+      private Path stagingDir;
+
+      @Override
+      public void prepare(Map<Path, Path> targetsBySource) {
+        bytesBySource.clear();
+        errorsBySource.clear();
+        finish();
+        if (targetsBySource.isEmpty())
+          return;
+
+        Map<String, Path> sourcesByName = new HashMap<>();
+        targetsBySource.keySet().forEach(source -> {
+          sourcesByName.put(source.getFileName().toString(), source);
+          bytesBySource.put(source, 0L);
+        });
+        Map<Path, FileTime> directoryTimes = new HashMap<>();
+        // A staging directory left behind by an interrupted import gets replaced
+        stagingDir = targetsBySource.values().iterator().next().getParent().resolveSibling(STAGING_DIR_NAME);
+        if (Files.exists(stagingDir))
+          deleteRecursive(stagingDir);
+        try (TarArchiveInputStream tarIn = openTar(archive)) {
+          Files.createDirectories(stagingDir);
+          TarArchiveEntry entry;
+          while ((entry = tarIn.getNextTarEntry()) != null) {
+            String name = entryName(entry);
+            if (!name.startsWith(root + "instances/") || !isSafeEntryName(name))
+              continue;
+            String instanceName = name.substring((root + "instances/").length());
+            int slash = instanceName.indexOf('/');
+            Path source = sourcesByName.get(slash == -1 ? instanceName : instanceName.substring(0, slash));
+            if (source == null || errorsBySource.containsKey(source))
+              continue;
+            try {
+              Path target = resolveInside(stagingDir.resolve(source.getFileName().toString()), slash == -1 ? "" : instanceName.substring(slash + 1));
+              long bytes = extract(tarIn, entry, target);
+              bytesBySource.merge(source, bytes, Long::sum);
+              if (entry.isDirectory())
+                directoryTimes.put(target, FileTime.fromMillis(entry.getModTime().getTime()));
+            } catch (IOException e) {
+              errorsBySource.put(source, e);
+            }
+          }
+          for (Map.Entry<Path, FileTime> directoryTime : directoryTimes.entrySet())
+            Files.setLastModifiedTime(directoryTime.getKey(), directoryTime.getValue());
+        } catch (IOException e) {
+          targetsBySource.keySet().forEach(source -> errorsBySource.putIfAbsent(source, e));
+          finish();
+        }
+      }
+
+      @Override
+      public synchronized void finish() {
+        if (stagingDir != null && Files.exists(stagingDir))
+          deleteRecursive(stagingDir);
+        stagingDir = null;
+      }
+
+      @Override
+      public long copy(Path source, Path target) throws IOException {
+        IOException error = errorsBySource.get(source);
+        if (error != null)
+          throw error;
+        Long bytes = bytesBySource.get(source);
+        if (bytes == null)
+          throw new IOException("Instance " + source.getFileName() + " hasn't been extracted");
+        Path staged = stagingDir.resolve(source.getFileName().toString());
+        Files.createDirectories(target.getParent());
+        if (!Files.exists(staged)) {
+          // Only entries that aren't regular files or directories, e.g. links
+          Files.createDirectories(target);
+          return bytes;
+        }
+        try {
+          Files.move(staged, target, REPLACE_EXISTING);
+        } catch (IOException e) {
+          // Non empty directories can't be moved to another file system,
+          // e.g. when the instances directory is a mount point
+          try {
+            InstanceCopier.copyDirectory(staged, target);
+          } catch (IOException copyError) {
+            deleteRecursive(target);
+            throw copyError;
+          }
+        }
+        return bytes;
+      }
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.util;
+
+import static org.apache.commons.io.FileUtils.byteCountToDisplaySize;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Adds up the submissions imported from an ODK Collect directory (i.e. a
+ * device), across all the forms imported from it.
+ */
+public class CollectImportSummary {
+  private final AtomicInteger imported = new AtomicInteger(0);
+  private final AtomicInteger alreadyPresent = new AtomicInteger(0);
+  private final AtomicInteger failed = new AtomicInteger(0);
+  private final AtomicLong copiedBytes = new AtomicLong(0);
+
+  void trackImported(long bytes) {
+    imported.incrementAndGet();
+    copiedBytes.addAndGet(bytes);
+  }
+
+  void trackAlreadyPresent() {
+    alreadyPresent.incrementAndGet();
+  }
+
+  void trackFailed() {
+    failed.incrementAndGet();
+  }
+
+  public int getImported() {
+    return imported.get();
+  }
+
+  public int getAlreadyPresent() {
+    return alreadyPresent.get();
+  }
+
+  public int getFailed() {
+    return failed.get();
+  }
+
+  public long getCopiedBytes() {
+    return copiedBytes.get();
+  }
+
+  /**
+   * Returns a human readable description of the imported submissions.
+   */
+  public String describe() {
+    return getImported() + " submissions imported (" + byteCountToDisplaySize(getCopiedBytes()) + "), "
+        + getAlreadyPresent() + " already present, "
+        + getFailed() + " failed";
+  }
+}
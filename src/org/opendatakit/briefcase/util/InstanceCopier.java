@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.opendatakit.briefcase.util;
+
+import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies ODK Collect instance directories into Briefcase's storage.
+ */
+interface InstanceCopier {
+  InstanceCopier DIRECT = InstanceCopier::copyDirectory;
+
+  /**
+   * Gets called once per form, from a single thread, before copying its
+   * instances, with the instance directories that will be copied and
+   * their target directories.
+   */
+  default void prepare(Map<Path, Path> targetsBySource) {
+  }
+
+  /**
+   * Copies the given instance directory into the given target directory
+   * and returns the number of copied bytes. It can be called from several
+   * threads at the same time.
+   */
+  long copy(Path source, Path target) throws IOException;
+
+  /**
+   * Gets called once per form, from a single thread, after copying its
+   * instances, even if the import has failed or has been cancelled.
+   */
+  default void finish() {
+  }
+
+  /**
+   * Copies the contents of a directory into another one, keeping
+   * the last modified dates, and returns the number of copied bytes.
+   */
+  static long copyDirectory(Path source, Path target) throws IOException {
+    AtomicLong bytes = new AtomicLong(0);
+    Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        Files.copy(file, target.resolve(source.relativize(file).toString()), REPLACE_EXISTING, COPY_ATTRIBUTES);
+        bytes.addAndGet(attrs.size());
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+        if (e != null)
+          throw e;
+        Files.setLastModifiedTime(target.resolve(source.relativize(dir).toString()), Files.getLastModifiedTime(dir));
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return bytes.get();
+  }
+}
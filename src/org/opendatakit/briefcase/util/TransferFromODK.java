@@ -16,13 +16,30 @@
 
 package org.opendatakit.briefcase.util;
 
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+
 import java.io.File;
-import java.io.FilenameFilter;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 import org.apache.commons.io.FileUtils;
 import org.bushe.swing.event.EventBus;
 import org.opendatakit.briefcase.model.BriefcaseFormDefinition;
@@ -33,6 +50,7 @@ import org.opendatakit.briefcase.model.OdkCollectFormDefinition;
 import org.opendatakit.briefcase.model.ParsingException;
 import org.opendatakit.briefcase.model.ServerConnectionInfo;
 import org.opendatakit.briefcase.model.TerminationFuture;
+import org.opendatakit.briefcase.reused.Futures;
 import org.opendatakit.briefcase.transfer.TransferForms;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,22 +58,56 @@ import org.slf4j.LoggerFactory;
 public class TransferFromODK implements ITransferFromSourceAction {
 
   private static final Logger log = LoggerFactory.getLogger(TransferFromODK.class);
-
-  @SuppressWarnings("checkstyle:ParameterName")
-  private FilenameFilter fileEndsWithXml = (__, name) -> name.endsWith(".xml");
+  // protects against someone having "formname" and "formname_2"
+  // and us mistaking "formname_2_2009-01-02_15_10_03" as containing
+  // instance data for "formname" instead of "formname_2"
+  private static final Pattern INSTANCE_DIR_DATE = Pattern.compile("^[0-9]{4}-[0-9]{2}-[0-9]{2}_[0-9]{2}-[0-9]{2}-[0-9]{2}.*");
+  // Imports are bound by the disk rather than the CPU. A few threads keep
+  // the disk busy, and they're shared by all the forms imported at once
+  private static final int IMPORT_THREADS = 4;
+  private static final ExecutorService IMPORT_EXECUTOR = buildImportExecutor();
 
   private Path briefcaseDir;
   private final File odkOriginDir;
   private final TerminationFuture terminationFuture;
   private final TransferForms formsToTransfer;
   private final Set<String> submissionVersions;
+  private final CollectImportSummary summary;
+  private final InstanceCopier instanceCopier;
 
   public TransferFromODK(Path briefcaseDir, File odkOriginDir, TerminationFuture terminationFuture, TransferForms formsToTransfer, Set<String> submissionVersions) {
+    this(briefcaseDir, odkOriginDir, terminationFuture, formsToTransfer, submissionVersions, new CollectImportSummary());
+  }
+
+  public TransferFromODK(Path briefcaseDir, File odkOriginDir, TerminationFuture terminationFuture, TransferForms formsToTransfer, Set<String> submissionVersions, CollectImportSummary summary) {
+    this(briefcaseDir, odkOriginDir, terminationFuture, formsToTransfer, submissionVersions, summary, InstanceCopier.DIRECT);
+  }
+
+  /**
+   * Returns a new instance that will import the given forms from an archive
+   * of an ODK Collect directory.
+   */
+  public TransferFromODK(Path briefcaseDir, CollectArchive archive, TerminationFuture terminationFuture, TransferForms formsToTransfer, Set<String> submissionVersions, CollectImportSummary summary) {
+    this(briefcaseDir, archive.getOdkDir().toFile(), terminationFuture, formsToTransfer, submissionVersions, summary, archive.getInstanceCopier());
+  }
+
+  private TransferFromODK(Path briefcaseDir, File odkOriginDir, TerminationFuture terminationFuture, TransferForms formsToTransfer, Set<String> submissionVersions, CollectImportSummary summary, InstanceCopier instanceCopier) {
     this.briefcaseDir = briefcaseDir;
     this.odkOriginDir = odkOriginDir;
     this.terminationFuture = terminationFuture;
     this.formsToTransfer = formsToTransfer;
     this.submissionVersions = submissionVersions;
+    this.summary = summary;
+    this.instanceCopier = instanceCopier;
+  }
+
+  private static ExecutorService buildImportExecutor() {
+    AtomicInteger threadNumber = new AtomicInteger(1);
+    return Executors.newFixedThreadPool(IMPORT_THREADS, runnable -> {
+      Thread thread = new Thread(runnable, "briefcase-collect-import-" + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
   }
 
   /**
@@ -171,157 +223,57 @@ public class TransferFromODK implements ITransferFromSourceAction {
           EventBus.publish(new FormStatusEvent(fs));
 
           // construct up the list of folders that might have ODK form data.
-          File odkFormInstancesDir = new File(odkFormDefFile.getParentFile().getParentFile(),
-              "instances");
-          // rely on ODK naming conventions to identify form data files...
-          File[] odkFormInstanceDirs = odkFormInstancesDir.listFiles(pathname -> {
-            boolean beginsWithFormName = pathname.getName().startsWith(odkFormName);
-            if (!beginsWithFormName)
-              return false;
-            // skip the separator character, as it varies between 1.1.5, 1.1.6 and 1.1.7
-            String afterName = pathname.getName().substring(odkFormName.length() + 1);
-            // aftername should be a reasonable date though we allow extra stuff at the end...
-            // protects against someone having "formname" and "formname_2"
-            // and us mistaking "formname_2_2009-01-02_15_10_03" as containing
-            // instance data for "formname" instead of "formname_2"
-            return afterName.matches("^[0-9]{4}-[0-9]{2}-[0-9]{2}_[0-9]{2}-[0-9]{2}-[0-9]{2}.*");
-          });
-
-          if (odkFormInstanceDirs != null) {
-            int instanceCount = 1;
-            for (File dir : odkFormInstanceDirs) {
-              if (terminationFuture.isCancelled()) {
-                fs.setStatusString("aborting retrieving submissions...");
-                EventBus.publish(new FormStatusEvent(fs));
-                return false;
-              }
-
-              // 1.1.8 -- submission is saved as submission.xml.
-              // full instance data is stored as directoryName.xml (as is the convention in 1.1.5, 1.1.7)
-              String instanceId = null;
-              File fullXml = new File(dir, dir.getName() + ".xml");
-              File xml = new File(dir, "submission.xml");
-              if (!xml.exists() && fullXml.exists()) {
-                xml = fullXml; // e.g., 1.1.5, 1.1.7
-              }
-
-              // this is a hack added to support easier generation of large test cases where we
-              // copy a single instance directory repeatedly.  Normally the xml submission file
-              // has the name of the enclosing directory, but if you copy directories, this won't
-              // be the case.  In this instance, if there is one xml file in the directory,
-              // rename it to match the directory name.
-              if (!xml.exists()) {
-                File[] xmlFiles = dir.listFiles(fileEndsWithXml);
-
-                if (xmlFiles.length == 1) {
-                  try {
-                    FileUtils.moveFile(xmlFiles[0], xml);
-                  } catch (IOException e) {
-                    allSuccessful = isSuccessful = false;
-                    String msg = "unable to rename form instance xml";
-                    log.error(msg, e);
-                    fs.setStatusString(msg + ": " + e.getMessage());
-                    EventBus.publish(new FormStatusEvent(fs));
-                    continue;
-                  }
-                }
-              }
-
-              if (xml.exists()) {
-                //Check if the instance has an instanceID
-                try {
-                  XmlManipulationUtils.FormInstanceMetadata formInstanceMetadata =
-                      XmlManipulationUtils.getFormInstanceMetadata(XmlManipulationUtils.parseXml(xml)
-                          .getRootElement());
-                  instanceId = formInstanceMetadata.instanceId;
-                  String version = formInstanceMetadata.xparam.modelVersion;
-                  submissionVersions.add(version == null ? "" : version);
-                } catch (ParsingException e) {
-                  log.error("failed to get instance id from submission", e);
-                }
-
-                // OK, we can copy the directory off...
-                // Briefcase instances directory name is arbitrary.
-                // Rename the xml within that to always be "submission.xml"
-                // to remove the correspondence to the directory name.
-                File scratchInstance = FileSystemUtils.getFormSubmissionDirectory(destinationFormInstancesDir, dir.getName());
-                String safeName = scratchInstance.getName();
-
-                int i = 2;
-                boolean same = false;
-                while (scratchInstance.exists()) {
-                  File[] contents = scratchInstance.listFiles(fileEndsWithXml);
-                  if (contents == null || contents.length == 0)
-                    break;
-                  if (contents.length == 1) {
-                    String itsInstanceId;
-                    try {
-                      XmlManipulationUtils.FormInstanceMetadata formInstanceMetadata =
-                          XmlManipulationUtils.getFormInstanceMetadata(XmlManipulationUtils.parseXml(contents[0])
-                              .getRootElement());
-                      itsInstanceId = formInstanceMetadata.instanceId;
-
-                      //Check if the above ODK file(xml) instanceId is equal to this briefcase file instanceId then compare their MD5 hashes
-                      //if yes don't copy it, skip to next file
-                      if (itsInstanceId != null && itsInstanceId.equals(instanceId) &&
-                          FileSystemUtils.getMd5Hash(xml).equals(FileSystemUtils.getMd5Hash(contents[0]))) {
-                        same = true;
-                        break;
-                      }
-                    } catch (ParsingException e) {
-                      log.error("failed to parse submission", e);
-                    }
-                  }
-
-                  scratchInstance = new File(destinationFormInstancesDir, safeName + "-" + Integer.toString(i));
-                  i++;
-                }
-
-                if (same) {
-                  fs.setStatusString("already present - skipping: " + xml.getName());
-                  EventBus.publish(new FormStatusEvent(fs));
-                  continue;
-                }
-
-                try {
-                  FileUtils.copyDirectory(dir, scratchInstance);
-                } catch (IOException e) {
-                  allSuccessful = isSuccessful = false;
-                  String msg = "unable to copy saved instance";
-                  log.error(msg, e);
-                  fs.setStatusString(msg + ": " + e.getMessage());
-                  EventBus.publish(new FormStatusEvent(fs));
-                  continue;
-                }
-
-                if (xml.equals(fullXml)) {
-                  // need to rename
-                  File odkSubmissionFile = new File(scratchInstance, fullXml.getName());
-                  File scratchSubmissionFile = new File(scratchInstance, "submission.xml");
-
-                  try {
-                    FileUtils.moveFile(odkSubmissionFile, scratchSubmissionFile);
-                  } catch (IOException e) {
-                    allSuccessful = isSuccessful = false;
-                    String msg = "unable to rename submission file to submission.xml";
-                    log.error(msg, e);
-                    fs.setStatusString(msg + ": " + e.getMessage());
-                    EventBus.publish(new FormStatusEvent(fs));
-                    continue;
-                  }
-                } else {
-                  // delete the full xml file (keep only the submission.xml)
-                  File odkSubmissionFile = new File(scratchInstance, fullXml.getName());
-                  //noinspection ResultOfMethodCallIgnored
-                  odkSubmissionFile.delete();
-                }
-
-                fs.setStatusString(String.format("retrieving (%1$d)", instanceCount));
-                EventBus.publish(new FormStatusEvent(fs));
-                ++instanceCount;
-              }
+          Path odkFormInstancesDir = odkFormDefFile.getParentFile().getParentFile().toPath().resolve("instances");
+          List<Path> odkFormInstanceDirs = listInstanceDirs(odkFormInstancesDir, odkFormName);
+
+          // Instances are read and copied by the import threads, but their destination
+          // directories are chosen one at a time, in the order they are listed, which
+          // gives them the same names a sequential import would give them
+          AtomicBoolean failed = new AtomicBoolean(false);
+          List<CollectInstance> instances = runAll(odkFormInstanceDirs.stream()
+              .map(dir -> (Supplier<Optional<CollectInstance>>) () -> readInstance(dir, fs, failed)))
+              .stream()
+              .filter(Optional::isPresent)
+              .map(Optional::get)
+              .collect(toList());
+          if (terminationFuture.isCancelled()) {
+            fs.setStatusString("aborting retrieving submissions...");
+            EventBus.publish(new FormStatusEvent(fs));
+            return false;
+          }
+
+          Path destinationDir = destinationFormInstancesDir.toPath();
+          Map<Path, CollectInstance> instancesByDestination = new LinkedHashMap<>();
+          for (CollectInstance instance : instances) {
+            instance.version.ifPresent(submissionVersions::add);
+            Optional<Path> destination = resolveDestination(instance, destinationDir, instancesByDestination);
+            if (!destination.isPresent()) {
+              summary.trackAlreadyPresent();
+              fs.setStatusString("already present - skipping: " + instance.xml.getFileName());
+              EventBus.publish(new FormStatusEvent(fs));
+              continue;
             }
+            instancesByDestination.put(destination.get(), instance);
+          }
+
+          Map<Path, Path> destinationsByInstanceDir = new HashMap<>();
+          instancesByDestination.forEach((destination, instance) -> destinationsByInstanceDir.put(instance.dir, destination));
+          AtomicInteger instanceCount = new AtomicInteger(1);
+          List<Boolean> results;
+          try {
+            instanceCopier.prepare(destinationsByInstanceDir);
+            results = runAll(instancesByDestination.entrySet().stream()
+                .map(entry -> (Supplier<Boolean>) () -> importInstance(entry.getValue(), entry.getKey(), fs, instanceCount)));
+          } finally {
+            instanceCopier.finish();
+          }
+          if (terminationFuture.isCancelled()) {
+            fs.setStatusString("aborting retrieving submissions...");
+            EventBus.publish(new FormStatusEvent(fs));
+            return false;
           }
+          if (failed.get() || results.contains(false))
+            allSuccessful = isSuccessful = false;
 
         } catch (SQLException | FileSystemException e) {
           allSuccessful = isSuccessful = false;
@@ -356,4 +308,211 @@ public class TransferFromODK implements ITransferFromSourceAction {
     }
     return allSuccessful;
   }
+
+  /**
+   * Lists the instance directories of the given form, relying on ODK naming
+   * conventions to identify them.
+   */
+  private static List<Path> listInstanceDirs(Path odkFormInstancesDir, String odkFormName) {
+    if (!Files.isDirectory(odkFormInstancesDir))
+      return emptyList();
+    List<Path> dirs = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(odkFormInstancesDir, path -> {
+      String name = path.getFileName().toString();
+      // skip the separator character, as it varies between 1.1.5, 1.1.6 and 1.1.7
+      // aftername should be a reasonable date though we allow extra stuff at the end...
+      return name.startsWith(odkFormName)
+          && name.length() > odkFormName.length()
+          && INSTANCE_DIR_DATE.matcher(name.substring(odkFormName.length() + 1)).matches();
+    })) {
+      stream.forEach(dirs::add);
+    } catch (IOException e) {
+      log.error("unable to list the instances in " + odkFormInstancesDir, e);
+      return emptyList();
+    }
+    return dirs;
+  }
+
+  private static List<Path> listXmlFiles(Path dir) {
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, path -> path.getFileName().toString().endsWith(".xml"))) {
+      stream.forEach(files::add);
+    } catch (IOException e) {
+      // Same as File.listFiles, which doesn't tell apart errors from empty directories
+      return emptyList();
+    }
+    return files;
+  }
+
+  /**
+   * Finds the submission file of an instance directory and reads its metadata.
+   */
+  private Optional<CollectInstance> readInstance(Path dir, FormStatus fs, AtomicBoolean failed) {
+    if (terminationFuture.isCancelled() || !Files.isDirectory(dir))
+      return Optional.empty();
+
+    // 1.1.8 -- submission is saved as submission.xml.
+    // full instance data is stored as directoryName.xml (as is the convention in 1.1.5, 1.1.7)
+    Path fullXml = dir.resolve(dir.getFileName() + ".xml");
+    Path xml = dir.resolve("submission.xml");
+    if (!Files.exists(xml) && Files.exists(fullXml)) {
+      xml = fullXml; // e.g., 1.1.5, 1.1.7
+    }
+
+    // this is a hack added to support easier generation of large test cases where we
+    // copy a single instance directory repeatedly.  Normally the xml submission file
+    // has the name of the enclosing directory, but if you copy directories, this won't
+    // be the case.  In this instance, if there is one xml file in the directory,
+    // use it as the submission file. It gets renamed once it's imported, leaving
+    // the ODK directory untouched.
+    if (!Files.exists(xml)) {
+      List<Path> xmlFiles = listXmlFiles(dir);
+      if (xmlFiles.size() == 1)
+        xml = xmlFiles.get(0);
+    }
+
+    if (!Files.exists(xml))
+      return Optional.empty();
+
+    //Check if the instance has an instanceID
+    String instanceId = null;
+    Optional<String> version = Optional.empty();
+    try {
+      XmlManipulationUtils.FormInstanceMetadata formInstanceMetadata =
+          XmlManipulationUtils.getFormInstanceMetadata(XmlManipulationUtils.parseXml(xml.toFile())
+              .getRootElement());
+      instanceId = formInstanceMetadata.instanceId;
+      version = Optional.of(formInstanceMetadata.xparam.modelVersion == null ? "" : formInstanceMetadata.xparam.modelVersion);
+    } catch (ParsingException e) {
+      log.error("failed to get instance id from submission", e);
+    } catch (FileSystemException e) {
+      failed.set(true);
+      fail(fs, "unable to read form instance xml", e);
+      return Optional.empty();
+    }
+    return Optional.of(new CollectInstance(dir, xml, fullXml, instanceId, version));
+  }
+
+  /**
+   * Returns the directory where the given instance will be copied, or empty
+   * if it's already present in Briefcase's storage.
+   * <p>
+   * Briefcase instances directory name is arbitrary. Instances get the name
+   * of their ODK directory, with a numeric suffix when it's already taken
+   * by another instance, either in storage or earlier in this import.
+   */
+  private static Optional<Path> resolveDestination(CollectInstance instance, Path destinationFormInstancesDir, Map<Path, CollectInstance> instancesByDestination) throws FileSystemException {
+    File scratchInstance = FileSystemUtils.getFormSubmissionDirectory(destinationFormInstancesDir.toFile(), instance.dir.getFileName().toString());
+    Path destination = scratchInstance.toPath();
+    String safeName = scratchInstance.getName();
+
+    int i = 2;
+    while (instancesByDestination.containsKey(destination) || Files.exists(destination)) {
+      CollectInstance previousInstance = instancesByDestination.get(destination);
+      List<Path> contents = previousInstance != null ? previousInstance.getImportedXmlFiles() : listXmlFiles(destination);
+      if (contents.isEmpty())
+        break;
+      //Check if the above ODK file(xml) instanceId is equal to this briefcase file instanceId then compare their MD5 hashes
+      //if yes don't copy it, skip to next file
+      if (contents.size() == 1 && isSameInstance(instance, contents.get(0)))
+        return Optional.empty();
+
+      destination = destinationFormInstancesDir.resolve(safeName + "-" + i);
+      i++;
+    }
+    return Optional.of(destination);
+  }
+
+  private static boolean isSameInstance(CollectInstance instance, Path otherXml) throws FileSystemException {
+    try {
+      String itsInstanceId = XmlManipulationUtils.getFormInstanceMetadata(XmlManipulationUtils.parseXml(otherXml.toFile())
+          .getRootElement()).instanceId;
+      return itsInstanceId != null && itsInstanceId.equals(instance.instanceId) &&
+          FileSystemUtils.getMd5Hash(instance.xml.toFile()).equals(FileSystemUtils.getMd5Hash(otherXml.toFile()));
+    } catch (ParsingException e) {
+      log.error("failed to parse submission", e);
+      return false;
+    }
+  }
+
+  /**
+   * Copies the given instance to the given directory, renaming its
+   * submission file to always be "submission.xml" to remove the
+   * correspondence to the directory name.
+   */
+  private boolean importInstance(CollectInstance instance, Path destination, FormStatus fs, AtomicInteger instanceCount) {
+    if (terminationFuture.isCancelled())
+      return false;
+
+    long bytes;
+    try {
+      bytes = instanceCopier.copy(instance.dir, destination);
+    } catch (IOException e) {
+      return fail(fs, "unable to copy saved instance", e);
+    }
+
+    if (!instance.xml.getFileName().toString().equals("submission.xml")) {
+      // need to rename
+      try {
+        Files.move(destination.resolve(instance.xml.getFileName().toString()), destination.resolve("submission.xml"));
+      } catch (IOException e) {
+        return fail(fs, "unable to rename submission file to submission.xml", e);
+      }
+    } else {
+      // delete the full xml file (keep only the submission.xml)
+      //noinspection ResultOfMethodCallIgnored
+      destination.resolve(instance.fullXml.getFileName().toString()).toFile().delete();
+    }
+
+    summary.trackImported(bytes);
+    fs.setStatusString(String.format("retrieving (%1$d)", instanceCount.getAndIncrement()));
+    EventBus.publish(new FormStatusEvent(fs));
+    return true;
+  }
+
+  private boolean fail(FormStatus fs, String msg, Exception e) {
+    summary.trackFailed();
+    log.error(msg, e);
+    fs.setStatusString(msg + ": " + e.getMessage());
+    EventBus.publish(new FormStatusEvent(fs));
+    return false;
+  }
+
+  /**
+   * Runs the given tasks on the import threads and returns their
+   * results in the same order.
+   */
+  private static <T> List<T> runAll(Stream<Supplier<T>> tasks) {
+    List<CompletableFuture<T>> futures = tasks
+        .map(task -> CompletableFuture.supplyAsync(task, IMPORT_EXECUTOR))
+        .collect(toList());
+    return futures.stream().map(Futures::join).collect(toList());
+  }
+
+  private static class CollectInstance {
+    private final Path dir;
+    private final Path xml;
+    private final Path fullXml;
+    private final String instanceId;
+    private final Optional<String> version;
+
+    CollectInstance(Path dir, Path xml, Path fullXml, String instanceId, Optional<String> version) {
+      this.dir = dir;
+      this.xml = xml;
+      this.fullXml = fullXml;
+      this.instanceId = instanceId;
+      this.version = version;
+    }
+
+    /**
+     * Returns the files of this instance that will be XML files once it's
+     * imported, where the full xml file is left behind in favour of the
+     * submission.xml file.
+     */
+    List<Path> getImportedXmlFiles() {
+      return listXmlFiles(dir).stream()
+          .filter(file -> xml.equals(fullXml) || !file.equals(fullXml))
+          .collect(toList());
+    }
+  }
 }
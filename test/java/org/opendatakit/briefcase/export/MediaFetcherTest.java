@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.export;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createTempDirectory;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteRecursive;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.readFirstLine;
+import static org.opendatakit.briefcase.reused.http.RequestBuilder.get;
+import static org.opendatakit.briefcase.reused.http.RequestBuilder.url;
+import static org.opendatakit.briefcase.reused.http.response.ResponseHelpers.notFoundInputStream;
+import static org.opendatakit.briefcase.reused.http.response.ResponseHelpers.ok;
+import static org.opendatakit.briefcase.reused.transfer.TransferTestHelpers.buildFormStatus;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendatakit.briefcase.model.FormStatus;
+import org.opendatakit.briefcase.pull.PendingAttachments;
+import org.opendatakit.briefcase.pull.PendingAttachments.PendingAttachment;
+import org.opendatakit.briefcase.reused.http.Credentials;
+import org.opendatakit.briefcase.reused.http.FakeHttp;
+import org.opendatakit.briefcase.reused.transfer.AggregateServer;
+
+public class MediaFetcherTest {
+  private static final String INSTANCE_ID = "uuid:1";
+  private static final String SOME_URL = "http://foo.bar/some-file.jpg";
+  private static final String OTHER_URL = "http://foo.bar/other-file.jpg";
+  private static final Credentials CREDENTIALS = new Credentials("some user", "some password");
+  private final FormStatus form = buildFormStatus("some-form", "http://foo.bar/manifest");
+  private Path briefcaseDir;
+  private FakeHttp http;
+  private MediaFetcher fetcher;
+
+  @Before
+  public void setUp() {
+    briefcaseDir = createTempDirectory("briefcase");
+    http = new FakeHttp();
+    fetcher = MediaFetcher.of(http, form, briefcaseDir, Optional.of(AggregateServer.authenticated(url("http://foo.bar"), CREDENTIALS)));
+    PendingAttachments pendingAttachments = PendingAttachments.at(form.getFormDir(briefcaseDir));
+    pendingAttachments.add(new PendingAttachment(INSTANCE_ID, "some-file.jpg", Optional.empty(), Optional.of(SOME_URL)));
+    pendingAttachments.add(new PendingAttachment(INSTANCE_ID, "other-file.jpg", Optional.empty(), Optional.of(OTHER_URL)));
+    pendingAttachments.save();
+  }
+
+  @After
+  public void tearDown() {
+    deleteRecursive(briefcaseDir);
+  }
+
+  @Test
+  public void fetches_pending_attachments_of_the_exported_submissions() {
+    http.stub(get(SOME_URL).withCredentials(CREDENTIALS).build(), ok("some content"));
+    http.stub(get(OTHER_URL).withCredentials(CREDENTIALS).build(), notFoundInputStream());
+
+    fetcher.prefetch(singletonList(form.getSubmissionFile(briefcaseDir, INSTANCE_ID)));
+
+    Path someFile = form.getSubmissionMediaFile(briefcaseDir, INSTANCE_ID, "some-file.jpg");
+    assertThat(fetcher.fetch(someFile), is(true));
+    assertThat(readFirstLine(someFile), is("some content"));
+    assertThat(fetcher.fetch(form.getSubmissionMediaFile(briefcaseDir, INSTANCE_ID, "other-file.jpg")), is(false));
+
+    fetcher.save();
+    assertThat(PendingAttachments.at(form.getFormDir(briefcaseDir)).getAll().size(), is(1));
+    assertThat(fetcher.getFailedFetches(), is(1));
+  }
+
+  @Test
+  public void does_not_send_the_source_credentials_to_other_servers() {
+    String otherServerUrl = "http://other.server/some-file.jpg";
+    PendingAttachments pendingAttachments = PendingAttachments.at(form.getFormDir(briefcaseDir));
+    pendingAttachments.add(new PendingAttachment("uuid:2", "some-file.jpg", Optional.empty(), Optional.of(otherServerUrl)));
+    pendingAttachments.save();
+    http.stub(get(otherServerUrl).build(), ok("some content"));
+
+    fetcher.prefetch(singletonList(form.getSubmissionFile(briefcaseDir, "uuid:2")));
+
+    assertThat(fetcher.fetch(form.getSubmissionMediaFile(briefcaseDir, "uuid:2", "some-file.jpg")), is(true));
+  }
+
+  @Test
+  public void ignores_pending_attachments_of_other_submissions() {
+    // There are no stubs, which would make any request fail
+    fetcher.prefetch(singletonList(form.getSubmissionFile(briefcaseDir, "uuid:2")));
+
+    assertThat(fetcher.fetch(form.getSubmissionMediaFile(briefcaseDir, INSTANCE_ID, "some-file.jpg")), is(false));
+  }
+}
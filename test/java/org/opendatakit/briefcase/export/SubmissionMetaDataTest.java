@@ -17,10 +17,18 @@
 package org.opendatakit.briefcase.export;
 
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createTempDirectory;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteRecursive;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.write;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.Optional;
 import org.junit.Test;
 import org.kxml2.io.KXmlParser;
 import org.kxml2.kdom.Document;
@@ -70,6 +78,60 @@ public class SubmissionMetaDataTest {
     assertThat(smd.getMediaNames(), contains("1538040007350.jpg.enc", "1538040019351.jpg.enc"));
   }
 
+  @Test
+  public void reads_the_submission_date_of_a_submission_file() {
+    String xml = "" +
+        "<data id=\"some-form\" submissionDate=\"2018-09-27T09:20:53.764Z\">\n" +
+        "  <some-field>some value</some-field>\n" +
+        "</data>" +
+        "";
+    String xmlWithoutDate = "" +
+        "<data id=\"some-form\">\n" +
+        "  <some-field>some value</some-field>\n" +
+        "</data>" +
+        "";
+    Path tempDir = createTempDirectory("briefcase");
+    try {
+      Path submissionFile = write(tempDir.resolve("submission.xml"), xml);
+      Path submissionFileWithoutDate = write(tempDir.resolve("other-submission.xml"), xmlWithoutDate);
+
+      assertThat(SubmissionMetaData.readSubmissionDate(submissionFile), is(Optional.of(OffsetDateTime.parse("2018-09-27T09:20:53.764Z"))));
+      assertThat(SubmissionMetaData.readSubmissionDate(submissionFileWithoutDate), is(Optional.empty()));
+    } finally {
+      deleteRecursive(tempDir);
+    }
+  }
+
+  @Test
+  public void reads_the_root_attributes_and_the_meta_block_of_a_submission_file() {
+    String xml = "" +
+        "<data id=\"some-form\" version=\"2019010101\" submissionDate=\"2018-09-27T09:20:53.764Z\">\n" +
+        "  <n0:meta xmlns:n0=\"http://openrosa.org/xforms\">\n" +
+        "    <n0:instanceID>uuid:482e83f3-fae6-43ba-a6e9-e438ffe348e3</n0:instanceID>\n" +
+        "  </n0:meta>\n" +
+        "  <media>\n" +
+        "    <file>1538040007350.jpg</file>\n" +
+        "  </media>\n" +
+        "</data>" +
+        "";
+    Path tempDir = createTempDirectory("briefcase");
+    try {
+      Path submissionFile = tempDir.resolve("submission.xml");
+      write(submissionFile, xml);
+
+      SubmissionMetaData smd = SubmissionMetaData.readFrom(submissionFile);
+
+      assertThat(smd.getFormId(), is("some-form"));
+      assertThat(smd.getVersion(), is(Optional.of("2019010101")));
+      assertThat(smd.getSubmissionDate(), is(Optional.of(OffsetDateTime.parse("2018-09-27T09:20:53.764Z"))));
+      assertThat(smd.getInstanceId(), is(Optional.of("uuid:482e83f3-fae6-43ba-a6e9-e438ffe348e3")));
+      // Parsing stops after the meta block
+      assertThat(smd.getMediaNames(), empty());
+    } finally {
+      deleteRecursive(tempDir);
+    }
+  }
+
   private static Document parse(String xml) throws XmlPullParserException, IOException {
     Document doc = new Document();
     KXmlParser parser = new KXmlParser();
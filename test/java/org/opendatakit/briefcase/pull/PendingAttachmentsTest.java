@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.pull;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createTempDirectory;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteRecursive;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.exists;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendatakit.briefcase.pull.PendingAttachments.PendingAttachment;
+
+public class PendingAttachmentsTest {
+  private static final PendingAttachment SOME_ATTACHMENT = new PendingAttachment("uuid:1", "some-file.jpg", Optional.of("md5:some-hash"), Optional.of("http://foo.bar/some-file.jpg"));
+  private static final PendingAttachment OTHER_ATTACHMENT = new PendingAttachment("uuid:2", "other-file.jpg", Optional.empty(), Optional.empty());
+  private Path formDir;
+
+  @Before
+  public void setUp() {
+    formDir = createTempDirectory("briefcase");
+  }
+
+  @After
+  public void tearDown() {
+    deleteRecursive(formDir);
+  }
+
+  @Test
+  public void remembers_pending_attachments_between_instances_once_saved() {
+    PendingAttachments pendingAttachments = PendingAttachments.at(formDir);
+    pendingAttachments.add(SOME_ATTACHMENT);
+    pendingAttachments.add(OTHER_ATTACHMENT);
+    pendingAttachments.save();
+
+    assertThat(PendingAttachments.at(formDir).getAll(), contains(SOME_ATTACHMENT, OTHER_ATTACHMENT));
+    assertThat(PendingAttachments.at(formDir).getAll("uuid:2"), contains(OTHER_ATTACHMENT));
+  }
+
+  @Test
+  public void remembers_lazy_attachments_apart_from_deferred_ones() {
+    PendingAttachment lazyAttachment = new PendingAttachment("uuid:3", "lazy-file.jpg", Optional.empty(), Optional.of("http://foo.bar/lazy-file.jpg"), true);
+    PendingAttachments pendingAttachments = PendingAttachments.at(formDir);
+    pendingAttachments.add(SOME_ATTACHMENT);
+    pendingAttachments.add(lazyAttachment);
+    pendingAttachments.save();
+
+    assertThat(PendingAttachments.at(formDir).getAll(), contains(SOME_ATTACHMENT, lazyAttachment));
+    assertThat(PendingAttachments.at(formDir).getDeferred(), contains(SOME_ATTACHMENT));
+  }
+
+  @Test
+  public void appends_each_save_to_its_file() throws IOException {
+    PendingAttachments pendingAttachments = PendingAttachments.at(formDir);
+    pendingAttachments.add(SOME_ATTACHMENT);
+    assertThat(pendingAttachments.save(), is(true));
+
+    pendingAttachments.add(OTHER_ATTACHMENT);
+    pendingAttachments.remove(SOME_ATTACHMENT);
+    assertThat(pendingAttachments.save(), is(true));
+
+    assertThat(Files.readAllLines(formDir.resolve(PendingAttachments.FILE_NAME)), hasSize(3));
+    assertThat(PendingAttachments.at(formDir).getAll(), contains(OTHER_ATTACHMENT));
+  }
+
+  @Test
+  public void rewrites_its_file_once_most_of_its_lines_are_outdated() throws IOException {
+    PendingAttachments pendingAttachments = PendingAttachments.at(formDir);
+    List<PendingAttachment> attachments = IntStream.range(0, 200)
+        .mapToObj(i -> new PendingAttachment("uuid:" + i, "some-file.jpg", Optional.empty(), Optional.empty()))
+        .collect(toList());
+    attachments.forEach(attachment -> {
+      pendingAttachments.add(attachment);
+      pendingAttachments.save();
+    });
+    attachments.subList(0, 150).forEach(attachment -> {
+      pendingAttachments.remove(attachment);
+      pendingAttachments.save();
+    });
+
+    assertThat(Files.readAllLines(formDir.resolve(PendingAttachments.FILE_NAME)).size(), lessThan(200));
+    assertThat(PendingAttachments.at(formDir).getAll(), is(attachments.subList(150, 200)));
+    assertThat(exists(formDir.resolve(PendingAttachments.FILE_NAME + ".tmp")), is(false));
+  }
+
+  @Test
+  public void ignores_the_incomplete_last_line_of_an_interrupted_save() throws IOException {
+    PendingAttachments pendingAttachments = PendingAttachments.at(formDir);
+    pendingAttachments.add(SOME_ATTACHMENT);
+    pendingAttachments.save();
+    Files.write(formDir.resolve(PendingAttachments.FILE_NAME), "{\"instanceId\":\"uu".getBytes(), APPEND);
+
+    PendingAttachments reloaded = PendingAttachments.at(formDir);
+    assertThat(reloaded.getAll(), contains(SOME_ATTACHMENT));
+
+    reloaded.add(OTHER_ATTACHMENT);
+    reloaded.save();
+    assertThat(PendingAttachments.at(formDir).getAll(), contains(SOME_ATTACHMENT, OTHER_ATTACHMENT));
+  }
+
+  @Test
+  public void deletes_its_file_once_there_are_no_pending_attachments() {
+    PendingAttachments pendingAttachments = PendingAttachments.at(formDir);
+    pendingAttachments.add(SOME_ATTACHMENT);
+    pendingAttachments.save();
+
+    pendingAttachments.remove(SOME_ATTACHMENT);
+    pendingAttachments.save();
+
+    assertThat(exists(formDir.resolve(PendingAttachments.FILE_NAME)), is(false));
+    assertThat(PendingAttachments.at(formDir).isEmpty(), is(true));
+  }
+}
@@ -16,6 +16,8 @@
 
 package org.opendatakit.briefcase.pull.aggregate;
 
+import static com.github.npathai.hamcrestopt.OptionalMatchers.isPresentAndIs;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.Files.readAllBytes;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasItem;
@@ -23,8 +25,10 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createDirectories;
 import static org.opendatakit.briefcase.reused.UncheckedFiles.createTempDirectory;
 import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteRecursive;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.write;
 import static org.opendatakit.briefcase.reused.http.RequestBuilder.get;
 import static org.opendatakit.briefcase.reused.http.RequestBuilder.url;
 import static org.opendatakit.briefcase.reused.http.RequestSpyMatchers.hasBeenCalled;
@@ -37,10 +41,15 @@ import static org.opendatakit.briefcase.reused.transfer.TransferTestHelpers.buil
 import static org.opendatakit.briefcase.reused.transfer.TransferTestHelpers.generatePages;
 
 import java.io.IOException;
+import java.math.BigInteger;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -53,6 +62,9 @@ import org.opendatakit.briefcase.model.BriefcasePreferences;
 import org.opendatakit.briefcase.model.FormStatus;
 import org.opendatakit.briefcase.model.InMemoryPreferences;
 import org.opendatakit.briefcase.model.form.InMemoryFormMetadataAdapter;
+import org.opendatakit.briefcase.pull.PendingAttachments;
+import org.opendatakit.briefcase.reused.FileHashCache;
+import org.opendatakit.briefcase.reused.MediaBlobStore;
 import org.opendatakit.briefcase.reused.Pair;
 import org.opendatakit.briefcase.reused.http.FakeHttp;
 import org.opendatakit.briefcase.reused.http.RequestSpy;
@@ -117,7 +129,7 @@ public class PullFromAggregateTest {
     // Stub the manifest request
     http.stub(get(server.getBaseUrl()).build(), ok(buildManifestXml(expectedAttachments)));
 
-    List<AggregateAttachment> actualAttachments = pullOp.getFormAttachments(form, runnerStatus, tracker);
+    List<AggregateAttachment> actualAttachments = pullOp.getFormAttachments(form, FileHashCache.at(form.getFormDir(briefcaseDir)), runnerStatus, tracker);
 
     assertThat(actualAttachments, hasSize(actualAttachments.size()));
     for (AggregateAttachment attachment : expectedAttachments)
@@ -129,6 +141,20 @@ public class PullFromAggregateTest {
     ));
   }
 
+  @Test
+  public void uses_cached_hashes_to_tell_which_form_attachments_have_changed() {
+    Path mediaDir = form.getFormMediaDir(briefcaseDir);
+    createDirectories(mediaDir);
+    Path file = write(mediaDir.resolve("some-file.csv"), "some body");
+    FileHashCache hashes = FileHashCache.at(form.getFormDir(briefcaseDir));
+    // A cached hash that doesn't match the file's contents proves that the file isn't read again
+    hashes.put(file, "0123456789abcdef0123456789abcdef");
+    List<AggregateAttachment> attachments = Collections.singletonList(AggregateAttachment.of("some-file.csv", "md5:0123456789abcdef0123456789abcdef", server.getBaseUrl() + "/some-file.csv"));
+    http.stub(get(server.getBaseUrl()).build(), ok(buildManifestXml(attachments)));
+
+    assertThat(pullOp.getFormAttachments(form, hashes, runnerStatus, tracker), hasSize(0));
+  }
+
   @Test
   public void knows_how_to_download_a_form_attachment() {
     List<AggregateAttachment> attachments = buildMediaFiles(server.getBaseUrl().toString(), 3);
@@ -136,7 +162,7 @@ public class PullFromAggregateTest {
     attachments.forEach(attachment -> http.stub(get(attachment.getDownloadUrl()).build(), ok("some body")));
 
     AtomicInteger seq = new AtomicInteger(1);
-    attachments.forEach(attachment -> pullOp.downloadFormAttachment(form, attachment, runnerStatus, tracker, seq.getAndIncrement(), 3));
+    attachments.forEach(attachment -> pullOp.downloadFormAttachment(form, attachment, FileHashCache.at(form.getFormDir(briefcaseDir)), runnerStatus, tracker, seq.getAndIncrement(), 3));
 
     attachments.forEach(attachment -> assertThat(form.getFormMediaFile(briefcaseDir, attachment.getFilename()), PathMatchers.exists()));
 
@@ -150,6 +176,73 @@ public class PullFromAggregateTest {
     ));
   }
 
+  @Test
+  public void links_form_attachments_already_in_the_media_store_instead_of_downloading_them() {
+    Path otherMediaDir = briefcaseDir.resolve("forms/other-form/other-form-media");
+    createDirectories(otherMediaDir);
+    MediaBlobStore.at(briefcaseDir).store(write(otherMediaDir.resolve("some-file.csv"), "some body"));
+    AggregateAttachment attachment = AggregateAttachment.of("some-file.csv", "md5:" + md5("some body"), server.getBaseUrl() + "/some-file.csv");
+
+    // There's no stubbed response. FakeHttp would throw if the attachment got requested
+    pullOp.downloadFormAttachment(form, attachment, FileHashCache.at(form.getFormDir(briefcaseDir)), runnerStatus, tracker, 1, 1);
+
+    assertThat(form.getFormMediaFile(briefcaseDir, "some-file.csv"), PathMatchers.exists());
+    assertThat(events, contains("Form attachment 1 of 1 linked from the local media store"));
+  }
+
+  @Test
+  public void leaves_deferred_submission_attachments_pending_until_they_are_downloaded() {
+    String instanceId = "some instance id";
+    List<AggregateAttachment> attachments = buildMediaFiles(server.getBaseUrl().toString(), 2);
+    DownloadedSubmission submission = new DownloadedSubmission("some xml", Optional.empty(), instanceId, attachments);
+    PendingAttachments pendingAttachments = PendingAttachments.at(form.getFormDir(briefcaseDir));
+
+    pullOp.deferSubmissionAttachments(submission, attachments, false, pendingAttachments, tracker, 1, 1);
+    pendingAttachments.save();
+
+    attachments.forEach(attachment -> assertThat(form.getSubmissionMediaFile(briefcaseDir, instanceId, attachment.getFilename()), not(PathMatchers.exists())));
+    assertThat(PendingAttachments.at(form.getFormDir(briefcaseDir)).getAll(instanceId), hasSize(2));
+
+    attachments.forEach(attachment -> http.stub(get(attachment.getDownloadUrl()).build(), ok("some body")));
+    pullOp.downloadPendingAttachments(form, pendingAttachments, FileHashCache.at(form.getFormDir(briefcaseDir)), runnerStatus, tracker, true);
+
+    attachments.forEach(attachment -> assertThat(form.getSubmissionMediaFile(briefcaseDir, instanceId, attachment.getFilename()), PathMatchers.exists()));
+    assertThat(pendingAttachments.isEmpty(), is(true));
+    assertThat(events, hasItem("All pending submission attachments downloaded"));
+  }
+
+  @Test
+  public void leaves_lazy_submission_attachments_pending_for_exports() {
+    String instanceId = "some instance id";
+    List<AggregateAttachment> attachments = buildMediaFiles(server.getBaseUrl().toString(), 2);
+    DownloadedSubmission submission = new DownloadedSubmission("some xml", Optional.empty(), instanceId, attachments);
+    PendingAttachments pendingAttachments = PendingAttachments.at(form.getFormDir(briefcaseDir));
+
+    pullOp.deferSubmissionAttachments(submission, attachments, true, pendingAttachments, tracker, 1, 1);
+    // No request is stubbed, which makes any download fail the test
+    pullOp.downloadPendingAttachments(form, pendingAttachments, FileHashCache.at(form.getFormDir(briefcaseDir)), runnerStatus, tracker, false);
+
+    attachments.forEach(attachment -> assertThat(form.getSubmissionMediaFile(briefcaseDir, instanceId, attachment.getFilename()), not(PathMatchers.exists())));
+    assertThat(PendingAttachments.at(form.getFormDir(briefcaseDir)).getAll(instanceId), hasSize(2));
+    assertThat(PendingAttachments.at(form.getFormDir(briefcaseDir)).getDeferred(), hasSize(0));
+  }
+
+  @Test
+  public void saves_deferred_submission_attachments_before_the_pull_ends() {
+    // The pull records each submission as downloaded right after deferring its
+    // attachments, so they have to be on disk in case the pull stops afterwards
+    List<AggregateAttachment> attachments = buildMediaFiles(server.getBaseUrl().toString(), 2);
+    DownloadedSubmission submission = new DownloadedSubmission("some xml", Optional.empty(), "some instance id", attachments);
+    DownloadedSubmission otherSubmission = new DownloadedSubmission("some xml", Optional.empty(), "other instance id", attachments);
+    PendingAttachments pendingAttachments = PendingAttachments.at(form.getFormDir(briefcaseDir));
+
+    assertThat(pullOp.deferSubmissionAttachments(submission, attachments, false, pendingAttachments, tracker, 1, 2), is(true));
+    assertThat(PendingAttachments.at(form.getFormDir(briefcaseDir)).getAll("some instance id"), hasSize(2));
+
+    assertThat(pullOp.deferSubmissionAttachments(otherSubmission, attachments, false, pendingAttachments, tracker, 2, 2), is(true));
+    assertThat(PendingAttachments.at(form.getFormDir(briefcaseDir)).getAll(), hasSize(4));
+  }
+
   @Test
   public void knows_how_to_download_a_submission() {
     String instanceId = "uuid:515a13cf-d7a5-4606-a18f-84940b0944b2";
@@ -189,7 +282,7 @@ public class PullFromAggregateTest {
     attachments.forEach(attachment -> http.stub(get(attachment.getDownloadUrl()).build(), ok("some body")));
 
     AtomicInteger seq = new AtomicInteger(1);
-    attachments.forEach(attachment -> pullOp.downloadSubmissionAttachment(form, submission, attachment, runnerStatus, tracker, 1, 1, seq.getAndIncrement(), 3));
+    attachments.forEach(attachment -> pullOp.downloadSubmissionAttachment(form, submission, attachment, FileHashCache.at(form.getFormDir(briefcaseDir)), runnerStatus, tracker, 1, 1, seq.getAndIncrement(), 3));
 
     attachments.forEach(attachment -> assertThat(form.getSubmissionMediaFile(briefcaseDir, instanceId, attachment.getFilename()), PathMatchers.exists()));
 
@@ -203,6 +296,39 @@ public class PullFromAggregateTest {
     ));
   }
 
+  @Test
+  public void skips_submission_attachments_that_have_already_been_downloaded() {
+    String instanceId = "some instance id";
+    FileHashCache hashes = FileHashCache.at(form.getFormDir(briefcaseDir));
+    Path existingFile = form.getSubmissionMediaFile(briefcaseDir, instanceId, "existing-file.txt");
+    Path changedFile = form.getSubmissionMediaFile(briefcaseDir, instanceId, "changed-file.txt");
+    createDirectories(existingFile.getParent());
+    write(existingFile, "some body");
+    write(changedFile, "some other body");
+    AggregateAttachment existingAttachment = AggregateAttachment.of("existing-file.txt", "md5:" + md5("some body"), server.getBaseUrl() + "/file/0");
+    AggregateAttachment changedAttachment = AggregateAttachment.of("changed-file.txt", "md5:" + md5("some body"), server.getBaseUrl() + "/file/1");
+    AggregateAttachment missingAttachment = AggregateAttachment.of("missing-file.txt", "md5:" + md5("some body"), server.getBaseUrl() + "/file/2");
+    DownloadedSubmission submission = new DownloadedSubmission("some xml", Optional.empty(), instanceId, Arrays.asList(existingAttachment, changedAttachment, missingAttachment));
+
+    List<AggregateAttachment> attachmentsToDownload = pullOp.getSubmissionAttachments(form, submission, hashes, tracker, 1, 1);
+
+    assertThat(attachmentsToDownload, contains(changedAttachment, missingAttachment));
+    assertThat(events, contains("Skipping 1 attachments of submission 1 of 1 that have been already downloaded"));
+  }
+
+  @Test
+  public void remembers_the_hash_of_downloaded_submission_attachments() {
+    String instanceId = "some instance id";
+    AggregateAttachment attachment = AggregateAttachment.of("some-file.txt", "md5:" + md5("some body"), server.getBaseUrl() + "/file/0");
+    DownloadedSubmission submission = new DownloadedSubmission("some xml", Optional.empty(), instanceId, Collections.singletonList(attachment));
+    http.stub(get(attachment.getDownloadUrl()).build(), ok("some body"));
+
+    FileHashCache hashes = FileHashCache.at(form.getFormDir(briefcaseDir));
+    pullOp.downloadSubmissionAttachment(form, submission, attachment, hashes, runnerStatus, tracker, 1, 1, 1, 1);
+
+    assertThat(hashes.get(form.getSubmissionMediaFile(briefcaseDir, instanceId, "some-file.txt")), isPresentAndIs(md5("some body")));
+  }
+
   @Test
   public void knows_how_to_get_a_forms_submissions_using_a_cursor() {
     List<Pair<String, Cursor>> pages = generatePages(100, 100);
@@ -231,4 +357,12 @@ public class PullFromAggregateTest {
     assertThat(request2Spy, hasBeenCalled());
   }
 
+  private static String md5(String contents) {
+    try {
+      byte[] digest = MessageDigest.getInstance("MD5").digest(contents.getBytes(UTF_8));
+      return String.format("%032x", new BigInteger(1, digest));
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  }
 }
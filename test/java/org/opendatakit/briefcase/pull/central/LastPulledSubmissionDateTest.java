@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.pull.central;
+
+import static com.github.npathai.hamcrestopt.OptionalMatchers.isEmpty;
+import static com.github.npathai.hamcrestopt.OptionalMatchers.isPresentAndIs;
+import static org.junit.Assert.assertThat;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import org.junit.Test;
+
+public class LastPulledSubmissionDateTest {
+  private static final OffsetDateTime SOME_DATE_TIME = OffsetDateTime.parse("2019-01-01T00:00:00.000Z");
+
+  @Test
+  public void is_the_date_of_the_last_submission_pulled() {
+    LastPulledSubmissionDate date = new LastPulledSubmissionDate(Optional.empty());
+    date.addComplete(SOME_DATE_TIME.plusMinutes(2));
+    date.addComplete(SOME_DATE_TIME);
+    date.addComplete(SOME_DATE_TIME.plusMinutes(1));
+
+    assertThat(date.get(), isPresentAndIs(SOME_DATE_TIME.plusMinutes(2)));
+  }
+
+  @Test
+  public void is_held_back_by_the_first_incomplete_submission() {
+    LastPulledSubmissionDate date = new LastPulledSubmissionDate(Optional.empty());
+    date.addComplete(SOME_DATE_TIME);
+    date.addIncomplete(SOME_DATE_TIME.plusMinutes(2));
+    date.addIncomplete(SOME_DATE_TIME.plusMinutes(1));
+    date.addComplete(SOME_DATE_TIME.plusMinutes(3));
+
+    assertThat(date.get(), isPresentAndIs(SOME_DATE_TIME.plusMinutes(1)));
+  }
+
+  @Test
+  public void keeps_the_previous_date_when_there_are_no_submissions_or_it_is_held_back() {
+    assertThat(new LastPulledSubmissionDate(Optional.of(SOME_DATE_TIME)).get(), isPresentAndIs(SOME_DATE_TIME));
+    assertThat(new LastPulledSubmissionDate(Optional.empty()).get(), isEmpty());
+
+    LastPulledSubmissionDate date = new LastPulledSubmissionDate(Optional.of(SOME_DATE_TIME));
+    date.addComplete(SOME_DATE_TIME.plusMinutes(1));
+    date.holdBack();
+    assertThat(date.get(), isPresentAndIs(SOME_DATE_TIME));
+  }
+}
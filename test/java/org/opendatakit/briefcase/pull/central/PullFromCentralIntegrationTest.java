@@ -21,11 +21,14 @@ import static com.github.dreamhead.moco.Moco.httpServer;
 import static com.github.dreamhead.moco.Moco.uri;
 import static com.github.dreamhead.moco.Runner.running;
 import static com.github.npathai.hamcrestopt.OptionalMatchers.isPresent;
+import static com.github.npathai.hamcrestopt.OptionalMatchers.isPresentAndIs;
 import static java.util.stream.Collectors.joining;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
 import static org.opendatakit.briefcase.matchers.PathMatchers.exists;
+import static org.opendatakit.briefcase.model.form.FormMetadataQueries.lastPulledSubmissionDateOf;
 import static org.opendatakit.briefcase.pull.central.PullFromCentralTest.buildAttachments;
 import static org.opendatakit.briefcase.pull.central.PullFromCentralTest.jsonOfAttachments;
 import static org.opendatakit.briefcase.pull.central.PullFromCentralTest.jsonOfSubmissions;
@@ -61,6 +64,7 @@ import org.opendatakit.briefcase.reused.http.CommonsHttp;
 import org.opendatakit.briefcase.reused.http.Credentials;
 import org.opendatakit.briefcase.reused.transfer.CentralAttachment;
 import org.opendatakit.briefcase.reused.transfer.CentralServer;
+import org.opendatakit.briefcase.reused.transfer.FakeCentral;
 
 public class PullFromCentralIntegrationTest {
   private static final String token = "some token";
@@ -123,7 +127,7 @@ public class PullFromCentralIntegrationTest {
         .mapToObj(i -> "some_sequential_instance_id_" + (i + 1))
         .collect(Collectors.toList());
     server
-        .request(by(uri("/v1/projects/1/forms/some-form/submissions")))
+        .request(by(uri("/v1/projects/1/forms/some-form.svc/Submissions")))
         .response(jsonOfSubmissions(instanceIds));
 
     // Stub all the 250 submissions, each one with a couple of attachments
@@ -181,6 +185,48 @@ public class PullFromCentralIntegrationTest {
     assertThat(formMetadataPort.fetch(FormKey.from(form)), isPresent());
   }
 
+  @Test
+  public void skips_the_attachment_list_of_submissions_without_attachments() throws Exception {
+    FakeCentral fakeCentral = FakeCentral.on(server, 1, "some-form", new String(readAllBytes(getPath("simple-form.xml"))));
+    OffsetDateTime someDateTime = OffsetDateTime.parse("2019-01-01T00:00:00.000Z");
+    IntStream.range(0, 2).forEach(i -> fakeCentral.withSubmission("some-instance-id-" + i, someDateTime.plusMinutes(i), buildSubmissionXml("some-instance-id-" + i)));
+    fakeCentral.withSubmissionLists();
+
+    running(server, () -> launchSync(pullOp.pull(form)));
+
+    assertThat(form.getStatusHistory(), containsString("Skipping attachment list of submission 1 of 2: no attachments to download"));
+    assertThat(form.getStatusHistory(), containsString("Skipping attachment list of submission 2 of 2: no attachments to download"));
+    assertThat(form.getStatusHistory(), not(containsString("Start getting attachment list")));
+    assertThat(form.getSubmissionFile(briefcaseDir, "some-instance-id-1"), exists());
+  }
+
+  @Test
+  public void pulls_only_the_submissions_received_since_the_last_pull() throws Exception {
+    String formXml = new String(readAllBytes(getPath("simple-form.xml")));
+    OffsetDateTime someDateTime = OffsetDateTime.parse("2019-01-01T00:00:00.000Z");
+    FakeCentral fakeCentral = FakeCentral.on(server, 1, "some-form", formXml);
+    IntStream.range(0, 3).forEach(i -> fakeCentral.withSubmission("some-instance-id-" + i, someDateTime.plusMinutes(i), buildSubmissionXml("some-instance-id-" + i)));
+    fakeCentral.withSubmissionLists();
+    running(server, () -> launchSync(pullOp.pull(form, Optional.empty())));
+
+    FormKey key = FormKey.from(form);
+    assertThat(formMetadataPort.query(lastPulledSubmissionDateOf(key)), isPresentAndIs(someDateTime.plusMinutes(2)));
+
+    // Two more submissions are received after the first pull
+    server = httpServer(serverPort);
+    FakeCentral otherFakeCentral = FakeCentral.on(server, 1, "some-form", formXml);
+    IntStream.range(0, 5).forEach(i -> otherFakeCentral.withSubmission("some-instance-id-" + i, someDateTime.plusMinutes(i), buildSubmissionXml("some-instance-id-" + i)));
+    otherFakeCentral.withSubmissionLists();
+    running(server, () -> launchSync(pullOp.pull(form, formMetadataPort.query(lastPulledSubmissionDateOf(key)))));
+
+    // Only the last submission of the first pull and the new ones are listed
+    assertThat(form.getStatusHistory(), containsString("Skipping submission 1 of 3: already downloaded"));
+    assertThat(form.getStatusHistory(), containsString("Submission 3 of 3 downloaded"));
+    assertThat(form.getStatusHistory(), not(containsString("of 5")));
+    assertThat(form.getSubmissionFile(briefcaseDir, "some-instance-id-4"), exists());
+    assertThat(formMetadataPort.query(lastPulledSubmissionDateOf(key)), isPresentAndIs(someDateTime.plusMinutes(4)));
+  }
+
   @Test
   public void downloads_submission_xml_if_not_on_disk() throws Exception {
     String instanceId = "some instance id";
@@ -336,7 +382,7 @@ public class PullFromCentralIntegrationTest {
     // Stub the submissions request
     List<String> expectedInstanceIds = Collections.singletonList(instanceId);
     server
-        .request(by(uri("/v1/projects/1/forms/some-form/submissions")))
+        .request(by(uri("/v1/projects/1/forms/some-form.svc/Submissions")))
         .response(jsonOfSubmissions(expectedInstanceIds));
   }
 }
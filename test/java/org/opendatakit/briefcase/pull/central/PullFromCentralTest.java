@@ -24,18 +24,26 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.opendatakit.briefcase.matchers.PathMatchers.exists;
+import static org.opendatakit.briefcase.pull.central.PullFromCentral.SUBMISSIONS_PAGE_SIZE;
 import static org.opendatakit.briefcase.reused.UncheckedFiles.createTempDirectory;
 import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteRecursive;
 import static org.opendatakit.briefcase.reused.UncheckedFiles.readAllBytes;
 import static org.opendatakit.briefcase.reused.http.RequestBuilder.url;
+import static org.opendatakit.briefcase.reused.http.response.ResponseHelpers.notFoundInputStream;
+import static org.opendatakit.briefcase.reused.http.response.ResponseHelpers.unauthorizedInputStream;
 import static org.opendatakit.briefcase.reused.http.response.ResponseHelpers.ok;
+import static org.opendatakit.briefcase.reused.transfer.FakeCentral.odataJsonOf;
+import static org.opendatakit.briefcase.reused.transfer.FakeCentral.restJsonOf;
 import static org.opendatakit.briefcase.reused.transfer.TransferTestHelpers.buildFormStatus;
 import static org.opendatakit.briefcase.reused.transfer.TransferTestHelpers.buildSubmissionXml;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -44,16 +52,19 @@ import org.junit.Before;
 import org.junit.Test;
 import org.opendatakit.briefcase.model.FormStatus;
 import org.opendatakit.briefcase.model.form.InMemoryFormMetadataAdapter;
+import org.opendatakit.briefcase.reused.BriefcaseException;
 import org.opendatakit.briefcase.reused.http.Credentials;
 import org.opendatakit.briefcase.reused.http.FakeHttp;
 import org.opendatakit.briefcase.reused.job.TestRunnerStatus;
 import org.opendatakit.briefcase.reused.transfer.CentralAttachment;
 import org.opendatakit.briefcase.reused.transfer.CentralServer;
+import org.opendatakit.briefcase.reused.transfer.CentralSubmission;
 
 public class PullFromCentralTest {
   private static final CentralServer server = CentralServer.of(url("http://foo.bar"), 1, Credentials.from("username", "password"));
   private static final FormStatus form = buildFormStatus("some-form", server.getBaseUrl().toString());
   private static final String token = "some token";
+  private static final OffsetDateTime SOME_DATE_TIME = OffsetDateTime.parse("2019-01-01T00:00:00.000Z");
   private final Path briefcaseDir = createTempDirectory("briefcase-test-");
   private FakeHttp http = new FakeHttp();
   private List<String> events;
@@ -95,14 +106,13 @@ public class PullFromCentralTest {
   }
 
   static String jsonOfSubmissions(List<String> instanceIds) {
-    return "[\n" +
-        instanceIds.stream()
-            .map(a -> String.format("" +
-                "{\n" +
-                "  \"instanceId\":\"%s\"\n" +
-                "}", a))
-            .collect(joining(",\n"))
-        + "]";
+    return odataJsonOf(buildSubmissions(instanceIds));
+  }
+
+  static List<CentralSubmission> buildSubmissions(List<String> instanceIds) {
+    return IntStream.range(0, instanceIds.size())
+        .mapToObj(i -> new CentralSubmission(instanceIds.get(i), SOME_DATE_TIME.plusMinutes(i)))
+        .collect(toList());
   }
 
   @Test
@@ -175,13 +185,13 @@ public class PullFromCentralTest {
         .mapToObj(i -> "submission instanceID " + i)
         .collect(Collectors.toList());
     http.stub(
-        server.getInstanceIdListRequest(form.getFormId(), token),
+        server.getSubmissionPageRequest(form.getFormId(), Optional.empty(), 0, SUBMISSIONS_PAGE_SIZE, token),
         ok(jsonOfSubmissions(expectedInstanceIds))
     );
-    List<String> actualInstanceIds = pullOp.getSubmissionIds(form, token, runnerStatus, tracker);
-    assertThat(actualInstanceIds, hasSize(expectedInstanceIds.size()));
-    for (String instanceId : actualInstanceIds)
-      assertThat(expectedInstanceIds, hasItem(instanceId));
+    List<CentralSubmission> actualSubmissions = getSubmissions(Optional.empty());
+    assertThat(actualSubmissions, hasSize(expectedInstanceIds.size()));
+    for (CentralSubmission submission : actualSubmissions)
+      assertThat(expectedInstanceIds, hasItem(submission.getInstanceId()));
 
     assertThat(events, contains(
         "Start getting submission IDs",
@@ -189,6 +199,93 @@ public class PullFromCentralTest {
     ));
   }
 
+  @Test
+  public void hands_over_each_page_of_the_submission_list_with_the_total_number_of_submissions() {
+    List<CentralSubmission> submissions = buildSubmissions(IntStream.range(0, SUBMISSIONS_PAGE_SIZE + 5)
+        .mapToObj(i -> "submission instanceID " + i)
+        .collect(Collectors.toList()));
+    http.stub(
+        server.getSubmissionPageRequest(form.getFormId(), Optional.empty(), 0, SUBMISSIONS_PAGE_SIZE, token),
+        ok(odataJsonOf(submissions.subList(0, SUBMISSIONS_PAGE_SIZE), submissions.size()))
+    );
+    http.stub(
+        server.getSubmissionPageRequest(form.getFormId(), Optional.empty(), SUBMISSIONS_PAGE_SIZE, SUBMISSIONS_PAGE_SIZE, token),
+        ok(odataJsonOf(submissions.subList(SUBMISSIONS_PAGE_SIZE, submissions.size()), submissions.size()))
+    );
+
+    List<Integer> pageSizes = new ArrayList<>();
+    List<Integer> totals = new ArrayList<>();
+    boolean listedAll = pullOp.forEachSubmissionPage(form, Optional.empty(), pullOp.requestSubmissionPage(form, Optional.empty(), 0, token, tracker), token, runnerStatus, tracker, (page, total) -> {
+      pageSizes.add(page.size());
+      totals.add(total);
+    });
+
+    assertThat(listedAll, is(true));
+    assertThat(pageSizes, contains(SUBMISSIONS_PAGE_SIZE, 5));
+    assertThat(totals, contains(SUBMISSIONS_PAGE_SIZE + 5, SUBMISSIONS_PAGE_SIZE + 5));
+  }
+
+  @Test
+  public void knows_how_to_get_the_submissions_received_since_a_date() {
+    List<CentralSubmission> submissions = buildSubmissions(Arrays.asList("some instance ID", "other instance ID"));
+    http.stub(
+        server.getSubmissionPageRequest(form.getFormId(), Optional.of(SOME_DATE_TIME), 0, SUBMISSIONS_PAGE_SIZE, token),
+        ok(odataJsonOf(submissions.subList(1, 2)))
+    );
+
+    List<CentralSubmission> actualSubmissions = getSubmissions(Optional.of(SOME_DATE_TIME));
+
+    assertThat(actualSubmissions, contains(submissions.get(1)));
+    assertThat(events, contains(
+        "Start getting IDs of submissions received since 2019-01-01T00:00:00Z",
+        "Got all the submission IDs"
+    ));
+  }
+
+  @Test
+  public void falls_back_to_the_full_submission_list_when_the_server_cant_filter_them() {
+    List<CentralSubmission> submissions = buildSubmissions(Arrays.asList("some instance ID", "other instance ID", "another instance ID"));
+    http.stub(
+        server.getSubmissionPageRequest(form.getFormId(), Optional.of(SOME_DATE_TIME.plusMinutes(1)), 0, SUBMISSIONS_PAGE_SIZE, token),
+        notFoundInputStream()
+    );
+    http.stub(
+        server.getSubmissionListRequest(form.getFormId(), token),
+        ok(restJsonOf(submissions))
+    );
+
+    List<CentralSubmission> actualSubmissions = getSubmissions(Optional.of(SOME_DATE_TIME.plusMinutes(1)));
+
+    assertThat(actualSubmissions, contains(submissions.get(1), submissions.get(2)));
+    assertThat(events, contains(
+        "Start getting IDs of submissions received since 2019-01-01T00:01:00Z",
+        "Can't get the submission IDs page by page. Getting all of them at once",
+        "Got all the submission IDs"
+    ));
+  }
+
+  @Test
+  public void does_not_fall_back_to_the_full_submission_list_on_other_errors() {
+    http.stub(
+        server.getSubmissionPageRequest(form.getFormId(), Optional.empty(), 0, SUBMISSIONS_PAGE_SIZE, token),
+        unauthorizedInputStream()
+    );
+
+    boolean listedAll = pullOp.forEachSubmissionPage(form, Optional.empty(), pullOp.requestSubmissionPage(form, Optional.empty(), 0, token, tracker), token, runnerStatus, tracker, (page, total) -> { });
+
+    assertThat(listedAll, is(false));
+    assertThat(events, contains(
+        "Start getting submission IDs",
+        "Error getting submission IDs: Unauthorized"
+    ));
+  }
+
+  private List<CentralSubmission> getSubmissions(Optional<OffsetDateTime> since) {
+    List<CentralSubmission> submissions = new ArrayList<>();
+    pullOp.forEachSubmissionPage(form, since, pullOp.requestSubmissionPage(form, since, 0, token, tracker), token, runnerStatus, tracker, (page, total) -> submissions.addAll(page));
+    return submissions;
+  }
+
   @Test
   public void knows_how_to_download_a_submission() {
     String instanceId = "uuid:515a13cf-d7a5-4606-a18f-84940b0944b2";
@@ -218,7 +315,7 @@ public class PullFromCentralTest {
         ok(jsonOfAttachments(expectedAttachments))
     );
 
-    List<CentralAttachment> actualAttachments = pullOp.getSubmissionAttachmentList(form, instanceId, token, runnerStatus, tracker, 1, 1);
+    List<CentralAttachment> actualAttachments = pullOp.getSubmissionAttachmentList(form, instanceId, token, runnerStatus, tracker, 1, 1).orElseThrow(BriefcaseException::new);
     assertThat(actualAttachments, hasSize(expectedAttachments.size()));
     for (CentralAttachment attachment : actualAttachments)
       assertThat(expectedAttachments, hasItem(attachment));
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.push;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+public class PushPipelineTest {
+  @Test
+  public void uploads_the_attachments_of_a_submission_after_it_has_been_sent() {
+    List<String> uploads = new CopyOnWriteArrayList<>();
+
+    try (PushPipeline pipeline = PushPipeline.of(4)) {
+      pipeline.submit(
+          () -> uploads.add("submission"),
+          () -> asList(() -> uploads.add("attachment 1"), () -> uploads.add("attachment 2"))
+      );
+      pipeline.awaitAll();
+    }
+
+    assertThat(uploads.get(0), is("submission"));
+    assertThat(uploads.subList(1, uploads.size()), containsInAnyOrder("attachment 1", "attachment 2"));
+  }
+
+  @Test
+  public void skips_the_attachments_of_a_submission_that_could_not_be_sent() {
+    List<String> uploads = new CopyOnWriteArrayList<>();
+
+    try (PushPipeline pipeline = PushPipeline.of(4)) {
+      pipeline.submit(
+          () -> false,
+          () -> asList(() -> uploads.add("attachment 1"), () -> uploads.add("attachment 2"))
+      );
+      pipeline.submit(() -> uploads.add("other submission"));
+      pipeline.awaitAll();
+    }
+
+    assertThat(uploads, contains("other submission"));
+  }
+
+  @Test
+  public void runs_as_many_uploads_at_once_as_HTTP_connections() {
+    AtomicInteger running = new AtomicInteger(0);
+    AtomicInteger maxRunning = new AtomicInteger(0);
+    AtomicInteger completed = new AtomicInteger(0);
+    Runnable upload = () -> {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      running.decrementAndGet();
+      completed.incrementAndGet();
+    };
+
+    try (PushPipeline pipeline = PushPipeline.of(2)) {
+      IntStream.range(0, 10).forEach(i -> pipeline.submit(
+          () -> {
+            upload.run();
+            return true;
+          },
+          () -> asList(upload, upload, upload)
+      ));
+      pipeline.awaitAll();
+    }
+
+    assertThat(completed.get(), is(40));
+    assertThat(maxRunning.get(), lessThanOrEqualTo(2));
+  }
+
+  @Test
+  public void does_not_keep_completed_submissions() {
+    AtomicInteger completed = new AtomicInteger(0);
+
+    try (PushPipeline pipeline = PushPipeline.of(2)) {
+      IntStream.range(0, 100).forEach(i -> pipeline.submit(() -> completed.incrementAndGet() > 0));
+      pipeline.awaitAll();
+      assertThat(pipeline.countRunningSubmissions(), is(0));
+    }
+
+    assertThat(completed.get(), is(100));
+  }
+
+  @Test
+  public void throws_the_failures_of_submissions_that_have_already_completed() {
+    try (PushPipeline pipeline = PushPipeline.of(2)) {
+      pipeline.submit(() -> {
+        throw new IllegalStateException("some failure");
+      });
+      // The failed submission is completed before waiting for the pipeline
+      while (pipeline.countRunningSubmissions() > 0)
+        Thread.yield();
+
+      try {
+        pipeline.awaitAll();
+        fail("The failure should have been thrown");
+      } catch (IllegalStateException e) {
+        assertThat(e.getMessage(), is("some failure"));
+      }
+    }
+  }
+}
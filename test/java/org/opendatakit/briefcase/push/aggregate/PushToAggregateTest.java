@@ -17,6 +17,7 @@
 package org.opendatakit.briefcase.push.aggregate;
 
 import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
@@ -25,6 +26,7 @@ import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
 import static org.opendatakit.briefcase.reused.UncheckedFiles.createTempDirectory;
 import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteRecursive;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.size;
 import static org.opendatakit.briefcase.reused.http.RequestBuilder.url;
 import static org.opendatakit.briefcase.reused.http.RequestSpyMatchers.hasBeenCalled;
 import static org.opendatakit.briefcase.reused.http.RequestSpyMatchers.hasPart;
@@ -77,6 +79,7 @@ public class PushToAggregateTest {
     formAttachment = TransferTestHelpers.installFormAttachment(formStatus, TransferTestHelpers.getResourcePath("/org/opendatakit/briefcase/push/aggregate/sparrow.png"), briefcaseDir);
     submission = TransferTestHelpers.installSubmission(formStatus, TransferTestHelpers.getResourcePath("/org/opendatakit/briefcase/push/aggregate/submission.xml"), briefcaseDir);
     submissionAttachment = TransferTestHelpers.installSubmissionAttachment(formStatus, TransferTestHelpers.getResourcePath("/org/opendatakit/briefcase/push/aggregate/1556532531101.jpg"), briefcaseDir, instanceId);
+    http.stub(server.getPushFormPreflightRequest(), request -> ok(""));
   }
 
   @After
@@ -91,7 +94,7 @@ public class PushToAggregateTest {
   @Test
   public void knows_how_to_check_if_the_form_already_exists_in_Central() {
     // Low-level test that drives an individual step of the push operation
-    PushToAggregate pushOp = new PushToAggregate(http, server, briefcaseDir, false, this::onEvent);
+    PushToAggregate pushOp = new PushToAggregate(http, server, briefcaseDir, false, false, this::onEvent);
 
     RequestSpy<?> requestSpy = http.spyOn(
         server.getFormExistsRequest(formStatus.getFormId()),
@@ -107,7 +110,7 @@ public class PushToAggregateTest {
   @Test
   public void knows_how_to_check_if_the_form_does_not_exist_in_Central() {
     // Low-level test that drives an individual step of the push operation
-    PushToAggregate pushOp = new PushToAggregate(http, server, briefcaseDir, false, this::onEvent);
+    PushToAggregate pushOp = new PushToAggregate(http, server, briefcaseDir, false, false, this::onEvent);
 
     http.stub(
         server.getFormExistsRequest(formStatus.getFormId()),
@@ -120,7 +123,7 @@ public class PushToAggregateTest {
   @Test
   public void knows_how_to_push_forms_and_their_attachments_to_Aggregate() {
     // Low-level test that drives an individual step of the push operation
-    PushToAggregate pushOp = new PushToAggregate(http, server, briefcaseDir, false, this::onEvent);
+    PushToAggregate pushOp = new PushToAggregate(http, server, briefcaseDir, false, false, this::onEvent);
 
     RequestSpy<?> requestSpy = http.spyOn(server.getPushFormRequest(form, singletonList(formAttachment)));
 
@@ -137,7 +140,7 @@ public class PushToAggregateTest {
   @Test
   public void knows_how_to_push_submissions_and_their_attachments_to_Aggregate() {
     // Low-level test that drives an individual step of the push operation
-    PushToAggregate pushOp = new PushToAggregate(http, server, briefcaseDir, false, this::onEvent);
+    PushToAggregate pushOp = new PushToAggregate(http, server, briefcaseDir, false, false, this::onEvent);
 
     RequestSpy<?> requestSpy = http.spyOn(
         server.getPushSubmissionRequest(submission, singletonList(submissionAttachment)),
@@ -157,7 +160,7 @@ public class PushToAggregateTest {
   @Test
   public void knows_how_to_push_completely_a_form_when_the_form_doesn_exist_in_Aggregate() {
     // High-level test that drives the public push operation
-    PushToAggregate pushOp = new PushToAggregate(http, server, briefcaseDir, false, this::onEvent);
+    PushToAggregate pushOp = new PushToAggregate(http, server, briefcaseDir, false, false, this::onEvent);
 
     http.stub(server.getFormExistsRequest(formStatus.getFormId()), ok(listOfFormsResponseFromAggregate()));
     http.stub(server.getPushFormRequest(form, singletonList(formAttachment)), ok("<root/>"));
@@ -179,7 +182,7 @@ public class PushToAggregateTest {
   @Test
   public void knows_how_to_push_completely_a_form_when_the_form_exists_in_Aggregate() {
     // High-level test that drives the public push operation
-    PushToAggregate pushOp = new PushToAggregate(http, server, briefcaseDir, false, this::onEvent);
+    PushToAggregate pushOp = new PushToAggregate(http, server, briefcaseDir, false, false, this::onEvent);
 
     http.stub(server.getFormExistsRequest(formStatus.getFormId()), ok(listOfFormsResponseFromAggregate(formStatus)));
     http.stub(server.getPushFormRequest(form, singletonList(formAttachment)), ok("<root/>"));
@@ -201,7 +204,7 @@ public class PushToAggregateTest {
   @Test
   public void can_force_send_a_form_even_when_the_form_exists_in_Aggregate() {
     // High-level test that drives the public push operation
-    PushToAggregate pushOp = new PushToAggregate(http, server, briefcaseDir, true, this::onEvent);
+    PushToAggregate pushOp = new PushToAggregate(http, server, briefcaseDir, true, false, this::onEvent);
 
     http.stub(server.getFormExistsRequest(formStatus.getFormId()), ok(listOfFormsResponseFromAggregate(formStatus)));
     http.stub(server.getPushFormRequest(form, singletonList(formAttachment)), ok("<root/>"));
@@ -218,6 +221,72 @@ public class PushToAggregateTest {
     ));
   }
 
+  @Test
+  public void skips_submissions_already_sent_unless_forced() throws IOException {
+    // High-level test that drives the public push operation
+    // Stub responses are built for each request, since this test pushes several times
+    http.stub(server.getFormExistsRequest(formStatus.getFormId()), request -> ok(listOfFormsResponseFromAggregate(formStatus)));
+    http.stub(server.getPushSubmissionRequest(submission, singletonList(submissionAttachment)), request -> ok("<root/>"));
+
+    launchSync(new PushToAggregate(http, server, briefcaseDir, false, false, this::onEvent).push(formStatus));
+    events.clear();
+    launchSync(new PushToAggregate(http, server, briefcaseDir, false, false, this::onEvent).push(formStatus));
+
+    assertThat(events, allOf(
+        hasItem("Skipping 1 submission already sent to Aggregate"),
+        not(hasItem("Sending submission 1 of 1"))
+    ));
+
+    // Changed submissions are sent again
+    Files.write(submissionAttachment, new byte[]{1, 2, 3});
+    events.clear();
+    launchSync(new PushToAggregate(http, server, briefcaseDir, false, false, this::onEvent).push(formStatus));
+
+    assertThat(events, allOf(
+        not(hasItem("Skipping 1 submission already sent to Aggregate")),
+        hasItem("Submission 1 of 1 sent")
+    ));
+
+    events.clear();
+    launchSync(new PushToAggregate(http, server, briefcaseDir, false, true, this::onEvent).push(formStatus));
+
+    assertThat(events, allOf(
+        hasItem("Forcing push of all submissions"),
+        hasItem("Submission 1 of 1 sent")
+    ));
+  }
+
+  @Test
+  public void sends_each_group_of_submission_attachments_once_in_parts_under_the_size_advertised_by_Aggregate() throws IOException {
+    // High-level test that drives the public push operation
+    FakeHttp http = new FakeHttp();
+    http.stub(server.getPushFormPreflightRequest(), ok("", singletonMap("X-OpenRosa-Accept-Content-Length", "1048576")));
+    http.stub(server.getFormExistsRequest(formStatus.getFormId()), ok(listOfFormsResponseFromAggregate(formStatus)));
+    List<Long> sentBytes = new ArrayList<>();
+    http.stub(server.getPushSubmissionRequest(submission, singletonList(submissionAttachment)), request -> {
+      sentBytes.add(request.getMultipartMessages().stream()
+          .filter(part -> !part.getName().equals("xml_submission_file"))
+          .mapToLong(part -> size(part.getFile().get()))
+          .sum());
+      return ok("<root/>");
+    });
+    Path submissionDir = submission.getParent();
+    Files.copy(createTempFileOfSize(600), submissionDir.resolve("some-file.txt"));
+    Files.copy(createTempFileOfSize(600), submissionDir.resolve("other-file.txt"));
+
+    launchSync(new PushToAggregate(http, server, briefcaseDir, false, false, this::onEvent).push(formStatus));
+
+    // The picture alone is bigger than 1 MB, and the two text files don't fit together
+    long allAttachmentsBytes = size(submissionAttachment) + 2 * 600 * 1024;
+    assertThat(sentBytes, hasSize(3));
+    assertThat(sentBytes.stream().mapToLong(Long::longValue).sum(), is(allAttachmentsBytes));
+    assertThat(events, allOf(
+        hasItem("Submission 1 of 1 sent (1/3)"),
+        hasItem("Submission 1 of 1 sent (2/3)"),
+        hasItem("Submission 1 of 1 sent (3/3)")
+    ));
+  }
+
   @Test
   public void knows_how_to_group_form_and_attachmets_in_groups_under_10_megabytes_in_total() throws IOException {
     List<Path> attachments = Arrays.asList(
@@ -227,7 +296,7 @@ public class PushToAggregateTest {
         createTempFileOfSize(300), // Will go into group 4
         createTempFileOfSize(600)  // Will go into group 4
     );
-    List<List<Path>> groupsOfMaxSize = PushToAggregate.createGroupsOfMaxSize(formStatus.getFormFile(briefcaseDir), attachments, 1);
+    List<List<Path>> groupsOfMaxSize = PushToAggregate.createGroupsOfMaxSize(formStatus.getFormFile(briefcaseDir), attachments, 1_048_576);
     assertThat(groupsOfMaxSize.get(0), hasSize(1));
     assertThat(groupsOfMaxSize.get(1), hasSize(1));
     assertThat(groupsOfMaxSize.get(2), hasSize(1));
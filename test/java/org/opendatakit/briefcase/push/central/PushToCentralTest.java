@@ -18,7 +18,9 @@ package org.opendatakit.briefcase.push.central;
 
 import static org.hamcrest.Matchers.allOf;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
 import static org.opendatakit.briefcase.reused.UncheckedFiles.createTempDirectory;
@@ -30,6 +32,7 @@ import static org.opendatakit.briefcase.reused.http.RequestSpyMatchers.hasBody;
 import static org.opendatakit.briefcase.reused.http.RequestSpyMatchers.isMultipart;
 import static org.opendatakit.briefcase.reused.http.response.ResponseHelpers.notFoundInputStream;
 import static org.opendatakit.briefcase.reused.http.response.ResponseHelpers.ok;
+import static org.opendatakit.briefcase.reused.http.response.ResponseHelpers.unauthorizedInputStream;
 import static org.opendatakit.briefcase.reused.job.JobsRunner.launchSync;
 import static org.opendatakit.briefcase.reused.transfer.TransferTestHelpers.buildFormStatus;
 import static org.opendatakit.briefcase.reused.transfer.TransferTestHelpers.getResourcePath;
@@ -43,7 +46,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
+import java.util.Optional;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -104,32 +107,72 @@ public class PushToCentralTest {
     events.add(e.getStatusString());
   }
 
+  private void stubEmptySubmissionList() {
+    http.stub(
+        server.getSubmissionPageRequest(formStatus.getFormId(), Optional.empty(), 0, PushToCentral.SUBMISSIONS_PAGE_SIZE, token),
+        ok("{\"value\":[],\"@odata.count\":0}")
+    );
+  }
+
   @Test
-  public void knows_how_to_check_if_the_form_version_already_exists_in_Central() {
+  public void falls_back_to_checking_if_each_form_version_already_exists_in_Central() {
     // Low-level test that drives an individual step of the push operation
-
+    http.stub(server.getFormVersionListRequest(formStatus.getFormId(), token), unauthorizedInputStream());
+    stubEmptySubmissionList();
     RequestSpy<?> requestSpy = http.spyOn(
         server.getFormVersionExists(formStatus.getFormId(), formStatus.getVersion().orElse(""), token),
         ok("an ignored body")
     );
 
-    Set<String> missingFormVersions = pushOp.getMissingFormVersions(formStatus, runnerStatus, tracker, formMetadataPort);
+    CentralPushPlan plan = pushOp.planPush(formStatus, runnerStatus, tracker, formMetadataPort);
 
     assertThat(requestSpy, allOf(hasBeenCalled(), not(isMultipart())));
-    assertThat(missingFormVersions, not(contains(formStatus.getVersion().get())));
+    assertThat(plan.getMissingFormVersions(), not(contains(formStatus.getVersion().get())));
   }
 
   @Test
-  public void knows_how_to_check_if_the_form_version_does_not_exist_in_Central() {
+  public void falls_back_to_checking_if_each_form_version_does_not_exist_in_Central() {
     // Low-level test that drives an individual step of the push operation
+    http.stub(server.getFormVersionListRequest(formStatus.getFormId(), token), unauthorizedInputStream());
+    stubEmptySubmissionList();
     http.stub(
         server.getFormVersionExists(formStatus.getFormId(), formStatus.getVersion().orElse(""), token),
         notFoundInputStream()
     );
 
-    Set<String> missingFormVersions = pushOp.getMissingFormVersions(formStatus, runnerStatus, tracker, formMetadataPort);
+    CentralPushPlan plan = pushOp.planPush(formStatus, runnerStatus, tracker, formMetadataPort);
+
+    assertThat(plan.getMissingFormVersions(), contains(formStatus.getVersion().get()));
+  }
+
+  @Test
+  public void plans_a_push_with_the_form_versions_and_submissions_listed_by_Central() {
+    // Low-level test that drives an individual step of the push operation
+    String version = formStatus.getVersion().orElse("");
+    http.stub(server.getFormVersionListRequest(formStatus.getFormId(), token), ok("[{\"version\":\"" + version + "\"}]"));
+    http.stub(
+        server.getSubmissionPageRequest(formStatus.getFormId(), Optional.empty(), 0, PushToCentral.SUBMISSIONS_PAGE_SIZE, token),
+        ok("{\"value\":[{\"__id\":\"" + instanceId + "\",\"__system\":{\"submissionDate\":\"2019-01-01T00:00:00.000Z\",\"attachmentsPresent\":1}}],\"@odata.count\":1}")
+    );
+
+    CentralPushPlan plan = pushOp.planPush(formStatus, runnerStatus, tracker, formMetadataPort);
+
+    assertThat(plan.getMissingFormVersions(), is(empty()));
+    assertThat(plan.isSubmissionPresent(instanceId), is(true));
+    assertThat(plan.isSubmissionComplete(instanceId, 1), is(true));
+    assertThat(plan.isSubmissionComplete(instanceId, 2), is(false));
+  }
+
+  @Test
+  public void plans_to_send_everything_when_the_form_does_not_exist_in_Central() {
+    // Low-level test that drives an individual step of the push operation
+    // There's no stub for the submission list, which would make the test fail if it was requested
+    http.stub(server.getFormVersionListRequest(formStatus.getFormId(), token), notFoundInputStream());
+
+    CentralPushPlan plan = pushOp.planPush(formStatus, runnerStatus, tracker, formMetadataPort);
 
-    assertThat(missingFormVersions, contains(formStatus.getVersion().get()));
+    assertThat(plan.getMissingFormVersions(), contains(formStatus.getVersion().get()));
+    assertThat(plan.isSubmissionPresent(instanceId), is(false));
   }
 
   @Test
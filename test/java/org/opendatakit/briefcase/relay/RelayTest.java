@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.relay;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createDirectories;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createTempDirectory;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteRecursive;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.write;
+import static org.opendatakit.briefcase.reused.http.RequestBuilder.url;
+import static org.opendatakit.briefcase.reused.job.JobsRunner.launchSync;
+import static org.opendatakit.briefcase.reused.transfer.TransferTestHelpers.buildFormStatus;
+import static org.opendatakit.briefcase.reused.transfer.TransferTestHelpers.buildSubmissionXml;
+
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendatakit.briefcase.model.FormStatus;
+import org.opendatakit.briefcase.pull.PulledSubmissionCallback;
+import org.opendatakit.briefcase.push.SubmissionForwarder;
+import org.opendatakit.briefcase.reused.job.Job;
+import org.opendatakit.briefcase.reused.job.RunnerStatus;
+
+public class RelayTest {
+  private static final URL TARGET_URL = url("http://foo.bar");
+  private final FormStatus form = buildFormStatus("some-form", "http://foo.bar/manifest");
+  private Path briefcaseDir;
+  private FakeForwarder forwarder;
+
+  @Before
+  public void setUp() {
+    briefcaseDir = createTempDirectory("briefcase");
+    forwarder = new FakeForwarder();
+    Path formFile = form.getFormFile(briefcaseDir);
+    createDirectories(formFile.getParent());
+    write(formFile, "<form/>");
+  }
+
+  @After
+  public void tearDown() {
+    deleteRecursive(briefcaseDir);
+  }
+
+  @Test
+  public void pushes_pulled_submissions_and_removes_the_ones_that_have_been_sent() {
+    forwarder.rejecting("uuid:2");
+
+    launchSync(new Relay(briefcaseDir, TARGET_URL, 2, false).relay(form, callback -> pulling(callback, "uuid:1", "uuid:2", "uuid:3"), forwarder));
+
+    assertThat(forwarder.formPushes.get(), is(1));
+    assertThat(forwarder.submissions, containsInAnyOrder("uuid1", "uuid2", "uuid3"));
+    assertThat(forwarder.finished, is(true));
+    assertThat(Files.exists(form.getSubmissionDir(briefcaseDir, "uuid:1")), is(false));
+    assertThat(Files.exists(form.getSubmissionDir(briefcaseDir, "uuid:2")), is(true));
+    assertThat(Files.exists(form.getSubmissionDir(briefcaseDir, "uuid:3")), is(false));
+  }
+
+  @Test
+  public void pushes_the_submissions_left_by_previous_relays_before_pulling() {
+    forwarder.rejecting("uuid:1");
+    launchSync(new Relay(briefcaseDir, TARGET_URL, 2, false).relay(form, callback -> pulling(callback, "uuid:1"), forwarder));
+    FakeForwarder nextForwarder = new FakeForwarder();
+
+    launchSync(new Relay(briefcaseDir, TARGET_URL, 2, false).relay(form, callback -> pulling(callback, "uuid:2"), nextForwarder));
+
+    assertThat(nextForwarder.submissions, containsInAnyOrder("uuid1", "uuid2"));
+    assertThat(Files.exists(form.getSubmissionDir(briefcaseDir, "uuid:1")), is(false));
+  }
+
+  @Test
+  public void does_not_push_staged_submissions_that_a_pull_left_incomplete() {
+    // The submission is staged without calling the callback, like a pull that can't get all its attachments
+    stage("uuid:1");
+
+    launchSync(new Relay(briefcaseDir, TARGET_URL, 2, false).relay(form, callback -> pulling(callback, "uuid:2"), forwarder));
+
+    assertThat(forwarder.submissions, containsInAnyOrder("uuid2"));
+    assertThat(Files.exists(form.getSubmissionDir(briefcaseDir, "uuid:1")), is(true));
+  }
+
+  @Test
+  public void tells_pulls_about_the_submissions_that_have_been_pushed_and_removed() {
+    launchSync(new Relay(briefcaseDir, TARGET_URL, 2, false).relay(form, callback -> pulling(callback, "uuid:1"), forwarder));
+    List<Boolean> alreadyPulled = new CopyOnWriteArrayList<>();
+
+    launchSync(new Relay(briefcaseDir, TARGET_URL, 2, false).relay(form, callback -> Job.run(runnerStatus -> {
+      alreadyPulled.add(callback.isAlreadyPulled("uuid:1"));
+      alreadyPulled.add(callback.isAlreadyPulled("uuid:2"));
+    }), forwarder));
+
+    assertThat(alreadyPulled, contains(true, false));
+  }
+
+  @Test
+  public void keeps_a_local_copy_of_the_pulled_submissions() {
+    stage("uuid:1");
+
+    launchSync(new Relay(briefcaseDir, TARGET_URL, 2, true).relay(form, callback -> pulling(callback, "uuid:2"), forwarder));
+
+    assertThat(forwarder.submissions, containsInAnyOrder("uuid2"));
+    assertThat(Files.exists(form.getSubmissionDir(briefcaseDir, "uuid:1")), is(true));
+    assertThat(Files.exists(form.getSubmissionDir(briefcaseDir, "uuid:2")), is(true));
+  }
+
+  @Test
+  public void pushes_the_form_even_if_there_are_no_submissions() {
+    launchSync(new Relay(briefcaseDir, TARGET_URL, 2, false).relay(form, callback -> pulling(callback), forwarder));
+
+    assertThat(forwarder.formPushes.get(), is(1));
+    assertThat(forwarder.finished, is(true));
+  }
+
+  private Job<Void> pulling(PulledSubmissionCallback callback, String... instanceIds) {
+    return Job.run(runnerStatus -> {
+      List<String> ids = asList(instanceIds);
+      for (int i = 0; i < ids.size(); i++)
+        callback.accept(stage(ids.get(i)), i + 1, ids.size());
+    });
+  }
+
+  private Path stage(String instanceId) {
+    Path submissionFile = form.getSubmissionFile(briefcaseDir, instanceId);
+    createDirectories(submissionFile.getParent());
+    write(submissionFile, buildSubmissionXml(instanceId));
+    return submissionFile;
+  }
+
+  private static class FakeForwarder implements SubmissionForwarder {
+    private final AtomicInteger formPushes = new AtomicInteger(0);
+    private final List<String> submissions = new CopyOnWriteArrayList<>();
+    private final List<String> rejectedSubmissions = new CopyOnWriteArrayList<>();
+    private volatile boolean finished = false;
+
+    void rejecting(String instanceId) {
+      rejectedSubmissions.add(instanceId.replace(":", ""));
+    }
+
+    @Override
+    public boolean pushForm(RunnerStatus runnerStatus) {
+      formPushes.incrementAndGet();
+      return true;
+    }
+
+    @Override
+    public boolean pushSubmission(Path submissionFile, RunnerStatus runnerStatus, int submissionNumber, int totalSubmissions) {
+      String instanceDirName = submissionFile.getParent().getFileName().toString();
+      submissions.add(instanceDirName);
+      return !rejectedSubmissions.contains(instanceDirName);
+    }
+
+    @Override
+    public void finish() {
+      finished = true;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused;
+
+import static com.github.npathai.hamcrestopt.OptionalMatchers.isEmpty;
+import static com.github.npathai.hamcrestopt.OptionalMatchers.isPresentAndIs;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createTempDirectory;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteRecursive;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.write;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileHashCacheTest {
+  // MD5 hash of "some content"
+  private static final String SOME_CONTENT_MD5 = "9893532233caff98cd083a116b013c0b";
+  private Path tempDir;
+
+  @Before
+  public void setUp() {
+    tempDir = createTempDirectory("briefcase");
+  }
+
+  @After
+  public void tearDown() {
+    deleteRecursive(tempDir);
+  }
+
+  @Test
+  public void computes_the_md5_hash_of_a_file() {
+    Path file = write(tempDir.resolve("some-file.txt"), "some content");
+    assertThat(FileHashCache.at(tempDir).md5(file), is(SOME_CONTENT_MD5));
+  }
+
+  @Test
+  public void remembers_hashes_between_instances_once_saved() {
+    Path file = write(tempDir.resolve("some-file.txt"), "some content");
+    FileHashCache hashes = FileHashCache.at(tempDir);
+    hashes.put(file, "some-known-hash");
+    hashes.save();
+
+    assertThat(FileHashCache.at(tempDir).get(file), isPresentAndIs("some-known-hash"));
+  }
+
+  @Test
+  public void keeps_the_hashes_saved_by_other_instances() {
+    Path someFile = write(tempDir.resolve("some-file.txt"), "some content");
+    Path otherFile = write(tempDir.resolve("other-file.txt"), "other content");
+    FileHashCache someHashes = FileHashCache.at(tempDir);
+    FileHashCache otherHashes = FileHashCache.at(tempDir);
+    someHashes.put(someFile, "some-known-hash");
+    otherHashes.put(otherFile, "other-known-hash");
+    someHashes.save();
+    otherHashes.save();
+
+    FileHashCache hashes = FileHashCache.at(tempDir);
+    assertThat(hashes.get(someFile), isPresentAndIs("some-known-hash"));
+    assertThat(hashes.get(otherFile), isPresentAndIs("other-known-hash"));
+  }
+
+  @Test
+  public void forgets_the_hash_of_a_file_that_has_been_modified() throws IOException {
+    Path file = write(tempDir.resolve("some-file.txt"), "some content");
+    FileHashCache hashes = FileHashCache.at(tempDir);
+    hashes.put(file, "some-known-hash");
+
+    write(file, "some other content");
+    Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+
+    assertThat(hashes.get(file), isEmpty());
+    assertThat(hashes.matches(file, "some-known-hash"), is(false));
+  }
+
+  @Test
+  public void does_not_match_missing_files() {
+    assertThat(FileHashCache.at(tempDir).matches(tempDir.resolve("some-file.txt"), SOME_CONTENT_MD5), is(false));
+  }
+
+  @Test
+  public void ignores_broken_sidecar_files() {
+    write(tempDir.resolve(FileHashCache.FILE_NAME), "not json");
+    Path file = write(tempDir.resolve("some-file.txt"), "some content");
+    assertThat(FileHashCache.at(tempDir).md5(file), is(SOME_CONTENT_MD5));
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createDirectories;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createTempDirectory;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteRecursive;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.exists;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.readFirstLine;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.write;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MediaBlobStoreTest {
+  // MD5 hash of "some content"
+  private static final String SOME_CONTENT_MD5 = "9893532233caff98cd083a116b013c0b";
+  private Path briefcaseDir;
+  private MediaBlobStore store;
+
+  @Before
+  public void setUp() {
+    briefcaseDir = createTempDirectory("briefcase");
+    store = MediaBlobStore.at(briefcaseDir);
+  }
+
+  @After
+  public void tearDown() {
+    deleteRecursive(briefcaseDir);
+  }
+
+  @Test
+  public void stores_files_by_their_md5_hash() {
+    Path file = mediaFile("form-a", "some-file.csv", "some content");
+
+    assertThat(store.store(file), is(SOME_CONTENT_MD5));
+    assertThat(store.has(SOME_CONTENT_MD5), is(true));
+    assertThat(store.has(SOME_CONTENT_MD5.toUpperCase()), is(true));
+    assertThat(readFirstLine(file), is("some content"));
+  }
+
+  @Test
+  public void links_stored_blobs_into_other_media_dirs() throws IOException {
+    Path file = mediaFile("form-a", "some-file.csv", "some content");
+    store.store(file);
+
+    Path target = briefcaseDir.resolve("forms/form-b/form-b-media/some-file.csv");
+    assertThat(store.linkTo(SOME_CONTENT_MD5, target), is(true));
+    assertThat(readFirstLine(target), is("some content"));
+    assertThat(Files.isSameFile(file, target), is(true));
+  }
+
+  @Test
+  public void does_not_link_missing_blobs() {
+    Path target = briefcaseDir.resolve("forms/form-b/form-b-media/some-file.csv");
+    assertThat(store.linkTo(SOME_CONTENT_MD5, target), is(false));
+    assertThat(exists(target), is(false));
+  }
+
+  @Test
+  public void replaces_stored_files_with_links_to_existing_blobs() throws IOException {
+    Path file = mediaFile("form-a", "some-file.csv", "some content");
+    Path otherFile = mediaFile("form-b", "other-file.csv", "some content");
+
+    store.store(file);
+    store.store(otherFile);
+
+    assertThat(Files.isSameFile(file, otherFile), is(true));
+  }
+
+  @Test
+  public void replacing_a_linked_media_file_does_not_change_other_forms_or_the_store() throws IOException {
+    Path file = mediaFile("form-a", "some-file.csv", "some content");
+    store.store(file);
+    Path target = briefcaseDir.resolve("forms/form-b/form-b-media/some-file.csv");
+    store.linkTo(SOME_CONTENT_MD5, target);
+
+    // Downloads replace media files by moving a new file over them
+    Path newVersion = write(target.resolveSibling("some-file.csv.partial"), "some other content");
+    Files.move(newVersion, target, REPLACE_EXISTING);
+
+    assertThat(readFirstLine(target), is("some other content"));
+    assertThat(readFirstLine(file), is("some content"));
+    assertThat(store.has(SOME_CONTENT_MD5), is(true));
+  }
+
+  @Test
+  public void discards_blobs_that_have_been_modified_through_a_link() throws IOException {
+    Path file = mediaFile("form-a", "some-file.csv", "some content");
+    store.store(file);
+
+    write(file, "some other content");
+    Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+
+    assertThat(store.has(SOME_CONTENT_MD5), is(false));
+    assertThat(exists(store.getBlob(SOME_CONTENT_MD5)), is(false));
+  }
+
+  private Path mediaFile(String formName, String filename, String contents) {
+    Path mediaDir = briefcaseDir.resolve("forms").resolve(formName).resolve(formName + "-media");
+    createDirectories(mediaDir);
+    return write(mediaDir.resolve(filename), contents);
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused.http;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AdaptiveConcurrencyLimitTest {
+  private static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(100);
+  private AtomicLong clock;
+  private AdaptiveConcurrencyLimit limit;
+
+  @Before
+  public void setUp() {
+    clock = new AtomicLong(0);
+    limit = new AdaptiveConcurrencyLimit("some-host", 8, clock::get);
+  }
+
+  @Test
+  public void starts_with_the_max_limit() {
+    assertThat(limit.getStats().getLimit(), is(8));
+  }
+
+  @Test
+  public void halves_the_limit_when_the_host_is_overloaded() throws InterruptedException {
+    respond(200);
+    respond(503);
+    assertThat(limit.getStats().getLimit(), is(4));
+    respond(429);
+    assertThat(limit.getStats().getLimit(), is(2));
+  }
+
+  @Test
+  public void halves_the_limit_when_requests_fail_without_a_response() throws InterruptedException {
+    limit.acquire();
+    clock.addAndGet(LATENCY);
+    limit.releaseWithError();
+    assertThat(limit.getStats().getLimit(), is(4));
+  }
+
+  @Test
+  public void decreases_the_limit_once_per_round_trip() throws InterruptedException {
+    respond(200);
+    limit.acquire();
+    limit.acquire();
+    limit.release(503, LATENCY);
+    limit.release(503, LATENCY);
+    assertThat(limit.getStats().getLimit(), is(4));
+  }
+
+  @Test
+  public void never_goes_below_one_connection() throws InterruptedException {
+    for (int i = 0; i < 10; i++)
+      respond(500);
+    assertThat(limit.getStats().getLimit(), is(1));
+  }
+
+  @Test
+  public void grows_back_up_to_the_max_limit_after_healthy_responses() throws InterruptedException {
+    respond(503);
+    assertThat(limit.getStats().getLimit(), is(4));
+
+    for (int i = 0; i < 4; i++)
+      respond(200);
+    assertThat(limit.getStats().getLimit(), is(5));
+
+    for (int i = 0; i < 100; i++)
+      respond(200);
+    assertThat(limit.getStats().getLimit(), is(8));
+  }
+
+  @Test
+  public void does_not_take_client_errors_as_overload() throws InterruptedException {
+    respond(404);
+    respond(401);
+    assertThat(limit.getStats().getLimit(), is(8));
+  }
+
+  @Test
+  public void decreases_the_limit_when_the_latency_grows() throws InterruptedException {
+    for (int i = 0; i < 10; i++)
+      respond(200);
+    for (int i = 0; i < 10; i++)
+      respond(200, LATENCY * 10);
+    assertThat(limit.getStats().getLimit() < 8, is(true));
+  }
+
+  @Test
+  public void tracks_requests_in_flight_and_throughput() throws InterruptedException {
+    limit.acquire();
+    limit.acquire();
+    assertThat(limit.getStats().getInFlight(), is(2));
+
+    for (int i = 0; i < 10; i++)
+      respond(200);
+    assertThat(limit.getStats().getThroughput(), is(1.0));
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(20));
+    assertThat(limit.getStats().getThroughput(), is(0.0));
+  }
+
+  @Test
+  public void lets_waiting_requests_through_taking_turns_by_group() throws InterruptedException {
+    limit = new AdaptiveConcurrencyLimit("some-host", 1, clock::get);
+    limit.acquire();
+
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    List<Thread> threads = new ArrayList<>();
+    for (String request : Arrays.asList("a1", "a2", "a3", "b1")) {
+      Thread thread = new Thread(() -> {
+        try {
+          limit.acquire(request.substring(0, 1));
+          order.add(request);
+          limit.release(200, LATENCY);
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      thread.start();
+      threads.add(thread);
+      // Wait until the request is in line, to know the order in which they arrive
+      while (limit.getWaiting() < threads.size())
+        Thread.sleep(1);
+    }
+
+    limit.release(200, LATENCY);
+    for (Thread thread : threads)
+      thread.join();
+
+    assertThat(order, contains("a1", "b1", "a2", "a3"));
+  }
+
+  @Test
+  public void lets_background_requests_through_once_no_other_request_is_waiting() throws InterruptedException {
+    limit = new AdaptiveConcurrencyLimit("some-host", 1, clock::get);
+    limit.acquire();
+
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    List<Thread> threads = new ArrayList<>();
+    for (String request : Arrays.asList("background1", "a1", "background2", "a2")) {
+      Thread thread = new Thread(() -> {
+        try {
+          limit.acquire("a", request.startsWith("background"));
+          order.add(request);
+          limit.release(200, LATENCY);
+        } catch (InterruptedException e) {
+          throw new RuntimeException(e);
+        }
+      });
+      thread.start();
+      threads.add(thread);
+      while (limit.getWaiting() < threads.size())
+        Thread.sleep(1);
+    }
+
+    limit.release(200, LATENCY);
+    for (Thread thread : threads)
+      thread.join();
+
+    assertThat(order, contains("a1", "a2", "background1", "background2"));
+  }
+
+  @Test
+  public void counts_all_the_completed_requests() throws InterruptedException {
+    for (int i = 0; i < 10; i++)
+      respond(200);
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(20));
+    assertThat(limit.getStats().getCompletedRequests(), is(10L));
+  }
+
+  private void respond(int statusCode) throws InterruptedException {
+    respond(statusCode, LATENCY);
+  }
+
+  private void respond(int statusCode, long latency) throws InterruptedException {
+    limit.acquire();
+    clock.addAndGet(latency);
+    limit.release(statusCode, latency);
+  }
+}
@@ -18,9 +18,11 @@ package org.opendatakit.briefcase.reused.http;
 
 import static com.github.dreamhead.moco.HttpMethod.GET;
 import static com.github.dreamhead.moco.HttpMethod.HEAD;
+import static com.github.dreamhead.moco.HttpMethod.POST;
 import static com.github.dreamhead.moco.Moco.and;
 import static com.github.dreamhead.moco.Moco.by;
 import static com.github.dreamhead.moco.Moco.contain;
+import static com.github.dreamhead.moco.Moco.eq;
 import static com.github.dreamhead.moco.Moco.exist;
 import static com.github.dreamhead.moco.Moco.header;
 import static com.github.dreamhead.moco.Moco.httpServer;
@@ -28,22 +30,42 @@ import static com.github.dreamhead.moco.Moco.log;
 import static com.github.dreamhead.moco.Moco.match;
 import static com.github.dreamhead.moco.Moco.method;
 import static com.github.dreamhead.moco.Moco.not;
+import static com.github.dreamhead.moco.Moco.seq;
 import static com.github.dreamhead.moco.Moco.status;
+import static com.github.dreamhead.moco.Moco.text;
 import static com.github.dreamhead.moco.Moco.uri;
 import static com.github.dreamhead.moco.Runner.running;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.opendatakit.briefcase.matchers.ExceptionMatchers.throwsException;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createTempDirectory;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteRecursive;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.write;
 import static org.opendatakit.briefcase.reused.http.Http.MAX_HTTP_CONNECTIONS;
 import static org.opendatakit.briefcase.reused.http.Http.MIN_HTTP_CONNECTIONS;
 import static org.opendatakit.briefcase.reused.http.RequestBuilder.url;
 
 import com.github.dreamhead.moco.HttpServer;
+import java.io.ByteArrayOutputStream;
 import java.net.URL;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
 import org.junit.Before;
 import org.junit.Test;
 import org.opendatakit.briefcase.reused.BriefcaseException;
+import org.opendatakit.briefcase.reused.Futures;
 import org.opendatakit.briefcase.reused.http.response.Response;
 
 public class CommonsHttpTest {
@@ -77,6 +99,18 @@ public class CommonsHttpTest {
     );
   }
 
+  @Test
+  public void the_factories_reject_negative_timeouts_and_retries() {
+    assertThat(
+        () -> CommonsHttp.of(MIN_HTTP_CONNECTIONS, -1, 0),
+        throwsException(BriefcaseException.class)
+    );
+    assertThat(
+        () -> CommonsHttp.of(MIN_HTTP_CONNECTIONS, 0, -1),
+        throwsException(BriefcaseException.class)
+    );
+  }
+
   @Test
   public void can_execute_a_GET_request() throws Exception {
     server.request(and(by(uri("/")), by(method(GET)))).response("foo");
@@ -86,6 +120,15 @@ public class CommonsHttpTest {
     ));
   }
 
+  @Test
+  public void can_execute_a_GET_request_asynchronously() throws Exception {
+    server.request(and(by(uri("/")), by(method(GET)))).response("foo");
+    running(server, () -> assertThat(
+        Futures.join(http.executeAsync(RequestBuilder.get(BASE_URL).asText().build())).orElseThrow(BriefcaseException::new),
+        containsString("foo")
+    ));
+  }
+
   @Test
   public void can_execute_a_HEAD_request() throws Exception {
     server.request(and(by(uri("/")), by(method(HEAD)))).response("foo");
@@ -156,4 +199,149 @@ public class CommonsHttpTest {
       assertThat(response.isSuccess(), is(false));
     });
   }
+
+  @Test
+  public void revalidates_conditional_requests_with_the_validator_cache() throws Exception {
+    server.request(and(
+        by(uri("/")),
+        by(method(GET)),
+        eq(header("If-None-Match"), "\"v1\"")
+    )).response(status(304));
+    server.request(and(
+        by(uri("/")),
+        by(method(GET)),
+        not(exist(header("If-None-Match")))
+    )).response(header("ETag", "\"v1\""), text("foo"));
+    Path briefcaseDir = createTempDirectory("briefcase");
+    http.setValidatorCache(HttpValidatorCache.at(briefcaseDir));
+    Request<String> request = RequestBuilder.get(BASE_URL).asText().conditional().build();
+    running(server, () -> {
+      Response<String> firstResponse = http.execute(request);
+      assertThat(firstResponse.get(), is("foo"));
+      assertThat(firstResponse.isNotModified(), is(false));
+
+      Response<String> secondResponse = http.execute(request);
+      assertThat(secondResponse.get(), is("foo"));
+      assertThat(secondResponse.isNotModified(), is(true));
+    });
+    deleteRecursive(briefcaseDir);
+  }
+
+  @Test
+  public void retries_idempotent_requests_after_transient_errors() throws Exception {
+    server.request(and(by(uri("/")), by(method(GET)))).response(seq(status(503), status(200)));
+    Http retryingHttp = CommonsHttp.of(1, 60, fastRetries());
+    running(server, () -> {
+      Response response = retryingHttp.execute(RequestBuilder.get(BASE_URL).build());
+      assertThat(response.isSuccess(), is(true));
+    });
+  }
+
+  @Test
+  public void retries_repeatable_requests_after_transient_errors() throws Exception {
+    server.request(and(by(uri("/")), by(method(POST)))).response(seq(status(502), status(201)));
+    Http retryingHttp = CommonsHttp.of(1, 60, fastRetries());
+    running(server, () -> {
+      Response response = retryingHttp.execute(RequestBuilder.post(BASE_URL).withBody("some body").asRepeatable().build());
+      assertThat(response.isSuccess(), is(true));
+    });
+  }
+
+  @Test
+  public void streams_file_backed_multipart_messages_again_on_retries() throws Exception {
+    // Requests without the file contents don't match, and get a 400 response
+    server.request(and(by(uri("/")), by(method(POST)), match(text("(?s).*some content.*")))).response(seq(status(502), status(201)));
+    Http retryingHttp = CommonsHttp.of(1, 60, fastRetries());
+    Path tempDir = createTempDirectory("briefcase-test-");
+    Path file = tempDir.resolve("some-file.txt");
+    write(file, "some content".getBytes(UTF_8));
+    running(server, () -> {
+      Response response = retryingHttp.execute(RequestBuilder.post(BASE_URL)
+          .withMultipartMessage("some-file.txt", "text/plain", "some-file.txt", file)
+          .asRepeatable()
+          .build());
+      assertThat(response.isSuccess(), is(true));
+    });
+    deleteRecursive(tempDir);
+  }
+
+  @Test
+  public void streams_file_bodies_again_on_retries() throws Exception {
+    server.request(and(by(uri("/")), by(method(POST)), by(text("some content")))).response(seq(status(502), status(201)));
+    Http retryingHttp = CommonsHttp.of(1, 60, fastRetries());
+    Path tempDir = createTempDirectory("briefcase-test-");
+    Path file = tempDir.resolve("some-file.txt");
+    write(file, "some content".getBytes(UTF_8));
+    running(server, () -> {
+      Response response = retryingHttp.execute(RequestBuilder.post(BASE_URL)
+          .withBody(file)
+          .asRepeatable()
+          .build());
+      assertThat(response.isSuccess(), is(true));
+    });
+    deleteRecursive(tempDir);
+  }
+
+  @Test
+  public void does_not_retry_requests_that_are_not_repeatable() throws Exception {
+    server.request(and(by(uri("/")), by(method(POST)))).response(seq(status(503), status(201)));
+    Http retryingHttp = CommonsHttp.of(1, 60, fastRetries());
+    running(server, () -> {
+      Response response = retryingHttp.execute(RequestBuilder.post(BASE_URL).withBody("some body").build());
+      assertThat(response.getStatusCode(), is(503));
+    });
+  }
+
+  private static RetryPolicy fastRetries() {
+    return new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(10), () -> 1);
+  }
+
+  @Test
+  public void counts_the_bytes_of_request_bodies_sent_again_on_retries() throws Exception {
+    server.request(and(by(uri("/")), by(method(POST)))).response(seq(status(502), status(201)));
+    Http retryingHttp = CommonsHttp.of(1, 60, fastRetries());
+    TransferCounter counter = new TransferCounter();
+    running(server, () -> {
+      Response response = retryingHttp.execute(RequestBuilder.post(BASE_URL)
+          .withBody("some body")
+          .asRepeatable()
+          .withTransferCounter(counter)
+          .build());
+      assertThat(response.isSuccess(), is(true));
+    });
+    assertThat(counter.getSentBytes(), is(2L * "some body".length()));
+  }
+
+  @Test
+  public void decodes_compressed_responses_and_counts_their_bytes() throws Exception {
+    String content = String.join("", Collections.nCopies(1000, "some content "));
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+      out.write(content.getBytes(UTF_8));
+    }
+    BasicHttpResponse response = new BasicHttpResponse(new BasicStatusLine(HttpVersion.HTTP_1_1, 200, "OK"));
+    ByteArrayEntity entity = new ByteArrayEntity(compressed.toByteArray());
+    entity.setContentEncoding("gzip");
+    response.setEntity(entity);
+    TransferCounter counter = new TransferCounter();
+
+    HttpResponse decodedResponse = CommonsHttp.decodeContent(response, Optional.of(counter));
+
+    assertThat(IOUtils.toString(decodedResponse.getEntity().getContent(), UTF_8), is(content));
+    assertThat(counter.getWireBytes(), is((long) compressed.size()));
+    assertThat(counter.getDecodedBytes(), is((long) content.length()));
+  }
+
+  @Test
+  public void leaves_uncompressed_responses_untouched() throws Exception {
+    BasicHttpResponse response = new BasicHttpResponse(new BasicStatusLine(HttpVersion.HTTP_1_1, 200, "OK"));
+    response.setEntity(new StringEntity("some content", UTF_8));
+    TransferCounter counter = new TransferCounter();
+
+    HttpResponse decodedResponse = CommonsHttp.decodeContent(response, Optional.of(counter));
+
+    assertThat(IOUtils.toString(decodedResponse.getEntity().getContent(), UTF_8), is("some content"));
+    assertThat(counter.getWireBytes(), is(12L));
+    assertThat(counter.getDecodedBytes(), is(12L));
+  }
 }
@@ -19,9 +19,13 @@ package org.opendatakit.briefcase.reused.http;
 import static org.opendatakit.briefcase.reused.http.response.ResponseHelpers.ok;
 
 import java.io.InputStream;
+import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import org.apache.http.HttpHost;
 import org.opendatakit.briefcase.reused.http.response.Response;
 
@@ -45,6 +49,52 @@ public class FakeHttp implements Http {
     return handler.handle(request);
   }
 
+  @Override
+  public <T> CompletableFuture<Response<T>> executeAsync(Request<T> request) {
+    return supplyAsync(() -> execute(request));
+  }
+
+  @Override
+  public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    try {
+      future.complete(task.get());
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  @Override
+  public ConcurrencyStats getConcurrencyStats(URL url) {
+    return ConcurrencyStats.idle(url.getHost(), 1);
+  }
+
+  @Override
+  public List<ConcurrencyStats> getAllConcurrencyStats() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public void setValidatorCache(HttpValidatorCache validatorCache) {
+
+  }
+
+  @Override
+  public void unsetValidatorCache() {
+
+  }
+
+  @Override
+  public void setBandwidthLimits(BandwidthLimits bandwidthLimits) {
+
+  }
+
+  @Override
+  public BandwidthLimits getBandwidthLimits() {
+    return BandwidthLimits.unlimited();
+  }
+
   @Override
   public void setProxy(HttpHost proxy) {
 
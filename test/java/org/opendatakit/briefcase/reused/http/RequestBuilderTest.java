@@ -20,6 +20,7 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.opendatakit.briefcase.reused.http.RequestBuilder.url;
 
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -86,4 +87,11 @@ public class RequestBuilderTest {
         is(url("http://foo.com/bar/baz"))
     );
   }
+
+  @Test
+  public void asks_for_compressed_responses_only_when_they_are_text() {
+    assertThat(RequestBuilder.get("http://foo.com").asXmlElement().build().headers.get("Accept-Encoding"), is("gzip, deflate"));
+    assertThat(RequestBuilder.get("http://foo.com").asJsonMap().build().headers.get("Accept-Encoding"), is("gzip, deflate"));
+    assertThat(RequestBuilder.get("http://foo.com").downloadTo(Paths.get("some-photo.jpg")).build().headers.containsKey("Accept-Encoding"), is(false));
+  }
 }
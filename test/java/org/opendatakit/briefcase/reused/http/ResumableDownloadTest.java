@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused.http;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.opendatakit.briefcase.matchers.ExceptionMatchers.throwsException;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createTempDirectory;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteRecursive;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.exists;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.readFirstLine;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.write;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.util.Map;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResumableDownloadTest {
+  private Path tempDir;
+  private Path target;
+  private ResumableDownload download;
+
+  @Before
+  public void setUp() {
+    tempDir = createTempDirectory("briefcase");
+    target = tempDir.resolve("some-video.mp4");
+    download = new ResumableDownload(target);
+  }
+
+  @After
+  public void tearDown() {
+    deleteRecursive(tempDir);
+  }
+
+  @Test
+  public void moves_the_downloaded_file_to_its_target_once_complete() {
+    download.prepare(response(200));
+    download.writeBody(stream("some content"));
+
+    assertThat(readFirstLine(target), is("some content"));
+    assertThat(exists(download.getPartialFile()), is(false));
+    assertThat(ResumableDownload.isPartialFile(download.getPartialFile()), is(true));
+  }
+
+  @Test
+  public void asks_for_the_missing_bytes_of_an_interrupted_download() {
+    download.prepare(response(200, "ETag", "\"v1\""));
+    write(download.getPartialFile(), "some ");
+
+    Map<String, String> headers = download.getResumeHeaders();
+    assertThat(headers.get("Range"), is("bytes=5-"));
+    assertThat(headers.get("If-Range"), is("\"v1\""));
+    assertThat(headers.get("Accept-Encoding"), is("identity"));
+
+    download.prepare(response(206, "Content-Range", "bytes 5-11/12"));
+    download.writeBody(stream("content"));
+
+    assertThat(readFirstLine(target), is("some content"));
+    assertThat(download.getResumeHeaders().isEmpty(), is(true));
+  }
+
+  @Test
+  public void starts_over_when_the_server_sends_the_full_contents() {
+    download.prepare(response(200, "ETag", "\"v1\""));
+    write(download.getPartialFile(), "some ");
+
+    download.prepare(response(200, "ETag", "\"v2\""));
+    download.writeBody(stream("other content"));
+
+    assertThat(readFirstLine(target), is("other content"));
+  }
+
+  @Test
+  public void starts_over_when_the_server_sends_an_unexpected_range() {
+    download.prepare(response(200, "ETag", "\"v1\""));
+    write(download.getPartialFile(), "some ");
+
+    assertThat(() -> download.prepare(response(206, "Content-Range", "bytes 3-11/12")), throwsException(HttpException.class));
+    assertThat(exists(download.getPartialFile()), is(false));
+  }
+
+  @Test
+  public void does_not_resume_downloads_without_a_strong_validator() {
+    download.prepare(response(200, "ETag", "W/\"v1\""));
+    write(download.getPartialFile(), "some ");
+    assertThat(download.getResumeHeaders().isEmpty(), is(true));
+
+    download.prepare(response(200, "Last-Modified", "Tue, 1 Jan 2019 00:00:00 GMT"));
+    write(download.getPartialFile(), "some ");
+    assertThat(download.getResumeHeaders().get("If-Range"), is("Tue, 1 Jan 2019 00:00:00 GMT"));
+  }
+
+  private static HttpResponse response(int statusCode, String... headers) {
+    BasicHttpResponse response = new BasicHttpResponse(new BasicStatusLine(HttpVersion.HTTP_1_1, statusCode, ""));
+    for (int i = 0; i < headers.length; i += 2)
+      response.addHeader(headers[i], headers[i + 1]);
+    return response;
+  }
+
+  private static ByteArrayInputStream stream(String contents) {
+    return new ByteArrayInputStream(contents.getBytes(UTF_8));
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused.http;
+
+import static com.github.npathai.hamcrestopt.OptionalMatchers.isEmpty;
+import static com.github.npathai.hamcrestopt.OptionalMatchers.isPresentAndIs;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.opendatakit.briefcase.reused.http.RequestBuilder.url;
+
+import java.net.URL;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import org.junit.Test;
+
+public class RetryPolicyTest {
+  private static final URL BASE_URL = url("http://foo.com");
+  private final RetryPolicy policy = new RetryPolicy(3, Duration.ofSeconds(1), Duration.ofSeconds(30), () -> 1);
+
+  @Test
+  public void retries_idempotent_and_repeatable_requests() {
+    assertThat(policy.canRetry(RequestBuilder.get(BASE_URL).build(), 0), is(true));
+    assertThat(policy.canRetry(RequestBuilder.head(BASE_URL).build(), 0), is(true));
+    assertThat(policy.canRetry(RequestBuilder.post(BASE_URL).asRepeatable().build(), 0), is(true));
+    assertThat(policy.canRetry(RequestBuilder.post(BASE_URL).build(), 0), is(false));
+  }
+
+  @Test
+  public void stops_retrying_after_the_max_number_of_retries() {
+    assertThat(policy.canRetry(RequestBuilder.get(BASE_URL).build(), 2), is(true));
+    assertThat(policy.canRetry(RequestBuilder.get(BASE_URL).build(), 3), is(false));
+    assertThat(RetryPolicy.none().canRetry(RequestBuilder.get(BASE_URL).build(), 0), is(false));
+  }
+
+  @Test
+  public void delays_grow_exponentially_up_to_a_max() {
+    assertThat(policy.getDelay(0, Optional.empty()), is(Duration.ofSeconds(1)));
+    assertThat(policy.getDelay(1, Optional.empty()), is(Duration.ofSeconds(2)));
+    assertThat(policy.getDelay(2, Optional.empty()), is(Duration.ofSeconds(4)));
+    assertThat(policy.getDelay(10, Optional.empty()), is(Duration.ofSeconds(30)));
+  }
+
+  @Test
+  public void delays_are_jittered() {
+    RetryPolicy jitteredPolicy = new RetryPolicy(3, Duration.ofSeconds(1), Duration.ofSeconds(30), () -> 0.5);
+    assertThat(jitteredPolicy.getDelay(2, Optional.empty()), is(Duration.ofSeconds(2)));
+  }
+
+  @Test
+  public void honours_the_delay_requested_by_the_server() {
+    assertThat(policy.getDelay(0, Optional.of(Duration.ofSeconds(10))), is(Duration.ofSeconds(10)));
+  }
+
+  @Test
+  public void parses_retry_after_header_values() {
+    Instant now = Instant.parse("2019-01-01T00:00:00Z");
+    assertThat(RetryPolicy.parseRetryAfter("120", now), isPresentAndIs(Duration.ofSeconds(120)));
+    assertThat(RetryPolicy.parseRetryAfter("Tue, 1 Jan 2019 00:01:00 GMT", now), isPresentAndIs(Duration.ofSeconds(60)));
+    assertThat(RetryPolicy.parseRetryAfter("Mon, 31 Dec 2018 00:00:00 GMT", now), isPresentAndIs(Duration.ZERO));
+    assertThat(RetryPolicy.parseRetryAfter("soon", now), isEmpty());
+    assertThat(RetryPolicy.parseRetryAfter(null, now), isEmpty());
+  }
+
+  @Test
+  public void knows_which_status_codes_are_transient() {
+    assertThat(RetryPolicy.isTransient(503), is(true));
+    assertThat(RetryPolicy.isTransient(429), is(true));
+    assertThat(RetryPolicy.isTransient(500), is(false));
+    assertThat(RetryPolicy.isTransient(404), is(false));
+  }
+}
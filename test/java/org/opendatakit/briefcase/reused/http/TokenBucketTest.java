@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused.http;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TokenBucketTest {
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+  private AtomicLong clock;
+  private TokenBucket bucket;
+
+  @Before
+  public void setUp() {
+    clock = new AtomicLong(0);
+    bucket = new TokenBucket(1000, clock::get);
+  }
+
+  @Test
+  public void lets_a_quarter_of_a_second_burst_through_without_waiting() {
+    assertThat(bucket.reserve(250), is(0L));
+  }
+
+  @Test
+  public void makes_transfers_wait_for_the_bytes_they_take_beyond_the_burst() {
+    assertThat(bucket.reserve(250), is(0L));
+    assertThat(bucket.reserve(500), is(SECOND / 2));
+    // The next transfer queues up behind the previous debt
+    assertThat(bucket.reserve(100), is(SECOND * 6 / 10));
+  }
+
+  @Test
+  public void refills_at_the_configured_rate_up_to_the_burst() {
+    bucket.reserve(250);
+    clock.addAndGet(SECOND / 10);
+    assertThat(bucket.reserve(100), is(0L));
+    clock.addAndGet(SECOND * 10);
+    assertThat(bucket.reserve(250), is(0L));
+    assertThat(bucket.reserve(1), is(SECOND / 1000));
+  }
+
+  @Test
+  public void measures_the_average_rate_over_the_time_spent_transferring() {
+    for (int i = 0; i < 5; i++) {
+      bucket.reserve(1000);
+      clock.addAndGet(SECOND / 2);
+    }
+    // Idle for a long while before another transfer and before asking for the rate
+    clock.addAndGet(SECOND * 60);
+    bucket.reserve(1000);
+    clock.addAndGet(SECOND * 60);
+    assertThat(bucket.getTotalBytes(), is(6000L));
+    // 4.75 seconds until the first five transfers get through, and 0.75 more for the last one
+    assertThat(bucket.getAverageRate(), closeTo(6000 / 5.5, 0.001));
+  }
+}
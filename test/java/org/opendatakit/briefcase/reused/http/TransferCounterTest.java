@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package org.opendatakit.briefcase.reused.http;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+public class TransferCounterTest {
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void measures_the_wire_rate_over_the_time_spent_receiving_bytes() {
+    AtomicLong clock = new AtomicLong(0);
+    TransferCounter counter = new TransferCounter(clock::get);
+    counter.addWireBytes(1000);
+    clock.addAndGet(SECOND);
+    counter.addWireBytes(1000);
+    // Idle between responses
+    clock.addAndGet(SECOND * 60);
+    counter.addWireBytes(1000);
+    clock.addAndGet(SECOND / 2);
+    counter.addWireBytes(500);
+    // Idle after the transfers have finished
+    clock.addAndGet(SECOND * 60);
+
+    assertThat(counter.getWireBytes(), is(3500L));
+    assertThat(counter.getWireRate(), closeTo(3500 / 1.5, 0.001));
+  }
+
+  @Test
+  public void reports_no_rate_before_receiving_bytes() {
+    assertThat(new TransferCounter().getWireRate(), is(0.0));
+  }
+}
@@ -20,12 +20,20 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
 
 public class ResponseHelpers {
   public static Response<InputStream> ok(String body) {
     return new Success<>(200, "OK", new ByteArrayInputStream(body.getBytes(UTF_8)));
   }
 
+  public static Response<InputStream> ok(String body, Map<String, String> headers) {
+    Map<String, String> lowerCaseHeaders = new HashMap<>();
+    headers.forEach((name, value) -> lowerCaseHeaders.put(name.toLowerCase(), value));
+    return new Success<>(200, "OK", new ByteArrayInputStream(body.getBytes(UTF_8)), lowerCaseHeaders);
+  }
+
   public static Response<Boolean> found() {
     return new Redirection<>(302, "Found");
   }
@@ -41,4 +49,8 @@ public class ResponseHelpers {
   public static Response<InputStream> notFoundInputStream() {
     return new ClientError<>(404, "Not Found", "");
   }
+
+  public static Response<InputStream> unauthorizedInputStream() {
+    return new ClientError<>(401, "Unauthorized", "");
+  }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused.transfer;
+
+import static com.github.npathai.hamcrestopt.OptionalMatchers.isEmpty;
+import static com.github.npathai.hamcrestopt.OptionalMatchers.isPresentAndIs;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+import static org.opendatakit.briefcase.matchers.ExceptionMatchers.throwsException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+import org.junit.Test;
+import org.opendatakit.briefcase.reused.BriefcaseException;
+
+public class CentralSubmissionPageTest {
+  private static final OffsetDateTime SOME_DATE_TIME = OffsetDateTime.parse("2019-01-01T00:00:00.000Z");
+
+  @Test
+  public void reads_the_submissions_of_an_OData_page_skipping_other_fields() {
+    CentralSubmissionPage page = CentralSubmissionPage.readODataPage(stream("{" +
+        "\"@odata.context\":\"http://foo.bar/v1/projects/1/forms/some-form.svc/$metadata#Submissions\"," +
+        "\"value\":[" +
+        "{\"__id\":\"some-instance-id\",\"some-field\":{\"nested\":[1,2,3]},\"__system\":{\"submissionDate\":\"2019-01-01T00:00:00.000Z\",\"submitterName\":\"someone\",\"attachmentsPresent\":2}}," +
+        "{\"__system\":{\"submissionDate\":\"2019-01-01T00:01:00.000Z\"},\"__id\":\"other-instance-id\"}" +
+        "]," +
+        "\"@odata.count\":10" +
+        "}"));
+
+    assertThat(page.getSubmissions(), contains(
+        new CentralSubmission("some-instance-id", SOME_DATE_TIME, Optional.of(2)),
+        new CentralSubmission("other-instance-id", SOME_DATE_TIME.plusMinutes(1))
+    ));
+    assertThat(page.getTotalCount(), isPresentAndIs(10));
+  }
+
+  @Test
+  public void total_count_is_empty_when_the_server_does_not_send_it() {
+    assertThat(CentralSubmissionPage.readODataPage(stream("{\"value\":[]}")).getTotalCount(), isEmpty());
+  }
+
+  @Test
+  public void fails_when_a_submission_has_no_instance_ID() {
+    assertThat(
+        () -> CentralSubmissionPage.readODataPage(stream("{\"value\":[{\"__system\":{\"submissionDate\":\"2019-01-01T00:00:00.000Z\"}}]}")),
+        throwsException(BriefcaseException.class)
+    );
+  }
+
+  @Test
+  public void reads_the_submissions_of_the_REST_list() {
+    assertThat(CentralSubmission.readRestList(stream("[" +
+        "{\"instanceId\":\"some-instance-id\",\"submitter\":5,\"createdAt\":\"2019-01-01T00:00:00.000Z\",\"updatedAt\":null}" +
+        "]")), contains(new CentralSubmission("some-instance-id", SOME_DATE_TIME)));
+  }
+
+  private static InputStream stream(String json) {
+    return new ByteArrayInputStream(json.getBytes(UTF_8));
+  }
+}
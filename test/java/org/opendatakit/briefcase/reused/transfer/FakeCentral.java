@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.reused.transfer;
+
+import static com.github.dreamhead.moco.Moco.and;
+import static com.github.dreamhead.moco.Moco.by;
+import static com.github.dreamhead.moco.Moco.eq;
+import static com.github.dreamhead.moco.Moco.exist;
+import static com.github.dreamhead.moco.Moco.not;
+import static com.github.dreamhead.moco.Moco.query;
+import static com.github.dreamhead.moco.Moco.uri;
+import static java.time.format.DateTimeFormatter.ISO_INSTANT;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+import com.github.dreamhead.moco.HttpServer;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Stubs the endpoints of a Central server on a Moco {@link HttpServer}, serving
+ * a form and its submissions.
+ * <p>
+ * The OData submission list honours the submission date filters
+ * that Briefcase sends, as long as they use the date of a submission
+ * stubbed with {@link #withSubmission(String, OffsetDateTime, String)}.
+ */
+public class FakeCentral {
+  // The order Central's OData pages have to be requested in
+  private static final String SUBMISSIONS_ORDER = "__system/submissionDate,__id";
+  private final HttpServer server;
+  private final int projectId;
+  private final String formId;
+  private final List<CentralSubmission> submissions = new ArrayList<>();
+
+  private FakeCentral(HttpServer server, int projectId, String formId) {
+    this.server = server;
+    this.projectId = projectId;
+    this.formId = formId;
+  }
+
+  public static FakeCentral on(HttpServer server, int projectId, String formId, String formXml) {
+    FakeCentral fakeCentral = new FakeCentral(server, projectId, formId);
+    server.request(by(uri(fakeCentral.formPath() + ".xml"))).response(formXml);
+    server.request(by(uri(fakeCentral.formPath() + "/attachments"))).response("[]");
+    return fakeCentral;
+  }
+
+  /**
+   * Stubs a submission without attachments. Its attachment list isn't stubbed,
+   * since the submission lists already tell that it has no attachments.
+   */
+  public FakeCentral withSubmission(String instanceId, OffsetDateTime submissionDate, String submissionXml) {
+    submissions.add(new CentralSubmission(instanceId, submissionDate, Optional.of(0)));
+    server.request(by(uri(formPath() + "/submissions/" + instanceId + ".xml"))).response(submissionXml);
+    return this;
+  }
+
+  /**
+   * Stubs the submission lists. Call it after stubbing all the submissions.
+   */
+  public FakeCentral withSubmissionLists() {
+    submissions.stream().map(CentralSubmission::getSubmissionDate).distinct().forEach(date -> server
+        .request(and(
+            by(uri(formPath() + ".svc/Submissions")),
+            eq(query("$filter"), "__system/submissionDate ge " + ISO_INSTANT.format(date)),
+            eq(query("$orderby"), SUBMISSIONS_ORDER)
+        ))
+        .response(odataJsonOf(submissions.stream().filter(s -> !s.getSubmissionDate().isBefore(date)).collect(toList()))));
+    server
+        .request(and(by(uri(formPath() + ".svc/Submissions")), not(exist(query("$filter"))), eq(query("$orderby"), SUBMISSIONS_ORDER)))
+        .response(odataJsonOf(submissions));
+    server
+        .request(by(uri(formPath() + "/submissions")))
+        .response(restJsonOf(submissions));
+    return this;
+  }
+
+  private String formPath() {
+    return "/v1/projects/" + projectId + "/forms/" + formId;
+  }
+
+  public static String odataJsonOf(List<CentralSubmission> submissions) {
+    return odataJsonOf(submissions, submissions.size());
+  }
+
+  public static String odataJsonOf(List<CentralSubmission> page, int totalCount) {
+    return "{\"@odata.count\":" + totalCount + ",\"value\":[" + page.stream()
+        .map(s -> String.format(
+            "{\"__id\":\"%s\",\"__system\":{\"submissionDate\":\"%s\"%s}}",
+            s.getInstanceId(),
+            ISO_INSTANT.format(s.getSubmissionDate()),
+            s.getAttachmentsPresent().map(count -> ",\"attachmentsPresent\":" + count).orElse("")
+        ))
+        .collect(joining(",")) + "]}";
+  }
+
+  public static String restJsonOf(List<CentralSubmission> submissions) {
+    return "[" + submissions.stream()
+        .map(s -> String.format("{\"instanceId\":\"%s\",\"createdAt\":\"%s\"}", s.getInstanceId(), ISO_INSTANT.format(s.getSubmissionDate())))
+        .collect(joining(",")) + "]";
+  }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2019 Nafundi
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package org.opendatakit.briefcase.util;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.copy;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createDirectories;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.createTempDirectory;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.deleteRecursive;
+import static org.opendatakit.briefcase.reused.UncheckedFiles.write;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opendatakit.briefcase.model.FormStatus;
+import org.opendatakit.briefcase.model.OdkCollectFormDefinition;
+import org.opendatakit.briefcase.model.TerminationFuture;
+import org.opendatakit.briefcase.transfer.TransferForms;
+
+public class TransferFromODKTest {
+  private Path odkDir;
+  private Path briefcaseDir;
+  private Path instancesDir;
+
+  @Before
+  public void setUp() throws URISyntaxException {
+    odkDir = createTempDirectory("briefcase_test_odk_");
+    briefcaseDir = createTempDirectory("briefcase_test_");
+    instancesDir = briefcaseDir.resolve("forms").resolve("basic").resolve("instances");
+    createDirectories(odkDir.resolve("forms"));
+    copy(Paths.get(TransferFromODKTest.class.getClassLoader().getResource("basic.xml").toURI()), odkDir.resolve("forms").resolve("basic.xml"));
+    // ODK Collect 1.1.5 to 1.1.7 only saved the full instance
+    collectInstance("basic_2019-01-01_10-00-00", "uuid:1", false);
+    // Later versions also save the submission.xml file
+    collectInstance("basic_2019-01-02_10-00-00", "uuid:2", true);
+    // An instance of another form with a similar name
+    collectInstance("basic_2_2019-01-03_10-00-00", "uuid:3", true);
+  }
+
+  @After
+  public void tearDown() {
+    deleteRecursive(odkDir);
+    deleteRecursive(briefcaseDir);
+  }
+
+  @Test
+  public void imports_the_instances_of_a_form_with_their_attachments() throws Exception {
+    CollectImportSummary summary = importForms();
+
+    assertThat(summary.getImported(), is(2));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-01_10-00-00").resolve("submission.xml")), is(true));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-01_10-00-00").resolve("basic_2019-01-01_10-00-00.xml")), is(false));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-01_10-00-00").resolve("photo.jpg")), is(true));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-02_10-00-00").resolve("submission.xml")), is(true));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-02_10-00-00").resolve("basic_2019-01-02_10-00-00.xml")), is(false));
+    assertThat(Files.exists(instancesDir.resolve("basic_2_2019-01-03_10-00-00")), is(false));
+  }
+
+  @Test
+  public void skips_the_instances_already_present() throws Exception {
+    importForms();
+    CollectImportSummary summary = importForms();
+
+    assertThat(summary.getImported(), is(0));
+    assertThat(summary.getAlreadyPresent(), is(2));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-01_10-00-00-2")), is(false));
+  }
+
+  @Test
+  public void imports_instances_colliding_with_other_instances_in_a_suffixed_directory() throws Exception {
+    Path otherInstanceDir = instancesDir.resolve("basic_2019-01-01_10-00-00");
+    createDirectories(otherInstanceDir);
+    write(otherInstanceDir.resolve("submission.xml"), submissionXml("uuid:other"));
+
+    CollectImportSummary summary = importForms();
+
+    assertThat(summary.getImported(), is(2));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-01_10-00-00-2").resolve("submission.xml")), is(true));
+  }
+
+  @Test
+  public void renames_copied_instances_with_a_single_xml_file_without_changing_the_odk_directory() throws Exception {
+    Path dir = odkDir.resolve("instances").resolve("basic_2019-01-04_10-00-00");
+    createDirectories(dir);
+    write(dir.resolve("copied.xml"), submissionXml("uuid:4"));
+
+    CollectImportSummary summary = importForms();
+
+    assertThat(summary.getImported(), is(3));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-04_10-00-00").resolve("submission.xml")), is(true));
+    assertThat(Files.exists(dir.resolve("copied.xml")), is(true));
+  }
+
+  @Test
+  public void imports_the_instances_of_a_form_from_a_zip_archive() throws Exception {
+    CollectImportSummary summary = importArchive(zip(odkDir, "odk/"));
+
+    assertThat(summary.getImported(), is(2));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-01_10-00-00").resolve("submission.xml")), is(true));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-01_10-00-00").resolve("photo.jpg")), is(true));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-02_10-00-00").resolve("submission.xml")), is(true));
+  }
+
+  @Test
+  public void imports_the_instances_of_a_form_from_a_gzipped_tar_archive() throws Exception {
+    CollectImportSummary summary = importArchive(tarGz(odkDir, "odk/"));
+
+    assertThat(summary.getImported(), is(2));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-01_10-00-00").resolve("submission.xml")), is(true));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-01_10-00-00").resolve("basic_2019-01-01_10-00-00.xml")), is(false));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-01_10-00-00").resolve("photo.jpg")), is(true));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-02_10-00-00").resolve("submission.xml")), is(true));
+    assertThat(Files.exists(instancesDir.resolve("basic_2_2019-01-03_10-00-00")), is(false));
+    assertThat(Files.exists(instancesDir.resolveSibling(".instances-staging")), is(false));
+  }
+
+  @Test
+  public void finds_the_shallowest_odk_directory_of_zip_and_tar_archives() throws Exception {
+    // A deeper forms directory that comes first in the archive
+    String otherForm = "backup/old/odk/forms/other.xml";
+    for (Path archivePath : new Path[]{zip(odkDir, "sdcard/odk/", otherForm), tarGz(odkDir, "sdcard/odk/", otherForm)}) {
+      try (CollectArchive archive = CollectArchive.open(archivePath)) {
+        assertThat(Files.exists(archive.getOdkDir().resolve("forms").resolve("basic.xml")), is(true));
+        assertThat(Files.exists(archive.getOdkDir().resolve("forms").resolve("other.xml")), is(false));
+      } finally {
+        deleteRecursive(archivePath);
+      }
+    }
+  }
+
+  @Test
+  public void ignores_archive_entries_outside_their_target_directory() throws Exception {
+    Path archivePath = tarGz(odkDir, "odk/",
+        "odk/forms/../../escaped.xml",
+        "odk/instances/basic_2019-01-01_10-00-00/../../../../escaped.txt"
+    );
+
+    CollectImportSummary summary = importArchive(archivePath);
+
+    assertThat(summary.getImported(), is(2));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-01_10-00-00").resolve("photo.jpg")), is(true));
+    assertThat(Files.exists(briefcaseDir.resolve("escaped.txt")), is(false));
+  }
+
+  private CollectImportSummary importForms() throws Exception {
+    CollectImportSummary summary = new CollectImportSummary();
+    Set<String> submissionVersions = new HashSet<>();
+    FormStatus form = new FormStatus(new OdkCollectFormDefinition(odkDir.resolve("forms").resolve("basic.xml").toFile()));
+    form.setSelected(true);
+    TransferFromODK action = new TransferFromODK(briefcaseDir, odkDir.toFile(), new TerminationFuture(), TransferForms.of(form), submissionVersions, summary);
+    assertThat(action.doAction(), is(true));
+    return summary;
+  }
+
+  @Test
+  public void does_not_write_into_the_storage_when_a_tar_archive_fails_midway() throws Exception {
+    Path archivePath = tarGz(odkDir, "odk/");
+    CollectImportSummary summary = new CollectImportSummary();
+    try (CollectArchive archive = CollectArchive.open(archivePath)) {
+      // Cut the end of the archive, after the entries of the instances
+      try (FileChannel channel = FileChannel.open(archivePath, StandardOpenOption.WRITE)) {
+        channel.truncate(channel.size() - 10);
+      }
+      FormStatus form = new FormStatus(new OdkCollectFormDefinition(archive.getOdkDir().resolve("forms").resolve("basic.xml").toFile()));
+      form.setSelected(true);
+      TransferFromODK action = new TransferFromODK(briefcaseDir, archive, new TerminationFuture(), TransferForms.of(form), new HashSet<>(), summary);
+      assertThat(action.doAction(), is(false));
+    } finally {
+      deleteRecursive(archivePath);
+    }
+
+    assertThat(summary.getImported(), is(0));
+    assertThat(summary.getFailed(), is(2));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-01_10-00-00")), is(false));
+    assertThat(Files.exists(instancesDir.resolve("basic_2019-01-02_10-00-00")), is(false));
+    assertThat(Files.exists(instancesDir.resolveSibling(".instances-staging")), is(false));
+  }
+
+  private CollectImportSummary importArchive(Path archivePath) {
+    CollectImportSummary summary = new CollectImportSummary();
+    try (CollectArchive archive = CollectArchive.open(archivePath)) {
+      FormStatus form = new FormStatus(new OdkCollectFormDefinition(archive.getOdkDir().resolve("forms").resolve("basic.xml").toFile()));
+      form.setSelected(true);
+      TransferFromODK action = new TransferFromODK(briefcaseDir, archive, new TerminationFuture(), TransferForms.of(form), new HashSet<>(), summary);
+      assertThat(action.doAction(), is(true));
+    } finally {
+      deleteRecursive(archivePath);
+    }
+    return summary;
+  }
+
+  private void collectInstance(String dirName, String instanceId, boolean withSubmissionFile) {
+    Path dir = odkDir.resolve("instances").resolve(dirName);
+    createDirectories(dir);
+    write(dir.resolve(dirName + ".xml"), submissionXml(instanceId));
+    if (withSubmissionFile)
+      write(dir.resolve("submission.xml"), submissionXml(instanceId));
+    write(dir.resolve("photo.jpg"), "some photo");
+  }
+
+  /**
+   * Writes a zip archive with the given extra entries first, followed by
+   * the files of the given directory under the given root.
+   */
+  private static Path zip(Path dir, String root, String... extraEntries) throws IOException {
+    Path archive = Files.createTempFile("briefcase_test_odk_", ".zip");
+    try (ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(archive));
+         Stream<Path> files = Files.walk(dir)) {
+      for (String extraEntry : extraEntries) {
+        zipOut.putNextEntry(new ZipEntry(extraEntry));
+        zipOut.write("extra".getBytes());
+        zipOut.closeEntry();
+      }
+      for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+        zipOut.putNextEntry(new ZipEntry(root + dir.relativize(file).toString().replace('\\', '/')));
+        Files.copy(file, zipOut);
+        zipOut.closeEntry();
+      }
+    }
+    return archive;
+  }
+
+  /**
+   * Writes a .tar.gz archive with the given extra entries first, followed
+   * by the files of the given directory under the given root.
+   */
+  private static Path tarGz(Path dir, String root, String... extraEntries) throws IOException {
+    Path archive = Files.createTempFile("briefcase_test_odk_", ".tar.gz");
+    try (TarArchiveOutputStream tarOut = new TarArchiveOutputStream(new GZIPOutputStream(Files.newOutputStream(archive)));
+         Stream<Path> files = Files.walk(dir)) {
+      tarOut.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+      for (String extraEntry : extraEntries) {
+        byte[] contents = "extra".getBytes();
+        TarArchiveEntry entry = new TarArchiveEntry(extraEntry);
+        entry.setSize(contents.length);
+        tarOut.putArchiveEntry(entry);
+        tarOut.write(contents);
+        tarOut.closeArchiveEntry();
+      }
+      for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+        TarArchiveEntry entry = new TarArchiveEntry(file.toFile(), root + dir.relativize(file).toString().replace('\\', '/'));
+        tarOut.putArchiveEntry(entry);
+        Files.copy(file, tarOut);
+        tarOut.closeArchiveEntry();
+      }
+    }
+    return archive;
+  }
+
+  private static String submissionXml(String instanceId) {
+    return "<basic id=\"basic\"><test>yes</test><meta><instanceID>" + instanceId + "</instanceID></meta></basic>";
+  }
+}